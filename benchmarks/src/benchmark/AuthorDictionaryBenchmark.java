@@ -0,0 +1,126 @@
+package benchmark;
+
+import model.AuthorDictionary;
+import model.Book;
+import model.Library;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * The {@code AuthorDictionaryBenchmark} class measures the heap a large catalog takes when the library's
+ * {@link AuthorDictionary} gives every book the canonical string for its author, and the heap the books'
+ * own copies of the names would have taken on top of it.
+ *
+ * <p>Authors are drawn from a Zipf distribution, so a few prolific authors have thousands of titles and
+ * most have one or two, and every name is a fresh string, as it would be when parsed from a file.</p>
+ *
+ * <p>Usage: {@code java -Xmx4g benchmark.AuthorDictionaryBenchmark [books] [authors]} (defaults to
+ * 5,000,000 books by 400,000 authors).</p>
+ */
+public class AuthorDictionaryBenchmark {
+
+    /** The exponent of the Zipf distribution of titles over authors. */
+    private static final double SKEW = 1.1;
+
+    /**
+     * Runs the benchmark.
+     *
+     * @param args The optional number of books and number of authors.
+     */
+    public static void main(String[] args) {
+        int books = args.length > 0 ? Integer.parseInt(args[0]) : 5_000_000;
+        int authors = args.length > 1 ? Integer.parseInt(args[1]) : 400_000;
+        String[] names = new String[authors];
+        for (int i = 0; i < authors; i++) {
+            names[i] = "Author Number " + i + " of the Catalog";
+        }
+        int[] authorOf = drawAuthors(books, authors, new Random(42));
+
+        long before = usedHeap();
+        long start = System.nanoTime();
+        Library library = new Library();
+        List<Book> batch = new ArrayList<>(65_536);
+        for (int i = 0; i < books; i++) {
+            batch.add(new Book("Title " + i, parsed(names[authorOf[i]]), 1900 + i % 120, 1));
+            if (batch.size() == 65_536) {
+                library.addBooks(batch);
+                batch.clear();
+            }
+        }
+        library.addBooks(batch);
+        batch = null;
+        double seconds = (System.nanoTime() - start) / 1e9;
+        long catalog = usedHeap() - before;
+
+        // The strings each book would keep without the dictionary; the array stands for their reference fields, so it is not counted
+        String[] copies = new String[books];
+        before = usedHeap();
+        for (int i = 0; i < books; i++) {
+            copies[i] = parsed(names[authorOf[i]]);
+        }
+        long duplicated = usedHeap() - before;
+
+        int popular = library.getAuthorDictionary().find(library.getBooks().get(0).getAuthor());
+        start = System.nanoTime();
+        int found = library.findBooksByAuthorId(popular).size();
+        double lookupMillis = (System.nanoTime() - start) / 1e6;
+
+        System.out.printf("%,d books by %,d distinct authors, loaded in %.1f s%n", books, library.getAuthorDictionary().size(), seconds);
+        System.out.printf("catalog with canonical authors: %,d MB, %.1f bytes per book%n", catalog >> 20, (double) catalog / books);
+        System.out.printf("per-book author strings would add: %,d MB, %.1f bytes per book (%.0f%% of the catalog)%n",
+                duplicated >> 20, (double) duplicated / books, 100.0 * duplicated / catalog);
+        System.out.printf("books by the author of the first book: %,d, found in %.1f ms%n", found, lookupMillis);
+        if (copies.length + library.getBooks().size() < 0) {
+            System.out.println(); // Keeps both alive until here
+        }
+    }
+
+    /**
+     * Draws the author of each book from a Zipf distribution.
+     *
+     * @param books   The number of books.
+     * @param authors The number of authors.
+     * @param random  The source of randomness.
+     * @return The author index of each book.
+     */
+    private static int[] drawAuthors(int books, int authors, Random random) {
+        double[] cumulative = new double[authors];
+        double total = 0;
+        for (int rank = 0; rank < authors; rank++) {
+            total += 1 / Math.pow(rank + 1, SKEW);
+            cumulative[rank] = total;
+        }
+        int[] authorOf = new int[books];
+        for (int i = 0; i < books; i++) {
+            int rank = Arrays.binarySearch(cumulative, random.nextDouble() * total);
+            authorOf[i] = rank >= 0 ? rank : Math.min(-rank - 1, authors - 1);
+        }
+        return authorOf;
+    }
+
+    /**
+     * Returns a copy of a name with its own characters, as a parser would produce.
+     *
+     * @param name The name.
+     * @return The copy.
+     */
+    private static String parsed(String name) {
+        return new String(name.toCharArray());
+    }
+
+    /**
+     * Returns the live heap after a full collection.
+     *
+     * @return The bytes in use.
+     */
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
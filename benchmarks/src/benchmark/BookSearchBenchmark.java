@@ -0,0 +1,81 @@
+package benchmark;
+
+import model.Book;
+import model.Library;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * The {@code BookSearchBenchmark} class measures the latency of {@link Library#searchBooks(String, int)}
+ * on a large synthetic catalog and prints the median and tail latencies.
+ *
+ * <p>Usage: {@code java benchmark.BookSearchBenchmark [books] [queries]} (defaults to 1,000,000 books
+ * and 100,000 queries).</p>
+ */
+public class BookSearchBenchmark {
+
+    /** The words synthetic titles are made of. */
+    private static final String[] WORDS = {
+            "river", "shadow", "garden", "winter", "silent", "empire", "golden", "harbor", "crimson", "forest",
+            "midnight", "secret", "stone", "glass", "ocean", "thunder", "mirror", "lantern", "orchard", "falcon",
+            "journey", "kingdom", "letters", "memory", "northern", "promise", "quiet", "summer", "tower", "valley"
+    };
+
+    /**
+     * Runs the benchmark.
+     *
+     * @param args The optional number of books and number of queries.
+     */
+    public static void main(String[] args) {
+        int books = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        int queries = args.length > 1 ? Integer.parseInt(args[1]) : 100_000;
+        Random random = new Random(42);
+        Library library = new Library();
+        long start = System.nanoTime();
+        for (int i = 0; i < books; i++) {
+            String title = "The " + word(random) + " " + word(random) + " " + word(random) + " " + i;
+            library.addBook(new Book(title, "Author " + random.nextInt(books / 10 + 1), 1900 + random.nextInt(120), 5));
+        }
+        System.out.printf("Indexed %d books in %d ms%n", books, (System.nanoTime() - start) / 1_000_000);
+
+        String[] workload = new String[queries];
+        for (int i = 0; i < queries; i++) {
+            workload[i] = random.nextBoolean()
+                    ? word(random) + " " + word(random) + " " + word(random) // A selective fragment of a title
+                    : "" + random.nextInt(books); // A catalog number that is part of one or a few titles
+        }
+        run(library, workload); // Warms up the JIT before measuring
+        long[] latencies = run(library, workload);
+        Arrays.sort(latencies);
+        System.out.printf("p50 %d us, p99 %d us, p99.9 %d us%n",
+                latencies[queries / 2] / 1_000, latencies[queries * 99 / 100] / 1_000, latencies[queries * 999 / 1000] / 1_000);
+    }
+
+    /**
+     * Runs every query once and records its latency.
+     *
+     * @param library The library to search.
+     * @param queries The queries.
+     * @return The latency of each query, in nanoseconds.
+     */
+    private static long[] run(Library library, String[] queries) {
+        long[] latencies = new long[queries.length];
+        for (int i = 0; i < queries.length; i++) {
+            long start = System.nanoTime();
+            library.searchBooks(queries[i], 20);
+            latencies[i] = System.nanoTime() - start;
+        }
+        return latencies;
+    }
+
+    /**
+     * Picks a random word.
+     *
+     * @param random The source of randomness.
+     * @return A word.
+     */
+    private static String word(Random random) {
+        return WORDS[random.nextInt(WORDS.length)];
+    }
+}
@@ -0,0 +1,117 @@
+package benchmark;
+
+import model.Book;
+import model.Library;
+import model.Member;
+import persistence.CatalogExporter;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The {@code CatalogExportBenchmark} class measures full exports of a large library with
+ * {@link CatalogExporter}, in both formats, and reports the heap the export allocated beyond the
+ * library itself, which stays the same however large the catalog is.
+ *
+ * <p>Usage: {@code java benchmark.CatalogExportBenchmark [books] [directory]} (defaults to 5,000,000
+ * books and 1,000,000 members in the temporary directory).</p>
+ */
+public class CatalogExportBenchmark {
+
+    /** The number of times each export is repeated; the first runs warm up the JIT compiler. */
+    private static final int RUNS = 5;
+
+    /**
+     * Runs the benchmark.
+     *
+     * @param args The optional number of books and the directory to write the files in.
+     * @throws IOException If the files cannot be written.
+     */
+    public static void main(String[] args) throws IOException {
+        int books = args.length > 0 ? Integer.parseInt(args[0]) : 5_000_000;
+        Path directory = args.length > 1 ? Path.of(args[1]) : Path.of(System.getProperty("java.io.tmpdir"));
+        Library library = new Library();
+        List<Book> catalog = new ArrayList<>(books);
+        for (int i = 0; i < books; i++) {
+            catalog.add(new Book("Title " + i, "Author, " + (i % 50_000), 1900 + i % 120, 1 + i % 5));
+        }
+        library.addBooks(catalog);
+        catalog = null;
+        List<Member> members = new ArrayList<>(books / 5);
+        for (int i = 0; i < books / 5; i++) {
+            members.add(new Member("Member " + i, "M" + i));
+        }
+        library.addMembers(members);
+        members = null;
+
+        CatalogExporter exporter = new CatalogExporter(library);
+        Path target = directory.resolve("library-export-benchmark");
+        try {
+            for (CatalogExporter.Format format : CatalogExporter.Format.values()) {
+                for (int run = 0; run < RUNS; run++) {
+                    System.gc();
+                    long before = usedHeap();
+                    resetPeaks();
+                    long start = System.nanoTime();
+                    List<Path> files = exporter.exportAll(target, format);
+                    double seconds = (System.nanoTime() - start) / 1e9;
+                    long bytes = 0;
+                    for (Path file : files) {
+                        bytes += Files.size(file);
+                    }
+                    System.out.printf("%s run %d: %,d MB in %.2f s, %,.0f books/s, peak heap +%,d MB%n",
+                            format, run + 1, bytes >> 20, seconds, books / seconds, (peakHeap() - before) >> 20);
+                }
+            }
+        } finally {
+            for (CatalogExporter.Format format : CatalogExporter.Format.values()) {
+                for (String name : new String[] {"catalog", "members", "loans", "ratings"}) {
+                    Files.deleteIfExists(target.resolve(name + format.getExtension()));
+                }
+            }
+            Files.deleteIfExists(target);
+        }
+    }
+
+    /**
+     * Returns the heap in use.
+     *
+     * @return The bytes in use.
+     */
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    /**
+     * Resets the peak usage of the heap pools.
+     */
+    private static void resetPeaks() {
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) {
+                pool.resetPeakUsage();
+            }
+        }
+    }
+
+    /**
+     * Returns the sum of the peak usage of the heap pools since they were reset.
+     *
+     * @return The peak bytes in use.
+     */
+    private static long peakHeap() {
+        long peak = 0;
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) {
+                peak += pool.getPeakUsage().getUsed();
+            }
+        }
+        return peak;
+    }
+}
@@ -0,0 +1,81 @@
+package benchmark;
+
+import DesingP.util.BookStateException;
+import model.Book;
+import model.CatalogLayout;
+import model.Library;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The {@code CatalogFootprintBenchmark} class measures the heap a large catalog takes in each
+ * {@link CatalogLayout}, as the growth of the live heap after a full collection, and the time it takes
+ * to look every book up by title and lend and return a copy of it.
+ *
+ * <p>Usage: {@code java -Xmx4g benchmark.CatalogFootprintBenchmark [books]} (defaults to 2,000,000
+ * books by 50,000 authors).</p>
+ */
+public class CatalogFootprintBenchmark {
+
+    /** The number of distinct authors. */
+    private static final int AUTHORS = 50_000;
+
+    /**
+     * Runs the benchmark.
+     *
+     * @param args The optional number of books.
+     * @throws BookStateException If a copy cannot be lent or returned.
+     */
+    public static void main(String[] args) throws BookStateException {
+        int books = args.length > 0 ? Integer.parseInt(args[0]) : 2_000_000;
+        String[] authors = new String[AUTHORS];
+        for (int i = 0; i < AUTHORS; i++) {
+            authors[i] = "Author " + i; // Shared by both layouts, so neither is charged for them
+        }
+        for (CatalogLayout layout : CatalogLayout.values()) {
+            long before = usedHeap();
+            Library library = new Library(layout);
+            List<Book> batch = new ArrayList<>(65_536);
+            for (int i = 0; i < books; i++) {
+                // Authors are copied, as they would be when parsed from a file
+                batch.add(new Book("The Collected Works, Volume " + i, new String(authors[i % AUTHORS]), 1900 + i % 120, 1 + i % 5));
+                if (batch.size() == 65_536) {
+                    library.addBooks(batch);
+                    batch.clear();
+                }
+            }
+            library.addBooks(batch);
+            batch = null;
+            long used = usedHeap() - before;
+
+            long start = System.nanoTime();
+            for (int i = 0; i < books; i++) {
+                Book book = library.findBookByTitle("The Collected Works, Volume " + i);
+                book.lendCopy();
+                book.returnCopy();
+            }
+            double seconds = (System.nanoTime() - start) / 1e9;
+
+            System.out.printf("%s: %,d books, %,d MB, %.1f bytes per book", layout, books, used >> 20, (double) used / books);
+            if (library.getColumnarFootprint() >= 0) {
+                System.out.printf(" (columns estimated at %.1f bytes per book)", (double) library.getColumnarFootprint() / books);
+            }
+            System.out.printf("; lookup, lend and return %,.0f books/s%n", books / seconds);
+            library = null;
+        }
+    }
+
+    /**
+     * Returns the live heap after a full collection.
+     *
+     * @return The bytes in use.
+     */
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
@@ -0,0 +1,116 @@
+package benchmark;
+
+import model.Librarian;
+import model.Library;
+import persistence.CatalogImporter;
+import persistence.ImportResult;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.function.Function;
+
+/**
+ * The {@code CatalogImportBenchmark} class measures how many rows per second {@link CatalogImporter}
+ * loads from local disk into an empty library, for a book catalog and a member list in both CSV and
+ * JSON Lines. The files are written once and each import is repeated on a fresh library.
+ *
+ * <p>Usage: {@code java benchmark.CatalogImportBenchmark [rows] [directory]} (defaults to 5,000,000
+ * rows in the temporary directory). Give it a fixed heap, such as {@code -Xms4g -Xmx4g}, so that the
+ * heap growing under the imported libraries is not measured as import time.</p>
+ */
+public class CatalogImportBenchmark {
+
+    /** The number of times each file is imported; the first runs warm up the JIT compiler. */
+    private static final int RUNS = 5;
+
+    /**
+     * Runs the benchmark.
+     *
+     * @param args The optional number of rows and the directory to write the files in.
+     * @throws IOException If the files cannot be written or read.
+     */
+    public static void main(String[] args) throws IOException {
+        int rows = args.length > 0 ? Integer.parseInt(args[0]) : 5_000_000;
+        Path directory = args.length > 1 ? Path.of(args[1]) : Path.of(System.getProperty("java.io.tmpdir"));
+        Path booksCsv = generate(directory.resolve("catalog-benchmark.csv"), rows, "title,author,year,quantity",
+                i -> "Title " + i + ",\"Author, " + (i % 50_000) + "\"," + (1900 + i % 120) + "," + (1 + i % 5));
+        Path booksJson = generate(directory.resolve("catalog-benchmark.jsonl"), rows, null,
+                i -> "{\"title\":\"Title " + i + "\",\"author\":\"Author " + (i % 50_000) + "\",\"year\":"
+                        + (1900 + i % 120) + ",\"quantity\":" + (1 + i % 5) + "}");
+        Path membersCsv = generate(directory.resolve("members-benchmark.csv"), rows, "name,id",
+                i -> "Member " + i + ",M" + i);
+        try {
+            measure("books (CSV)", booksCsv, CatalogImporter::importBooks);
+            measure("books (JSONL)", booksJson, CatalogImporter::importBooks);
+            measure("members (CSV)", membersCsv, CatalogImporter::importMembers);
+        } finally {
+            Files.deleteIfExists(booksCsv);
+            Files.deleteIfExists(booksJson);
+            Files.deleteIfExists(membersCsv);
+        }
+    }
+
+    /**
+     * Writes a file of generated rows.
+     *
+     * @param path   The file.
+     * @param rows   The number of rows.
+     * @param header The header line, or {@code null} for none.
+     * @param row    Generates the row with a given number.
+     * @return The file.
+     * @throws IOException If the file cannot be written.
+     */
+    private static Path generate(Path path, int rows, String header, Function<Integer, String> row) throws IOException {
+        try (BufferedWriter writer = Files.newBufferedWriter(path, StandardCharsets.UTF_8)) {
+            if (header != null) {
+                writer.write(header);
+                writer.newLine();
+            }
+            for (int i = 0; i < rows; i++) {
+                writer.write(row.apply(i));
+                writer.newLine();
+            }
+        }
+        return path;
+    }
+
+    /**
+     * Imports a file into fresh libraries and prints the rows per second of each run.
+     *
+     * @param label The name of the measurement.
+     * @param path  The file.
+     * @param load  The import to run.
+     * @throws IOException If the file cannot be read.
+     */
+    private static void measure(String label, Path path, Import load) throws IOException {
+        System.out.printf("%s, %,d MB:%n", label, Files.size(path) >> 20);
+        for (int run = 0; run < RUNS; run++) {
+            Library library = new Library();
+            CatalogImporter importer = new CatalogImporter(new Librarian(library));
+            long start = System.nanoTime();
+            ImportResult result = load.run(importer, path);
+            double seconds = (System.nanoTime() - start) / 1e9;
+            System.out.printf("  run %d: %,d rows in %.2f s, %,.0f rows/s%n",
+                    run + 1, result.getImported(), seconds, result.getImported() / seconds);
+        }
+    }
+
+    /**
+     * An import of one kind of file.
+     */
+    private interface Import {
+
+        /**
+         * Imports a file.
+         *
+         * @param importer The importer.
+         * @param path     The file.
+         * @return The result of the import.
+         * @throws IOException If the file cannot be read.
+         */
+        ImportResult run(CatalogImporter importer, Path path) throws IOException;
+    }
+}
@@ -0,0 +1,94 @@
+package benchmark;
+
+import model.Book;
+import model.CatalogLayout;
+import model.Library;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The {@code CatalogSnapshotBenchmark} class measures reading the whole catalog while it changes, in
+ * each layout: the time to take a {@link Library#getBooksSnapshot() snapshot} against the time to copy
+ * the catalog under its lock, and the rate at which a writer adds and removes books while readers
+ * keep taking snapshots and iterating over them.
+ *
+ * <p>Usage: {@code java -Xmx4g benchmark.CatalogSnapshotBenchmark [books] [seconds]} (defaults to
+ * 1,000,000 books and 5 seconds of churn per layout).</p>
+ */
+public class CatalogSnapshotBenchmark {
+
+    /** The number of threads reading the catalog during the churn. */
+    private static final int READERS = 2;
+
+    /**
+     * Runs the benchmark.
+     *
+     * @param args The optional number of books and seconds of churn.
+     * @throws InterruptedException If interrupted while waiting for the readers.
+     */
+    public static void main(String[] args) throws InterruptedException {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        int seconds = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+        for (CatalogLayout layout : CatalogLayout.values()) {
+            Library library = new Library(layout);
+            List<Book> books = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                books.add(new Book("Title " + i, "Author " + i % 50_000, 2000, 1));
+            }
+            library.addBooks(books);
+
+            long start = System.nanoTime();
+            long checksum = 0;
+            for (int i = 0; i < 1_000; i++) {
+                checksum += library.getBooksSnapshot().size();
+            }
+            double snapshotMicros = (System.nanoTime() - start) / 1e3 / 1_000;
+            start = System.nanoTime();
+            for (int i = 0; i < 10; i++) {
+                checksum += new ArrayList<>(library.getBooks()).size();
+            }
+            double copyMicros = (System.nanoTime() - start) / 1e3 / 10;
+
+            AtomicBoolean running = new AtomicBoolean(true);
+            AtomicLong scans = new AtomicLong();
+            AtomicLong scanned = new AtomicLong();
+            List<Thread> readers = new ArrayList<>();
+            for (int r = 0; r < READERS; r++) {
+                Thread reader = new Thread(() -> {
+                    while (running.get()) {
+                        long seen = 0;
+                        for (Book book : library.getBooksSnapshot()) {
+                            seen += book.getYear() & 1;
+                        }
+                        scanned.addAndGet(seen);
+                        scans.incrementAndGet();
+                    }
+                });
+                reader.start();
+                readers.add(reader);
+            }
+            long changes = 0;
+            long deadline = System.nanoTime() + seconds * 1_000_000_000L;
+            start = System.nanoTime();
+            while (System.nanoTime() < deadline) {
+                Book book = new Book("Churn " + changes, "Author", 2024, 1);
+                library.addBook(book);
+                library.removeBook(library.findBookByTitle(book.getTitle()));
+                changes += 2;
+            }
+            double elapsed = (System.nanoTime() - start) / 1e9;
+            running.set(false);
+            for (Thread reader : readers) {
+                reader.join();
+            }
+
+            System.out.printf("%s, %,d books: snapshot in %.3f us, copy under the lock in %,.0f us (%d)%n",
+                    layout, count, snapshotMicros, copyMicros, checksum & 1);
+            System.out.printf("  churn: %,.0f changes/s with %d readers completing %,d full scans (%d)%n",
+                    changes / elapsed, READERS, scans.get(), scanned.get() & 1);
+        }
+    }
+}
@@ -0,0 +1,122 @@
+package benchmark;
+
+import DesingP.util.BookStateException;
+import model.Book;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The {@code InventoryContentionBenchmark} class compares the throughput of lending and returning
+ * copies of a single hot title with the compare-and-set inventory of {@link Book} against a
+ * monitor-based baseline, from 1 to 64 threads.
+ *
+ * <p>Usage: {@code java benchmark.InventoryContentionBenchmark [millisPerRun]} (defaults to 2000).</p>
+ */
+public class InventoryContentionBenchmark {
+
+    /** The thread counts to measure. */
+    private static final int[] THREADS = {1, 2, 4, 8, 16, 32, 64};
+
+    /**
+     * Runs the benchmark.
+     *
+     * @param args The optional duration of each run in milliseconds.
+     * @throws InterruptedException If the benchmark is interrupted.
+     */
+    public static void main(String[] args) throws InterruptedException {
+        long millis = args.length > 0 ? Long.parseLong(args[0]) : 2_000;
+        System.out.printf("%8s %18s %18s%n", "threads", "CAS ops/ms", "synchronized ops/ms");
+        for (int threads : THREADS) {
+            Book book = new Book("Hot Title", "Author", 2024, threads);
+            SynchronizedInventory baseline = new SynchronizedInventory(threads);
+            run(threads, millis / 4, () -> cycle(book)); // Warms up both variants
+            run(threads, millis / 4, baseline::cycle);
+            long cas = run(threads, millis, () -> cycle(book));
+            long monitor = run(threads, millis, baseline::cycle);
+            System.out.printf("%8d %18d %18d%n", threads, cas / millis, monitor / millis);
+        }
+    }
+
+    /**
+     * Lends and returns one copy of a book.
+     *
+     * @param book The book.
+     */
+    private static void cycle(Book book) {
+        try {
+            book.lendCopy();
+            book.returnCopy();
+        } catch (BookStateException e) {
+            throw new IllegalStateException(e); // Every thread has a copy reserved, so this cannot happen
+        }
+    }
+
+    /**
+     * Runs an operation on several threads for a fixed time.
+     *
+     * @param threads   The number of threads.
+     * @param millis    How long to run, in milliseconds.
+     * @param operation The operation to repeat.
+     * @return The number of operations completed.
+     * @throws InterruptedException If the benchmark is interrupted.
+     */
+    private static long run(int threads, long millis, Runnable operation) throws InterruptedException {
+        AtomicBoolean running = new AtomicBoolean(true);
+        LongAdder operations = new LongAdder();
+        CountDownLatch done = new CountDownLatch(threads);
+        for (int t = 0; t < threads; t++) {
+            new Thread(() -> {
+                long count = 0;
+                while (running.get()) {
+                    operation.run();
+                    count++;
+                }
+                operations.add(count);
+                done.countDown();
+            }).start();
+        }
+        Thread.sleep(millis);
+        running.set(false);
+        done.await();
+        return operations.sum();
+    }
+
+    /**
+     * The inventory as it was before it became lock-free: a check-then-increment under a monitor.
+     */
+    private static final class SynchronizedInventory {
+
+        /** The total quantity. */
+        private final int quantity;
+
+        /** The borrowed quantity. */
+        private int borrowedQuantity;
+
+        /**
+         * Constructs a new {@code SynchronizedInventory}.
+         *
+         * @param quantity The total quantity.
+         */
+        SynchronizedInventory(int quantity) {
+            this.quantity = quantity;
+        }
+
+        /**
+         * Lends and returns one copy.
+         */
+        void cycle() {
+            synchronized (this) {
+                if (borrowedQuantity < quantity) {
+                    borrowedQuantity++;
+                }
+            }
+            synchronized (this) {
+                if (borrowedQuantity > 0) {
+                    borrowedQuantity--;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,181 @@
+package benchmark;
+
+import model.Book;
+import model.Loan;
+import model.LoanArchive;
+import model.Member;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * The {@code LoanArchiveBenchmark} class measures the heap taken by completed loans kept as
+ * {@link Loan} objects, kept in a {@link LoanArchive} on the heap and kept in an archive that spills
+ * into segment files, the time a full collection takes with each live, and the time it takes to
+ * archive the loans and to read back the history of a book and of a member.
+ *
+ * <p>Loans kept as objects are measured on a tenth of the loans, which is as many as a 4 GB heap holds
+ * comfortably, and reported per loan.</p>
+ *
+ * <p>Usage: {@code java -Xmx4g benchmark.LoanArchiveBenchmark [loans] [directory]} (defaults to
+ * 50,000,000 loans of 1,000,000 books by 200,000 members, spilled into a temporary directory).</p>
+ */
+public class LoanArchiveBenchmark {
+
+    /** The number of books lent. */
+    private static final int BOOKS = 1_000_000;
+
+    /** The number of members borrowing. */
+    private static final int MEMBERS = 200_000;
+
+    /** The start of the loans, in milliseconds since the epoch. */
+    private static final long START = 1_500_000_000_000L;
+
+    /**
+     * Runs the benchmark.
+     *
+     * @param args The optional number of loans and directory to spill into.
+     * @throws IOException If the segment files cannot be created or deleted.
+     */
+    public static void main(String[] args) throws IOException {
+        int loans = args.length > 0 ? Integer.parseInt(args[0]) : 50_000_000;
+        Path directory = args.length > 1 ? Path.of(args[1]) : Files.createTempDirectory("loans");
+        Book[] books = new Book[BOOKS];
+        for (int i = 0; i < BOOKS; i++) {
+            books[i] = new Book("Title " + i, "Author " + i % 50_000, 2000, 1);
+        }
+        Member[] members = new Member[MEMBERS];
+        for (int i = 0; i < MEMBERS; i++) {
+            members[i] = new Member("Member " + i, "M" + i);
+        }
+
+        int sample = loans / 10;
+        Loan[] objects = new Loan[sample];
+        long before = usedHeap();
+        Random random = new Random(42);
+        for (int i = 0; i < sample; i++) {
+            objects[i] = completedLoan(books, members, random, i);
+        }
+        long objectBytes = usedHeap() - before;
+        double objectGcMillis = fullCollectionMillis();
+        objects = null;
+
+        before = usedHeap();
+        LoanArchive archive = new LoanArchive();
+        random = new Random(42);
+        long start = System.nanoTime();
+        for (int i = 0; i < loans; i++) {
+            archive.append(completedLoan(books, members, random, i));
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        long archiveBytes = usedHeap() - before;
+        double archiveGcMillis = fullCollectionMillis();
+        String heapHistories = readHistories(archive, books, members);
+        archive = null;
+
+        before = usedHeap();
+        LoanArchive tiered = new LoanArchive(directory);
+        random = new Random(42);
+        start = System.nanoTime();
+        StringBuilder growth = new StringBuilder();
+        for (int i = 0; i < loans; i++) {
+            tiered.append(completedLoan(books, members, random, i));
+            if ((i + 1) % (loans / 5) == 0) {
+                growth.append(String.format(" %,d MB at %,d loans;", (usedHeap() - before) >> 20, i + 1));
+            }
+        }
+        double tieredSeconds = (System.nanoTime() - start) / 1e9;
+        long tieredBytes = usedHeap() - before;
+        String tieredHistories = readHistories(tiered, books, members);
+        int spilled = tiered.spilledSize();
+        tiered.close();
+        if (args.length <= 1) {
+            Files.delete(directory); // The temporary directory, now empty
+        }
+
+        System.out.printf("Loan objects: %.1f bytes per loan, %,d MB and a full collection in %.0f ms for %,d loans%n",
+                (double) objectBytes / sample, objectBytes >> 20, objectGcMillis, sample);
+        System.out.printf("Loan archive: %.1f bytes per loan, %,d MB and a full collection in %.0f ms for %,d loans, archived at %,.0f loans/s%n",
+                (double) archiveBytes / loans, archiveBytes >> 20, archiveGcMillis, loans, loans / seconds);
+        System.out.printf("  %s%n", heapHistories);
+        System.out.printf("Spilled archive: %,d MB of heap for %,d loans (%,d spilled), archived at %,.0f loans/s; heap used:%s%n",
+                tieredBytes >> 20, loans, spilled, loans / tieredSeconds, growth);
+        System.out.printf("  %s%n", tieredHistories);
+    }
+
+    /**
+     * Reads back the history of the first and of the middle book and member.
+     *
+     * @param archive The archive.
+     * @param books   The books.
+     * @param members The members.
+     * @return A report of the sizes of the histories and the time it took to read them.
+     */
+    private static String readHistories(LoanArchive archive, Book[] books, Member[] members) {
+        long checksum = 0;
+        long start = System.nanoTime();
+        int bookLoans = 0;
+        for (Book book : new Book[] {books[0], books[BOOKS / 2]}) {
+            for (Loan loan : archive.loansOf(book)) {
+                checksum += loan.getReturnTime();
+                bookLoans++;
+            }
+        }
+        double bookMillis = (System.nanoTime() - start) / 1e6;
+        start = System.nanoTime();
+        int memberLoans = 0;
+        for (Member member : new Member[] {members[0], members[MEMBERS / 2]}) {
+            for (Loan loan : archive.loansOf(member)) {
+                checksum += loan.getLoanTime();
+                memberLoans++;
+            }
+        }
+        double memberMillis = (System.nanoTime() - start) / 1e6;
+        return String.format("histories of two books: %,d loans in %.2f ms; of two members: %,d loans in %.2f ms (%d)",
+                bookLoans, bookMillis, memberLoans, memberMillis, checksum & 1);
+    }
+
+    /**
+     * Creates a completed loan of a random book to a random member.
+     *
+     * @param books   The books.
+     * @param members The members.
+     * @param random  The source of randomness.
+     * @param i       The number of the loan, which sets its time.
+     * @return The loan, with its book returned.
+     */
+    private static Loan completedLoan(Book[] books, Member[] members, Random random, int i) {
+        long loanTime = START + i * 60_000L;
+        Loan loan = new Loan(books[random.nextInt(BOOKS)], members[random.nextInt(MEMBERS)], loanTime,
+                loanTime + Loan.DEFAULT_LOAN_PERIOD.toMillis());
+        loan.setReturnTime(loanTime + random.nextInt(30) * 86_400_000L);
+        return loan;
+    }
+
+    /**
+     * Times a full collection.
+     *
+     * @return The time it took, in milliseconds.
+     */
+    private static double fullCollectionMillis() {
+        long start = System.nanoTime();
+        System.gc();
+        return (System.nanoTime() - start) / 1e6;
+    }
+
+    /**
+     * Returns the live heap after a full collection.
+     *
+     * @return The bytes in use.
+     */
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
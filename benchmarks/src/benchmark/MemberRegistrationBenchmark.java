@@ -0,0 +1,48 @@
+package benchmark;
+
+import DesingP.facade.LibraryFacade;
+import DesingP.singleton.SingletonLibrary;
+import DesingP.util.BookStateException;
+
+/**
+ * The {@code MemberRegistrationBenchmark} class measures how long it takes to register members
+ * through the {@link LibraryFacade} for growing member counts.
+ * With the ID index the cost per member stays flat, so the total time grows linearly.
+ *
+ * <p>Usage: {@code java benchmark.MemberRegistrationBenchmark [maxMembers]} (defaults to 1,000,000).</p>
+ */
+public class MemberRegistrationBenchmark {
+
+    /**
+     * Runs the benchmark for member counts doubling up to the requested maximum.
+     *
+     * @param args An optional maximum number of members.
+     * @throws BookStateException If a member ID is unexpectedly rejected.
+     */
+    public static void main(String[] args) throws BookStateException {
+        int maxMembers = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        register(maxMembers / 8); // Warms up the JIT before measuring
+        System.out.printf("%12s %12s %14s%n", "members", "total ms", "ns per member");
+        for (int members = maxMembers / 8; members <= maxMembers; members *= 2) {
+            long elapsed = register(members);
+            System.out.printf("%12d %12d %14d%n", members, elapsed / 1_000_000, elapsed / members);
+        }
+    }
+
+    /**
+     * Registers the given number of members in a fresh library.
+     *
+     * @param members The number of members to register.
+     * @return The time it took, in nanoseconds.
+     * @throws BookStateException If a member ID is unexpectedly rejected.
+     */
+    private static long register(int members) throws BookStateException {
+        SingletonLibrary.resetInstance(); // Starts from an empty library
+        LibraryFacade facade = new LibraryFacade();
+        long start = System.nanoTime();
+        for (int i = 0; i < members; i++) {
+            facade.addMember("Member " + i, "ID" + i);
+        }
+        return System.nanoTime() - start;
+    }
+}
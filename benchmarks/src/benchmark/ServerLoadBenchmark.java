@@ -0,0 +1,328 @@
+package benchmark;
+
+import DesingP.facade.LibraryFacade;
+import DesingP.singleton.SingletonLibrary;
+import DesingP.util.BookStateException;
+import server.LibraryServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Iterator;
+
+/**
+ * The {@code ServerLoadBenchmark} class drives a {@link LibraryServer} from many concurrent keep-alive
+ * connections and reports the throughput and the latency percentiles of the requests. Each connection
+ * sends its next request as soon as the previous one is answered, cycling through eight book lookups,
+ * a loan and the return of the loan, so reads and writes share the lending locks as they would in use.
+ *
+ * <p>The connections are driven by a single thread with a selector rather than a thread each, so the
+ * load generator stays small beside the server and a run can hold ten thousand connections open.
+ * Each connection takes two file descriptors, one at either end, so the limit on open files must be
+ * over twice the number of connections.</p>
+ *
+ * <p>Usage: {@code java benchmark.ServerLoadBenchmark [connections] [seconds]} (defaults to 10,000
+ * connections and 30 seconds, after a warm-up of 10 seconds).</p>
+ */
+public class ServerLoadBenchmark {
+
+    /** The length of the warm-up, whose requests are not measured. */
+    private static final long WARMUP_NANOS = 10_000_000_000L;
+
+    /** The number of books in the catalog. */
+    private static final int BOOKS = 1_000;
+
+    /** The number of lookups a connection sends before each loan. */
+    private static final int LOOKUPS = 8;
+
+    /**
+     * Runs the benchmark.
+     *
+     * @param args The optional number of connections and length of the measured run in seconds.
+     * @throws IOException        If the server cannot be started or a connection cannot be opened.
+     * @throws BookStateException If the members cannot be added.
+     */
+    public static void main(String[] args) throws IOException, BookStateException {
+        int connections = args.length > 0 ? Integer.parseInt(args[0]) : 10_000;
+        long measureNanos = (args.length > 1 ? Long.parseLong(args[1]) : 30) * 1_000_000_000L;
+
+        PrintStream out = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream())); // Silences the staff notifications of every loan
+        SingletonLibrary.resetInstance();
+        LibraryFacade facade = new LibraryFacade();
+        for (int i = 0; i < BOOKS; i++) {
+            facade.addBook("Title " + i, "Author " + i % 100, 1900 + i % 120, connections);
+        }
+        for (int i = 0; i < connections; i++) {
+            facade.addMember("Member " + i, "M" + i);
+        }
+
+        try (LibraryServer server = new LibraryServer(facade, new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+             Selector selector = Selector.open()) {
+            server.start();
+            InetSocketAddress address = new InetSocketAddress(InetAddress.getLoopbackAddress(), server.getPort());
+            out.printf("%,d connections to port %d, requests on %s threads%n",
+                    connections, server.getPort(), server.usesVirtualThreads() ? "virtual" : "platform");
+
+            Connection[] all = new Connection[connections];
+            for (int i = 0; i < connections; i++) {
+                all[i] = new Connection(i, address, selector);
+            }
+            Stats stats = new Stats();
+            long start = System.nanoTime();
+            long measureStart = start + WARMUP_NANOS;
+            long end = measureStart + measureNanos;
+            boolean measuring = false;
+            while (true) {
+                long now = System.nanoTime();
+                if (!measuring && now >= measureStart) {
+                    measuring = true;
+                    stats = new Stats(); // Discards the requests of the warm-up
+                }
+                if (now >= end) {
+                    break;
+                }
+                selector.select(100);
+                Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                while (keys.hasNext()) {
+                    SelectionKey key = keys.next();
+                    keys.remove();
+                    ((Connection) key.attachment()).ready(key, stats);
+                }
+            }
+            double seconds = measureNanos / 1e9;
+            long[] latencies = stats.sorted();
+            out.printf("%,d requests in %.0f s: %,.0f requests/s, %,d errors, %,d reconnects%n",
+                    latencies.length, seconds, latencies.length / seconds, stats.errors, stats.reconnects);
+            out.printf("latency p50 %.2f ms, p90 %.2f ms, p99 %.2f ms, p99.9 %.2f ms, max %.2f ms%n",
+                    percentile(latencies, 50), percentile(latencies, 90), percentile(latencies, 99),
+                    percentile(latencies, 99.9), percentile(latencies, 100));
+            for (Connection connection : all) {
+                connection.channel.close();
+            }
+        }
+    }
+
+    /**
+     * Returns a percentile of sorted latencies.
+     *
+     * @param sorted     The latencies in nanoseconds, in ascending order.
+     * @param percentile The percentile, from 0 to 100.
+     * @return The latency in milliseconds, or 0 if there are none.
+     */
+    private static double percentile(long[] sorted, double percentile) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        int index = (int) Math.ceil(percentile / 100 * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(sorted.length - 1, index))] / 1e6;
+    }
+
+    /**
+     * The {@code Stats} class collects the latencies of answered requests and counts the failures.
+     */
+    private static final class Stats {
+
+        /** The latencies in nanoseconds. */
+        private long[] latencies = new long[1 << 20];
+
+        /** The number of latencies collected. */
+        private int count;
+
+        /** The number of requests answered with an unexpected status. */
+        private long errors;
+
+        /** The number of connections the server closed and that were opened again. */
+        private long reconnects;
+
+        void add(long latency) {
+            if (count == latencies.length) {
+                latencies = Arrays.copyOf(latencies, count * 2);
+            }
+            latencies[count++] = latency;
+        }
+
+        long[] sorted() {
+            long[] sorted = Arrays.copyOf(latencies, count);
+            Arrays.sort(sorted);
+            return sorted;
+        }
+    }
+
+    /**
+     * The {@code Connection} class is one keep-alive connection, sending its requests one at a time
+     * and parsing the status, the headers and the body of each response.
+     */
+    private static final class Connection {
+
+        /** The requests the connection cycles through. */
+        private final byte[][] requests = new byte[LOOKUPS + 2][];
+
+        /** The address of the server. */
+        private final InetSocketAddress address;
+
+        /** The selector driving the connection. */
+        private final Selector selector;
+
+        /** The response being read. */
+        private final ByteBuffer input = ByteBuffer.allocate(16 * 1024);
+
+        /** The channel of the connection. */
+        private SocketChannel channel;
+
+        /** The request being written. */
+        private ByteBuffer output;
+
+        /** The index of the request being sent. */
+        private int next;
+
+        /** When the request being sent was started. */
+        private long sent;
+
+        /**
+         * Opens a new {@code Connection} and starts sending its first request.
+         *
+         * @param id       The index of the connection, which picks its member and its books.
+         * @param address  The address of the server.
+         * @param selector The selector driving the connection.
+         * @throws IOException If the connection cannot be opened.
+         */
+        Connection(int id, InetSocketAddress address, Selector selector) throws IOException {
+            this.address = address;
+            this.selector = selector;
+            for (int i = 0; i < LOOKUPS; i++) {
+                requests[i] = request("GET", "/books/Title%20" + (id * 31 + i * 7) % BOOKS, null);
+            }
+            String loan = "{\"title\":\"Title " + id % BOOKS + "\",\"memberId\":\"M" + id + "\"}";
+            requests[LOOKUPS] = request("POST", "/loans", loan);
+            requests[LOOKUPS + 1] = request("POST", "/returns", loan);
+            next = id % requests.length; // Spreads the loans of the connections over the cycle
+            open();
+        }
+
+        /**
+         * Opens the channel and sends the next request once it is connected.
+         *
+         * @throws IOException If the connection cannot be opened.
+         */
+        private void open() throws IOException {
+            channel = SocketChannel.open();
+            channel.configureBlocking(false);
+            channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+            output = ByteBuffer.wrap(requests[next]);
+            input.clear();
+            sent = System.nanoTime();
+            if (channel.connect(address)) {
+                channel.register(selector, SelectionKey.OP_WRITE, this);
+            } else {
+                channel.register(selector, SelectionKey.OP_CONNECT, this);
+            }
+        }
+
+        /**
+         * Makes progress on the connection after the selector found it ready.
+         *
+         * @param key   The key of the connection.
+         * @param stats The statistics to record answered requests in.
+         * @throws IOException If the connection cannot be opened again.
+         */
+        void ready(SelectionKey key, Stats stats) throws IOException {
+            try {
+                if (key.isConnectable()) {
+                    channel.finishConnect();
+                    key.interestOps(SelectionKey.OP_WRITE);
+                    sent = System.nanoTime(); // Times the request, not the connection
+                } else if (key.isWritable()) {
+                    channel.write(output);
+                    if (!output.hasRemaining()) {
+                        key.interestOps(SelectionKey.OP_READ);
+                    }
+                } else if (key.isReadable()) {
+                    if (channel.read(input) < 0) {
+                        throw new IOException("Connection closed by the server");
+                    }
+                    int status = parse();
+                    if (status != 0) {
+                        stats.add(System.nanoTime() - sent);
+                        if (status >= 300) {
+                            stats.errors++;
+                        }
+                        next = (next + 1) % requests.length;
+                        output = ByteBuffer.wrap(requests[next]);
+                        sent = System.nanoTime();
+                        key.interestOps(SelectionKey.OP_WRITE);
+                    }
+                }
+            } catch (IOException e) {
+                key.cancel();
+                channel.close();
+                stats.reconnects++;
+                open();
+            }
+        }
+
+        /**
+         * Parses the response read so far and, if it is complete, discards it from the input.
+         *
+         * @return The status of the response, or 0 if it is not complete yet.
+         */
+        private int parse() {
+            byte[] bytes = input.array();
+            int length = input.position();
+            int headerEnd = -1;
+            for (int i = 3; i < length; i++) {
+                if (bytes[i] == '\n' && bytes[i - 1] == '\r' && bytes[i - 2] == '\n' && bytes[i - 3] == '\r') {
+                    headerEnd = i + 1;
+                    break;
+                }
+            }
+            if (headerEnd < 0) {
+                return 0;
+            }
+            String headers = new String(bytes, 0, headerEnd, StandardCharsets.ISO_8859_1);
+            int contentLength = 0;
+            int at = headers.toLowerCase().indexOf("\r\ncontent-length:");
+            if (at >= 0) {
+                int valueEnd = headers.indexOf('\r', at + 2);
+                contentLength = Integer.parseInt(headers.substring(at + 17, valueEnd).trim());
+            }
+            if (length < headerEnd + contentLength) {
+                return 0;
+            }
+            int status = Integer.parseInt(headers.substring(9, 12)); // After "HTTP/1.1 "
+            input.limit(length).position(headerEnd + contentLength);
+            input.compact();
+            return status;
+        }
+
+        /**
+         * Encodes a request.
+         *
+         * @param method The method.
+         * @param path   The path, already encoded.
+         * @param body   The JSON body, or {@code null} for none.
+         * @return The bytes of the request.
+         */
+        private static byte[] request(String method, String path, String body) {
+            StringBuilder request = new StringBuilder(128)
+                    .append(method).append(' ').append(path).append(" HTTP/1.1\r\nHost: localhost\r\n");
+            byte[] content = body == null ? new byte[0] : body.getBytes(StandardCharsets.UTF_8);
+            if (body != null) {
+                request.append("Content-Type: application/json\r\nContent-Length: ").append(content.length).append("\r\n");
+            }
+            byte[] head = request.append("\r\n").toString().getBytes(StandardCharsets.ISO_8859_1);
+            byte[] bytes = Arrays.copyOf(head, head.length + content.length);
+            System.arraycopy(content, 0, bytes, head.length, content.length);
+            return bytes;
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package benchmark;
+
+import model.Book;
+import model.Library;
+import model.Loan;
+import model.Member;
+import persistence.Snapshot;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The {@code SnapshotBenchmark} class measures how long a {@link Snapshot} of a large library takes
+ * to capture and write, as a checkpoint does in the background, and to load on startup.
+ *
+ * <p>Usage: {@code java benchmark.SnapshotBenchmark [books] [loans] [directory]} (defaults to 1,000,000
+ * books and 5,000,000 active loans in the temporary directory; members hold five loans each). A load
+ * allocates around a gigabyte of live objects, so give the young generation room for it, for example
+ * {@code -Xmx8g -Xmn5g}; otherwise the load time is mostly collector copying.</p>
+ */
+public class SnapshotBenchmark {
+
+    /** The number of loans each member holds. */
+    private static final int LOANS_PER_MEMBER = 5;
+
+    /** The number of times the load is repeated. */
+    private static final int LOAD_RUNS = 5;
+
+    /**
+     * Runs the benchmark.
+     *
+     * @param args The optional number of books, number of loans and directory to write the snapshot in.
+     * @throws Exception If the snapshot cannot be written or read.
+     */
+    public static void main(String[] args) throws Exception {
+        int bookCount = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        int loanCount = args.length > 1 ? Integer.parseInt(args[1]) : 5_000_000;
+        Path directory = args.length > 2 ? Path.of(args[2]) : Path.of(System.getProperty("java.io.tmpdir"));
+        Path file = directory.resolve("library-benchmark.snap");
+
+        Library library = populate(bookCount, loanCount);
+        System.out.printf("Library with %,d books, %,d members and %,d loans%n",
+                bookCount, library.getMembers().size(), loanCount);
+        try {
+            long start = System.nanoTime();
+            Snapshot snapshot = Snapshot.capture(library, 1);
+            System.out.printf("Capture: %d ms%n", (System.nanoTime() - start) / 1_000_000);
+
+            start = System.nanoTime();
+            snapshot.writeTo(file);
+            System.out.printf("Write: %d ms, %,d MB%n", (System.nanoTime() - start) / 1_000_000, Files.size(file) >> 20);
+
+            library = null; // Lets the original library be collected before loading
+            snapshot = null;
+            for (int run = 0; run < LOAD_RUNS; run++) {
+                System.gc();
+                Library loaded = new Library();
+                start = System.nanoTime();
+                Snapshot.load(file, loaded);
+                long loadMillis = (System.nanoTime() - start) / 1_000_000;
+                start = System.nanoTime();
+                loaded.rebuildSearchIndex();
+                long indexMillis = (System.nanoTime() - start) / 1_000_000;
+                System.out.printf("Load %d: ready in %d ms, search index rebuilt in %d ms%n", run + 1, loadMillis, indexMillis);
+            }
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    /**
+     * Builds a library directly, without going through the librarian.
+     *
+     * @param bookCount The number of books.
+     * @param loanCount The number of active loans.
+     * @return The library.
+     */
+    private static Library populate(int bookCount, int loanCount) {
+        Library library = new Library();
+        int copies = loanCount / bookCount + 1;
+        List<Book> books = new ArrayList<>(bookCount);
+        for (int i = 0; i < bookCount; i++) {
+            books.add(new Book("Title " + i, "Author " + i % 50_000, 1900 + i % 120, copies));
+        }
+        library.addBooks(books);
+        int memberCount = (loanCount + LOANS_PER_MEMBER - 1) / LOANS_PER_MEMBER;
+        List<Member> members = new ArrayList<>(memberCount);
+        for (int i = 0; i < memberCount; i++) {
+            members.add(new Member("Member " + i, "M" + i));
+        }
+        library.addMembers(members);
+        for (int i = 0; i < loanCount; i++) {
+            Book book = books.get(i % bookCount);
+            Member member = members.get(i / LOANS_PER_MEMBER);
+            Loan loan = new Loan(book, member);
+            book.restoreInventory(copies, book.getBorrowedQuantity() + 1);
+            book.addLoan(loan);
+            member.addLoan(loan);
+        }
+        library.restoreLoanCounts(loanCount, loanCount);
+        return library;
+    }
+}
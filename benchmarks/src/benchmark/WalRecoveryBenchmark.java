@@ -0,0 +1,161 @@
+package benchmark;
+
+import DesingP.singleton.SingletonLibrary;
+import model.Librarian;
+import model.Library;
+import model.Loan;
+import persistence.LogRecord;
+import persistence.WriteAheadLog;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The {@code WalRecoveryBenchmark} class measures how fast the library is rebuilt from a large
+ * {@link WriteAheadLog}, and how many records per second group commit acknowledges as the number
+ * of writing threads grows.
+ *
+ * <p>The journal holds a catalog of 1,000 books and 10,000 members followed by lend and return pairs.</p>
+ *
+ * <p>Usage: {@code java benchmark.WalRecoveryBenchmark [entries] [directory]} (defaults to 50,000,000
+ * entries in the temporary directory).</p>
+ */
+public class WalRecoveryBenchmark {
+
+    /** The number of books in the generated catalog. */
+    private static final int BOOKS = 1_000;
+
+    /** The number of members in the generated journal. */
+    private static final int MEMBERS = 10_000;
+
+    /** The thread counts to measure group commit with. */
+    private static final int[] THREADS = {1, 4, 16, 64};
+
+    /** How long each group commit run lasts, in milliseconds. */
+    private static final long COMMIT_MILLIS = 2_000;
+
+    /**
+     * Runs the benchmark.
+     *
+     * @param args The optional number of journal entries and the directory to write the journal in.
+     * @throws Exception If the journal cannot be written or read.
+     */
+    public static void main(String[] args) throws Exception {
+        long entries = args.length > 0 ? Long.parseLong(args[0]) : 50_000_000L;
+        Path directory = args.length > 1 ? Path.of(args[1]) : Path.of(System.getProperty("java.io.tmpdir"));
+        Path journal = directory.resolve("library-benchmark.wal");
+        try {
+            long start = System.nanoTime();
+            generate(journal, entries);
+            double seconds = (System.nanoTime() - start) / 1e9;
+            System.out.printf("Generated %,d entries (%,d MB) in %.1f s%n",
+                    entries, Files.size(journal) >> 20, seconds);
+
+            SingletonLibrary.resetInstance();
+            Library library = SingletonLibrary.getInstance();
+            start = System.nanoTime();
+            long replayed = WriteAheadLog.replay(journal, new Librarian());
+            seconds = (System.nanoTime() - start) / 1e9;
+            System.out.printf("Replayed %,d entries in %.1f s (%,.0f entries/s); %d books, %d members, %d loans made%n",
+                    replayed, seconds, replayed / seconds, library.getBooks().size(),
+                    library.getMembers().size(), library.getTotalLoansCount());
+        } finally {
+            Files.deleteIfExists(journal);
+        }
+
+        System.out.printf("%8s %18s%n", "threads", "commits/s");
+        for (int threads : THREADS) {
+            Path file = directory.resolve("library-commit.wal");
+            try (WriteAheadLog log = WriteAheadLog.open(file)) {
+                long commits = commit(log, threads);
+                System.out.printf("%8d %18d%n", threads, commits * 1000 / COMMIT_MILLIS);
+            } finally {
+                Files.deleteIfExists(file);
+            }
+        }
+    }
+
+    /**
+     * Writes a journal: the catalog and the members, then lend and return pairs spread over them.
+     *
+     * @param journal The path of the journal.
+     * @param entries The total number of entries.
+     * @throws IOException If the journal cannot be written.
+     */
+    private static void generate(Path journal, long entries) throws IOException {
+        try (FileChannel channel = FileChannel.open(journal, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            ByteBuffer buffer = ByteBuffer.allocate(4 << 20);
+            for (long i = 0; i < entries; i++) {
+                LogRecord record;
+                if (i < BOOKS) {
+                    record = LogRecord.addBook("Title " + i, "Author " + i % 97, 1900 + (int) (i % 120), 20);
+                } else if (i < BOOKS + MEMBERS) {
+                    record = LogRecord.addMember("Member " + i, "M" + (i - BOOKS));
+                } else {
+                    long pair = (i - BOOKS - MEMBERS) / 2;
+                    String title = "Title " + pair % BOOKS;
+                    String member = "M" + pair % MEMBERS;
+                    record = (i - BOOKS - MEMBERS) % 2 == 0
+                            ? LogRecord.lendBook(title, member, System.currentTimeMillis(), Loan.DEFAULT_LOAN_PERIOD)
+                            : LogRecord.returnBook(title, member, System.currentTimeMillis(), Loan.DEFAULT_LOAN_PERIOD);
+                }
+                if (buffer.remaining() < record.frameSize()) {
+                    write(channel, buffer);
+                }
+                record.writeTo(buffer);
+            }
+            write(channel, buffer);
+        }
+    }
+
+    /**
+     * Writes the contents of a buffer to a file and clears it.
+     *
+     * @param channel The file.
+     * @param buffer  The buffer, in write mode.
+     * @throws IOException If the file cannot be written.
+     */
+    private static void write(FileChannel channel, ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    /**
+     * Appends lend records from several threads, each waiting for its record to be on disk.
+     *
+     * @param log     The journal.
+     * @param threads The number of threads.
+     * @return The number of records acknowledged.
+     * @throws InterruptedException If the benchmark is interrupted.
+     */
+    private static long commit(WriteAheadLog log, int threads) throws InterruptedException {
+        AtomicBoolean running = new AtomicBoolean(true);
+        LongAdder commits = new LongAdder();
+        CountDownLatch done = new CountDownLatch(threads);
+        for (int t = 0; t < threads; t++) {
+            String member = "M" + t;
+            new Thread(() -> {
+                while (running.get()) {
+                    log.append(LogRecord.lendBook("Title 1", member, System.currentTimeMillis(), Loan.DEFAULT_LOAN_PERIOD));
+                    commits.increment();
+                }
+                done.countDown();
+            }).start();
+        }
+        Thread.sleep(COMMIT_MILLIS);
+        running.set(false);
+        done.await();
+        return commits.sum();
+    }
+}
@@ -0,0 +1,128 @@
+package benchmark.jmh;
+
+import DesingP.facade.LibraryFacade;
+import DesingP.util.BookStateException;
+import model.BatchMode;
+import model.ItemResult;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The {@code BasketCheckoutBenchmark} class compares checking a self-checkout basket out and back in
+ * one item at a time through {@link LibraryFacade#lendBook} and {@link LibraryFacade#returnBook} with
+ * doing it through the batch operations {@link LibraryFacade#lendBooks} and {@link LibraryFacade#returnBooks}.
+ * The baskets are generated up front, each of distinct random titles for a random member, and every
+ * operation leaves the library as it found it.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+@Threads(1)
+public class BasketCheckoutBenchmark {
+
+    /** The number of baskets generated, used in turn. */
+    private static final int BASKETS = 1024;
+
+    /** The number of books in the catalog. */
+    private static final int BOOKS = 100_000;
+
+    /** The number of registered members. */
+    private static final int MEMBERS = 10_000;
+
+    /** The number of items in a basket. */
+    @Param({"10", "30"})
+    public int basketSize;
+
+    /** The facade under test. */
+    private LibraryFacade facade;
+
+    /** The titles in each basket. */
+    private List<List<String>> baskets;
+
+    /** The member checking out each basket. */
+    private String[] memberIds;
+
+    /** The basket used next. */
+    private int next;
+
+    /**
+     * Builds the library and the baskets for a trial.
+     */
+    @Setup(Level.Trial)
+    public void setUp() {
+        facade = LibraryFixture.populate(BOOKS, MEMBERS);
+        Random random = new Random(42);
+        baskets = new ArrayList<>(BASKETS);
+        memberIds = new String[BASKETS];
+        for (int b = 0; b < BASKETS; b++) {
+            Set<String> titles = new LinkedHashSet<>();
+            while (titles.size() < basketSize) {
+                titles.add(LibraryFixture.title(random.nextInt(BOOKS)));
+            }
+            baskets.add(List.copyOf(titles));
+            memberIds[b] = LibraryFixture.memberId(random.nextInt(MEMBERS));
+        }
+    }
+
+    /**
+     * Releases the library after a trial.
+     */
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        LibraryFixture.reset();
+    }
+
+    @Benchmark
+    public int perItem() throws BookStateException {
+        int basket = next++ & (BASKETS - 1);
+        List<String> titles = baskets.get(basket);
+        String memberId = memberIds[basket];
+        int lent = 0;
+        for (String title : titles) {
+            if (facade.lendBook(title, memberId)) {
+                lent++;
+            }
+        }
+        for (String title : titles) {
+            facade.returnBook(title, memberId);
+        }
+        return lent;
+    }
+
+    @Benchmark
+    public int batch() throws BookStateException {
+        int basket = next++ & (BASKETS - 1);
+        List<String> titles = baskets.get(basket);
+        String memberId = memberIds[basket];
+        int lent = 0;
+        for (ItemResult result : facade.lendBooks(memberId, titles, BatchMode.ALL_OR_NOTHING)) {
+            if (result.isSuccess()) {
+                lent++;
+            }
+        }
+        facade.returnBooks(memberId, titles, BatchMode.ALL_OR_NOTHING);
+        return lent;
+    }
+}
@@ -0,0 +1,46 @@
+package benchmark.jmh;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * The {@code BenchmarkRunner} class runs the JMH benchmarks of the library with the allocation
+ * profiler and writes the results as JSON, so runs can be compared to spot regressions.
+ *
+ * <p>Usage: {@code java benchmark.jmh.BenchmarkRunner [JMH options] [benchmark regex]}, for example
+ * {@code -p books=1000 -t 4 LendingChurn}. Without a regex every benchmark in this package runs. The
+ * results go to {@code jmh-result.json} unless {@code -rff} names another file.</p>
+ */
+public class BenchmarkRunner {
+
+    /** The file the results are written to by default. */
+    private static final String RESULT_FILE = "jmh-result.json";
+
+    /**
+     * Runs the benchmarks.
+     *
+     * @param args Standard JMH command-line options.
+     * @throws CommandLineOptionException If the options cannot be parsed.
+     * @throws RunnerException            If a benchmark fails.
+     */
+    public static void main(String[] args) throws CommandLineOptionException, RunnerException {
+        CommandLineOptions commandLine = new CommandLineOptions(args);
+        ChainedOptionsBuilder options = new OptionsBuilder()
+                .parent(commandLine)
+                .addProfiler(GCProfiler.class) // Reports the allocation rate next to the throughput
+                .resultFormat(ResultFormatType.JSON);
+        if (commandLine.getIncludes().isEmpty()) {
+            options.include(BenchmarkRunner.class.getPackageName() + ".*");
+        }
+        if (!commandLine.getResult().hasValue()) {
+            options.result(RESULT_FILE);
+        }
+        new Runner(options.build()).run();
+    }
+}
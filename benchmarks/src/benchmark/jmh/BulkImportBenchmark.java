@@ -0,0 +1,85 @@
+package benchmark.jmh;
+
+import DesingP.facade.LibraryFacade;
+import DesingP.singleton.SingletonLibrary;
+import model.Book;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The {@code BulkImportBenchmark} class measures filling an empty library, once book by book through
+ * the {@link LibraryFacade} and once in bulk through {@link model.Library#addBooks}. Each import starts
+ * from a freshly reset library and is timed as a single shot.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+public class BulkImportBenchmark {
+
+    /** The number of books imported. */
+    @Param({"1000", "100000", "1000000"})
+    public int books;
+
+    /** The books to import, generated once per trial. */
+    private List<Book> generated;
+
+    /** The facade of the empty library, created before each import. */
+    private LibraryFacade facade;
+
+    /**
+     * Generates the books for a trial.
+     */
+    @Setup(Level.Trial)
+    public void generate() {
+        generated = LibraryFixture.books(books);
+    }
+
+    /**
+     * Resets the library before each import.
+     */
+    @Setup(Level.Invocation)
+    public void setUp() {
+        LibraryFixture.reset();
+        facade = new LibraryFacade(); // The bulk import attaches the same books to each new library
+    }
+
+    /**
+     * Releases the library after a trial.
+     */
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        LibraryFixture.reset();
+    }
+
+    @Benchmark
+    public LibraryFacade addBooksOneByOne() {
+        for (Book book : generated) {
+            facade.addBook(book.getTitle(), book.getAuthor(), book.getYear(), book.getQuantity());
+        }
+        return facade;
+    }
+
+    @Benchmark
+    public SingletonLibrary addBooksInBulk() {
+        SingletonLibrary library = SingletonLibrary.getInstance();
+        library.addBooks(generated);
+        return library;
+    }
+}
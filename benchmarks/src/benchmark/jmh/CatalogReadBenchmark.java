@@ -0,0 +1,100 @@
+package benchmark.jmh;
+
+import DesingP.facade.LibraryFacade;
+import DesingP.util.BookStateException;
+import model.Book;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The {@code CatalogReadBenchmark} class measures the read paths of the {@link LibraryFacade}:
+ * title lookups, searches, the summary and listing the catalog, one by one and as a read-heavy mix.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+public class CatalogReadBenchmark {
+
+    /** The number of books in the catalog. */
+    @Param({"1000", "100000", "1000000"})
+    public int books;
+
+    /** The number of registered members. */
+    @Param({"10000"})
+    public int members;
+
+    /** The facade under test. */
+    private LibraryFacade facade;
+
+    /**
+     * Builds the library for a trial.
+     */
+    @Setup(Level.Trial)
+    public void setUp() {
+        facade = LibraryFixture.populate(books, members);
+        facade.searchBooks("warm", 1); // Builds the search index before measuring
+    }
+
+    /**
+     * Releases the library after a trial.
+     */
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        LibraryFixture.reset();
+    }
+
+    @Benchmark
+    public Book findBookByTitle() throws BookStateException {
+        return facade.findBookByTitle(LibraryFixture.title(ThreadLocalRandom.current().nextInt(books)));
+    }
+
+    @Benchmark
+    public Object searchBooks() {
+        return facade.searchBooks(LibraryFixture.author(ThreadLocalRandom.current().nextInt(books)), 10);
+    }
+
+    @Benchmark
+    public String getLibrarySummary() {
+        return facade.getLibrarySummary();
+    }
+
+    @Benchmark
+    public void getAllBooks(Blackhole blackhole) {
+        for (Book book : facade.getAllBooks()) {
+            blackhole.consume(book);
+        }
+    }
+
+    /**
+     * A browsing workload: mostly title lookups, some searches and the occasional summary.
+     */
+    @Benchmark
+    public Object readMix() throws BookStateException {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int operation = random.nextInt(100);
+        if (operation < 90) {
+            return facade.findBookByTitle(LibraryFixture.title(random.nextInt(books)));
+        } else if (operation < 99) {
+            return facade.searchBooks(LibraryFixture.title(random.nextInt(books)), 10);
+        }
+        return facade.getLibrarySummary();
+    }
+}
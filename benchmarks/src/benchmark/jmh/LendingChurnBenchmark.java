@@ -0,0 +1,75 @@
+package benchmark.jmh;
+
+import DesingP.facade.LibraryFacade;
+import DesingP.util.BookStateException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The {@code LendingChurnBenchmark} class measures lending and returning through the {@link LibraryFacade}.
+ * Each operation lends a random book to a random member and returns it straight away, so the library
+ * stays the same size however long the benchmark runs. Run it with {@code -t} to add desks.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+@Threads(1)
+public class LendingChurnBenchmark {
+
+    /** The number of books in the catalog. */
+    @Param({"1000", "1000000"})
+    public int books;
+
+    /** The number of registered members. */
+    @Param({"10000", "1000000"})
+    public int members;
+
+    /** The facade under test. */
+    private LibraryFacade facade;
+
+    /**
+     * Builds the library for a trial.
+     */
+    @Setup(Level.Trial)
+    public void setUp() {
+        facade = LibraryFixture.populate(books, members);
+    }
+
+    /**
+     * Releases the library after a trial.
+     */
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        LibraryFixture.reset();
+    }
+
+    @Benchmark
+    public boolean lendAndReturn() throws BookStateException {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        String title = LibraryFixture.title(random.nextInt(books));
+        String memberId = LibraryFixture.memberId(random.nextInt(members));
+        boolean lent = facade.lendBook(title, memberId); // Fails only if other threads hold every copy
+        if (lent) {
+            facade.returnBook(title, memberId);
+        }
+        return lent;
+    }
+}
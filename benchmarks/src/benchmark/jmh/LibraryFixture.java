@@ -0,0 +1,100 @@
+package benchmark.jmh;
+
+import DesingP.facade.LibraryFacade;
+import DesingP.singleton.SingletonLibrary;
+import model.Book;
+import model.Member;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The {@code LibraryFixture} class builds the library the JMH benchmarks run against. It resets the
+ * {@link SingletonLibrary} and fills it in bulk, so that setting up a trial with a million books
+ * takes seconds rather than dominating the run.
+ */
+final class LibraryFixture {
+
+    /** The number of distinct authors the books are spread over. */
+    static final int AUTHORS = 50_000;
+
+    /** The number of copies of each book. */
+    static final int COPIES = 5;
+
+    /**
+     * Prevents instantiation.
+     */
+    private LibraryFixture() {
+    }
+
+    /**
+     * Resets the singleton library and fills it with generated books and members.
+     *
+     * @param books   The number of books.
+     * @param members The number of members.
+     * @return A facade over the filled library.
+     */
+    static LibraryFacade populate(int books, int members) {
+        reset();
+        SingletonLibrary library = SingletonLibrary.getInstance();
+        library.addBooks(books(books));
+        List<Member> generated = new ArrayList<>(members);
+        for (int i = 0; i < members; i++) {
+            generated.add(new Member("Member " + i, memberId(i)));
+        }
+        library.addMembers(generated);
+        return new LibraryFacade(); // Leaves the generated catalog in place instead of adding the samples
+    }
+
+    /**
+     * Generates books with distinct titles.
+     *
+     * @param count The number of books.
+     * @return The books.
+     */
+    static List<Book> books(int count) {
+        List<Book> books = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            books.add(new Book(title(i), author(i), 1900 + i % 120, COPIES));
+        }
+        return books;
+    }
+
+    /**
+     * Resets the singleton library to an empty, unpersisted library.
+     */
+    static void reset() {
+        System.clearProperty(SingletonLibrary.DATA_PROPERTY); // Benchmarks measure the in-memory paths
+        SingletonLibrary.resetInstance();
+    }
+
+    /**
+     * Returns the title of a generated book.
+     *
+     * @param index The index of the book.
+     * @return The title.
+     */
+    static String title(int index) {
+        return "Title " + index;
+    }
+
+    /**
+     * Returns the author of a generated book.
+     *
+     * @param index The index of the book.
+     * @return The author.
+     */
+    static String author(int index) {
+        return "Author " + index % AUTHORS;
+    }
+
+    /**
+     * Returns the ID of a generated member.
+     *
+     * @param index The index of the member.
+     * @return The member ID.
+     */
+    static String memberId(int index) {
+        return "M" + index;
+    }
+}
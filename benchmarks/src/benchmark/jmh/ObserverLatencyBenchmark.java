@@ -0,0 +1,154 @@
+package benchmark.jmh;
+
+import DesingP.facade.LibraryFacade;
+import DesingP.observer.BackpressurePolicy;
+import DesingP.observer.EventBus;
+import DesingP.observer.Observer;
+import DesingP.singleton.SingletonLibrary;
+import DesingP.util.BookStateException;
+import model.Book;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The {@code ObserverLatencyBenchmark} class measures the latency of a lend and return followed by a
+ * notification of each when every book has observers attached. In {@code async} mode the observers are
+ * attached to the books and the book publishes the notifications through an {@link EventBus}; in
+ * {@code inline} mode they are not attached, and the benchmark thread calls each of them itself, which
+ * is what a synchronous {@link DesingP.observer.Observable} costs the lending desk.
+ * The observers format a notification like {@link DesingP.observer.BookObserver} but print it to a
+ * discarding stream, so the comparison is not dominated by the terminal.
+ *
+ * <p>The comparison is synthetic: the library itself sends no notice when a book is lent or returned,
+ * so the benchmark sends the two notices after the facade calls, in both modes, for a book it looks
+ * up once before lending. The async trial runs on a bus of its own with the
+ * {@link BackpressurePolicy#BLOCK} policy, so it cannot look fast by dropping events it has no room
+ * for; it still leaves delivery to the consumer thread, which the inline trial pays for in full.</p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+public class ObserverLatencyBenchmark {
+
+    /** The number of books in the catalog. */
+    @Param({"10000"})
+    public int books;
+
+    /** The number of registered members. */
+    @Param({"10000"})
+    public int members;
+
+    /** The number of observers attached to each book. */
+    @Param({"10"})
+    public int observers;
+
+    /** Whether observers are called on the benchmark thread ({@code inline}) or queued ({@code async}). */
+    @Param({"inline", "async"})
+    public String delivery;
+
+    /** The facade under test. */
+    private LibraryFacade facade;
+
+    /** The observers attached to every book. */
+    private List<Observer> attached;
+
+    /** The bus the async trial publishes to, or {@code null} in the inline trial. */
+    private EventBus bus;
+
+    /** The default bus before the async trial replaced it. */
+    private EventBus previousBus;
+
+    /**
+     * Builds the library and attaches the observers for a trial.
+     */
+    @Setup(Level.Trial)
+    public void setUp() {
+        facade = LibraryFixture.populate(books, members);
+        PrintStream discard = new PrintStream(OutputStream.nullOutputStream());
+        attached = new ArrayList<>(observers);
+        for (int i = 0; i < observers; i++) {
+            String name = "Desk " + i;
+            attached.add(message -> discard.println("Notification to " + name + ": " + message));
+        }
+        if (delivery.equals("inline")) {
+            return; // The benchmark calls the observers itself
+        }
+        bus = new EventBus(64 * 1024, 1, 256, BackpressurePolicy.BLOCK); // Every notice is delivered, as inline
+        previousBus = EventBus.setDefault(bus);
+        for (Book book : SingletonLibrary.getInstance().getBooks()) {
+            for (Observer observer : attached) {
+                book.addObserver(observer);
+            }
+        }
+    }
+
+    /**
+     * Drains the event bus of the async trial, puts the previous bus back and releases the library
+     * after a trial.
+     *
+     * @throws InterruptedException If interrupted while the bus drains.
+     */
+    @TearDown(Level.Trial)
+    public void tearDown() throws InterruptedException {
+        if (bus != null) {
+            bus.awaitIdle(1, TimeUnit.MINUTES);
+            EventBus.setDefault(previousBus);
+            bus.close();
+            bus = null;
+        }
+        LibraryFixture.reset();
+    }
+
+    @Benchmark
+    public boolean lendAndReturn() throws BookStateException {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        String title = LibraryFixture.title(random.nextInt(books));
+        String memberId = LibraryFixture.memberId(random.nextInt(members));
+        Book book = SingletonLibrary.getInstance().findBookByTitle(title); // Looked up once, in both modes
+        boolean lent = facade.lendBook(title, memberId);
+        if (lent) {
+            facade.returnBook(title, memberId);
+            send(book, "Book lent: " + title + " to Member " + memberId);
+            send(book, "Book returned: " + title + " by Member " + memberId);
+        }
+        return lent;
+    }
+
+    /**
+     * Notifies the observers of a book, on the benchmark thread in the inline trial and through the
+     * bus in the async trial.
+     *
+     * @param book    The book the message is about.
+     * @param message The message.
+     */
+    private void send(Book book, String message) {
+        if (bus == null) {
+            for (Observer observer : attached) {
+                observer.update(message);
+            }
+        } else {
+            book.notifyObservers(message);
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package benchmark.jmh;
+
+import model.Book;
+import model.Loan;
+import model.Member;
+import model.OverdueMonitor;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.Duration;
+import java.util.Date;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The {@code OverdueSchedulerBenchmark} class measures what the overdue monitor adds to a lend and a
+ * return. The monitor starts with a given number of active loans due four to eight weeks ahead; each
+ * operation returns a random one, cancelling its timeout, and lends a new one in its place, scheduling
+ * it, so the number of active loans never changes. The clock advances one tick per thousand operations,
+ * so the wheel also turns and moves timeouts down its levels as it would in use.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+@Threads(1)
+public class OverdueSchedulerBenchmark {
+
+    /** The longest time until an active loan is due. */
+    private static final long HORIZON = Duration.ofDays(28).toMillis();
+
+    /** The number of active loans. */
+    @Param({"1000000", "10000000"})
+    public int loans;
+
+    /** The active loans. */
+    private Loan[] active;
+
+    /** The monitor under test. */
+    private OverdueMonitor monitor;
+
+    /** The book every loan is of. */
+    private Book book;
+
+    /** The member every loan is to. */
+    private Member member;
+
+    /** The current time of the monitor's clock, in milliseconds. */
+    private long now;
+
+    /** The number of operations since the clock last advanced. */
+    private int operations;
+
+    /**
+     * Builds the monitor and its active loans for a trial.
+     */
+    @Setup(Level.Trial)
+    public void setUp() {
+        now = System.currentTimeMillis();
+        monitor = new OverdueMonitor(OverdueMonitor.DEFAULT_TICK, () -> now);
+        book = new Book("Benchmark Book", "Benchmark Author", 2024, Integer.MAX_VALUE);
+        member = new Member("Benchmark Member", "M0");
+        active = new Loan[loans];
+        for (int i = 0; i < loans; i++) {
+            active[i] = newLoan();
+            monitor.track(active[i]);
+        }
+    }
+
+    @Benchmark
+    public Loan lendAndReturn() {
+        if (++operations == 1000) {
+            operations = 0;
+            now += OverdueMonitor.DEFAULT_TICK.toMillis();
+            monitor.poll(); // Nothing is due yet, but the wheel turns
+        }
+        int i = ThreadLocalRandom.current().nextInt(loans);
+        monitor.untrack(active[i]);
+        Loan loan = newLoan();
+        monitor.track(loan);
+        active[i] = loan;
+        return loan;
+    }
+
+    /**
+     * Creates a loan due at a random time past the current horizon, so no loan falls due during a trial.
+     *
+     * @return The loan.
+     */
+    private Loan newLoan() {
+        long due = now + HORIZON + ThreadLocalRandom.current().nextLong(HORIZON);
+        return new Loan(book, member, new Date(now), new Date(due));
+    }
+}
@@ -3,6 +3,7 @@ package DesingP.decorator;
 import DesingP.util.BookStateException;
 import model.Book;
 import model.Loan;
+import model.RatingStats;
 
 import java.util.List;
 
@@ -38,6 +39,17 @@ public class BookDecorator extends Book {
         return decoratedBook.getTitle();
     }
 
+    /**
+     * Returns the undecorated book at the bottom of the decorator chain.
+     *
+     * @return The undecorated book.
+     */
+    @Override
+    public Book getBaseBook() {
+        // Forwards the getBaseBook call to the decorated book instance
+        return decoratedBook.getBaseBook();
+    }
+
     /**
      * Returns the author of the decorated book.
      *
@@ -82,6 +94,84 @@ public class BookDecorator extends Book {
         decoratedBook.setQuantity(quantity);
     }
 
+    /**
+     * Adds a rating to the decorated book.
+     *
+     * @param rating The rating.
+     */
+    @Override
+    public void addRating(double rating) {
+        // Forwards the addRating call to the decorated book instance
+        decoratedBook.addRating(rating);
+    }
+
+    /**
+     * Returns the rating statistics of the decorated book.
+     *
+     * @return The rating statistics, or {@code null} if the book has never been rated.
+     */
+    @Override
+    public RatingStats getRatings() {
+        // Forwards the getRatings call to the decorated book instance
+        return decoratedBook.getRatings();
+    }
+
+    /**
+     * Returns the mean rating of the decorated book.
+     *
+     * @return The mean rating, or {@code 0.0} if the book has never been rated.
+     */
+    @Override
+    public double getAverageRating() {
+        // Forwards the getAverageRating call to the decorated book instance
+        return decoratedBook.getAverageRating();
+    }
+
+    /**
+     * Replaces the rating statistics of the decorated book.
+     *
+     * @param ratings The rating statistics, or {@code null} for none.
+     */
+    @Override
+    public void restoreRatings(RatingStats ratings) {
+        // Forwards the restoreRatings call to the decorated book instance
+        decoratedBook.restoreRatings(ratings);
+    }
+
+    /**
+     * Restores the inventory of the decorated book.
+     *
+     * @param quantity         The total quantity of the book.
+     * @param borrowedQuantity The quantity of the book that is borrowed.
+     */
+    @Override
+    public void restoreInventory(int quantity, int borrowedQuantity) {
+        // Forwards the restoreInventory call to the decorated book instance
+        decoratedBook.restoreInventory(quantity, borrowedQuantity);
+    }
+
+    /**
+     * Returns the borrowed quantity of the decorated book.
+     *
+     * @return The borrowed quantity of the book.
+     */
+    @Override
+    public int getBorrowedQuantity() {
+        // Forwards the getBorrowedQuantity call to the decorated book instance
+        return decoratedBook.getBorrowedQuantity();
+    }
+
+    /**
+     * Returns the available quantity of the decorated book.
+     *
+     * @return The available quantity of the book.
+     */
+    @Override
+    public int getAvailableQuantity() {
+        // Forwards the getAvailableQuantity call to the decorated book instance
+        return decoratedBook.getAvailableQuantity();
+    }
+
     /**
      * Lends a copy of the decorated book.
      *
@@ -158,6 +248,17 @@ public class BookDecorator extends Book {
         return decoratedBook.isAvailable();
     }
 
+    /**
+     * Sets the availability status of the decorated book.
+     *
+     * @param available {@code true} if the book should be available, {@code false} otherwise.
+     */
+    @Override
+    public void setAvailable(boolean available) {
+        // Forwards the setAvailable call to the decorated book instance
+        decoratedBook.setAvailable(available);
+    }
+
     /**
      * Compares this book decorator with another object for equality.
      * Two book decorators are considered equal if their decorated books are equal.
@@ -175,4 +276,14 @@ public class BookDecorator extends Book {
         BookDecorator that = (BookDecorator) obj;
         return decoratedBook.equals(that.decoratedBook);
     }
+
+    /**
+     * Returns a hash code consistent with {@link #equals(Object)}, based on the decorated book.
+     *
+     * @return The hash code of the decorated book.
+     */
+    @Override
+    public int hashCode() {
+        return decoratedBook.hashCode();
+    }
 }
@@ -1,13 +1,23 @@
 package DesingP.facade;
 
-import DesingP.decorator.RatedBook;
 import DesingP.factory.ConcreteLibraryFactory;
 import DesingP.factory.LibraryFactory;
 import DesingP.util.BookStateException;
 import model.*;
 import DesingP.singleton.SingletonLibrary;
 
+import persistence.CatalogExporter;
+import persistence.CatalogImporter;
+import persistence.ImportResult;
+import persistence.LibraryStore;
+import analytics.TopEntry;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * The {@code LibraryFacade} class provides a simplified interface to the complex library system.
@@ -44,7 +54,7 @@ public class LibraryFacade {
      */
     public void addBook(String title, String author, int year, int quantity) {
         Book book = factory.createBook(title, author, year, quantity); // Creates a new book using the factory
-        librarian.addBook(book.getTitle(), book.getAuthor(), book.getYear(), book.getQuantity()); // Adds the book to the library through the librarian
+        librarian.addBook(book); // Adds the book to the library through the librarian
     }
 
     /**
@@ -79,7 +89,7 @@ public class LibraryFacade {
             throw new BookStateException("ID already taken: " + id); // Throws an exception if the ID is taken
         }
         Member member = factory.createMember(name, id); // Creates a new member using the factory
-        librarian.addMember(member.getName(), member.getId()); // Adds the member to the library through the librarian
+        librarian.addMember(member); // Adds the member to the library through the librarian
     }
 
     /**
@@ -110,15 +120,7 @@ public class LibraryFacade {
      * @throws BookStateException If the book or member is not found, or no copies are available.
      */
     public boolean lendBook(String title, String memberId) throws BookStateException {
-        Book book = librarian.findBookByTitle(title); // Finds the book by title using the librarian
-        Member member = librarian.findMemberById(memberId); // Finds the member by ID using the librarian
-        if (book != null && member != null) { // If both the book and member are found
-            return librarian.lendBook(title, memberId); // Lends the book to the member
-        } else if (book == null) { // If the book is not found
-            throw new BookStateException("Book not found: " + title); // Throws an exception if the book is not found
-        } else {
-            throw new BookStateException("Member not found: " + memberId);// Throws an exception if the member is not found
-        }
+        return librarian.lendBook(title, memberId); // The librarian resolves the book and the member, and reports either missing
     }
 
     /**
@@ -129,15 +131,82 @@ public class LibraryFacade {
      * @throws BookStateException If the book or member is not found, or no copies were borrowed.
      */
     public void returnBook(String title, String memberId) throws BookStateException {
-        Book book = librarian.findBookByTitle(title); // Finds the book by title using the librarian
-        Member member = librarian.findMemberById(memberId); // Finds the member by ID using the librarian
-        if (book != null && member != null) { // If both the book and member are found
-            librarian.returnBook(title, memberId); // Returns the book from the member
-        } else if (book == null) { // If the book is not found
-            throw new BookStateException("Book not found: " + title); // Throws an exception if the book is not found
-        } else {
-            throw new BookStateException("Member not found: " + memberId); // Throws an exception if the member is not found
-        }
+        librarian.returnBook(title, memberId); // The librarian resolves the book and the member, and reports either missing
+    }
+
+    /**
+     * Lends a basket of books to a member in one operation.
+     *
+     * @param memberId The ID of the member borrowing the books.
+     * @param titles   The titles of the books.
+     * @param mode     Whether a failed item cancels the whole basket or only itself.
+     * @return The outcome of each item, in the order of the titles.
+     * @throws BookStateException If the member is not found.
+     */
+    public List<ItemResult> lendBooks(String memberId, List<String> titles, BatchMode mode) throws BookStateException {
+        return librarian.lendBooks(memberId, titles, mode);
+    }
+
+    /**
+     * Returns a basket of books from a member in one operation.
+     *
+     * @param memberId The ID of the member returning the books.
+     * @param titles   The titles of the books.
+     * @param mode     Whether a failed item cancels the whole basket or only itself.
+     * @return The outcome of each item, in the order of the titles.
+     * @throws BookStateException If the member is not found.
+     */
+    public List<ItemResult> returnBooks(String memberId, List<String> titles, BatchMode mode) throws BookStateException {
+        return librarian.returnBooks(memberId, titles, mode);
+    }
+
+    /**
+     * Reserves a book for a member: lends it if a copy is free and nobody is waiting, and otherwise
+     * puts the member in the book's hold queue, to be lent the first copy that comes back to them.
+     *
+     * @param title    The title of the book to reserve.
+     * @param memberId The ID of the member reserving the book.
+     * @return 0 if the book was lent, otherwise the member's position in the queue.
+     * @throws BookStateException If the book or member is not found, or the member already has or awaits the book.
+     */
+    public int reserveBook(String title, String memberId) throws BookStateException {
+        return librarian.placeHold(title, memberId);
+    }
+
+    /**
+     * Cancels a member's reservation of a book.
+     *
+     * @param title    The title of the book.
+     * @param memberId The ID of the member.
+     * @throws BookStateException If the book or member is not found, or the member is not waiting for the book.
+     */
+    public void cancelReservation(String title, String memberId) throws BookStateException {
+        librarian.cancelHold(title, memberId);
+    }
+
+    /**
+     * Gets a member's position in the hold queue of a book.
+     *
+     * @param title    The title of the book.
+     * @param memberId The ID of the member.
+     * @return The position, 1 being the next to be served, or 0 if the member is not waiting.
+     * @throws BookStateException If the book or member is not found.
+     */
+    public int getHoldPosition(String title, String memberId) throws BookStateException {
+        return librarian.getHoldPosition(title, memberId);
+    }
+
+    /**
+     * Gets how long a member can expect to wait for a book they reserved, from the due dates of the
+     * copies on loan.
+     *
+     * @param title    The title of the book.
+     * @param memberId The ID of the member.
+     * @return The expected wait.
+     * @throws BookStateException If the book or member is not found, or the member is not waiting for the book.
+     */
+    public Duration getExpectedWait(String title, String memberId) throws BookStateException {
+        return librarian.getExpectedWait(title, memberId);
     }
 
     /**
@@ -150,18 +219,37 @@ public class LibraryFacade {
     }
 
     /**
-     * Gets all books in the library.
+     * Gets all books in the library, as an immutable snapshot of the catalog. Taking it costs neither
+     * a lock nor a copy, and iterating over it is unaffected by books added or removed meanwhile.
      *
      * @return A list of all books in the library.
      */
     public List<Book> getAllBooks() {
-        return library.getBooks(); // Returns a list of all books in the library
+        return library.getBooksSnapshot(); // Returns the latest published version of the catalog
     }
 
     /**
-     * Adds sample books to the library.
+     * Gets a page of the books in the library, in catalog order. The page is copied under a single
+     * acquisition of the catalog lock, so it is consistent even while books are added or removed.
+     *
+     * @param offset The index of the first book of the page.
+     * @param limit  The largest number of books to return.
+     * @return The books of the page, empty if the offset is past the last book.
+     */
+    public List<Book> getBooks(int offset, int limit) {
+        Book[] page = new Book[limit];
+        int count = library.copyBooks(offset, page); // Copies the page under the catalog read lock
+        return Arrays.asList(page).subList(0, count);
+    }
+
+    /**
+     * Adds sample books to the library, unless it already has a catalog,
+     * for example because it was recovered from its journal.
      */
     private void addSampleBooks() {
+        if (!library.getBooks().isEmpty()) {
+            return; // Keeps the recovered catalog as it was, including removed sample books
+        }
         addBook("The Catcher in the Rye", "J.D. Salinger", 1951, 5);
         addBook("To Kill a Mockingbird", "Harper Lee", 1960, 5);
         addBook("1984", "George Orwell", 1949, 5);
@@ -186,25 +274,61 @@ public class LibraryFacade {
     }
 
     /**
-     * Gets the rating of a book.
+     * Gets the mean rating of a book.
      *
      * @param title The title of the book.
-     * @return The rating of the book, or 0.0 if the book is found but not rated, or -1 if the book is not found.
+     * @return The mean rating of the book, or 0.0 if the book is found but not rated.
      * @throws BookStateException If the book is not found.
      */
     public double getBookRating(String title) throws BookStateException {
         Book book = librarian.findBookByTitle(title); // Finds the book by title using the librarian
         if (book != null) { // If the book is found
-            if (book instanceof RatedBook) { // Checks if the book is an instance of RatedBook
-                return ((RatedBook) book).getRating(); // Returns the rating of the book
-            } else {
-                return 0.0; // Book found but not rated
-            }
+            return book.getAverageRating(); // Returns the mean rating, or 0.0 if the book is not rated
         } else {
-            throw new BookStateException("Book not found: " + title); // Returns 0.0 if the book is not rated
+            throw new BookStateException("Book not found: " + title); // Throws an exception if the book is not found
         }
     }
 
+    /**
+     * Gets the rating statistics of a book: the number of ratings, the mean, the histogram and percentiles.
+     *
+     * @param title The title of the book.
+     * @return A copy of the book's rating statistics, empty if the book is not rated.
+     * @throws BookStateException If the book is not found.
+     */
+    public RatingStats getBookRatingStats(String title) throws BookStateException {
+        Book book = librarian.findBookByTitle(title); // Finds the book by title using the librarian
+        if (book == null) {
+            throw new BookStateException("Book not found: " + title);
+        }
+        RatingStats ratings = book.getRatings();
+        return ratings == null ? new RatingStats() : ratings.copy();
+    }
+
+    /**
+     * Gets the most lent books of a recent time window. The counts are estimates that may exceed the
+     * true counts by a small fraction of all loans in the window.
+     *
+     * @param n      The largest number of books to return.
+     * @param window The length of the window, ending now; up to a day.
+     * @return The titles with their estimated loan counts, most lent first.
+     */
+    public List<TopEntry> getTopBooks(int n, Duration window) {
+        return library.getBookPopularity().top(n, window);
+    }
+
+    /**
+     * Gets the most lent authors of a recent time window. The counts are estimates that may exceed the
+     * true counts by a small fraction of all loans in the window.
+     *
+     * @param n      The largest number of authors to return.
+     * @param window The length of the window, ending now; up to a day.
+     * @return The authors with their estimated loan counts, most lent first.
+     */
+    public List<TopEntry> getTopAuthors(int n, Duration window) {
+        return library.getAuthorPopularity().top(n, window);
+    }
+
     /**
      * Gets the list of books loaned by a member.
      *
@@ -229,14 +353,51 @@ public class LibraryFacade {
      * @throws BookStateException If the book is not found.
      */
     public Book findBookByTitle(String title) throws BookStateException {
-        for (Book book : library.getBooks()) { // Iterates through the list of books in the library
-            if (book.getTitle().equals(title)) { // Checks if the title of the book matches the specified title
-                return book; // Returns the book if the title matches
-            }
+        Book book = library.findBookByTitle(title); // Looks the title up in the library's title index
+        if (book != null) {
+            return book; // Returns the book if the title matches
         }
         throw new BookStateException("Book not found: " + title); // Throws an exception if the book is not found
     }
 
+    /**
+     * Searches the titles and authors of the books for the given text, ignoring case.
+     *
+     * @param query The text to look for, such as a fragment of a title or an author's name.
+     * @param limit The maximum number of books to return.
+     * @return The matching books, best match first.
+     */
+    public List<Book> searchBooks(String query, int limit) {
+        return library.searchBooks(query, limit); // Searches the library's title and author index
+    }
+
+    /**
+     * Gets every loan of a book the library still knows of, oldest first: its completed loans, if the
+     * library archives them, then its active loans.
+     *
+     * @param title The title of the book.
+     * @return The loans of the book.
+     * @throws BookStateException If the book is not found.
+     */
+    public List<Loan> getLoanHistory(String title) throws BookStateException {
+        Book book = librarian.findBookByTitle(title); // Finds the book by title using the librarian
+        if (book != null) { // If the book is found
+            return library.getLoanHistory(book); // Reads the archived loans, then the active ones
+        } else {
+            throw new BookStateException("Book not found: " + title); // Throws an exception if the book is not found
+        }
+    }
+
+    /**
+     * Gets the books by an author, matching the author's name exactly.
+     *
+     * @param author The name of the author.
+     * @return The books by the author, in the order they were added.
+     */
+    public List<Book> getBooksByAuthor(String author) {
+        return library.findBooksByAuthor(author); // Reads the author index rather than the catalog
+    }
+
     /**
      * Gets the total number of loans in the library.
      *
@@ -261,4 +422,55 @@ public class LibraryFacade {
             throw new BookStateException("Book not found: " + title); // Throws an exception if the book is not found
         }
     }
+
+    /**
+     * Imports books from a CSV or JSON Lines file, as when a branch is onboarded. The format is
+     * picked from the extension of the file.
+     *
+     * @param path The file, with the columns {@code title}, {@code author}, {@code year} and {@code quantity}.
+     * @return The number of books read and added.
+     * @throws IOException If the file cannot be read or a record is malformed; the books before it are kept.
+     */
+    public ImportResult importBooks(Path path) throws IOException {
+        return new CatalogImporter(librarian).importBooks(path);
+    }
+
+    /**
+     * Imports members from a CSV or JSON Lines file. Members whose ID is already taken are skipped.
+     *
+     * @param path The file, with the columns {@code name} and {@code id}.
+     * @return The number of members read and added.
+     * @throws IOException If the file cannot be read or a record is malformed; the members before it are kept.
+     */
+    public ImportResult importMembers(Path path) throws IOException {
+        return new CatalogImporter(librarian).importMembers(path);
+    }
+
+    /**
+     * Exports the catalog, the members, the active loans and the rating statistics to a directory,
+     * as for a nightly export. The files are encoded in parallel and written in constant memory.
+     *
+     * @param directory The directory, created if needed.
+     * @param format    The format of the files.
+     * @return The files written.
+     * @throws IOException If a file cannot be written.
+     */
+    public List<Path> exportLibrary(Path directory, CatalogExporter.Format format) throws IOException {
+        return new CatalogExporter(library).exportAll(directory, format);
+    }
+
+    /**
+     * Takes a snapshot of the library in the background, so that the next start loads the
+     * snapshot instead of replaying the whole journal.
+     *
+     * @return A future completed with the path of the snapshot once it is on disk.
+     * @throws IllegalStateException If the library is not persisted.
+     */
+    public CompletableFuture<Path> checkpoint() {
+        LibraryStore store = SingletonLibrary.getInstance().getStore();
+        if (store == null) {
+            throw new IllegalStateException("The library is not persisted"); // No data directory was configured
+        }
+        return store.checkpoint();
+    }
 }
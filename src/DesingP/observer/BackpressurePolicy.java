@@ -0,0 +1,21 @@
+package DesingP.observer;
+
+/**
+ * The {@code BackpressurePolicy} enum lists what an {@link EventBus} does when events are published
+ * faster than its observers consume them and its buffer fills up.
+ */
+public enum BackpressurePolicy {
+
+    /** The publisher waits until there is room, so no event is lost. */
+    BLOCK,
+
+    /** The oldest waiting event is discarded to make room, so publishers never wait. */
+    DROP_OLDEST,
+
+    /**
+     * A subject has at most one waiting event: a newer event for the same subject replaces the
+     * message of the waiting one, so observers see the latest state. A publisher waits only when
+     * the buffer is full of events for other subjects.
+     */
+    COALESCE
+}
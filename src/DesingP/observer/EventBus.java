@@ -0,0 +1,431 @@
+package DesingP.observer;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * The {@code EventBus} class delivers notifications to observers on its own threads, so the thread
+ * that changes a book or a member only pays for queueing the message, never for what the observers do
+ * with it. Events wait in bounded ring buffers, one per consumer thread; a subject always goes to the
+ * same consumer, so each observer receives the events of a subject in the order they were published.
+ * Consumers take the waiting events in batches, which spreads the cost of waking them up and taking
+ * the lock over many events. What happens when a buffer is full is set by a {@link BackpressurePolicy}.
+ *
+ * <p>{@link Observable#notifyObservers(String)} publishes to the {@linkplain #getDefault() default bus}.</p>
+ */
+public class EventBus implements AutoCloseable {
+
+    /** The number of events in each buffer of the default bus. */
+    private static final int DEFAULT_CAPACITY = 64 * 1024;
+
+    /** The largest number of events a consumer of the default bus takes at once. */
+    private static final int DEFAULT_BATCH_SIZE = 256;
+
+    /** The bus {@link Observable} publishes to, created on first use. */
+    private static volatile EventBus defaultBus;
+
+    /** The buffers, one per consumer thread. */
+    private final Partition[] partitions;
+
+    /** The policy applied when a buffer is full. */
+    private final BackpressurePolicy policy;
+
+    /** The number of events discarded under {@link BackpressurePolicy#DROP_OLDEST}. */
+    private final LongAdder droppedEvents = new LongAdder();
+
+    /** The number of events merged into a waiting one under {@link BackpressurePolicy#COALESCE}. */
+    private final LongAdder coalescedEvents = new LongAdder();
+
+    /** The number of observer calls that threw an exception. */
+    private final LongAdder failedDeliveries = new LongAdder();
+
+    /**
+     * Constructs a new {@code EventBus} and starts its consumer threads.
+     *
+     * @param capacity  The number of events each buffer holds; rounded up to a power of two.
+     * @param consumers The number of consumer threads.
+     * @param batchSize The largest number of events a consumer takes at once.
+     * @param policy    The policy applied when a buffer is full.
+     */
+    public EventBus(int capacity, int consumers, int batchSize, BackpressurePolicy policy) {
+        if (capacity < 1 || consumers < 1 || batchSize < 1) {
+            throw new IllegalArgumentException("Capacity, consumers and batch size must be positive");
+        }
+        this.policy = policy;
+        this.partitions = new Partition[consumers];
+        int slots = Integer.highestOneBit(capacity);
+        if (slots < capacity) {
+            slots <<= 1;
+        }
+        for (int i = 0; i < consumers; i++) {
+            partitions[i] = new Partition(slots, batchSize, "event-bus-" + i);
+        }
+        for (Partition partition : partitions) {
+            partition.consumer.start();
+        }
+    }
+
+    /**
+     * Returns the bus observables publish to, creating it with one consumer thread and the
+     * {@link BackpressurePolicy#BLOCK} policy if no bus has been set. Overdue and hold notices must
+     * reach their observers, as they did when observers were called inline, so a publisher waits for
+     * room rather than losing one; with a buffer of {@value #DEFAULT_CAPACITY} events that only happens
+     * when the observers fall far behind. A caller that prefers to lose notices than to wait sets a
+     * bus with the {@link BackpressurePolicy#DROP_OLDEST} policy instead.
+     *
+     * @return The default bus.
+     */
+    public static EventBus getDefault() {
+        EventBus bus = defaultBus;
+        if (bus == null) {
+            synchronized (EventBus.class) {
+                bus = defaultBus;
+                if (bus == null) {
+                    bus = new EventBus(DEFAULT_CAPACITY, 1, DEFAULT_BATCH_SIZE, BackpressurePolicy.BLOCK);
+                    defaultBus = bus;
+                }
+            }
+        }
+        return bus;
+    }
+
+    /**
+     * Replaces the bus observables publish to. The previous bus is returned, still running, so its
+     * waiting events can be drained before it is closed.
+     *
+     * @param bus The new default bus, or {@code null} to create a new one on next use.
+     * @return The previous default bus, or {@code null} if none had been created.
+     */
+    public static synchronized EventBus setDefault(EventBus bus) {
+        EventBus previous = defaultBus;
+        defaultBus = bus;
+        return previous;
+    }
+
+    /**
+     * Queues a message for the observers of a subject. The observers are read when the message is
+     * delivered, so the list should be safe to iterate while it changes.
+     *
+     * @param subject   The object the message is about; decides the consumer and the coalescing.
+     * @param observers The observers to deliver the message to.
+     * @param message   The message.
+     * @throws IllegalStateException If the bus is closed.
+     */
+    public void publish(Object subject, List<Observer> observers, String message) {
+        int hash = subject.hashCode(); // Equal subjects, such as two views of a book, share a consumer
+        partitions[Math.floorMod(hash ^ hash >>> 16, partitions.length)].offer(subject, observers, message);
+    }
+
+    /**
+     * Waits until every buffer is empty and no event is being delivered, so that every event
+     * published before the call has been delivered or dropped.
+     *
+     * @param timeout The longest time to wait.
+     * @param unit    The unit of the timeout.
+     * @return {@code true} if the bus became idle, {@code false} if the time ran out.
+     * @throws InterruptedException If the thread is interrupted while waiting.
+     */
+    public boolean awaitIdle(long timeout, TimeUnit unit) throws InterruptedException {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        for (Partition partition : partitions) {
+            if (!partition.awaitIdle(deadline)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns the policy applied when a buffer is full.
+     *
+     * @return The backpressure policy.
+     */
+    public BackpressurePolicy getPolicy() {
+        return policy;
+    }
+
+    /**
+     * Returns the number of events discarded because a buffer was full.
+     *
+     * @return The number of dropped events.
+     */
+    public long getDroppedEvents() {
+        return droppedEvents.sum();
+    }
+
+    /**
+     * Returns the number of events merged into an event already waiting for the same subject.
+     *
+     * @return The number of coalesced events.
+     */
+    public long getCoalescedEvents() {
+        return coalescedEvents.sum();
+    }
+
+    /**
+     * Returns the number of times an observer threw an exception while receiving a message.
+     *
+     * @return The number of failed deliveries.
+     */
+    public long getFailedDeliveries() {
+        return failedDeliveries.sum();
+    }
+
+    /**
+     * Stops accepting events, delivers the ones still waiting and stops the consumer threads.
+     */
+    @Override
+    public void close() {
+        for (Partition partition : partitions) {
+            partition.stop();
+        }
+        for (Partition partition : partitions) {
+            try {
+                partition.consumer.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    /**
+     * A waiting event. The slots of a buffer are allocated once and reused.
+     */
+    private static final class Event {
+
+        /** The object the message is about. */
+        Object subject;
+
+        /** The observers to deliver the message to. */
+        List<Observer> observers;
+
+        /** The message. */
+        String message;
+    }
+
+    /**
+     * A ring buffer of events and the consumer thread that empties it.
+     */
+    private final class Partition {
+
+        /** Guards the buffer. */
+        private final ReentrantLock lock = new ReentrantLock();
+
+        /** Signalled when an event is queued or the bus is closed. */
+        private final Condition notEmpty = lock.newCondition();
+
+        /** Signalled when events are taken out of the buffer. */
+        private final Condition notFull = lock.newCondition();
+
+        /** Signalled when the buffer is empty and no batch is being delivered. */
+        private final Condition idle = lock.newCondition();
+
+        /** The slots of the ring. */
+        private final Event[] ring;
+
+        /** The mask that wraps a position around the ring. */
+        private final int mask;
+
+        /** The waiting event of each subject, under {@link BackpressurePolicy#COALESCE}. */
+        private final Map<Object, Event> waiting;
+
+        /** The observers of the batch being delivered. */
+        private final List<?>[] batchObservers;
+
+        /** The messages of the batch being delivered. */
+        private final String[] batchMessages;
+
+        /** The thread that delivers the events. */
+        private final Thread consumer;
+
+        /** The position of the oldest waiting event. */
+        private long head;
+
+        /** The position the next event is written to. */
+        private long tail;
+
+        /** Whether the consumer is delivering a batch. */
+        private boolean delivering;
+
+        /** Whether the consumer should stop once the buffer is empty. */
+        private boolean stopping;
+
+        /**
+         * Constructs a new {@code Partition}.
+         *
+         * @param slots     The number of slots, a power of two.
+         * @param batchSize The largest number of events taken at once.
+         * @param name      The name of the consumer thread.
+         */
+        Partition(int slots, int batchSize, String name) {
+            this.ring = new Event[slots];
+            for (int i = 0; i < slots; i++) {
+                ring[i] = new Event();
+            }
+            this.mask = slots - 1;
+            this.waiting = policy == BackpressurePolicy.COALESCE ? new HashMap<>() : null;
+            this.batchObservers = new List<?>[Math.min(batchSize, slots)];
+            this.batchMessages = new String[batchObservers.length];
+            this.consumer = new Thread(this::consume, name);
+            this.consumer.setDaemon(true);
+        }
+
+        /**
+         * Queues an event, applying the backpressure policy if the buffer is full.
+         */
+        void offer(Object subject, List<Observer> observers, String message) {
+            boolean interrupted = false;
+            lock.lock();
+            try {
+                if (stopping) {
+                    throw new IllegalStateException("The event bus is closed");
+                }
+                if (waiting != null) {
+                    Event event = waiting.get(subject);
+                    if (event != null) {
+                        event.observers = observers;
+                        event.message = message; // The waiting event now carries the latest message
+                        coalescedEvents.increment();
+                        return;
+                    }
+                }
+                while (tail - head == ring.length) {
+                    if (policy == BackpressurePolicy.DROP_OLDEST) {
+                        clear(ring[(int) head++ & mask]);
+                        droppedEvents.increment();
+                        break;
+                    }
+                    try {
+                        notFull.await();
+                    } catch (InterruptedException e) {
+                        interrupted = true; // The event is queued anyway, like a mutation that is already made
+                    }
+                }
+                Event event = ring[(int) tail++ & mask];
+                event.subject = subject;
+                event.observers = observers;
+                event.message = message;
+                if (waiting != null) {
+                    waiting.put(subject, event);
+                }
+                if (tail - head == 1) {
+                    notEmpty.signal(); // Only an empty buffer can have a sleeping consumer
+                }
+            } finally {
+                lock.unlock();
+            }
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        /**
+         * Delivers batches of events until the bus is closed and the buffer is empty.
+         */
+        private void consume() {
+            while (true) {
+                int count;
+                lock.lock();
+                try {
+                    delivering = false;
+                    while (head == tail) {
+                        idle.signalAll();
+                        if (stopping) {
+                            return;
+                        }
+                        notEmpty.awaitUninterruptibly();
+                    }
+                    count = (int) Math.min(tail - head, batchObservers.length);
+                    for (int i = 0; i < count; i++) {
+                        Event event = ring[(int) head++ & mask];
+                        batchObservers[i] = event.observers;
+                        batchMessages[i] = event.message;
+                        clear(event);
+                    }
+                    delivering = true;
+                    notFull.signalAll();
+                } finally {
+                    lock.unlock();
+                }
+                deliver(count);
+            }
+        }
+
+        /**
+         * Delivers the events of the current batch outside the lock.
+         *
+         * @param count The number of events in the batch.
+         */
+        @SuppressWarnings("unchecked")
+        private void deliver(int count) {
+            for (int i = 0; i < count; i++) {
+                String message = batchMessages[i];
+                for (Observer observer : (List<Observer>) batchObservers[i]) {
+                    try {
+                        observer.update(message);
+                    } catch (RuntimeException e) {
+                        failedDeliveries.increment(); // One faulty observer must not stop the others
+                    }
+                }
+                batchObservers[i] = null;
+                batchMessages[i] = null;
+            }
+        }
+
+        /**
+         * Empties a slot that has been taken or dropped.
+         *
+         * @param event The slot.
+         */
+        private void clear(Event event) {
+            if (waiting != null) {
+                waiting.remove(event.subject, event);
+            }
+            event.subject = null;
+            event.observers = null;
+            event.message = null;
+        }
+
+        /**
+         * Waits until the buffer is empty and no batch is being delivered.
+         *
+         * @param deadline The {@link System#nanoTime()} to give up at.
+         * @return {@code true} if the partition became idle in time.
+         * @throws InterruptedException If the thread is interrupted while waiting.
+         */
+        boolean awaitIdle(long deadline) throws InterruptedException {
+            lock.lock();
+            try {
+                while (head != tail || delivering) {
+                    long remaining = deadline - System.nanoTime();
+                    if (remaining <= 0) {
+                        return false;
+                    }
+                    idle.awaitNanos(remaining);
+                }
+                return true;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        /**
+         * Tells the consumer to stop once the buffer is empty.
+         */
+        void stop() {
+            lock.lock();
+            try {
+                stopping = true;
+                notEmpty.signal();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+}
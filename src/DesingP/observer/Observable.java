@@ -1,45 +1,69 @@
 package DesingP.observer;
 
-import java.util.ArrayList;
 import java.util.List;
 
 /**
  * The {@code Observable} class is an abstract class that provides the basic functionality
  * for managing and notifying observers. It is designed to be extended by other classes
- * that need to notify observers about changes in their state.
+ * that need to notify observers about changes in their state. The subscriptions are kept in the
+ * {@link ObserverRegistry}, not in the observable, and notifications are delivered asynchronously
+ * by the default {@link EventBus}, so notifying waits for the observers only when they fall far behind.
  */
 public abstract class Observable {
 
-    /** A list of observers that are monitoring this observable object. */
-    private final List<Observer> observers = new ArrayList<>();
-
     /**
-     * Adds an observer to the list of observers.
+     * Adds an observer to this observable object.
      *
      * @param observer The observer to be added.
      */
     public void addObserver(Observer observer) {
-        observers.add(observer); // Adds the observer to the list
+        ObserverRegistry.getInstance().subscribe(getSubject(), observer); // Subscribes the observer in the registry
     }
 
     /**
-     * Removes an observer from the list of observers.
+     * Removes an observer from this observable object.
      *
      * @param observer The observer to be removed.
      */
     public void removeObserver(Observer observer) {
-        observers.remove(observer); // Removes the observer from the list
+        ObserverRegistry.getInstance().unsubscribe(getSubject(), observer); // Unsubscribes the observer in the registry
+    }
+
+    /**
+     * Returns the observers subscribed to this observable object itself.
+     *
+     * @return The observers, in the order they were added.
+     */
+    public List<Observer> getObservers() {
+        return ObserverRegistry.getInstance().getObservers(getSubject());
     }
 
     /**
-     * Notifies all observers by sending them a message.
+     * Notifies all observers by sending them a message. The message is queued on the default
+     * {@link EventBus} and delivered on its thread.
      *
      * @param message The message to be sent to all observers.
      */
     protected void notifyObservers(String message) {
-        // Iterates over the list of observers and calls their update method with the message
-        for (Observer observer : observers) {
-            observer.update(message); // Calls the update method of the observer with the message
-        }
+        ObserverRegistry.getInstance().publish(this, message);
+    }
+
+    /**
+     * Returns the subject observers of this object subscribe to. Objects that stand for another,
+     * such as decorators, return the object they stand for so they share its observers.
+     *
+     * @return The subject of this object.
+     */
+    protected Object getSubject() {
+        return this;
+    }
+
+    /**
+     * Returns the author whose observers are also notified about this object, if any.
+     *
+     * @return The author, or {@code null} if the object has none.
+     */
+    protected String getAuthorTopic() {
+        return null;
     }
 }
@@ -0,0 +1,194 @@
+package DesingP.observer;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * The {@code ObserverRegistry} class keeps every subscription in one place, so books and members carry
+ * no observer lists of their own and an entity nobody watches costs nothing. Observers subscribe to a
+ * topic: a particular subject such as a book or a member, every book by an author, or everything. When
+ * an {@link Observable} notifies, the registry gathers the observers of the topics it belongs to and
+ * queues the message for them on the default {@link EventBus}.
+ */
+public class ObserverRegistry {
+
+    /** The single instance of the registry. */
+    private static final ObserverRegistry INSTANCE = new ObserverRegistry();
+
+    /** The observers of particular subjects, keyed by the subject. */
+    private final Map<Object, CopyOnWriteArrayList<Observer>> subjectObservers = new ConcurrentHashMap<>();
+
+    /** The observers of the books by an author, keyed by the author. */
+    private final Map<String, CopyOnWriteArrayList<Observer>> authorObservers = new ConcurrentHashMap<>();
+
+    /** The observers of everything. */
+    private final CopyOnWriteArrayList<Observer> globalObservers = new CopyOnWriteArrayList<>();
+
+    /**
+     * Constructs the {@code ObserverRegistry}.
+     */
+    private ObserverRegistry() {
+    }
+
+    /**
+     * Returns the single instance of the registry.
+     *
+     * @return The registry.
+     */
+    public static ObserverRegistry getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Subscribes an observer to a subject. Subscribing the same observer twice has no effect.
+     *
+     * @param subject  The subject, such as a book or a member.
+     * @param observer The observer.
+     */
+    public void subscribe(Object subject, Observer observer) {
+        add(subjectObservers, subject, observer);
+    }
+
+    /**
+     * Unsubscribes an observer from a subject.
+     *
+     * @param subject  The subject.
+     * @param observer The observer.
+     */
+    public void unsubscribe(Object subject, Observer observer) {
+        remove(subjectObservers, subject, observer);
+    }
+
+    /**
+     * Drops every subscription to a subject, as when it leaves the library.
+     *
+     * @param subject The subject.
+     */
+    public void unsubscribeAll(Object subject) {
+        subjectObservers.remove(subject);
+    }
+
+    /**
+     * Subscribes an observer to every book by an author.
+     *
+     * @param author   The author.
+     * @param observer The observer.
+     */
+    public void subscribeToAuthor(String author, Observer observer) {
+        add(authorObservers, author, observer);
+    }
+
+    /**
+     * Unsubscribes an observer from the books by an author.
+     *
+     * @param author   The author.
+     * @param observer The observer.
+     */
+    public void unsubscribeFromAuthor(String author, Observer observer) {
+        remove(authorObservers, author, observer);
+    }
+
+    /**
+     * Subscribes an observer to every notification. Subscribing the same observer twice has no effect.
+     *
+     * @param observer The observer.
+     */
+    public void subscribeToAll(Observer observer) {
+        globalObservers.addIfAbsent(observer);
+    }
+
+    /**
+     * Unsubscribes an observer from every notification it receives through {@link #subscribeToAll}.
+     *
+     * @param observer The observer.
+     */
+    public void unsubscribeFromAll(Observer observer) {
+        globalObservers.remove(observer);
+    }
+
+    /**
+     * Returns the observers subscribed to a subject itself.
+     *
+     * @param subject The subject.
+     * @return The observers, in the order they subscribed.
+     */
+    public List<Observer> getObservers(Object subject) {
+        List<Observer> observers = subjectObservers.get(subject);
+        return observers == null ? List.of() : List.copyOf(observers);
+    }
+
+    /**
+     * Returns the number of subjects with at least one observer.
+     *
+     * @return The number of observed subjects.
+     */
+    public int getObservedSubjectCount() {
+        return subjectObservers.size();
+    }
+
+    /**
+     * Queues a message for the observers of an observable: those of its subject, those of its author,
+     * if it has one, and those of everything. An observer subscribed to several of them is notified once.
+     *
+     * @param observable The observable the message is about.
+     * @param message    The message.
+     */
+    void publish(Observable observable, String message) {
+        Object subject = observable.getSubject();
+        String author = observable.getAuthorTopic();
+        List<Observer> own = subjectObservers.get(subject);
+        List<Observer> byAuthor = author == null ? null : authorObservers.get(author);
+        List<Observer> targets = combine(combine(own, byAuthor), globalObservers.isEmpty() ? null : globalObservers);
+        if (targets != null) {
+            EventBus.getDefault().publish(subject, targets, message);
+        }
+    }
+
+    /**
+     * Combines two lists of observers, sharing either list when the other is empty.
+     *
+     * @param first  The first list, or {@code null}.
+     * @param second The second list, or {@code null}.
+     * @return The observers of both lists without duplicates, or {@code null} if there are none.
+     */
+    private static List<Observer> combine(List<Observer> first, List<Observer> second) {
+        if (first == null || first.isEmpty()) {
+            return second == null || second.isEmpty() ? null : second;
+        } else if (second == null || second.isEmpty()) {
+            return first;
+        }
+        List<Observer> combined = new ArrayList<>(first);
+        for (Observer observer : second) {
+            if (!combined.contains(observer)) {
+                combined.add(observer);
+            }
+        }
+        return combined;
+    }
+
+    /**
+     * Adds an observer to the list of a topic, creating the list if needed.
+     */
+    private static <K> void add(Map<K, CopyOnWriteArrayList<Observer>> topics, K key, Observer observer) {
+        topics.compute(key, (k, observers) -> {
+            if (observers == null) {
+                observers = new CopyOnWriteArrayList<>();
+            }
+            observers.addIfAbsent(observer);
+            return observers;
+        });
+    }
+
+    /**
+     * Removes an observer from the list of a topic, dropping the list once it is empty.
+     */
+    private static <K> void remove(Map<K, CopyOnWriteArrayList<Observer>> topics, K key, Observer observer) {
+        topics.computeIfPresent(key, (k, observers) -> {
+            observers.remove(observer);
+            return observers.isEmpty() ? null : observers;
+        });
+    }
+}
@@ -1,23 +1,48 @@
 package DesingP.singleton;
 
+import model.CatalogLayout;
 import model.Library;
+import model.LoanArchive;
+import persistence.LibraryStore;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
 
 /**
  * The {@code SingletonLibrary} class is a singleton implementation of the {@link Library} class.
  * This ensures that only one instance of the library exists throughout the application.
  * It provides a global point of access to the single instance of the library.
+ *
+ * <p>If the {@value #DATA_PROPERTY} system property names a directory, the instance is rebuilt from
+ * the {@link LibraryStore} in that directory when it is created, and every later mutation is recorded in it.
+ * The {@value #LAYOUT_PROPERTY} system property may name the {@link CatalogLayout} of the catalog;
+ * books are stored as objects by default. If the {@value #ARCHIVE_PROPERTY} system property names a
+ * directory, completed loans are kept in a {@link LoanArchive} that spills into that directory.</p>
  */
 public class SingletonLibrary extends Library {
 
+    /** The system property holding the directory the library is stored in. */
+    public static final String DATA_PROPERTY = "library.data";
+
+    /** The system property holding the layout of the catalog, {@code OBJECTS} or {@code COLUMNAR}. */
+    public static final String LAYOUT_PROPERTY = "library.layout";
+
+    /** The system property holding the directory the loan archive spills completed loans into. */
+    public static final String ARCHIVE_PROPERTY = "library.loanArchive";
+
     /** The single instance of the {@code SingletonLibrary}. */
     private static SingletonLibrary instance;
 
+    /** The store the library is kept in, or {@code null} if it is not persisted. */
+    private LibraryStore store;
+
     /**
      * Private constructor to prevent instantiation from outside the class.
      * Initializes the {@code SingletonLibrary} instance.
      */
     private SingletonLibrary() {
-        super(); // Calls the constructor of the superclass Library
+        super(CatalogLayout.valueOf(System.getProperty(LAYOUT_PROPERTY, CatalogLayout.OBJECTS.name()))); // Calls the constructor of the superclass Library
     }
 
     /**
@@ -26,10 +51,18 @@ public class SingletonLibrary extends Library {
      *
      * @return The single instance of the {@code SingletonLibrary}.
      */
-    public static SingletonLibrary getInstance() {
+    public static synchronized SingletonLibrary getInstance() {
         // Checks if the instance is null and creates a new one if necessary
         if (instance == null) {
             instance = new SingletonLibrary(); // Initializes the instance
+            String archive = System.getProperty(ARCHIVE_PROPERTY);
+            if (archive != null) {
+                instance.setLoanArchive(new LoanArchive(Path.of(archive))); // Before recovery, so replayed returns are archived too
+            }
+            String data = System.getProperty(DATA_PROPERTY);
+            if (data != null) {
+                instance.recover(Path.of(data)); // Rebuilds the library from its snapshot and journal
+            }
         }
         return instance; // Returns the single instance of SingletonLibrary
     }
@@ -38,7 +71,48 @@ public class SingletonLibrary extends Library {
      * Resets the single instance of the {@code SingletonLibrary}.
      * This method is mainly used for testing purposes.
      */
-    public static void resetInstance() {
+    public static synchronized void resetInstance() {
+        if (instance != null && instance.store != null) {
+            try {
+                instance.store.close(); // Flushes and releases the journal
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        if (instance != null && instance.getLoanArchive() != null) {
+            try {
+                instance.getLoanArchive().close(); // Deletes the spilled segments; a store keeps the loans in its snapshots
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
         instance = null; // Sets the instance to null, effectively resetting the singleton
     }
+
+    /**
+     * Returns the store the library is kept in.
+     *
+     * @return The store, or {@code null} if the library is not persisted.
+     */
+    public LibraryStore getStore() {
+        return store;
+    }
+
+    /**
+     * Rebuilds this library from the store in a directory and starts recording mutations in it.
+     * If the journal had to be replayed, a snapshot is taken in the background so that the next
+     * start does not replay it again.
+     *
+     * @param directory The directory of the store.
+     */
+    private void recover(Path directory) {
+        try {
+            store = LibraryStore.open(directory, this);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot recover the library from " + directory, e);
+        }
+        if (store.getReplayedRecords() > 0) {
+            store.checkpoint();
+        }
+    }
 }
@@ -6,15 +6,22 @@ import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
 
 import DesingP.facade.LibraryFacade;
+import DesingP.observer.BookObserver;
+import DesingP.observer.Observer;
+import DesingP.observer.ObserverRegistry;
 import DesingP.util.BookStateException;
 import model.Book;
 
 public class UI {
 
+    // One console observer for the desk, however many windows are opened
+    private static final Observer STAFF_OBSERVER = new BookObserver("Library Staff");
+
     private final LibraryFacade libraryFacade;
 
     public UI() {
         libraryFacade = new LibraryFacade();
+        ObserverRegistry.getInstance().subscribeToAll(STAFF_OBSERVER); // Subscribing it again is a no-op, so it prints each notification once
     }
 
     public void run() {
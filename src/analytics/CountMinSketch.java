@@ -0,0 +1,128 @@
+package analytics;
+
+import java.util.Arrays;
+
+/**
+ * The {@code CountMinSketch} class counts how often keys occur in a stream in a fixed amount of memory.
+ * Each key increments one counter in each of several rows, chosen by a different hash per row, and its
+ * count is estimated by the smallest of those counters. An estimate is never below the true count, and
+ * with probability at least {@code 1 - delta} it exceeds it by at most {@code epsilon} times the number
+ * of keys added.
+ *
+ * <p>Counters are updated conservatively: an addition raises only the counters that are at the key's
+ * current estimate, which keeps the estimates of other keys tighter. The class is not thread-safe.</p>
+ */
+public class CountMinSketch {
+
+    /** The number of rows, one per hash function. */
+    private final int depth;
+
+    /** The number of counters in each row. */
+    private final int width;
+
+    /** The counters, row after row. */
+    private final int[] counters;
+
+    /** The seed of the hash function of each row. */
+    private final int[] seeds;
+
+    /** The number of keys added. */
+    private long total;
+
+    /**
+     * Constructs a new {@code CountMinSketch} sized for the given error bound.
+     *
+     * @param epsilon The largest overestimate, as a fraction of the number of keys added.
+     * @param delta   The probability that an estimate exceeds that bound.
+     */
+    public CountMinSketch(double epsilon, double delta) {
+        if (!(epsilon > 0 && epsilon < 1) || !(delta > 0 && delta < 1)) {
+            throw new IllegalArgumentException("Epsilon and delta must be between 0 and 1");
+        }
+        this.width = (int) Math.ceil(Math.E / epsilon);
+        this.depth = (int) Math.ceil(Math.log(1 / delta));
+        this.counters = new int[width * depth];
+        this.seeds = new int[depth];
+        for (int row = 0; row < depth; row++) {
+            seeds[row] = 0x9E3779B9 * (row + 1); // Fixed seeds, so sketches of the same size hash alike
+        }
+    }
+
+    /**
+     * Adds one occurrence of a key.
+     *
+     * @param key The key.
+     * @return The estimated count of the key, including this occurrence.
+     */
+    public long add(Object key) {
+        int hash = key.hashCode();
+        int estimate = Integer.MAX_VALUE;
+        for (int row = 0; row < depth; row++) {
+            estimate = Math.min(estimate, counters[index(row, hash)]);
+        }
+        for (int row = 0; row < depth; row++) {
+            int index = index(row, hash);
+            if (counters[index] == estimate) {
+                counters[index]++; // Counters already above the estimate include other keys' counts
+            }
+        }
+        total++;
+        return estimate + 1L;
+    }
+
+    /**
+     * Estimates how often a key has been added.
+     *
+     * @param key The key.
+     * @return The estimated count, never below the true count.
+     */
+    public long estimate(Object key) {
+        int hash = key.hashCode();
+        int estimate = Integer.MAX_VALUE;
+        for (int row = 0; row < depth; row++) {
+            estimate = Math.min(estimate, counters[index(row, hash)]);
+        }
+        return estimate;
+    }
+
+    /**
+     * Returns the number of keys added.
+     *
+     * @return The number of keys added.
+     */
+    public long getTotal() {
+        return total;
+    }
+
+    /**
+     * Returns the size of the sketch in counters.
+     *
+     * @return The number of counters.
+     */
+    public int getCounterCount() {
+        return counters.length;
+    }
+
+    /**
+     * Resets every count to zero.
+     */
+    public void clear() {
+        Arrays.fill(counters, 0);
+        total = 0;
+    }
+
+    /**
+     * Returns the position of a key's counter in a row.
+     *
+     * @param row  The row.
+     * @param hash The hash code of the key.
+     * @return The index of the counter in {@link #counters}.
+     */
+    private int index(int row, int hash) {
+        int mixed = (hash ^ seeds[row]) * 0x85EBCA6B; // The finalizer of MurmurHash3 spreads similar hash codes
+        mixed ^= mixed >>> 13;
+        mixed *= 0xC2B2AE35;
+        mixed ^= mixed >>> 16;
+        return row * width + Math.floorMod(mixed, width);
+    }
+}
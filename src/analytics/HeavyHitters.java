@@ -0,0 +1,161 @@
+package analytics;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+
+/**
+ * The {@code HeavyHitters} class tracks the most frequent keys of a stream in a fixed amount of memory.
+ * A {@link CountMinSketch} estimates the count of every key, and a bounded set of candidates keeps the
+ * keys with the highest estimates seen so far. A new key displaces the weakest candidate once its
+ * estimate is higher, so any key whose count exceeds the error bound of the sketch ends up among the
+ * candidates as long as there are fewer such keys than candidate slots.
+ *
+ * <p>The weakest candidate is found with a min-heap whose entries are not updated in place: each
+ * increment pushes a fresh entry, and outdated entries are skipped when they reach the top. The class
+ * is not thread-safe.</p>
+ *
+ * @param <K> The type of the keys.
+ */
+public class HeavyHitters<K> {
+
+    /** The sketch estimating the count of every key. */
+    private final CountMinSketch sketch;
+
+    /** The largest number of candidates. */
+    private final int capacity;
+
+    /** The estimated count of each candidate. */
+    private final Map<K, Long> candidates;
+
+    /** The candidates ordered by estimate, including outdated entries. */
+    private final PriorityQueue<Entry<K>> heap;
+
+    /**
+     * Constructs a new {@code HeavyHitters} tracker.
+     *
+     * @param epsilon  The error bound of the sketch, as a fraction of the number of keys added.
+     * @param delta    The probability that an estimate exceeds the error bound.
+     * @param capacity The largest number of candidates kept.
+     */
+    public HeavyHitters(double epsilon, double delta, int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Capacity must be positive");
+        }
+        this.sketch = new CountMinSketch(epsilon, delta);
+        this.capacity = capacity;
+        this.candidates = new HashMap<>(capacity * 2);
+        this.heap = new PriorityQueue<>(capacity * 2);
+    }
+
+    /**
+     * Adds one occurrence of a key.
+     *
+     * @param key The key.
+     */
+    public void add(K key) {
+        long estimate = sketch.add(key);
+        if (candidates.containsKey(key)) {
+            candidates.put(key, estimate);
+        } else if (candidates.size() < capacity) {
+            candidates.put(key, estimate);
+        } else if (estimate > weakest()) {
+            candidates.remove(heap.poll().key); // weakest() left the current weakest candidate on top
+            candidates.put(key, estimate);
+        } else {
+            return;
+        }
+        heap.add(new Entry<>(key, estimate));
+        if (heap.size() > capacity * 4) {
+            compact(); // Bounds the outdated entries
+        }
+    }
+
+    /**
+     * Estimates how often a key has been added.
+     *
+     * @param key The key.
+     * @return The estimated count, never below the true count.
+     */
+    public long estimate(K key) {
+        return sketch.estimate(key);
+    }
+
+    /**
+     * Returns the keys that are candidates for being the most frequent.
+     *
+     * @return The candidate keys; a live view that must not be kept across updates.
+     */
+    public Set<K> getCandidates() {
+        return candidates.keySet();
+    }
+
+    /**
+     * Returns the number of keys added.
+     *
+     * @return The number of keys added.
+     */
+    public long getTotal() {
+        return sketch.getTotal();
+    }
+
+    /**
+     * Forgets every key.
+     */
+    public void clear() {
+        sketch.clear();
+        candidates.clear();
+        heap.clear();
+    }
+
+    /**
+     * Returns the estimate of the weakest candidate, dropping outdated heap entries above it.
+     *
+     * @return The smallest estimate among the candidates.
+     */
+    private long weakest() {
+        while (true) {
+            Entry<K> top = heap.peek();
+            Long current = candidates.get(top.key);
+            if (current != null && current == top.estimate) {
+                return top.estimate;
+            }
+            heap.poll(); // The candidate has a newer entry, or was displaced
+        }
+    }
+
+    /**
+     * Rebuilds the heap from the candidates, leaving one entry per candidate.
+     */
+    private void compact() {
+        heap.clear();
+        for (Map.Entry<K, Long> candidate : candidates.entrySet()) {
+            heap.add(new Entry<>(candidate.getKey(), candidate.getValue()));
+        }
+    }
+
+    /**
+     * An entry of the heap: a candidate and its estimate when the entry was pushed.
+     *
+     * @param <K> The type of the keys.
+     */
+    private static final class Entry<K> implements Comparable<Entry<K>> {
+
+        /** The candidate. */
+        final K key;
+
+        /** The estimate of the candidate when the entry was pushed. */
+        final long estimate;
+
+        Entry(K key, long estimate) {
+            this.key = key;
+            this.estimate = estimate;
+        }
+
+        @Override
+        public int compareTo(Entry<K> other) {
+            return Long.compare(estimate, other.estimate);
+        }
+    }
+}
@@ -0,0 +1,280 @@
+package analytics;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.LongSupplier;
+
+/**
+ * The {@code PopularityTracker} class ranks keys, such as book titles, by how often they occurred in a
+ * recent time window. Time is cut into fixed buckets, each with its own {@link HeavyHitters}; a ring of
+ * buckets covers the longest window, and a bucket is reset when the ring comes back around to it. The
+ * memory used is bounded by the configuration, however many keys and events there are, and a bucket
+ * is only allocated once an event falls into it.
+ *
+ * <p>A ranking for a window merges the buckets it covers, counting the current, partial bucket and
+ * rounding the window up to whole buckets. Each estimate exceeds the true count by at most
+ * {@code epsilon} times the number of events in the window, with probability {@code 1 - delta} per
+ * bucket; {@link #getErrorBound(Duration)} gives that bound for a window.</p>
+ *
+ * <p>Recording takes no lock, since it is on the lending path: an event is queued with the period it
+ * fell in, and the queued events are folded into the buckets in batches, under the tracker's lock, by
+ * a recording thread that finds the lock free or by the next reader. Readers take the lock to fold in
+ * what is queued and merge the buckets, so they wait for each other but never hold up recording.</p>
+ */
+public class PopularityTracker {
+
+    /** The number of queued events at which a recording thread tries to fold them into the buckets. */
+    private static final int DRAIN_THRESHOLD = 256;
+
+    /** The length of a bucket, in milliseconds. */
+    private final long bucketMillis;
+
+    /** The buckets, indexed by their period modulo their number; {@code null} until first used. */
+    private final List<HeavyHitters<String>> buckets;
+
+    /** Marks a bucket that holds no period; periods before the epoch are negative, so -1 cannot. */
+    private static final long EMPTY = Long.MIN_VALUE;
+
+    /** The time period each bucket currently holds, or {@link #EMPTY}. */
+    private final long[] bucketPeriods;
+
+    /** The error bound of the sketches, as a fraction of the number of events. */
+    private final double epsilon;
+
+    /** The probability that an estimate exceeds the error bound. */
+    private final double delta;
+
+    /** The number of candidates kept per bucket. */
+    private final int capacity;
+
+    /** The source of the current time, in milliseconds. */
+    private final LongSupplier clock;
+
+    /** The events recorded but not yet folded into the buckets. */
+    private final ConcurrentLinkedQueue<Event> queued = new ConcurrentLinkedQueue<>();
+
+    /** The number of events in {@link #queued}, counted when they are queued and when they are taken. */
+    private final AtomicInteger queuedCount = new AtomicInteger();
+
+    /** Guards the buckets. */
+    private final ReentrantLock lock = new ReentrantLock();
+
+    /**
+     * Constructs a new {@code PopularityTracker} that reads the system clock.
+     *
+     * @param bucketLength The length of a bucket.
+     * @param bucketCount  The number of buckets; the longest window is their total length.
+     * @param epsilon      The error bound, as a fraction of the number of events in a window.
+     * @param delta        The probability that an estimate exceeds the error bound.
+     * @param capacity     The number of candidates kept per bucket, which bounds the size of a ranking.
+     */
+    public PopularityTracker(Duration bucketLength, int bucketCount, double epsilon, double delta, int capacity) {
+        this(bucketLength, bucketCount, epsilon, delta, capacity, System::currentTimeMillis);
+    }
+
+    /**
+     * Constructs a new {@code PopularityTracker} that reads the given clock.
+     *
+     * @param bucketLength The length of a bucket.
+     * @param bucketCount  The number of buckets; the longest window is their total length.
+     * @param epsilon      The error bound, as a fraction of the number of events in a window.
+     * @param delta        The probability that an estimate exceeds the error bound.
+     * @param capacity     The number of candidates kept per bucket, which bounds the size of a ranking.
+     * @param clock        The source of the current time, in milliseconds.
+     */
+    @SuppressWarnings("unchecked")
+    public PopularityTracker(Duration bucketLength, int bucketCount, double epsilon, double delta, int capacity,
+                             LongSupplier clock) {
+        if (bucketLength.toMillis() < 1 || bucketCount < 1) {
+            throw new IllegalArgumentException("Buckets must be at least a millisecond long and at least one in number");
+        }
+        if (!(epsilon > 0 && epsilon < 1) || !(delta > 0 && delta < 1) || capacity < 1) {
+            throw new IllegalArgumentException("Epsilon and delta must be between 0 and 1, and the capacity positive");
+        }
+        this.bucketMillis = bucketLength.toMillis();
+        this.buckets = new ArrayList<>(Collections.nCopies(bucketCount, null));
+        this.bucketPeriods = new long[bucketCount];
+        Arrays.fill(bucketPeriods, EMPTY);
+        this.epsilon = epsilon;
+        this.delta = delta;
+        this.capacity = capacity;
+        this.clock = clock;
+    }
+
+    /**
+     * Records one occurrence of a key now. The event is queued; it is folded into its bucket later,
+     * by this thread if the queue is long and nobody else holds the tracker's lock.
+     *
+     * @param key The key.
+     */
+    public void record(String key) {
+        queued.add(new Event(key, Math.floorDiv(clock.getAsLong(), bucketMillis)));
+        if (queuedCount.incrementAndGet() >= DRAIN_THRESHOLD && lock.tryLock()) {
+            try {
+                drain();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Ranks the most frequent keys of a recent window.
+     *
+     * @param n      The largest number of keys to return.
+     * @param window The length of the window, ending now; capped at the longest window.
+     * @return The keys with their estimated counts, most frequent first.
+     */
+    public List<TopEntry> top(int n, Duration window) {
+        List<TopEntry> ranking;
+        lock.lock();
+        try {
+            List<HeavyHitters<String>> covered = covered(window);
+            Set<String> candidates = new HashSet<>();
+            for (HeavyHitters<String> bucket : covered) {
+                candidates.addAll(bucket.getCandidates());
+            }
+            ranking = new ArrayList<>(candidates.size());
+            for (String key : candidates) {
+                long count = 0;
+                for (HeavyHitters<String> bucket : covered) {
+                    count += bucket.estimate(key);
+                }
+                ranking.add(new TopEntry(key, count));
+            }
+        } finally {
+            lock.unlock();
+        }
+        ranking.sort(Comparator.comparingLong(TopEntry::getCount).reversed().thenComparing(TopEntry::getKey));
+        return ranking.size() > n ? new ArrayList<>(ranking.subList(0, n)) : ranking;
+    }
+
+    /**
+     * Returns the number of events recorded in a recent window.
+     *
+     * @param window The length of the window, ending now; capped at the longest window.
+     * @return The number of events.
+     */
+    public long getTotal(Duration window) {
+        lock.lock();
+        try {
+            long total = 0;
+            for (HeavyHitters<String> bucket : covered(window)) {
+                total += bucket.getTotal();
+            }
+            return total;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Returns how much an estimate for a recent window may exceed the true count: epsilon times the
+     * number of events in the window.
+     *
+     * @param window The length of the window, ending now.
+     * @return The error bound.
+     */
+    public long getErrorBound(Duration window) {
+        return (long) Math.ceil(epsilon * getTotal(window));
+    }
+
+    /**
+     * Returns the longest window the tracker can rank.
+     *
+     * @return The total length of the buckets.
+     */
+    public Duration getLongestWindow() {
+        return Duration.ofMillis(bucketMillis * buckets.size());
+    }
+
+    /**
+     * Forgets every event.
+     */
+    public void clear() {
+        lock.lock();
+        try {
+            drain(); // Drops the queued events along with the rest
+            Collections.fill(buckets, null); // Releases the memory of the buckets until events arrive again
+            Arrays.fill(bucketPeriods, EMPTY);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Folds the queued events into their buckets. The caller must hold the lock.
+     */
+    private void drain() {
+        int drained = 0;
+        Event event;
+        while ((event = queued.poll()) != null) {
+            drained++;
+            int index = (int) Math.floorMod(event.period, (long) buckets.size());
+            if (bucketPeriods[index] > event.period) {
+                continue; // Queued so long ago that its period has left every window
+            }
+            if (buckets.get(index) == null) {
+                buckets.set(index, new HeavyHitters<>(epsilon, delta, capacity));
+            } else if (bucketPeriods[index] != event.period) {
+                buckets.get(index).clear(); // The ring has come back around; the old period has left every window
+            }
+            bucketPeriods[index] = event.period;
+            buckets.get(index).add(event.key);
+        }
+        queuedCount.addAndGet(-drained);
+    }
+
+    /**
+     * Returns the buckets that hold events of a recent window, after folding in the queued events.
+     * The caller must hold the lock.
+     *
+     * @param window The length of the window, ending now.
+     * @return The buckets, newest first.
+     */
+    private List<HeavyHitters<String>> covered(Duration window) {
+        drain();
+        long now = Math.floorDiv(clock.getAsLong(), bucketMillis);
+        long span = Math.min(buckets.size(), Math.max(1, (window.toMillis() + bucketMillis - 1) / bucketMillis));
+        List<HeavyHitters<String>> covered = new ArrayList<>((int) span);
+        for (long period = now; period > now - span; period--) {
+            int index = (int) Math.floorMod(period, (long) buckets.size());
+            if (bucketPeriods[index] == period) {
+                covered.add(buckets.get(index));
+            }
+        }
+        return covered;
+    }
+
+    /**
+     * An event waiting to be folded into its bucket.
+     */
+    private static final class Event {
+
+        /** The key that occurred. */
+        final String key;
+
+        /** The period the event fell in. */
+        final long period;
+
+        /**
+         * Constructs a new {@code Event}.
+         *
+         * @param key    The key that occurred.
+         * @param period The period the event fell in.
+         */
+        Event(String key, long period) {
+            this.key = key;
+            this.period = period;
+        }
+    }
+}
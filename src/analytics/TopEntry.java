@@ -0,0 +1,48 @@
+package analytics;
+
+/**
+ * The {@code TopEntry} class is one line of a popularity ranking: a key, such as a book title or an
+ * author, and its estimated number of loans in the window that was asked for.
+ */
+public class TopEntry {
+
+    /** The key. */
+    private final String key;
+
+    /** The estimated count. */
+    private final long count;
+
+    /**
+     * Constructs a new {@code TopEntry}.
+     *
+     * @param key   The key.
+     * @param count The estimated count.
+     */
+    public TopEntry(String key, long count) {
+        this.key = key;
+        this.count = count;
+    }
+
+    /**
+     * Returns the key.
+     *
+     * @return The key.
+     */
+    public String getKey() {
+        return key;
+    }
+
+    /**
+     * Returns the estimated count, which may exceed the true count by the error bound of the tracker.
+     *
+     * @return The estimated count.
+     */
+    public long getCount() {
+        return count;
+    }
+
+    @Override
+    public String toString() {
+        return key + " (" + count + ")";
+    }
+}
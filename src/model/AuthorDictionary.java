@@ -0,0 +1,112 @@
+package model;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The {@code AuthorDictionary} class gives every distinct author name a compact {@code int} ID and
+ * keeps a single canonical {@link String} for it. A library gives each book it adds the canonical
+ * name of its author, so a prolific author whose name was parsed once per title from a catalog file
+ * is stored once, however many books carry it.
+ *
+ * <p>Each library has a dictionary of its own, and an ID only means something to the library that gave
+ * it out. Names are only ever added, since a catalog has far fewer authors than books; the library
+ * starts a new dictionary when its catalog is cleared. Lookups by ID take no lock.</p>
+ */
+public final class AuthorDictionary {
+
+    /** The ID of a missing author. */
+    public static final int NO_AUTHOR = -1;
+
+    /** The base-two logarithm of the number of names in a chunk. */
+    private static final int CHUNK_BITS = 12;
+
+    /** Masks an ID down to its index within its chunk. */
+    private static final int CHUNK_MASK = (1 << CHUNK_BITS) - 1;
+
+    /** The ID of each name. */
+    private final ConcurrentHashMap<String, Integer> ids = new ConcurrentHashMap<>();
+
+    /** The canonical names by ID, in chunks that never move once written. */
+    private volatile String[][] names = new String[1][];
+
+    /** The number of names in the dictionary, guarded by the dictionary. */
+    private int size;
+
+    /**
+     * Constructs an empty dictionary.
+     */
+    public AuthorDictionary() {
+    }
+
+    /**
+     * Returns the ID of an author, adding the name to the dictionary if it is not there yet.
+     *
+     * @param name The name of the author, or {@code null} for none.
+     * @return The ID of the author, or {@link #NO_AUTHOR} if the name is {@code null}.
+     */
+    public int intern(String name) {
+        if (name == null) {
+            return NO_AUTHOR;
+        }
+        Integer id = ids.get(name);
+        return id != null ? id : add(name);
+    }
+
+    /**
+     * Returns the ID of an author without adding the name to the dictionary.
+     *
+     * @param name The name of the author.
+     * @return The ID of the author, or {@link #NO_AUTHOR} if the name is not in the dictionary.
+     */
+    public int find(String name) {
+        Integer id = name == null ? null : ids.get(name);
+        return id != null ? id : NO_AUTHOR;
+    }
+
+    /**
+     * Returns the canonical name of an author.
+     *
+     * @param id The ID of the author.
+     * @return The name, or {@code null} for {@link #NO_AUTHOR}.
+     */
+    public String nameOf(int id) {
+        return id < 0 ? null : names[id >>> CHUNK_BITS][id & CHUNK_MASK];
+    }
+
+    /**
+     * Returns the number of distinct authors in the dictionary.
+     *
+     * @return The number of authors.
+     */
+    public synchronized int size() {
+        return size;
+    }
+
+    /**
+     * Adds a name that was not found, unless another thread added it first.
+     *
+     * @param name The name of the author.
+     * @return The ID of the author.
+     */
+    private synchronized int add(String name) {
+        Integer existing = ids.get(name);
+        if (existing != null) {
+            return existing;
+        }
+        int id = size;
+        int chunk = id >>> CHUNK_BITS;
+        String[][] current = names;
+        if (chunk == current.length) {
+            current = Arrays.copyOf(current, chunk * 2);
+        }
+        if (current[chunk] == null) {
+            current[chunk] = new String[1 << CHUNK_BITS];
+        }
+        current[chunk][id & CHUNK_MASK] = name;
+        names = current;
+        ids.put(name, id); // Publishes the name to readers that look it up
+        size = id + 1;
+        return id;
+    }
+}
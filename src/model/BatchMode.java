@@ -0,0 +1,13 @@
+package model;
+
+/**
+ * The {@code BatchMode} enum tells a batch of lends or returns what to do when some of its items fail.
+ */
+public enum BatchMode {
+
+    /** Applies the batch only if every item succeeds; otherwise nothing changes. */
+    ALL_OR_NOTHING,
+
+    /** Applies every item that succeeds and reports the ones that fail. */
+    BEST_EFFORT
+}
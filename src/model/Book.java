@@ -3,34 +3,55 @@ package model;
 import DesingP.observer.Observable;
 import DesingP.util.BookStateException;
 
-import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
 
 /**
  * The {@code Book} class represents a book in a library system.
  * It contains information about the book's title, author, publication year, quantity,
  * borrowed quantity, and loan history.
  * This class also provides methods for lending and returning copies of the book.
+ * The quantity and the borrowed quantity are packed into a single word that is updated with
+ * compare-and-set, so concurrent lends never block each other and can never hand out more
+ * copies than the book has. Every change to the inventory is reported to the library the book is in,
+ * which keeps running totals of its copies.
  */
 public class Book extends Observable implements Cloneable {
     /** The title of the book. */
     private final String title;
 
-    /** The author of the book. */
-    private final String author;
+    /**
+     * The author of the book. A library swaps it for the canonical string of its {@link AuthorDictionary}
+     * when the book is added, so that the books by one author share a single string.
+     */
+    private volatile String author;
 
     /** The publication year of the book. */
     private final int year;
 
-    /** The total quantity of the book available in the library. */
-    private int quantity;
+    /** Updates {@link #inventory} atomically. */
+    private static final AtomicLongFieldUpdater<Book> INVENTORY =
+            AtomicLongFieldUpdater.newUpdater(Book.class, "inventory");
 
-    /** The quantity of the book that has been borrowed. */
-    private int borrowedQuantity;
+    /**
+     * The total quantity of the book in the high 32 bits and the borrowed quantity in the low 32 bits.
+     * Both always change together, so every read sees a consistent pair.
+     */
+    private volatile long inventory;
 
     /** The history of loans for this book. */
-    private final List<Loan> loanHistory;
+    private final LoanList loanHistory;
 
+    /** The library the book is in, which is told about every change to the inventory. */
+    private volatile Library owner;
+
+    /** Sets {@link #ratings} atomically when the book is first rated. */
+    private static final AtomicReferenceFieldUpdater<Book, RatingStats> RATINGS =
+            AtomicReferenceFieldUpdater.newUpdater(Book.class, RatingStats.class, "ratings");
+
+    /** The ratings the book has received, or {@code null} until it is first rated. */
+    private volatile RatingStats ratings;
 
     /**
      * Constructs a new {@code Book} object with the specified title, author, year, and quantity.
@@ -44,9 +65,19 @@ public class Book extends Observable implements Cloneable {
         this.title = title;
         this.author = author;
         this.year = year;
-        this.quantity = quantity;
-        this.borrowedQuantity = 0;
-        this.loanHistory = new ArrayList<>();
+        this.inventory = pack(quantity, 0);
+        this.loanHistory = new LoanList();
+    }
+
+    /**
+     * Constructs a book that keeps none of its state in its own fields, for subclasses that store it
+     * elsewhere and override every method that reads or changes it.
+     */
+    Book() {
+        this.title = null;
+        this.author = null;
+        this.year = 0;
+        this.loanHistory = null;
     }
 
     /**
@@ -58,6 +89,16 @@ public class Book extends Observable implements Cloneable {
         return title;
     }
 
+    /**
+     * Returns the undecorated book this instance represents.
+     * For a plain book this is the book itself.
+     *
+     * @return The undecorated book.
+     */
+    public Book getBaseBook() {
+        return this;
+    }
+
     /**
      * Returns the author of the book.
      *
@@ -67,6 +108,15 @@ public class Book extends Observable implements Cloneable {
         return author;
     }
 
+    /**
+     * Replaces the author of the book with the canonical string for the same name.
+     *
+     * @param canonical The canonical name of the author, equal to the current one.
+     */
+    void canonicalizeAuthor(String canonical) {
+        author = canonical;
+    }
+
     /**
      * Returns the publication year of the book.
      *
@@ -82,7 +132,7 @@ public class Book extends Observable implements Cloneable {
      * @return The total quantity of the book.
      */
     public int getQuantity() {
-        return quantity;
+        return quantityOf(inventory);
     }
 
     /**
@@ -91,7 +141,23 @@ public class Book extends Observable implements Cloneable {
      * @param quantity The new quantity of the book.
      */
     public void setQuantity(int quantity) {
-        this.quantity = quantity;
+        long current;
+        do {
+            current = inventory;
+        } while (!INVENTORY.compareAndSet(this, current, pack(quantity, borrowedOf(current))));
+        reportChange(quantity - quantityOf(current), 0);
+    }
+
+    /**
+     * Restores the quantity and the borrowed quantity of the book together, as when the
+     * library is loaded from a snapshot.
+     *
+     * @param quantity         The total quantity of the book.
+     * @param borrowedQuantity The quantity of the book that is borrowed.
+     */
+    public void restoreInventory(int quantity, int borrowedQuantity) {
+        long previous = INVENTORY.getAndSet(this, pack(quantity, borrowedQuantity));
+        reportChange(quantity - quantityOf(previous), borrowedQuantity - borrowedOf(previous));
     }
 
     /**
@@ -100,7 +166,7 @@ public class Book extends Observable implements Cloneable {
      * @return The borrowed quantity of the book.
      */
     public int getBorrowedQuantity() {
-        return borrowedQuantity;
+        return borrowedOf(inventory);
     }
 
     /**
@@ -109,7 +175,8 @@ public class Book extends Observable implements Cloneable {
      * @return The available quantity of the book.
      */
     public int getAvailableQuantity() {
-        return quantity - borrowedQuantity;
+        long current = inventory; // Reads both counts at once
+        return quantityOf(current) - borrowedOf(current);
     }
 
     /**
@@ -118,12 +185,15 @@ public class Book extends Observable implements Cloneable {
      * @throws BookStateException If there are no available copies to lend.
      */
     public void lendCopy() throws BookStateException {
-        // Checks if there are available copies to lend
-        if (borrowedQuantity < quantity) {
-            borrowedQuantity++; // Increases the borrowed quantity by 1
-        } else {
-            throw new BookStateException("No available copies of the book: " + title); // Throws an exception if no copies are available
-        }
+        long current;
+        do {
+            current = inventory;
+            // Checks if there are available copies to lend
+            if (borrowedOf(current) >= quantityOf(current)) {
+                throw new BookStateException("No available copies of the book: " + title); // Throws an exception if no copies are available
+            }
+        } while (!INVENTORY.compareAndSet(this, current, current + 1)); // Increases the borrowed quantity by 1, retrying if another thread got there first
+        reportChange(0, 1);
     }
 
     /**
@@ -132,12 +202,15 @@ public class Book extends Observable implements Cloneable {
      * @throws BookStateException If there are no borrowed copies to return.
      */
     public void returnCopy() throws BookStateException {
-        // Checks if there are borrowed copies to return
-        if (borrowedQuantity > 0) {
-            borrowedQuantity--; // Decreases the borrowed quantity by 1
-        } else {
-            throw new BookStateException("No borrowed copies to return for the book: " + title); // Throws an exception if no copies are borrowed
-        }
+        long current;
+        do {
+            current = inventory;
+            // Checks if there are borrowed copies to return
+            if (borrowedOf(current) <= 0) {
+                throw new BookStateException("No borrowed copies to return for the book: " + title); // Throws an exception if no copies are borrowed
+            }
+        } while (!INVENTORY.compareAndSet(this, current, current - 1)); // Decreases the borrowed quantity by 1, retrying if another thread got there first
+        reportChange(0, -1);
     }
 
     /**
@@ -146,7 +219,7 @@ public class Book extends Observable implements Cloneable {
      * @param loan The loan to add.
      */
     public void addLoan(Loan loan) {
-        loanHistory.add(loan);
+        loanHistory.insert(loan);
     }
 
     /**
@@ -155,11 +228,11 @@ public class Book extends Observable implements Cloneable {
      * @param loan The loan to remove.
      */
     public void removeLoan(Loan loan) {
-        loanHistory.remove(loan);
+        loanHistory.delete(loan);
     }
 
     /**
-     * Returns the loan history of the book.
+     * Returns the loan history of the book, oldest loan first. The list is read-only.
      *
      * @return The loan history of the book.
      */
@@ -167,6 +240,89 @@ public class Book extends Observable implements Cloneable {
         return loanHistory;
     }
 
+    /**
+     * Returns the loan history of the book as the list that holds it, so that it can move with the
+     * book into a catalog that stores books in columns.
+     *
+     * @return The loan history.
+     */
+    LoanList getLoanList() {
+        return loanHistory;
+    }
+
+    /**
+     * Adds a rating to the book's rating statistics.
+     *
+     * @param rating The rating, between {@link RatingStats#MIN_RATING} and {@link RatingStats#MAX_RATING}.
+     * @throws IllegalArgumentException If the rating is out of range.
+     */
+    public void addRating(double rating) {
+        RatingStats stats = ratings;
+        if (stats == null) {
+            RATINGS.compareAndSet(this, null, new RatingStats()); // Unrated books carry no statistics
+            stats = ratings;
+        }
+        stats.add(rating);
+    }
+
+    /**
+     * Returns the rating statistics of the book. The statistics are live: they change as ratings arrive.
+     *
+     * @return The rating statistics, or {@code null} if the book has never been rated.
+     */
+    public RatingStats getRatings() {
+        return ratings;
+    }
+
+    /**
+     * Returns the mean rating of the book.
+     *
+     * @return The mean rating, or {@code 0.0} if the book has never been rated.
+     */
+    public double getAverageRating() {
+        RatingStats stats = ratings;
+        return stats == null ? 0.0 : stats.getMean();
+    }
+
+    /**
+     * Replaces the rating statistics of the book, as when the book is loaded from a snapshot.
+     *
+     * @param ratings The rating statistics, or {@code null} for none.
+     */
+    public void restoreRatings(RatingStats ratings) {
+        this.ratings = ratings;
+    }
+
+    /**
+     * Notifies all observers of the book with a given message.
+     *
+     * @param message The message to send to observers.
+     */
+    @Override
+    public void notifyObservers(String message) {
+        super.notifyObservers(message);
+    }
+
+    /**
+     * Returns the base book, so that a book and its decorators share their observers.
+     *
+     * @return The base book.
+     */
+    @Override
+    protected Object getSubject() {
+        return getBaseBook();
+    }
+
+    /**
+     * Returns the author of the book, whose observers are also notified about it.
+     *
+     * @return The author of the book.
+     */
+    @Override
+    protected String getAuthorTopic() {
+        return getAuthor();
+    }
+
     /**
      * Clones the book by creating a new instance with the same title, author, year,
      * quantity, borrowed quantity, and loan history.
@@ -177,7 +333,11 @@ public class Book extends Observable implements Cloneable {
     public Book clone() {
         try {
             // Attempts to clone the book
-            return (Book) super.clone(); // Calls the clone method of the superclass
+            Book copy = (Book) super.clone(); // Calls the clone method of the superclass
+            copy.owner = null; // The copy is not in any library until it is added
+            RatingStats stats = ratings;
+            copy.ratings = stats == null ? null : stats.copy();
+            return copy;
         } catch (CloneNotSupportedException e) {
             throw new AssertionError(); // Can't happen
         }
@@ -198,11 +358,70 @@ public class Book extends Observable implements Cloneable {
      * @param available {@code true} if the book should be available, {@code false} otherwise.
      */
     public void setAvailable(boolean available) {
-        // Sets the quantity based on the availability status
-        if (available) {
-            quantity = Math.max(quantity, 1); // Ensures at least one copy is available
-        } else {
-            quantity = 0; // Sets the quantity to 0 if not available
+        long current;
+        int quantity;
+        do {
+            current = inventory;
+            // Sets the quantity based on the availability status
+            if (available) {
+                quantity = Math.max(quantityOf(current), 1); // Ensures at least one copy is available
+            } else {
+                quantity = 0; // Sets the quantity to 0 if not available
+            }
+        } while (!INVENTORY.compareAndSet(this, current, pack(quantity, borrowedOf(current))));
+        reportChange(quantity - quantityOf(current), 0);
+    }
+
+    /**
+     * Attaches the book to the library it was added to, which is told about later changes to the inventory.
+     *
+     * @param library The library, or {@code null} when the book is removed from it.
+     */
+    void setOwner(Library library) {
+        owner = library;
+    }
+
+    /**
+     * Reports a change to the inventory to the library the book is in, if any.
+     *
+     * @param quantityDelta The change to the total quantity.
+     * @param borrowedDelta The change to the borrowed quantity.
+     */
+    private void reportChange(int quantityDelta, int borrowedDelta) {
+        Library library = owner;
+        if (library != null) {
+            library.inventoryChanged(quantityDelta, borrowedDelta);
         }
     }
+
+    /**
+     * Packs a quantity and a borrowed quantity into a single inventory word.
+     *
+     * @param quantity         The total quantity.
+     * @param borrowedQuantity The borrowed quantity.
+     * @return The packed inventory word.
+     */
+    static long pack(int quantity, int borrowedQuantity) {
+        return ((long) quantity << 32) | (borrowedQuantity & 0xFFFFFFFFL);
+    }
+
+    /**
+     * Extracts the total quantity from an inventory word.
+     *
+     * @param inventory The packed inventory word.
+     * @return The total quantity.
+     */
+    static int quantityOf(long inventory) {
+        return (int) (inventory >> 32);
+    }
+
+    /**
+     * Extracts the borrowed quantity from an inventory word.
+     *
+     * @param inventory The packed inventory word.
+     * @return The borrowed quantity.
+     */
+    static int borrowedOf(long inventory) {
+        return (int) inventory;
+    }
 }
\ No newline at end of file
@@ -0,0 +1,536 @@
+package model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * The {@code BookSearchIndex} class is a trigram inverted index over the titles and authors of books.
+ * Every book gets a document number, and every three-character sequence of its lowercased title and
+ * author maps to a sorted posting list of the documents that contain it. A search intersects the
+ * posting lists of the query's trigrams, verifies the candidates and ranks the matches.
+ */
+public class BookSearchIndex {
+
+    /** The length of the character sequences that are indexed. */
+    private static final int GRAM_LENGTH = 3;
+
+    /** The number of removed documents after which the index may be rebuilt. */
+    private static final int COMPACTION_THRESHOLD = 1024;
+
+    /** The indexed books by document number, with {@code null} for removed books. */
+    private final List<Book> documents;
+
+    /** The lowercased title of each document, kept for verifying candidates. */
+    private final List<String> titles;
+
+    /** The lowercased author of each document, kept for verifying candidates. */
+    private final List<String> authors;
+
+    /** The lowercased name of each author, by name, so documents by one author share a string. */
+    private final Map<String, String> authorNames;
+
+    /** The document number of each indexed book. */
+    private final Map<Book, Integer> documentIds;
+
+    /** The posting lists keyed by the packed characters of a trigram. */
+    private final Map<Long, Postings> postings;
+
+    /** The number of removed documents still referenced by the posting lists. */
+    private int removedDocuments;
+
+    /**
+     * Constructs a new, empty {@code BookSearchIndex}.
+     */
+    public BookSearchIndex() {
+        this.documents = new ArrayList<>();
+        this.titles = new ArrayList<>();
+        this.authors = new ArrayList<>();
+        this.authorNames = new HashMap<>();
+        this.documentIds = new HashMap<>(); // By equality, so any view of a book finds its document
+        this.postings = new HashMap<>();
+        this.removedDocuments = 0;
+    }
+
+    /**
+     * Adds a book to the index. Decorated books are indexed with the text of the book they decorate.
+     *
+     * @param book The book to add.
+     */
+    public void add(Book book) {
+        if (documentIds.containsKey(book)) {
+            return; // The book is already indexed
+        }
+        int id = documents.size(); // New documents always get the highest number, keeping posting lists sorted
+        Book base = book.getBaseBook();
+        String title = normalize(base.getTitle());
+        String author = normalizedAuthor(base);
+        documents.add(book);
+        titles.add(title);
+        authors.add(author);
+        documentIds.put(book, id);
+        addGrams(title, id);
+        addGrams(author, id);
+    }
+
+    /**
+     * Removes a book from the index. Its posting list entries are dropped lazily.
+     *
+     * @param book The book to remove.
+     */
+    public void remove(Book book) {
+        Integer id = documentIds.remove(book);
+        if (id == null) {
+            return; // The book is not indexed
+        }
+        documents.set(id, null); // Marks the document as removed
+        titles.set(id, null);
+        authors.set(id, null);
+        removedDocuments++;
+        if (removedDocuments > COMPACTION_THRESHOLD && removedDocuments > documentIds.size()) {
+            compact(); // Rebuilds the index once most of it is dead weight
+        }
+    }
+
+    /**
+     * Replaces an indexed book with another one. When both have the same title and author,
+     * such as a decorator around the book, the replacement keeps the book's document number.
+     *
+     * @param book        The indexed book.
+     * @param replacement The book to take its place.
+     */
+    public void replace(Book book, Book replacement) {
+        Integer id = documentIds.get(book);
+        Book base = replacement.getBaseBook();
+        if (id == null || !titles.get(id).equals(normalize(base.getTitle()))
+                || !authors.get(id).equals(normalizedAuthor(base))) {
+            remove(book); // The text differs, so the replacement is indexed from scratch
+            add(replacement);
+            return;
+        }
+        documentIds.remove(book);
+        documents.set(id, replacement);
+        documentIds.put(replacement, id);
+    }
+
+    /**
+     * Removes every book from the index.
+     */
+    public void clear() {
+        documents.clear();
+        titles.clear();
+        authors.clear();
+        authorNames.clear();
+        documentIds.clear();
+        postings.clear();
+        removedDocuments = 0;
+    }
+
+    /**
+     * Returns the number of books in the index.
+     *
+     * @return The number of indexed books.
+     */
+    public int size() {
+        return documentIds.size();
+    }
+
+    /**
+     * Searches for books whose title or author contains the query, ignoring case.
+     * Title matches rank before author matches; among title matches an exact title ranks first,
+     * then titles starting with the query, then titles with a word starting with it, then the rest.
+     * Ties are broken by shorter titles and then by the order the books were added.
+     *
+     * @param query The text to look for.
+     * @param limit The maximum number of books to return.
+     * @return The matching books, best match first.
+     */
+    public List<Book> search(String query, int limit) {
+        String needle = query == null ? "" : normalize(query.trim());
+        if (needle.isEmpty() || limit <= 0) {
+            return Collections.emptyList(); // Nothing to look for
+        }
+        List<long[]> matches = new ArrayList<>(); // Pairs of rank and document number
+        if (needle.length() < GRAM_LENGTH) {
+            BitSet candidates = shortQueryCandidates(needle);
+            for (int id = candidates.nextSetBit(0); id >= 0; id = candidates.nextSetBit(id + 1)) {
+                collect(needle, id, matches);
+            }
+        } else {
+            for (int id : intersect(needle)) {
+                collect(needle, id, matches);
+            }
+        }
+        matches.sort((a, b) -> a[0] != b[0] ? Long.compare(a[0], b[0]) : Long.compare(a[1], b[1]));
+        int count = Math.min(limit, matches.size());
+        List<Book> results = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            results.add(documents.get((int) matches.get(i)[1]));
+        }
+        return results;
+    }
+
+    /**
+     * Verifies that a candidate document really contains the query and, if it does, records its rank.
+     *
+     * @param needle  The normalized query.
+     * @param id      The candidate document number.
+     * @param matches The list collecting rank and document number pairs.
+     */
+    private void collect(String needle, int id, List<long[]> matches) {
+        String title = titles.get(id);
+        if (title == null) {
+            return; // The document was removed
+        }
+        int tier;
+        int position = title.indexOf(needle);
+        if (position < 0) {
+            if (!authors.get(id).contains(needle)) {
+                return; // The trigrams matched but the query does not occur as a whole
+            }
+            tier = 4; // Author match
+        } else if (title.length() == needle.length()) {
+            tier = 0; // Exact title
+        } else if (position == 0) {
+            tier = 1; // Title prefix
+        } else if (startsWord(title, needle, position)) {
+            tier = 2; // Start of a word in the title
+        } else {
+            tier = 3; // Anywhere in the title
+        }
+        long rank = ((long) tier << 32) | Math.min(title.length(), Integer.MAX_VALUE);
+        matches.add(new long[]{rank, id});
+    }
+
+    /**
+     * Checks whether an occurrence of the query in the title, or a later one, starts a word.
+     *
+     * @param title    The normalized title.
+     * @param needle   The normalized query.
+     * @param position The position of the first occurrence.
+     * @return {@code true} if some occurrence follows a non-letter character.
+     */
+    private static boolean startsWord(String title, String needle, int position) {
+        while (position > 0) {
+            if (!Character.isLetterOrDigit(title.charAt(position - 1))) {
+                return true;
+            }
+            position = title.indexOf(needle, position + 1);
+        }
+        return position == 0;
+    }
+
+    /**
+     * Intersects the posting lists of all trigrams in the query. When some lists are sparse, the
+     * shortest of them drives the intersection and the others are probed; when all are dense,
+     * their bitmaps are combined word by word.
+     *
+     * @param needle The normalized query, at least three characters long.
+     * @return The document numbers that contain every trigram of the query, in ascending order.
+     */
+    private int[] intersect(String needle) {
+        List<Postings> lists = new ArrayList<>();
+        for (int i = 0; i + GRAM_LENGTH <= needle.length(); i++) {
+            Postings list = postings.get(gram(needle, i));
+            if (list == null) {
+                return new int[0]; // A trigram that appears nowhere rules out every book
+            }
+            if (!lists.contains(list)) {
+                lists.add(list);
+            }
+        }
+        lists.sort((a, b) -> Integer.compare(a.size, b.size)); // The most selective lists are probed first
+        Postings driver = null;
+        for (Postings list : lists) {
+            if (!list.isDense()) {
+                driver = list; // The shortest sparse list drives the intersection
+                break;
+            }
+        }
+        if (driver == null) {
+            return intersectDense(lists);
+        }
+        lists.remove(driver);
+        lists.add(0, driver);
+        int[] result = Arrays.copyOf(driver.ids, driver.size);
+        int length = result.length;
+        for (int l = 1; l < lists.size() && length > 0; l++) {
+            Postings other = lists.get(l);
+            boolean gallop = other.size / 16 > length; // Galloping only pays off against a much longer list
+            int kept = 0;
+            int cursor = 0;
+            for (int i = 0; i < length; i++) {
+                int id = result[i];
+                boolean present;
+                if (other.isDense()) {
+                    present = other.containsDense(id);
+                } else {
+                    if (gallop) {
+                        cursor = other.seek(id, cursor);
+                    } else {
+                        while (cursor < other.size && other.ids[cursor] < id) {
+                            cursor++; // Merges the two sorted lists
+                        }
+                    }
+                    present = cursor < other.size && other.ids[cursor] == id;
+                }
+                if (present) {
+                    result[kept++] = id;
+                }
+            }
+            length = kept;
+        }
+        return Arrays.copyOf(result, length);
+    }
+
+    /**
+     * Intersects dense posting lists word by word. Each word of the first bitmap is combined with
+     * the others only until it becomes zero, so most words touch just a few lists.
+     *
+     * @param lists The dense posting lists, most selective first.
+     * @return The document numbers set in every bitmap, in ascending order.
+     */
+    private static int[] intersectDense(List<Postings> lists) {
+        long[] first = lists.get(0).words;
+        int[] result = new int[64];
+        int length = 0;
+        for (int w = 0; w < first.length; w++) {
+            long bits = first[w];
+            for (int l = 1; l < lists.size() && bits != 0; l++) {
+                long[] other = lists.get(l).words;
+                bits &= w < other.length ? other[w] : 0L;
+            }
+            while (bits != 0) {
+                if (length == result.length) {
+                    result = Arrays.copyOf(result, length * 2);
+                }
+                result[length++] = (w << 6) + Long.numberOfTrailingZeros(bits);
+                bits &= bits - 1; // Clears the lowest set bit
+            }
+        }
+        return Arrays.copyOf(result, length);
+    }
+
+    /**
+     * Collects the documents of every trigram that contains a query shorter than a trigram.
+     * This walks the trigram dictionary, whose size does not depend on the number of books.
+     *
+     * @param needle The normalized query, one or two characters long.
+     * @return The candidate document numbers.
+     */
+    private BitSet shortQueryCandidates(String needle) {
+        BitSet candidates = new BitSet(documents.size());
+        for (Map.Entry<Long, Postings> entry : postings.entrySet()) {
+            if (decode(entry.getKey()).contains(needle)) {
+                entry.getValue().addTo(candidates);
+            }
+        }
+        return candidates;
+    }
+
+    /**
+     * Adds every trigram of a text to the posting lists of a document.
+     *
+     * @param text The normalized text.
+     * @param id   The document number.
+     */
+    private void addGrams(String text, int id) {
+        for (int i = 0; i + GRAM_LENGTH <= text.length(); i++) {
+            postings.computeIfAbsent(gram(text, i), key -> new Postings()).append(id);
+        }
+    }
+
+    /**
+     * Rebuilds the posting lists from the books that are still indexed, renumbering them in order.
+     */
+    private void compact() {
+        List<Book> live = new ArrayList<>(documentIds.size());
+        for (Book book : documents) {
+            if (book != null) {
+                live.add(book);
+            }
+        }
+        clear();
+        for (Book book : live) {
+            add(book);
+        }
+    }
+
+    /**
+     * Packs the trigram starting at the given position into a single key.
+     *
+     * @param text     The text.
+     * @param position The start of the trigram.
+     * @return The packed trigram.
+     */
+    private static long gram(String text, int position) {
+        return ((long) text.charAt(position) << 32) | ((long) text.charAt(position + 1) << 16) | text.charAt(position + 2);
+    }
+
+    /**
+     * Unpacks a trigram key back into its characters.
+     *
+     * @param gram The packed trigram.
+     * @return The trigram as a string.
+     */
+    private static String decode(long gram) {
+        return new String(new char[]{(char) (gram >>> 32), (char) (gram >>> 16), (char) gram});
+    }
+
+    /**
+     * Normalizes text for indexing and searching.
+     *
+     * @param text The text, possibly {@code null}.
+     * @return The lowercased text.
+     */
+    private static String normalize(String text) {
+        return text == null ? "" : text.toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Returns the normalized author of a book, lowercasing each author only once.
+     *
+     * @param base The undecorated book.
+     * @return The lowercased name of its author.
+     */
+    private String normalizedAuthor(Book base) {
+        return authorNames.computeIfAbsent(base.getAuthor(), BookSearchIndex::normalize);
+    }
+
+    /**
+     * A growable, ascending list of document numbers. Once a list covers a large share of the
+     * documents it switches to a bitmap, which is smaller at that density and can be probed in
+     * constant time.
+     */
+    private static final class Postings {
+
+        /** The minimum number of entries before a list may switch to a bitmap. */
+        private static final int DENSE_MINIMUM = 1024;
+
+        /** The document numbers while the list is sparse, {@code null} once it is dense. */
+        private int[] ids = new int[4];
+
+        /** The bitmap of document numbers once the list is dense, {@code null} before. */
+        private long[] words;
+
+        /** The number of document numbers in the list. */
+        private int size;
+
+        /** The last document number appended. */
+        private int last = -1;
+
+        /**
+         * Appends a document number unless it is the last one already, which happens when a
+         * trigram occurs more than once in the same book.
+         *
+         * @param id The document number.
+         */
+        void append(int id) {
+            if (id == last) {
+                return;
+            }
+            last = id;
+            if (words != null) {
+                setBit(id);
+                size++;
+                return;
+            }
+            if (size == ids.length) {
+                if (size >= DENSE_MINIMUM && (long) size * Integer.SIZE > id) {
+                    toDense(); // A bitmap over all documents so far is now smaller than the array
+                    setBit(id);
+                    size++;
+                    return;
+                }
+                ids = Arrays.copyOf(ids, size * 2);
+            }
+            ids[size++] = id;
+        }
+
+        /**
+         * Returns whether the list is stored as a bitmap.
+         *
+         * @return {@code true} if the list is dense.
+         */
+        boolean isDense() {
+            return words != null;
+        }
+
+        /**
+         * Checks whether a dense list contains a document number.
+         *
+         * @param id The document number.
+         * @return {@code true} if the bit for the document is set.
+         */
+        boolean containsDense(int id) {
+            int word = id >>> 6;
+            return word < words.length && (words[word] & (1L << id)) != 0;
+        }
+
+        /**
+         * Adds every document number of the list to a bit set.
+         *
+         * @param target The bit set to add to.
+         */
+        void addTo(BitSet target) {
+            if (words != null) {
+                target.or(BitSet.valueOf(words));
+            } else {
+                for (int i = 0; i < size; i++) {
+                    target.set(ids[i]);
+                }
+            }
+        }
+
+        /**
+         * Finds the first position at or after {@code from} whose document number is not below the target.
+         *
+         * @param target The document number to look for.
+         * @param from   The position to start from.
+         * @return The position found, or {@code size} if every remaining number is smaller.
+         */
+        int seek(int target, int from) {
+            int step = 1;
+            int low = from;
+            int high = from;
+            while (high < size && ids[high] < target) { // Gallops to bracket the target
+                low = high + 1;
+                high = from + step;
+                step <<= 1;
+            }
+            high = Math.min(high, size);
+            int index = Arrays.binarySearch(ids, low, high, target);
+            return index >= 0 ? index : -index - 1;
+        }
+
+        /**
+         * Converts the list from an array of document numbers to a bitmap.
+         */
+        private void toDense() {
+            int[] sparse = ids;
+            words = new long[(last >>> 6) + 1]; // Sized for the document being appended
+            for (int i = 0; i < size; i++) {
+                setBit(sparse[i]);
+            }
+            ids = null;
+        }
+
+        /**
+         * Sets the bit of a document number, growing the bitmap as needed.
+         *
+         * @param id The document number.
+         */
+        private void setBit(int id) {
+            int word = id >>> 6;
+            if (word >= words.length) {
+                words = Arrays.copyOf(words, Math.max(word + 1, words.length * 2));
+            }
+            words[word] |= 1L << id;
+        }
+    }
+}
@@ -0,0 +1,23 @@
+package model;
+
+/**
+ * The {@code CatalogLayout} enum lists the ways a {@link Library} can store its books.
+ */
+public enum CatalogLayout {
+
+    /**
+     * Each book is a {@link Book} object with its own title, inventory word, loan history and
+     * ratings, and the catalog is a list of them with a hash map from title to book. This suits
+     * catalogs of up to a few million books and keeps every book the same object for its lifetime.
+     */
+    OBJECTS,
+
+    /**
+     * The books are rows of primitive columns, with their titles stored once each as UTF-8 in a
+     * string pool, and the library hands out lightweight views of the rows. This takes a fraction of
+     * the memory of {@link #OBJECTS} for large catalogs, at the cost of decoding a title each time it
+     * is read. Views of the same row are equal but not identical, and decorated books cannot be
+     * added.
+     */
+    COLUMNAR
+}
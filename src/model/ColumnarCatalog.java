@@ -0,0 +1,987 @@
+package model;
+
+import DesingP.util.BookStateException;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.lang.ref.WeakReference;
+import java.util.AbstractList;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.RandomAccess;
+import java.util.Set;
+
+/**
+ * The {@code ColumnarCatalog} class keeps the books of a {@link Library} in the
+ * {@link CatalogLayout#COLUMNAR columnar layout}: one row per book across primitive arrays, with the
+ * titles held once each in a {@link StringPool} and the authors named by their IDs in an
+ * {@link AuthorDictionary} of the catalog's own. It is the library's list of books, and
+ * {@link #getTitleIndex()} is its index of books by title.
+ *
+ * <p>Rows are stored in chunks of {@value #CHUNK_SIZE} that never move, so the inventory of a book is
+ * updated with compare-and-set in place, exactly as a {@link Book} updates its own, while the catalog
+ * grows. The books handed out are views: small objects that name a row and read and write it. Two views
+ * of the same row are {@link Object#equals equal} and have the same hash code, but they are not the same
+ * object. The order of the catalog is kept as a list of row numbers, guarded like the library's list of
+ * books by its catalog lock; the title index may be read without a lock.</p>
+ *
+ * <p>Every change to the order publishes an immutable {@link #snapshot() version} of the catalog, which
+ * names the array of row numbers, how many positions of it are used and which of them hold removed
+ * books. A book added at the end is written past every version published, so it goes into the array
+ * in place. A removed book leaves a tombstone: its position is added to a small sorted array that the
+ * versions from then on skip, so removing copies neither the order nor anything the size of the
+ * catalog. Once there are about as many tombstones as the square root of the order's length, the
+ * order is compacted into a new array. The rare insertion in the middle and a replacement copy the
+ * array; no version ever sees its rows change.</p>
+ *
+ * <p>A removed book keeps its row until the compaction after its removal, and a book that was lent
+ * keeps it for good, so views held by its loans still read its last state. The rows of the other removed
+ * books are freed for {@link #adopt(Book)} to reuse once every version published before that compaction
+ * is unreachable. A view of a removed book therefore stays readable while a version that has the book
+ * is reachable; one held beyond that should be {@linkplain Book#clone() copied}. Clearing the catalog
+ * starts over with new columns; the rows of the books cleared stay alive only as long as views of them
+ * do.</p>
+ */
+final class ColumnarCatalog extends AbstractList<Book> implements RandomAccess {
+
+    /** The base-two logarithm of the number of rows in a chunk. */
+    private static final int CHUNK_BITS = 14;
+
+    /** The number of rows in a chunk. */
+    private static final int CHUNK_SIZE = 1 << CHUNK_BITS;
+
+    /** The smallest number of tombstones and replaced rows that makes the order be compacted. */
+    private static final int MIN_COMPACTION = 64;
+
+    /** The tombstones of an order with none. */
+    private static final int[] NO_TOMBSTONES = new int[0];
+
+    /** Marks a row whose book is not in the library, or not yet. */
+    private static final byte DETACHED = 0;
+
+    /** Marks a row whose book is in the library and reports changes to its inventory. */
+    private static final byte ATTACHED = 1;
+
+    /** Marks a row that was freed when the order was compacted and may be reused. */
+    private static final byte RETIRED = 2;
+
+    /** Masks a row number down to its index within its chunk. */
+    private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+
+    /** Updates the inventory column atomically. */
+    private static final VarHandle INVENTORY = MethodHandles.arrayElementVarHandle(long[].class);
+
+    /** Sets the loan history column when a book is first lent. */
+    private static final VarHandle LOANS = MethodHandles.arrayElementVarHandle(LoanList[].class);
+
+    /** Sets the ratings column when a book is first rated. */
+    private static final VarHandle RATINGS = MethodHandles.arrayElementVarHandle(RatingStats[].class);
+
+    /** Reads and writes the column of books that report to the library. */
+    private static final VarHandle BYTES = MethodHandles.arrayElementVarHandle(byte[].class);
+
+    /** Reads and writes the title index. */
+    private static final VarHandle INTS = MethodHandles.arrayElementVarHandle(int[].class);
+
+    /** The library the catalog belongs to, which is told about every change to an inventory. */
+    private final Library library;
+
+    /** The index of the books by title. */
+    private final TitleIndex titleIndex = new TitleIndex();
+
+    /** The columns of the catalog, replaced when the catalog is cleared. */
+    private volatile Columns columns = new Columns();
+
+    /** The row of each book of the catalog, in catalog order, with the removed books not yet compacted away. */
+    private int[] order = new int[16];
+
+    /** The number of positions of the order in use, those of removed books included. */
+    private int used;
+
+    /** The positions of the order that hold removed books, ascending; replaced rather than changed. */
+    private int[] tombstones = NO_TOMBSTONES;
+
+    /** The rows {@link #set(int, Book)} took out of the order since it was last compacted. */
+    private int[] replaced = new int[16];
+
+    /** The number of rows in {@link #replaced}. */
+    private int replacedCount;
+
+    /** The epoch of the versions published since the order was last compacted. */
+    private Epoch epoch = new Epoch();
+
+    /** The latest version of the catalog, published after every change to its order. */
+    private volatile Version published = new Version(columns, order, 0, NO_TOMBSTONES, epoch);
+
+    /**
+     * Constructs a new, empty {@code ColumnarCatalog}.
+     *
+     * @param library The library the catalog belongs to.
+     */
+    ColumnarCatalog(Library library) {
+        this.library = library;
+    }
+
+    /**
+     * Returns the book the catalog holds for a given book. A view of a row of this catalog is returned
+     * as it is; any other book is copied into a new row, together with its inventory, its loan history
+     * and its ratings, and a view of that row is returned. The row is not in the catalog until the
+     * view is added to it.
+     *
+     * @param book The book.
+     * @return A view of the book's row.
+     * @throws UnsupportedOperationException If the book is decorated, since decorations cannot be stored in columns.
+     */
+    Book adopt(Book book) {
+        Columns current = columns;
+        if (book instanceof View && ((View) book).chunk.columns == current) {
+            View view = (View) book;
+            if (view.generation == view.chunk.generations[view.index]
+                    && (byte) BYTES.getVolatile(view.chunk.attached, view.index) != RETIRED) {
+                return book;
+            }
+            synchronized (current) { // Keeps the row from being reused while it is copied
+                if (view.generation != view.chunk.generations[view.index]) {
+                    throw new IllegalStateException("The book was removed and its row has been reused");
+                }
+                return copy(current, book); // A removed book whose row was freed comes back in a row of its own
+            }
+        }
+        if (book.getBaseBook() != book) {
+            throw new UnsupportedOperationException("A columnar catalog holds plain books, not decorated ones: " + book.getTitle());
+        }
+        return copy(current, book);
+    }
+
+    /**
+     * Copies a book into a new row of the columns.
+     *
+     * @param current The columns.
+     * @param book    The book.
+     * @return A view of the new row.
+     */
+    private Book copy(Columns current, Book book) {
+        int titleId = current.strings.intern(book.getTitle());
+        int row = current.allocate();
+        Chunk chunk = current.chunks[row >>> CHUNK_BITS];
+        int index = row & CHUNK_MASK;
+        chunk.titles[index] = titleId;
+        chunk.authors[index] = current.authors.intern(book.getAuthor());
+        chunk.years[index] = book.getYear();
+        chunk.inventory[index] = Book.pack(book.getQuantity(), book.getBorrowedQuantity());
+        LoanList loans = book.getLoanList();
+        chunk.loans[index] = loans == null || loans.isEmpty() ? null : loans; // An empty history costs nothing
+        chunk.ratings[index] = book.getRatings();
+        return new View(chunk, index);
+    }
+
+    /**
+     * Returns the index of the books by title. Its keys are catalog titles and its values are views
+     * of the catalog; only views of this catalog may be put in it.
+     *
+     * @return The title index.
+     */
+    Map<String, Book> getTitleIndex() {
+        return titleIndex;
+    }
+
+    /**
+     * Returns the dictionary the catalog names the authors of its rows by. Clearing the catalog
+     * starts a new one.
+     *
+     * @return The author dictionary.
+     */
+    AuthorDictionary getAuthorDictionary() {
+        return columns.authors;
+    }
+
+    /**
+     * Returns an estimate of the memory the catalog takes, for reporting: its columns, its string pool,
+     * its order and its title index, but not the loan histories and ratings the rows point to.
+     *
+     * @return The estimated number of bytes.
+     */
+    long footprint() {
+        Columns current = columns;
+        long chunks;
+        synchronized (current) {
+            chunks = (current.rows + CHUNK_SIZE - 1) >>> CHUNK_BITS;
+        }
+        long perRow = Integer.BYTES * 4 + Long.BYTES + Integer.BYTES * 2 + 1; // Ints, inventory, references, state
+        long titleSlots = ((current.strings.size() >>> CHUNK_BITS) + 1L) * CHUNK_SIZE * Integer.BYTES;
+        return chunks * CHUNK_SIZE * perRow + current.strings.footprint() + titleSlots
+                + (long) (order.length + tombstones.length + replaced.length) * Integer.BYTES;
+    }
+
+    @Override
+    public Book get(int index) {
+        int size = size();
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
+        return view(order[position(index, tombstones)]);
+    }
+
+    @Override
+    public int size() {
+        return used - tombstones.length;
+    }
+
+    @Override
+    public Book set(int index, Book book) {
+        compactIfWorthIt();
+        Book previous = get(index);
+        int position = position(index, tombstones);
+        int row = rowOf(adopt(book));
+        order = order.clone(); // The published versions hold the rows as they were
+        if (order[position] != row) {
+            if (replacedCount == replaced.length) {
+                replaced = Arrays.copyOf(replaced, replacedCount * 2);
+            }
+            replaced[replacedCount++] = order[position];
+        }
+        order[position] = row;
+        publish();
+        return previous;
+    }
+
+    @Override
+    public void add(int index, Book book) {
+        int size = size();
+        if (index < 0 || index > size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
+        int row = rowOf(adopt(book));
+        if (index < size) {
+            if (tombstones.length > 0) {
+                compact(); // Positions and indexes agree again
+            }
+            int[] moved = new int[Math.max(used + 1, order.length)];
+            System.arraycopy(order, 0, moved, 0, index);
+            System.arraycopy(order, index, moved, index + 1, used - index);
+            order = moved;
+            order[index] = row;
+        } else {
+            if (used == order.length) {
+                order = Arrays.copyOf(order, used * 2);
+            }
+            order[used] = row; // Past the end of every published version unless the array was just copied
+        }
+        used++;
+        modCount++;
+        publish();
+    }
+
+    @Override
+    public boolean addAll(Collection<? extends Book> books) {
+        if (used + books.size() > order.length) {
+            order = Arrays.copyOf(order, Math.max(used + books.size(), used * 2));
+        }
+        for (Book book : books) {
+            order[used++] = rowOf(adopt(book));
+        }
+        modCount++;
+        publish(); // Once for the whole batch
+        return !books.isEmpty();
+    }
+
+    @Override
+    public Book remove(int index) {
+        compactIfWorthIt();
+        Book removed = get(index);
+        int position = position(index, tombstones);
+        int at = -Arrays.binarySearch(tombstones, position) - 1;
+        int[] marked = new int[tombstones.length + 1];
+        System.arraycopy(tombstones, 0, marked, 0, at);
+        marked[at] = position;
+        System.arraycopy(tombstones, at, marked, at + 1, tombstones.length - at);
+        tombstones = marked; // The versions published so far keep the array they had
+        modCount++;
+        publish();
+        return removed;
+    }
+
+    @Override
+    public void clear() {
+        columns = new Columns(); // Views of the books cleared keep their own columns alive
+        order = new int[16];
+        used = 0;
+        tombstones = NO_TOMBSTONES;
+        replacedCount = 0;
+        modCount++;
+        publish();
+    }
+
+    /**
+     * Returns the position in the order of the book at an index of the catalog, skipping tombstones.
+     *
+     * @param index      The index of the book.
+     * @param tombstones The positions of removed books, ascending.
+     * @return The position of the book in the order.
+     */
+    private static int position(int index, int[] tombstones) {
+        int low = 0;
+        int high = tombstones.length;
+        while (low < high) { // Counts the tombstones with no more than the index of live positions before them
+            int middle = (low + high) >>> 1;
+            if (tombstones[middle] - middle <= index) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return index + low;
+    }
+
+    /**
+     * Compacts the order once the tombstones and replaced rows are worth a copy of it: when there are
+     * more of them than the square root of the positions in use, so that removals cost about that much
+     * each, counting their share of the compactions. It runs before the next removal rather than after
+     * the last one, so the library has detached the books removed by then.
+     */
+    private void compactIfWorthIt() {
+        if (tombstones.length + replacedCount > Math.max(MIN_COMPACTION, (int) Math.sqrt(used))) {
+            compact();
+        }
+    }
+
+    /**
+     * Copies the books of the catalog into a new order without tombstones, and frees the rows of the
+     * removed and replaced books that are not in the catalog any more and were never lent. The rows
+     * are reused only once the versions published until now are unreachable, since they may show them.
+     */
+    private void compact() {
+        int[] compacted = new int[Math.max(16, order.length)];
+        Set<Integer> dropped = new HashSet<>();
+        int size = 0;
+        int next = 0;
+        for (int position = 0; position < used; position++) {
+            if (next < tombstones.length && tombstones[next] == position) {
+                dropped.add(order[position]);
+                next++;
+            } else {
+                compacted[size++] = order[position];
+            }
+        }
+        for (int i = 0; i < replacedCount; i++) {
+            dropped.add(replaced[i]);
+        }
+        order = compacted;
+        used = size;
+        tombstones = NO_TOMBSTONES;
+        replacedCount = 0;
+        if (replaced.length > 16) {
+            replaced = new int[16];
+        }
+        if (dropped.isEmpty()) {
+            return;
+        }
+        for (int i = 0; i < size && !dropped.isEmpty(); i++) {
+            dropped.remove(compacted[i]); // A book can be in the catalog more than once
+        }
+        Columns current = columns;
+        int[] freed = new int[dropped.size()];
+        int count = 0;
+        for (int row : dropped) {
+            Chunk chunk = current.chunks[row >>> CHUNK_BITS];
+            int index = row & CHUNK_MASK;
+            if (LOANS.getVolatile(chunk.loans, index) == null
+                    && (byte) BYTES.getVolatile(chunk.attached, index) == DETACHED) { // Loans keep views of a lent book
+                freed[count++] = row;
+            }
+        }
+        if (count > 0) {
+            Epoch ended = epoch;
+            epoch = new Epoch();
+            ended.next = epoch;
+            current.retire(Arrays.copyOf(freed, count), ended);
+        }
+    }
+
+    /**
+     * Returns the latest version of the catalog, without locking.
+     *
+     * @return An immutable list of the books, in catalog order.
+     */
+    List<Book> snapshot() {
+        return published;
+    }
+
+    /**
+     * Publishes the order as it is now as the latest version of the catalog.
+     */
+    private void publish() {
+        published = new Version(columns, order, used, tombstones, epoch);
+    }
+
+    /**
+     * Returns a view of a row.
+     *
+     * @param row The row number.
+     * @return The view.
+     */
+    private Book view(int row) {
+        return new View(columns.chunks[row >>> CHUNK_BITS], row & CHUNK_MASK);
+    }
+
+    /**
+     * Returns the row number of a view of this catalog.
+     *
+     * @param book The view, as returned by {@link #adopt(Book)}.
+     * @return The row number.
+     */
+    private static int rowOf(Book book) {
+        View view = (View) book;
+        return view.chunk.base + view.index;
+    }
+
+    /**
+     * The {@code Version} class is an immutable version of the catalog: views of the first rows of an
+     * order that is never changed below that count, less the positions of its tombstones.
+     */
+    private final class Version extends AbstractList<Book> implements RandomAccess {
+
+        /** The columns of the rows. */
+        private final Columns columns;
+
+        /** The rows of the books, in catalog order. */
+        private final int[] order;
+
+        /** The number of positions of the order in the version. */
+        private final int used;
+
+        /** The positions of removed books, ascending. */
+        private final int[] tombstones;
+
+        /** The epoch of the version, which keeps the rows it shows from being reused. */
+        private final Epoch epoch;
+
+        /**
+         * Constructs a version of the catalog.
+         *
+         * @param columns    The columns of the rows.
+         * @param order      The rows of the books, in catalog order.
+         * @param used       The number of positions of the order in the version.
+         * @param tombstones The positions of removed books, ascending.
+         * @param epoch      The epoch of the version.
+         */
+        Version(Columns columns, int[] order, int used, int[] tombstones, Epoch epoch) {
+            this.columns = columns;
+            this.order = order;
+            this.used = used;
+            this.tombstones = tombstones;
+            this.epoch = epoch;
+        }
+
+        @Override
+        public Book get(int index) {
+            int size = size();
+            if (index < 0 || index >= size) {
+                throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+            }
+            int row = order[position(index, tombstones)];
+            return new View(columns.chunks[row >>> CHUNK_BITS], row & CHUNK_MASK);
+        }
+
+        @Override
+        public int size() {
+            return used - tombstones.length;
+        }
+    }
+
+    /**
+     * The {@code Epoch} class stands for the versions published between two compactions that freed rows.
+     * Each epoch refers to the next, so a reachable version keeps its own epoch and every later one
+     * reachable; once an epoch is unreachable, so is every version published before the compaction
+     * that ended it, and the rows that compaction freed may be reused.
+     */
+    private static final class Epoch {
+
+        /** The epoch after this one, or {@code null} for the current epoch. */
+        Epoch next;
+    }
+
+    /**
+     * The {@code Retirement} class holds the rows a compaction freed until the epoch it ended is unreachable.
+     */
+    private static final class Retirement {
+
+        /** The epoch the compaction ended. */
+        final WeakReference<Epoch> epoch;
+
+        /** The rows freed. */
+        final int[] rows;
+
+        /**
+         * Constructs a new {@code Retirement}.
+         *
+         * @param epoch The epoch the compaction ended.
+         * @param rows  The rows freed.
+         */
+        Retirement(Epoch epoch, int[] rows) {
+            this.epoch = new WeakReference<>(epoch);
+            this.rows = rows;
+        }
+    }
+
+    /**
+     * The {@code Columns} class holds the rows of the catalog and the strings they name.
+     */
+    private static final class Columns {
+
+        /** The titles of the rows. */
+        final StringPool strings = new StringPool();
+
+        /** The authors of the rows. */
+        final AuthorDictionary authors = new AuthorDictionary();
+
+        /** The chunks of rows. */
+        volatile Chunk[] chunks = new Chunk[1];
+
+        /** The row of the book indexed under each title, by string ID, plus one; zero for none. */
+        volatile int[][] titleRows = new int[1][];
+
+        /** The number of rows allocated. */
+        int rows;
+
+        /** The freed rows whose epoch is still reachable, oldest first, guarded by the columns. */
+        final ArrayDeque<Retirement> retiring = new ArrayDeque<>();
+
+        /** The rows that may be reused, guarded by the columns. */
+        int[] freeRows = new int[16];
+
+        /** The number of rows in {@link #freeRows}. */
+        int freeCount;
+
+        /**
+         * Frees rows that nothing in the catalog refers to any more. They are marked retired at once,
+         * and reused once the epoch that may still show them is unreachable.
+         *
+         * @param retired The rows.
+         * @param ended   The epoch of the versions that may still show them.
+         */
+        synchronized void retire(int[] retired, Epoch ended) {
+            for (int row : retired) {
+                BYTES.setVolatile(chunks[row >>> CHUNK_BITS].attached, row & CHUNK_MASK, RETIRED);
+            }
+            retiring.add(new Retirement(ended, retired));
+        }
+
+        /**
+         * Allocates a row, reusing a freed one if there is one and adding a chunk when the last one is full.
+         *
+         * @return The row number.
+         */
+        synchronized int allocate() {
+            while (!retiring.isEmpty() && retiring.peek().epoch.get() == null) { // Older epochs go first
+                for (int row : retiring.poll().rows) {
+                    if (freeCount == freeRows.length) {
+                        freeRows = Arrays.copyOf(freeRows, freeCount * 2);
+                    }
+                    freeRows[freeCount++] = row;
+                }
+            }
+            if (freeCount > 0) {
+                int row = freeRows[--freeCount];
+                Chunk chunk = chunks[row >>> CHUNK_BITS];
+                int index = row & CHUNK_MASK;
+                chunk.generations[index]++; // Views of the book the row held no longer equal views of the new one
+                chunk.loans[index] = null;
+                chunk.ratings[index] = null;
+                BYTES.setVolatile(chunk.attached, index, DETACHED);
+                return row;
+            }
+            int row = rows;
+            int chunk = row >>> CHUNK_BITS;
+            Chunk[] current = chunks;
+            if (chunk == current.length) {
+                current = Arrays.copyOf(current, chunk * 2);
+            }
+            if (current[chunk] == null) {
+                current[chunk] = new Chunk(this, chunk << CHUNK_BITS);
+                chunks = current; // Publishes the chunk before any view of it is handed out
+            }
+            rows = row + 1;
+            return row;
+        }
+
+        /**
+         * Returns the row indexed under a title.
+         *
+         * @param titleId The string ID of the title.
+         * @return The row number plus one, or zero if no row is indexed under the title.
+         */
+        int titleRow(int titleId) {
+            int[][] current = titleRows;
+            int[] chunk = titleId >>> CHUNK_BITS < current.length ? current[titleId >>> CHUNK_BITS] : null;
+            return chunk == null ? 0 : (int) INTS.getAcquire(chunk, titleId & CHUNK_MASK);
+        }
+
+        /**
+         * Indexes a row under a title. Writers are serialized by the library's catalog lock.
+         *
+         * @param titleId The string ID of the title.
+         * @param row     The row number plus one, or zero to drop the title from the index.
+         */
+        void setTitleRow(int titleId, int row) {
+            int chunk = titleId >>> CHUNK_BITS;
+            int[][] current = titleRows;
+            if (chunk >= current.length) {
+                current = Arrays.copyOf(current, Math.max(chunk + 1, current.length * 2));
+            }
+            if (current[chunk] == null) {
+                current[chunk] = new int[CHUNK_SIZE];
+            }
+            titleRows = current;
+            INTS.setRelease(current[chunk], titleId & CHUNK_MASK, row);
+        }
+    }
+
+    /**
+     * The {@code Chunk} class holds {@value #CHUNK_SIZE} rows of the catalog, one array per column.
+     */
+    private static final class Chunk {
+
+        /** The columns the chunk belongs to. */
+        final Columns columns;
+
+        /** The row number of the first row of the chunk. */
+        final int base;
+
+        /** The string IDs of the titles. */
+        final int[] titles = new int[CHUNK_SIZE];
+
+        /** The dictionary IDs of the authors, or {@link AuthorDictionary#NO_AUTHOR} for none. */
+        final int[] authors = new int[CHUNK_SIZE];
+
+        /** The publication years. */
+        final int[] years = new int[CHUNK_SIZE];
+
+        /** The number of times each row has been reused, which tells views of its books apart. */
+        final int[] generations = new int[CHUNK_SIZE];
+
+        /** The inventories, packed as by {@link Book#pack(int, int)}. */
+        final long[] inventory = new long[CHUNK_SIZE];
+
+        /** The loan histories, or {@code null} for books never lent. */
+        final LoanList[] loans = new LoanList[CHUNK_SIZE];
+
+        /** The ratings, or {@code null} for books never rated. */
+        final RatingStats[] ratings = new RatingStats[CHUNK_SIZE];
+
+        /** Whether each book is {@link #ATTACHED} to the library, {@link #DETACHED} or its row {@link #RETIRED}. */
+        final byte[] attached = new byte[CHUNK_SIZE];
+
+        /**
+         * Constructs a new, empty {@code Chunk}.
+         *
+         * @param columns The columns the chunk belongs to.
+         * @param base    The row number of the first row of the chunk.
+         */
+        Chunk(Columns columns, int base) {
+            this.columns = columns;
+            this.base = base;
+        }
+    }
+
+    /**
+     * The {@code View} class is a book whose state is a row of the catalog.
+     */
+    private final class View extends Book {
+
+        /** The chunk of the row. */
+        private final Chunk chunk;
+
+        /** The index of the row within its chunk. */
+        private final int index;
+
+        /** The generation of the row when the view was made. */
+        private final int generation;
+
+        /**
+         * Constructs a new {@code View} of the book the row holds now.
+         *
+         * @param chunk The chunk of the row.
+         * @param index The index of the row within its chunk.
+         */
+        View(Chunk chunk, int index) {
+            this.chunk = chunk;
+            this.index = index;
+            this.generation = chunk.generations[index];
+        }
+
+        @Override
+        public String getTitle() {
+            return chunk.columns.strings.get(chunk.titles[index]);
+        }
+
+        @Override
+        public String getAuthor() {
+            return chunk.columns.authors.nameOf(chunk.authors[index]);
+        }
+
+        @Override
+        public int getYear() {
+            return chunk.years[index];
+        }
+
+        @Override
+        public int getQuantity() {
+            return quantityOf(inventory());
+        }
+
+        @Override
+        public void setQuantity(int quantity) {
+            long current;
+            do {
+                current = inventory();
+            } while (!INVENTORY.compareAndSet(chunk.inventory, index, current, pack(quantity, borrowedOf(current))));
+            reportChange(quantity - quantityOf(current), 0);
+        }
+
+        @Override
+        public void restoreInventory(int quantity, int borrowedQuantity) {
+            long previous = (long) INVENTORY.getAndSet(chunk.inventory, index, pack(quantity, borrowedQuantity));
+            reportChange(quantity - quantityOf(previous), borrowedQuantity - borrowedOf(previous));
+        }
+
+        @Override
+        public int getBorrowedQuantity() {
+            return borrowedOf(inventory());
+        }
+
+        @Override
+        public int getAvailableQuantity() {
+            long current = inventory(); // Reads both counts at once
+            return quantityOf(current) - borrowedOf(current);
+        }
+
+        @Override
+        public void lendCopy() throws BookStateException {
+            long current;
+            do {
+                current = inventory();
+                if (borrowedOf(current) >= quantityOf(current)) {
+                    throw new BookStateException("No available copies of the book: " + getTitle());
+                }
+            } while (!INVENTORY.compareAndSet(chunk.inventory, index, current, current + 1));
+            reportChange(0, 1);
+        }
+
+        @Override
+        public void returnCopy() throws BookStateException {
+            long current;
+            do {
+                current = inventory();
+                if (borrowedOf(current) <= 0) {
+                    throw new BookStateException("No borrowed copies to return for the book: " + getTitle());
+                }
+            } while (!INVENTORY.compareAndSet(chunk.inventory, index, current, current - 1));
+            reportChange(0, -1);
+        }
+
+        @Override
+        public void setAvailable(boolean available) {
+            long current;
+            int quantity;
+            do {
+                current = inventory();
+                quantity = available ? Math.max(quantityOf(current), 1) : 0;
+            } while (!INVENTORY.compareAndSet(chunk.inventory, index, current, pack(quantity, borrowedOf(current))));
+            reportChange(quantity - quantityOf(current), 0);
+        }
+
+        @Override
+        public void addLoan(Loan loan) {
+            LoanList loans = (LoanList) LOANS.getAcquire(chunk.loans, index);
+            if (loans == null) {
+                LOANS.compareAndSet(chunk.loans, index, null, new LoanList()); // Books never lent carry no list
+                loans = (LoanList) LOANS.getAcquire(chunk.loans, index);
+            }
+            loans.insert(loan);
+        }
+
+        @Override
+        public void removeLoan(Loan loan) {
+            LoanList loans = (LoanList) LOANS.getAcquire(chunk.loans, index);
+            if (loans != null) {
+                loans.delete(loan);
+            }
+        }
+
+        @Override
+        public List<Loan> getLoanHistory() {
+            LoanList loans = (LoanList) LOANS.getAcquire(chunk.loans, index);
+            return loans == null ? Collections.emptyList() : loans;
+        }
+
+        @Override
+        LoanList getLoanList() {
+            return (LoanList) LOANS.getAcquire(chunk.loans, index);
+        }
+
+        @Override
+        public void addRating(double rating) {
+            RatingStats stats = getRatings();
+            if (stats == null) {
+                RATINGS.compareAndSet(chunk.ratings, index, null, new RatingStats()); // Unrated books carry no statistics
+                stats = getRatings();
+            }
+            stats.add(rating);
+        }
+
+        @Override
+        public RatingStats getRatings() {
+            return (RatingStats) RATINGS.getAcquire(chunk.ratings, index);
+        }
+
+        @Override
+        public double getAverageRating() {
+            RatingStats stats = getRatings();
+            return stats == null ? 0.0 : stats.getMean();
+        }
+
+        @Override
+        public void restoreRatings(RatingStats ratings) {
+            RATINGS.setRelease(chunk.ratings, index, ratings);
+        }
+
+        /**
+         * Returns a plain book with the title, author, year, inventory and ratings of the row, which is
+         * in no library and shares nothing with the row.
+         *
+         * @return The copy.
+         */
+        @Override
+        public Book clone() {
+            long current = inventory();
+            Book copy = new Book(getTitle(), getAuthor(), getYear(), quantityOf(current));
+            copy.restoreInventory(quantityOf(current), borrowedOf(current));
+            RatingStats stats = getRatings();
+            copy.restoreRatings(stats == null ? null : stats.copy());
+            return copy;
+        }
+
+        @Override
+        void setOwner(Library owner) {
+            BYTES.setVolatile(chunk.attached, index, owner != null ? ATTACHED : DETACHED);
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof View)) {
+                return false;
+            }
+            View that = (View) obj;
+            return chunk == that.chunk && index == that.index && generation == that.generation;
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * (31 * System.identityHashCode(chunk) + index) + generation;
+        }
+
+        /**
+         * Reads the inventory of the row.
+         *
+         * @return The packed inventory.
+         */
+        private long inventory() {
+            return (long) INVENTORY.getVolatile(chunk.inventory, index);
+        }
+
+        /**
+         * Reports a change to the inventory to the library, if the book is in it.
+         *
+         * @param quantityDelta The change to the total quantity.
+         * @param borrowedDelta The change to the borrowed quantity.
+         */
+        private void reportChange(int quantityDelta, int borrowedDelta) {
+            if ((byte) BYTES.getVolatile(chunk.attached, index) == ATTACHED) {
+                library.inventoryChanged(quantityDelta, borrowedDelta);
+            }
+        }
+    }
+
+    /**
+     * The {@code TitleIndex} class maps each catalog title to a view of the row indexed under it.
+     * Lookups take no lock; changes are serialized by the library's catalog lock.
+     */
+    private final class TitleIndex extends AbstractMap<String, Book> {
+
+        @Override
+        public Book get(Object key) {
+            if (!(key instanceof String)) {
+                return null;
+            }
+            Columns current = columns;
+            int titleId = current.strings.find((String) key);
+            if (titleId < 0) {
+                return null;
+            }
+            int row = current.titleRow(titleId) - 1;
+            return row < 0 ? null : new View(current.chunks[row >>> CHUNK_BITS], row & CHUNK_MASK);
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            return get(key) != null;
+        }
+
+        @Override
+        public Book put(String title, Book book) {
+            Book previous = get(title);
+            Columns current = columns;
+            current.setTitleRow(current.strings.intern(title), rowOf(adopt(book)) + 1);
+            return previous;
+        }
+
+        @Override
+        public Book remove(Object key) {
+            Book previous = get(key);
+            if (previous != null) {
+                Columns current = columns;
+                current.setTitleRow(current.strings.find((String) key), 0);
+            }
+            return previous;
+        }
+
+        @Override
+        public void clear() {
+            columns.titleRows = new int[1][];
+        }
+
+        @Override
+        public Set<Entry<String, Book>> entrySet() {
+            Columns current = columns;
+            List<Entry<String, Book>> entries = new ArrayList<>();
+            for (int titleId = 0; titleId < current.strings.size(); titleId++) {
+                int row = current.titleRow(titleId) - 1;
+                if (row >= 0) {
+                    entries.add(new SimpleImmutableEntry<>(current.strings.get(titleId),
+                            new View(current.chunks[row >>> CHUNK_BITS], row & CHUNK_MASK)));
+                }
+            }
+            return new AbstractSet<>() { // A copy, so iterating it needs no lock
+                @Override
+                public Iterator<Entry<String, Book>> iterator() {
+                    return Collections.unmodifiableList(entries).iterator();
+                }
+
+                @Override
+                public int size() {
+                    return entries.size();
+                }
+            };
+        }
+    }
+}
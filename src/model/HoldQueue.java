@@ -0,0 +1,118 @@
+package model;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+
+/**
+ * The {@code HoldQueue} class holds the members waiting for a copy of a book, first come, first
+ * served. When a copy comes back, the member at the head of the queue is taken off it and the copy is
+ * lent to them directly, so waiting members never have to retry.
+ *
+ * <p>The library changes a queue only while holding the lending lock of its book. The methods are
+ * also synchronized, so a queue can be inspected without that lock.</p>
+ */
+public class HoldQueue {
+
+    /** The waiting members, in the order they placed their holds. */
+    private final LinkedHashSet<Member> members;
+
+    /**
+     * Constructs a new, empty {@code HoldQueue}.
+     */
+    public HoldQueue() {
+        this.members = new LinkedHashSet<>();
+    }
+
+    /**
+     * Adds a member at the end of the queue.
+     *
+     * @param member The member.
+     * @return {@code true} if the member was added, {@code false} if they were already waiting.
+     */
+    synchronized boolean add(Member member) {
+        return members.add(member);
+    }
+
+    /**
+     * Removes a member from the queue.
+     *
+     * @param member The member.
+     * @return {@code true} if the member was waiting.
+     */
+    synchronized boolean remove(Member member) {
+        return members.remove(member);
+    }
+
+    /**
+     * Takes the member at the head of the queue off it.
+     *
+     * @return The member, or {@code null} if the queue is empty.
+     */
+    synchronized Member poll() {
+        Iterator<Member> iterator = members.iterator();
+        if (!iterator.hasNext()) {
+            return null;
+        }
+        Member head = iterator.next();
+        iterator.remove();
+        return head;
+    }
+
+    /**
+     * Returns the member at the head of the queue.
+     *
+     * @return The member, or {@code null} if the queue is empty.
+     */
+    public synchronized Member peek() {
+        return members.isEmpty() ? null : members.iterator().next();
+    }
+
+    /**
+     * Returns the position of a member in the queue. This walks the queue up to the member.
+     *
+     * @param member The member.
+     * @return The position, 1 for the head of the queue, or 0 if the member is not waiting.
+     */
+    public synchronized int positionOf(Member member) {
+        if (!members.contains(member)) {
+            return 0;
+        }
+        int position = 1;
+        for (Member waiting : members) {
+            if (waiting == member) {
+                break;
+            }
+            position++;
+        }
+        return position;
+    }
+
+    /**
+     * Returns the number of waiting members.
+     *
+     * @return The length of the queue.
+     */
+    public synchronized int size() {
+        return members.size();
+    }
+
+    /**
+     * Returns whether no member is waiting.
+     *
+     * @return {@code true} if the queue is empty.
+     */
+    public synchronized boolean isEmpty() {
+        return members.isEmpty();
+    }
+
+    /**
+     * Returns the waiting members.
+     *
+     * @return A copy of the queue, head first.
+     */
+    public synchronized List<Member> getMembers() {
+        return new ArrayList<>(members);
+    }
+}
@@ -0,0 +1,61 @@
+package model;
+
+/**
+ * The {@code ItemResult} class reports the outcome of one item of a batch of lends or returns.
+ */
+public final class ItemResult {
+
+    /** The title the item named. */
+    private final String title;
+
+    /** Why the item failed, or {@code null} if it succeeded. */
+    private final String error;
+
+    /**
+     * Constructs a new {@code ItemResult}.
+     *
+     * @param title The title the item named.
+     * @param error Why the item failed, or {@code null} if it succeeded.
+     */
+    ItemResult(String title, String error) {
+        this.title = title;
+        this.error = error;
+    }
+
+    /**
+     * Returns the title the item named.
+     *
+     * @return The title.
+     */
+    public String getTitle() {
+        return title;
+    }
+
+    /**
+     * Returns whether the item was applied.
+     *
+     * @return {@code true} if the item succeeded, {@code false} otherwise.
+     */
+    public boolean isSuccess() {
+        return error == null;
+    }
+
+    /**
+     * Returns why the item failed.
+     *
+     * @return The reason, or {@code null} if the item succeeded.
+     */
+    public String getError() {
+        return error;
+    }
+
+    /**
+     * Returns the outcome in a readable form.
+     *
+     * @return The title followed by "ok" or the reason it failed.
+     */
+    @Override
+    public String toString() {
+        return title + ": " + (error == null ? "ok" : error);
+    }
+}
@@ -1,18 +1,28 @@
 package model;
 
-import DesingP.decorator.RatedBook;
-import DesingP.observer.BookObserver;
+import DesingP.observer.MemberObserver;
 import DesingP.singleton.SingletonLibrary;
 import DesingP.util.BookStateException;
-import DesingP.observer.MemberObserver;
+import persistence.LogRecord;
+import persistence.WriteAheadLog;
 
+import java.time.Duration;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 /**
  * The {@code Librarian} class manages the operations related to books and members in the library.
  * It interacts with the {@code Library} and performs actions such as adding and removing books,
  * updating book quantities, lending and returning books, and managing members.
+ *
+ * <p>If the library has a journal, each successful mutation is recorded in it while the mutation's
+ * locks are still held, so the journal replays in the order the mutations were made, and the method
+ * returns only once the record is on disk.</p>
  */
 public class Librarian {
 
@@ -23,7 +33,17 @@ public class Librarian {
      * Constructs a new {@code Librarian} object and initializes it with the singleton library instance.
      */
     public Librarian() {
-        this.library = SingletonLibrary.getInstance(); // Initializes the library field with the singleton instance
+        this(SingletonLibrary.getInstance()); // Works on the singleton library instance
+    }
+
+    /**
+     * Constructs a new {@code Librarian} object that works on the given library,
+     * as when a library other than the singleton is rebuilt from its journal.
+     *
+     * @param library The library the librarian works on.
+     */
+    public Librarian(Library library) {
+        this.library = library;
     }
 
     /**
@@ -35,10 +55,58 @@ public class Librarian {
      * @param quantity The total quantity of the book available in the library.
      */
     public void addBook(String title, String author, int year, int quantity) {
-        Book book = new Book(title, author, year, quantity); // Creates a new Book object
-        BookObserver observer = new BookObserver("Library Staff"); // Creates a new BookObserver object
-        book.addObserver(observer); // Adds the observer to the book
-        library.addBook(book); // Adds the book to the library
+        addBook(new Book(title, author, year, quantity)); // Creates a new Book object
+    }
+
+    /**
+     * Adds a book that has already been created, as by a {@link DesingP.factory.LibraryFactory}.
+     *
+     * @param book The book to be added.
+     */
+    public void addBook(Book book) {
+        book = library.adopt(book); // Locks the book the catalog will hold, which a columnar catalog copies
+        StripedLock locks = library.getLendingLocks();
+        long entry;
+        locks.lock(book.getBaseBook()); // Keeps the book from being lent before its addition is recorded
+        try {
+            library.addBook(book); // Adds the book to the library
+            entry = record(LogRecord.addBook(book.getTitle(), book.getAuthor(), book.getYear(), book.getQuantity()));
+        } finally {
+            locks.unlock(book.getBaseBook());
+        }
+        acknowledge(entry);
+    }
+
+    /**
+     * Adds several books at once, as when a catalog is imported. The catalog lock is taken once for
+     * the whole batch, the search index is rebuilt once rather than book by book, and the caller waits
+     * for the journal once, on the last book of the batch.
+     *
+     * @param books The books to be added.
+     */
+    public void addBooks(List<? extends Book> books) {
+        if (books.isEmpty()) {
+            return;
+        }
+        List<Book> adopted = new ArrayList<>(books.size());
+        List<Book> keys = new ArrayList<>(books.size());
+        for (Book book : books) {
+            Book held = library.adopt(book); // Locks the books the catalog will hold, which a columnar catalog copies
+            adopted.add(held);
+            keys.add(held.getBaseBook());
+        }
+        StripedLock locks = library.getLendingLocks();
+        long entry = 0;
+        locks.lock(keys); // Keeps the books from being lent before their addition is recorded
+        try {
+            library.addBooks(adopted);
+            for (Book book : books) {
+                entry = record(LogRecord.addBook(book.getTitle(), book.getAuthor(), book.getYear(), book.getQuantity()));
+            }
+        } finally {
+            locks.unlock(keys);
+        }
+        acknowledge(entry);
     }
 
     /**
@@ -50,11 +118,20 @@ public class Librarian {
     public void removeBook(String title) throws BookStateException {
         Book book = findBookByTitle(title); // Finds the book by its title
         if (book != null) {
-            if (book.getBorrowedQuantity() == 0) { // Check if no copies of the book are borrowed
-                library.removeBook(book); // Removes the book from the library
-            } else {
-                throw new BookStateException("Cannot remove the book. There are borrowed copies."); // Throws an exception if the book is borrowed
+            StripedLock locks = library.getLendingLocks();
+            long entry;
+            locks.lock(book.getBaseBook()); // Keeps the book from being lent while it is removed
+            try {
+                if (book.getBorrowedQuantity() == 0) { // Check if no copies of the book are borrowed
+                    library.removeBook(book); // Removes the book from the library
+                    entry = record(LogRecord.removeBook(title));
+                } else {
+                    throw new BookStateException("Cannot remove the book. There are borrowed copies."); // Throws an exception if the book is borrowed
+                }
+            } finally {
+                locks.unlock(book.getBaseBook());
             }
+            acknowledge(entry);
         } else {
             throw new BookStateException("Book not found: " + title); // Throws an exception if the book is not found
         }
@@ -69,12 +146,55 @@ public class Librarian {
      * @throws BookStateException If the quantity is not between 0 and 20 or if the book is not found.
      */
     public void updateBookQuantity(String title, int quantity) throws BookStateException {
+        updateBookQuantity(title, quantity, System.currentTimeMillis(), library.getLoanPeriod());
+    }
+
+    /**
+     * Updates the quantity of a book as of a given time, as when the journal is replayed: copies
+     * added for the members waiting for the book are lent at that time for the given loan period.
+     *
+     * @param title      The title of the book.
+     * @param quantity   The new quantity of the book.
+     * @param time       When the quantity was updated, in milliseconds since the epoch.
+     * @param loanPeriod The loan period of the loans the update opens.
+     * @throws BookStateException If the quantity is not between 0 and 20 or if the book is not found.
+     */
+    public void updateBookQuantity(String title, int quantity, long time, Duration loanPeriod) throws BookStateException {
         if (quantity < 0 || quantity > 20) {
             throw new BookStateException("Quantity must be between 0 and 20: " + quantity); // Throws an exception if the quantity is out of range
         }
         Book book = findBookByTitle(title); // Finds the book by its title
         if (book != null) {
-            book.setQuantity(quantity); // Updates the quantity of the book
+            StripedLock locks = library.getLendingLocks();
+            List<Member> served;
+            List<Object> keys;
+            long entry;
+            while (true) {
+                served = firstHolders(book, quantity - book.getBorrowedQuantity()); // Read without the lock, so it is checked again under it
+                keys = new ArrayList<>(served.size() + 1);
+                keys.add(book.getBaseBook());
+                keys.addAll(served);
+                locks.lock(keys); // Serializes the update with lending and returning of this book and of the members it serves
+                try {
+                    if (!firstHolders(book, quantity - book.getBorrowedQuantity()).equals(served)) {
+                        continue; // The queue or the loans changed before the lock was taken
+                    }
+                    book.setQuantity(quantity); // Updates the quantity of the book
+                    for (Member holder : served) {
+                        book.lendCopy(); // Cannot fail: the free copies were counted under the lock
+                        library.pollHold(book);
+                        openLoan(book, holder, time, loanPeriod);
+                    }
+                    entry = record(LogRecord.updateBookQuantity(title, quantity, time, loanPeriod)); // Replaying the update repeats the hand-outs
+                } finally {
+                    locks.unlock(keys);
+                }
+                break;
+            }
+            acknowledge(entry);
+            for (int i = 0; i < served.size(); i++) {
+                library.recordLend(book);
+            }
         } else {
             throw new BookStateException("Book not found: " + title); // Throws an exception if the book is not found
         }
@@ -93,8 +213,62 @@ public class Librarian {
         }
         Member member = new Member(name, id); // Creates a new Member object
         MemberObserver observer = new MemberObserver(name); // Creates a new MemberObserver object
-        member.addObserver(observer); // Adds the observer to the member
-        library.addMember(member); // Adds the member to the library
+        member.addObserver(observer); // Subscribes the observer to the member's topic in the registry
+        try {
+            addMember(member);
+        } catch (BookStateException e) {
+            member.removeObserver(observer); // Another thread registered the ID first
+            throw e;
+        }
+    }
+
+    /**
+     * Adds a member that has already been created, as by a {@link DesingP.factory.LibraryFactory}.
+     *
+     * @param member The member to be added.
+     * @throws BookStateException If the ID is already taken by another member.
+     */
+    public void addMember(Member member) throws BookStateException {
+        StripedLock locks = library.getLendingLocks();
+        long entry;
+        locks.lock(member); // Keeps the member from borrowing before their registration is recorded
+        try {
+            if (!library.addMemberIfAbsent(member)) { // Adds the member unless another thread registered the ID first
+                throw new BookStateException("ID already taken: " + member.getId());
+            }
+            entry = record(LogRecord.addMember(member.getName(), member.getId()));
+        } finally {
+            locks.unlock(member);
+        }
+        acknowledge(entry);
+    }
+
+    /**
+     * Adds several members at once, as when a member list is imported. Members whose ID is already
+     * taken, including by an earlier member of the batch, are skipped. The member lock is taken once
+     * for the whole batch and the caller waits for the journal once.
+     *
+     * @param members The members to be added.
+     * @return The number of members added.
+     */
+    public int addMembers(List<? extends Member> members) {
+        if (members.isEmpty()) {
+            return 0;
+        }
+        StripedLock locks = library.getLendingLocks();
+        List<Member> added;
+        long entry = 0;
+        locks.lock(members); // Keeps the members from borrowing before their registration is recorded
+        try {
+            added = library.addMembersIfAbsent(members);
+            for (Member member : added) {
+                entry = record(LogRecord.addMember(member.getName(), member.getId()));
+            }
+        } finally {
+            locks.unlock(members);
+        }
+        acknowledge(entry);
+        return added.size();
     }
 
     /**
@@ -106,11 +280,29 @@ public class Librarian {
     public void removeMember(String id) throws BookStateException {
         Member member = findMemberById(id); // Finds the member by their ID
         if (member != null) {
-            if (member.getLoans().isEmpty()) { // Check if the member has any loans
-                library.removeMember(member); // Removes the member from the library
-            } else {
-                throw new BookStateException("Member has borrowed books and cannot be removed."); // Throws an exception if the member has borrowed books
+            StripedLock locks = library.getLendingLocks();
+            long entry;
+            while (true) {
+                Set<Book> held = new HashSet<>(library.getHeldBooks(member)); // Read without the lock, so it is checked again under it
+                List<Object> keys = new ArrayList<>(held);
+                keys.add(member);
+                locks.lock(keys); // Keeps the member from borrowing, and their holds from moving, while they are removed
+                try {
+                    if (!held.equals(new HashSet<>(library.getHeldBooks(member)))) {
+                        continue; // The member's holds changed before the lock was taken
+                    }
+                    if (member.getLoans().isEmpty()) { // Check if the member has any loans
+                        library.removeMember(member); // Removes the member from the library
+                        entry = record(LogRecord.removeMember(id));
+                    } else {
+                        throw new BookStateException("Member has borrowed books and cannot be removed."); // Throws an exception if the member has borrowed books
+                    }
+                } finally {
+                    locks.unlock(keys);
+                }
+                break;
             }
+            acknowledge(entry);
         } else {
             throw new BookStateException("Member not found: " + id); // Throws an exception if the member is not found
         }
@@ -118,6 +310,8 @@ public class Librarian {
 
     /**
      * Lends a book to a member based on the book's title and the member's ID.
+     * Copies are kept for the members waiting for the book, so while anyone is waiting there is
+     * nothing to lend; {@link #placeHold(String, String)} joins the queue instead.
      *
      * @param title    The title of the book to be lent.
      * @param memberId The ID of the member borrowing the book.
@@ -125,41 +319,99 @@ public class Librarian {
      * @throws BookStateException If the book or member is not found or if there are no available copies.
      */
     public boolean lendBook(String title, String memberId) throws BookStateException {
+        return lendBook(title, memberId, System.currentTimeMillis(), library.getLoanPeriod());
+    }
+
+    /**
+     * Lends a book to a member as of a given time, as when the journal is replayed: the loan is dated
+     * at that time and due after the given loan period, whatever the clock and the library's loan
+     * period say now.
+     *
+     * @param title      The title of the book to be lent.
+     * @param memberId   The ID of the member borrowing the book.
+     * @param time       When the book was lent, in milliseconds since the epoch.
+     * @param loanPeriod The loan period of the loan.
+     * @return {@code true} if the book was successfully lent.
+     * @throws BookStateException If the book or member is not found or if there are no available copies.
+     */
+    public boolean lendBook(String title, String memberId, long time, Duration loanPeriod) throws BookStateException {
         Book book = findBookByTitle(title); // Finds the book by its title
         Member member = findMemberById(memberId); // Finds the member by their ID
-        if (book != null && member != null && book.isAvailable()) {
-            book.lendCopy(); // Lends a copy of the book
-            Loan loan = new Loan(book, member); // Creates a new Loan object
-            book.addLoan(loan); // Adds the loan to the book
-            member.addLoan(loan); // Increments the count of loaned books in the library
-            library.incrementLoanedBooks(); // Returns true if the book was successfully lent
-            return true;
-        } else if (book == null) {
+        if (book == null) {
             throw new BookStateException("Book not found: " + title); // Throws an exception if the book is not found
         } else if (member == null) {
             throw new BookStateException("Member not found: " + memberId); // Throws an exception if the member is not found
-        } else {
-            throw new BookStateException("No available copies of the book: " + title); // Throws an exception if there are no available copies
         }
+        StripedLock locks = library.getLendingLocks();
+        long entry;
+        locks.lock(book.getBaseBook(), member); // Serializes lending and returning of this book and this member
+        try {
+            if (!book.isAvailable() || library.getHoldQueue(book) != null) {
+                throw new BookStateException("No available copies of the book: " + title); // Throws an exception if there are no available copies
+            }
+            book.lendCopy(); // Lends a copy of the book
+            openLoan(book, member, time, loanPeriod);
+            entry = record(LogRecord.lendBook(title, memberId, time, loanPeriod));
+        } finally {
+            locks.unlock(book.getBaseBook(), member);
+        }
+        acknowledge(entry);
+        library.recordLend(book); // Feeds the popularity rankings once the loan is durable
+        return true; // Returns true if the book was successfully lent
     }
 
     /**
-     * Returns a borrowed book based on the book's title and the member's ID.
+     * Returns a borrowed book based on the book's title and the member's ID. If members are waiting
+     * for the book, the copy goes straight to the first of them: it never becomes available, so
+     * nobody else can take it in between.
      *
      * @param title    The title of the book to be returned.
      * @param memberId The ID of the member returning the book.
      * @throws BookStateException If the book or member is not found or if there are no borrowed copies to return.
      */
     public void returnBook(String title, String memberId) throws BookStateException {
+        returnBook(title, memberId, System.currentTimeMillis(), library.getLoanPeriod());
+    }
+
+    /**
+     * Returns a borrowed book as of a given time, as when the journal is replayed: the loan ends at
+     * that time, and a copy handed to a waiting member is lent at that time for the given loan period.
+     *
+     * @param title      The title of the book to be returned.
+     * @param memberId   The ID of the member returning the book.
+     * @param time       When the book was returned, in milliseconds since the epoch.
+     * @param loanPeriod The loan period of a loan the hand-over opens.
+     * @throws BookStateException If the book or member is not found or if the member has not borrowed the book.
+     */
+    public void returnBook(String title, String memberId, long time, Duration loanPeriod) throws BookStateException {
         Book book = findBookByTitle(title); // Finds the book by its title
         Member member = findMemberById(memberId); // Finds the member by their ID
         if (book != null && member != null) {
-            book.returnCopy(); // Returns a borrowed copy of the book
-            Loan loan = member.findLoanByBook(title); // Finds the loan by the book title
-            if (loan != null) {
-                member.removeLoan(loan); // Removes the loan from the member
-                book.removeLoan(loan); // Removes the loan from the book
-                library.decrementLoanedBooks(); // Decrements the count of loaned books in the library
+            StripedLock locks = library.getLendingLocks();
+            Book base = book.getBaseBook();
+            Member holder;
+            long entry;
+            while (true) {
+                holder = firstHolder(book); // Read without the lock, so it is checked again under it
+                Member third = holder == null ? member : holder;
+                locks.lock(base, member, third); // Serializes lending and returning of this book, this member and the next holder
+                try {
+                    if (firstHolder(book) != holder) {
+                        continue; // The queue changed before the lock was taken
+                    }
+                    if (member.findLoanByBook(book) == null) {
+                        throw new BookStateException("Member has not borrowed the book: " + title); // A copy the member does not have cannot go to anyone
+                    }
+                    holder = takeBack(book, member, time, loanPeriod);
+                    entry = record(LogRecord.returnBook(title, memberId, time, loanPeriod)); // Replaying the return repeats the hand-over
+                } finally {
+                    locks.unlock(base, member, third);
+                }
+                break;
+            }
+            acknowledge(entry);
+            if (holder != null) {
+                library.recordLend(book);
             }
         } else if (book == null) {
             throw new BookStateException("Book not found: " + title); // Throws an exception if the book is not found
@@ -169,19 +421,341 @@ public class Librarian {
     }
 
     /**
-     * Finds a book in the library based on its title.
+     * Lends a batch of books to a member, as when a basket goes through a self-checkout. The member is
+     * looked up once and the books in a single pass, and the whole batch is applied under one
+     * acquisition of the lending locks of the member and the books, with one wait for the journal.
+     *
+     * @param memberId The ID of the member borrowing the books.
+     * @param titles   The titles of the books; a title given twice borrows two copies.
+     * @param mode     Whether a failed item cancels the whole batch or only itself.
+     * @return The outcome of each item, in the order of the titles.
+     * @throws BookStateException If the member is not found.
+     */
+    public List<ItemResult> lendBooks(String memberId, List<String> titles, BatchMode mode) throws BookStateException {
+        Member member = findMemberById(memberId);
+        if (member == null) {
+            throw new BookStateException("Member not found: " + memberId);
+        }
+        Book[] books = library.findBooksByTitle(titles);
+        List<Object> keys = lockKeys(member, books);
+        String[] errors = new String[books.length];
+        StripedLock locks = library.getLendingLocks();
+        long now = System.currentTimeMillis();
+        Duration loanPeriod = library.getLoanPeriod();
+        long entry = 0;
+        locks.lock(keys);
+        try {
+            Map<Book, Integer> wanted = new HashMap<>(); // The copies of each book asked for so far
+            boolean failed = false;
+            for (int i = 0; i < books.length; i++) {
+                errors[i] = checkLend(books[i], titles.get(i), wanted);
+                failed |= errors[i] != null;
+            }
+            if (failed && mode == BatchMode.ALL_OR_NOTHING) {
+                cancelBatch(errors, "Not lent: another item of the batch failed");
+            } else {
+                for (int i = 0; i < books.length; i++) {
+                    if (errors[i] == null) {
+                        books[i].lendCopy(); // Cannot fail: the copies were counted under the locks
+                        openLoan(books[i], member, now, loanPeriod);
+                        entry = record(LogRecord.lendBook(titles.get(i), memberId, now, loanPeriod));
+                    }
+                }
+            }
+        } finally {
+            locks.unlock(keys);
+        }
+        acknowledge(entry); // The journal is flushed in order, so the last record covers the batch
+        List<ItemResult> results = new ArrayList<>(books.length);
+        for (int i = 0; i < books.length; i++) {
+            results.add(new ItemResult(titles.get(i), errors[i]));
+            if (errors[i] == null) {
+                library.recordLend(books[i]);
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Returns a batch of books borrowed by a member, as when a basket goes through a self-checkout.
+     * The member is looked up once and the books in a single pass, and the whole batch is applied under
+     * one acquisition of the lending locks, with one wait for the journal. Returned copies of books that
+     * members are waiting for then go to them, first come, first served.
+     *
+     * @param memberId The ID of the member returning the books.
+     * @param titles   The titles of the books; a title given twice returns two copies.
+     * @param mode     Whether a failed item cancels the whole batch or only itself.
+     * @return The outcome of each item, in the order of the titles.
+     * @throws BookStateException If the member is not found.
+     */
+    public List<ItemResult> returnBooks(String memberId, List<String> titles, BatchMode mode) throws BookStateException {
+        Member member = findMemberById(memberId);
+        if (member == null) {
+            throw new BookStateException("Member not found: " + memberId);
+        }
+        Book[] books = library.findBooksByTitle(titles);
+        Map<Book, Integer> copies = new HashMap<>(); // The copies of each book the batch may return
+        for (Book book : books) {
+            if (book != null) {
+                copies.merge(book.getBaseBook(), 1, Integer::sum);
+            }
+        }
+        String[] errors = new String[books.length];
+        List<Book> handedOver = new ArrayList<>();
+        StripedLock locks = library.getLendingLocks();
+        long now = System.currentTimeMillis();
+        Duration loanPeriod = library.getLoanPeriod();
+        long entry = 0;
+        while (true) {
+            List<Member> holders = batchHolders(copies); // Read without the lock, so it is checked again under it
+            List<Object> keys = lockKeys(member, books);
+            keys.addAll(holders);
+            locks.lock(keys); // The copies go to the holders under the same locks as the returns
+            try {
+                if (!batchHolders(copies).equals(holders)) {
+                    continue; // A queue changed before the lock was taken
+                }
+                Map<Book, Integer> wanted = new HashMap<>(); // The copies of each book returned so far
+                boolean failed = false;
+                for (int i = 0; i < books.length; i++) {
+                    errors[i] = checkReturn(member, books[i], titles.get(i), wanted);
+                    failed |= errors[i] != null;
+                }
+                if (failed && mode == BatchMode.ALL_OR_NOTHING) {
+                    cancelBatch(errors, "Not returned: another item of the batch failed");
+                } else {
+                    for (int i = 0; i < books.length; i++) {
+                        if (errors[i] == null) {
+                            if (takeBack(books[i], member, now, loanPeriod) != null) { // Cannot fail: the copies were counted under the locks
+                                handedOver.add(books[i]);
+                            }
+                            entry = record(LogRecord.returnBook(titles.get(i), memberId, now, loanPeriod)); // Replaying the return repeats the hand-over
+                        }
+                    }
+                }
+            } finally {
+                locks.unlock(keys);
+            }
+            break;
+        }
+        acknowledge(entry);
+        for (Book book : handedOver) {
+            library.recordLend(book);
+        }
+        List<ItemResult> results = new ArrayList<>(books.length);
+        for (int i = 0; i < books.length; i++) {
+            results.add(new ItemResult(titles.get(i), errors[i]));
+        }
+        return results;
+    }
+
+    /**
+     * Places a hold on a book for a member, who joins the end of the book's hold queue and is lent
+     * a copy as soon as one comes back to them. If a copy is available and nobody is waiting, the
+     * book is lent straight away instead.
+     *
+     * @param title    The title of the book.
+     * @param memberId The ID of the member.
+     * @return 0 if the book was lent, otherwise the member's position in the queue, 1 being the next to be served.
+     * @throws BookStateException If the book or member is not found, or the member already has a copy or is already waiting.
+     */
+    public int placeHold(String title, String memberId) throws BookStateException {
+        Member member = findMemberById(memberId); // Resolved once, so the member notified is the one who waits
+        int position = placeHold(findBookByTitle(title), title, member, memberId, System.currentTimeMillis(), library.getLoanPeriod());
+        if (position > 0) {
+            member.notifyObservers(member.getName() + " is waiting for " + title + " at position " + position);
+        }
+        return position;
+    }
+
+    /**
+     * Places a hold on a book as of a given time, as when the journal is replayed: if the book is lent
+     * straight away, the loan is dated at that time and due after the given loan period. Unlike
+     * {@link #placeHold(String, String)}, it does not notify the member's observers.
+     *
+     * @param title      The title of the book.
+     * @param memberId   The ID of the member.
+     * @param time       When the hold was placed, in milliseconds since the epoch.
+     * @param loanPeriod The loan period of a loan the hold opens.
+     * @return 0 if the book was lent, otherwise the member's position in the queue, 1 being the next to be served.
+     * @throws BookStateException If the book or member is not found, or the member already has a copy or is already waiting.
+     */
+    public int placeHold(String title, String memberId, long time, Duration loanPeriod) throws BookStateException {
+        return placeHold(findBookByTitle(title), title, findMemberById(memberId), memberId, time, loanPeriod);
+    }
+
+    /**
+     * Places a hold on a book that has already been looked up.
+     *
+     * @param book       The book, or {@code null} if it was not found.
+     * @param title      The title the book was looked up by.
+     * @param member     The member, or {@code null} if they were not found.
+     * @param memberId   The ID the member was looked up by.
+     * @param time       When the hold was placed, in milliseconds since the epoch.
+     * @param loanPeriod The loan period of a loan the hold opens.
+     * @return 0 if the book was lent, otherwise the member's position in the queue, 1 being the next to be served.
+     * @throws BookStateException If the book or member is not found, or the member already has a copy or is already waiting.
+     */
+    private int placeHold(Book book, String title, Member member, String memberId, long time, Duration loanPeriod)
+            throws BookStateException {
+        if (book == null) {
+            throw new BookStateException("Book not found: " + title);
+        } else if (member == null) {
+            throw new BookStateException("Member not found: " + memberId);
+        }
+        StripedLock locks = library.getLendingLocks();
+        int position;
+        long entry;
+        locks.lock(book.getBaseBook(), member);
+        try {
+            if (member.findLoanByBook(book) != null) {
+                throw new BookStateException("Member already has a copy of the book: " + title);
+            }
+            if (book.isAvailable() && library.getHoldQueue(book) == null) {
+                book.lendCopy(); // Nobody is ahead of the member
+                openLoan(book, member, time, loanPeriod);
+                position = 0;
+                entry = record(LogRecord.lendBook(title, memberId, time, loanPeriod));
+            } else {
+                if (!library.addHold(book, member)) {
+                    throw new BookStateException("Member is already waiting for the book: " + title);
+                }
+                position = library.getHoldQueue(book).size();
+                entry = record(LogRecord.placeHold(title, memberId, time, loanPeriod));
+            }
+        } finally {
+            locks.unlock(book.getBaseBook(), member);
+        }
+        acknowledge(entry);
+        if (position == 0) {
+            library.recordLend(book);
+        }
+        return position;
+    }
+
+    /**
+     * Cancels a member's hold on a book, taking them off the book's hold queue.
+     *
+     * @param title    The title of the book.
+     * @param memberId The ID of the member.
+     * @throws BookStateException If the book or member is not found, or the member is not waiting for the book.
+     */
+    public void cancelHold(String title, String memberId) throws BookStateException {
+        Book book = findBookByTitle(title);
+        Member member = findMemberById(memberId);
+        if (book == null) {
+            throw new BookStateException("Book not found: " + title);
+        } else if (member == null) {
+            throw new BookStateException("Member not found: " + memberId);
+        }
+        StripedLock locks = library.getLendingLocks();
+        long entry;
+        locks.lock(book.getBaseBook(), member);
+        try {
+            if (!library.removeHold(book, member)) {
+                throw new BookStateException("Member is not waiting for the book: " + title);
+            }
+            entry = record(LogRecord.cancelHold(title, memberId));
+        } finally {
+            locks.unlock(book.getBaseBook(), member);
+        }
+        acknowledge(entry);
+    }
+
+    /**
+     * Returns a member's position in the hold queue of a book.
+     *
+     * @param title    The title of the book.
+     * @param memberId The ID of the member.
+     * @return The position, 1 being the next to be served, or 0 if the member is not waiting.
+     * @throws BookStateException If the book or member is not found.
+     */
+    public int getHoldPosition(String title, String memberId) throws BookStateException {
+        Book book = findBookByTitle(title);
+        Member member = findMemberById(memberId);
+        if (book == null) {
+            throw new BookStateException("Book not found: " + title);
+        } else if (member == null) {
+            throw new BookStateException("Member not found: " + memberId);
+        }
+        return holdPosition(book, member);
+    }
+
+    /**
+     * Returns a member's position in the hold queue of a book that has already been looked up.
+     *
+     * @param book   The book.
+     * @param member The member.
+     * @return The position, 1 being the next to be served, or 0 if the member is not waiting.
+     */
+    private int holdPosition(Book book, Member member) {
+        HoldQueue queue = library.getHoldQueue(book);
+        return queue == null ? 0 : queue.positionOf(member);
+    }
+
+    /**
+     * Estimates how long a member will wait for a book. The copies on loan are expected back on their
+     * due dates, soonest first, and each is handed to the next member in the queue; a member further
+     * back than there are copies waits a loan period more for each round of hand-overs ahead of them.
+     *
+     * @param title    The title of the book.
+     * @param memberId The ID of the member.
+     * @return The expected wait, zero if a copy is already overdue for the member.
+     * @throws BookStateException If the book or member is not found, or the member is not waiting for the book.
+     */
+    public Duration getExpectedWait(String title, String memberId) throws BookStateException {
+        Book book = findBookByTitle(title); // Resolved once, so a concurrent removal cannot pull it out from under the estimate
+        Member member = findMemberById(memberId);
+        if (book == null) {
+            throw new BookStateException("Book not found: " + title);
+        } else if (member == null) {
+            throw new BookStateException("Member not found: " + memberId);
+        }
+        int position = holdPosition(book, member);
+        if (position == 0) {
+            throw new BookStateException("Member is not waiting for the book: " + title);
+        }
+        Book base = book.getBaseBook();
+        long[] dueDates;
+        StripedLock locks = library.getLendingLocks();
+        locks.lock(base); // Keeps the book's loans from changing while they are read
+        try {
+            List<Loan> loans = base.getLoanHistory();
+            dueDates = new long[loans.size()];
+            int i = 0;
+            for (Loan loan : loans) {
+                dueDates[i++] = loan.getDeadline();
+            }
+        } finally {
+            locks.unlock(base);
+        }
+        if (dueDates.length == 0) {
+            return Duration.ZERO; // No copy is out, so the book is waiting for copies to be added
+        }
+        Arrays.sort(dueDates);
+        int rounds = (position - 1) / dueDates.length;
+        long wait = Math.max(0, dueDates[(position - 1) % dueDates.length] - System.currentTimeMillis());
+        return Duration.ofMillis(wait).plus(library.getLoanPeriod().multipliedBy(rounds));
+    }
+
+    /**
+     * Finds a book in the library based on its exact title.
      *
      * @param title The title of the book to be found.
      * @return The {@code Book} object if found, {@code null} otherwise.
      */
     public Book findBookByTitle(String title) {
-        for (Book book : library.getBooks()) {
-            // Checks if the book's title contains the given title or if it is a RatedBook with an exact title match
-            if (book.getTitle().contains(title) || book instanceof RatedBook && (book).getTitle().equals(title)) {
-                return book; // Returns the book if found
-            }
-        }
-        return null; // Returns null if the book is not found
+        return library.findBookByTitle(title); // Looks the title up in the library's title index
+    }
+
+    /**
+     * Finds the first book in the library whose title contains the given fragment.
+     *
+     * @param fragment The fragment to look for in the book titles.
+     * @return The {@code Book} object if found, {@code null} otherwise.
+     */
+    public Book findBookByTitleContaining(String fragment) {
+        return library.findBookByTitleContaining(fragment); // Scans the catalog for a matching title
     }
 
     /**
@@ -191,31 +765,36 @@ public class Librarian {
      * @return The {@code Member} object if found, {@code null} otherwise.
      */
     public Member findMemberById(String id) {
-        for (Member member : library.getMembers()) {
-            if (member.getId().equals(id)) {
-                return member; // Returns the member if found
-            }
-        }
-        return null; // Returns null if the member is not found
+        return library.findMemberById(id); // Looks the ID up in the library's member index
     }
 
     /**
      * Rates a book in the library based on its title.
      *
      * @param title   The title of the book to be rated.
-     * @param rating  The rating to be assigned to the book.
-     * @throws BookStateException If the book is not found in the library.
+     * @param rating  The rating to be added to the book's ratings, between 0 and 10.
+     * @throws BookStateException If the book is not found in the library or the rating is out of range.
      */
     public void rateBook(String title, double rating) throws BookStateException{
+        if (!RatingStats.isValid(rating)) {
+            throw new BookStateException("Rating must be between " + RatingStats.MIN_RATING + " and " + RatingStats.MAX_RATING + ": " + rating);
+        }
         Book book = findBookByTitle(title); // Finds the book by its title
         if (book != null) {
-            if (book instanceof RatedBook) {
-                ((RatedBook) book).setRating(rating); // Sets the rating if the book is already a RatedBook
-            } else {
-                RatedBook ratedBook = new RatedBook(book, rating); // Creates a new RatedBook with the rating
-                library.removeBook(book); // Removes the original book from the library
-                library.addBook(ratedBook); // Adds the rated book to the library
+            StripedLock locks = library.getLendingLocks();
+            Book base = book.getBaseBook();
+            long entry = 0;
+            locks.lock(base); // Orders the rating with the book's removal in the journal
+            try {
+                Book current = findBookByTitle(title);
+                if (current != null && current.getBaseBook().equals(base)) { // Skips the rating if the book was removed meanwhile
+                    book.addRating(rating); // Folds the rating into the book's statistics; the catalog is untouched
+                    entry = record(LogRecord.rateBook(title, rating));
+                }
+            } finally {
+                locks.unlock(base);
             }
+            acknowledge(entry);
         }else {
             throw new BookStateException("Book not found: " + title); // Throws an exception if the book is not found
         }
@@ -232,12 +811,231 @@ public class Librarian {
         Member member = findMemberById(userId); // Finds the member by their ID
         if (member != null) {
             List<Book> books = new ArrayList<>(); // Creates a new list to hold the borrowed books
-            for (Loan loan : member.getLoans()) {
-                books.add(loan.getBook()); // Adds each borrowed book to the list
+            StripedLock locks = library.getLendingLocks();
+            locks.lock(member); // Keeps the member's loans from changing while they are copied
+            try {
+                for (Loan loan : member.getLoans()) {
+                    books.add(loan.getBook()); // Adds each borrowed book to the list
+                }
+            } finally {
+                locks.unlock(member);
             }
             return books; // Returns the list of borrowed books
         } else {
             throw new BookStateException("Member not found: " + userId); // Throws an exception if the member is not found
         }
     }
+
+    /**
+     * Returns the objects whose lending locks a batch takes: the member and the base of each book found.
+     *
+     * @param member The member.
+     * @param books  The books, with {@code null} for titles that were not found.
+     * @return The objects to lock.
+     */
+    private static List<Object> lockKeys(Member member, Book[] books) {
+        List<Object> keys = new ArrayList<>(books.length + 1);
+        keys.add(member);
+        for (Book book : books) {
+            if (book != null) {
+                keys.add(book.getBaseBook());
+            }
+        }
+        return keys;
+    }
+
+    /**
+     * Checks that one more copy of a book can be lent within a batch. It is called while the batch's
+     * locks are held.
+     *
+     * @param book   The book, or {@code null} if the title was not found.
+     * @param title  The title the item named.
+     * @param wanted The copies of each book the batch has asked for so far, updated by this call.
+     * @return Why the item cannot be lent, or {@code null} if it can.
+     */
+    private String checkLend(Book book, String title, Map<Book, Integer> wanted) {
+        if (book == null) {
+            return "Book not found: " + title;
+        }
+        int copies = wanted.merge(book.getBaseBook(), 1, Integer::sum);
+        if (book.getAvailableQuantity() < copies || library.getHoldQueue(book) != null) {
+            return "No available copies of the book: " + title; // Copies are kept for the members waiting for them
+        }
+        return null;
+    }
+
+    /**
+     * Checks that one more copy of a book can be returned within a batch. It is called while the
+     * batch's locks are held.
+     *
+     * @param member The member returning the books.
+     * @param book   The book, or {@code null} if the title was not found.
+     * @param title  The title the item named.
+     * @param wanted The copies of each book the batch has returned so far, updated by this call.
+     * @return Why the item cannot be returned, or {@code null} if it can.
+     */
+    private static String checkReturn(Member member, Book book, String title, Map<Book, Integer> wanted) {
+        if (book == null) {
+            return "Book not found: " + title;
+        }
+        Book base = book.getBaseBook();
+        int copies = wanted.merge(base, 1, Integer::sum);
+        int borrowed = 0;
+        for (Loan loan : member.getLoans()) {
+            if (loan.getBook().getBaseBook().equals(base)) {
+                borrowed++;
+            }
+        }
+        if (borrowed < copies) {
+            return "Member has not borrowed the book: " + title; // Returning it would close someone else's copy
+        }
+        if (book.getBorrowedQuantity() < copies) {
+            return "No borrowed copies to return for the book: " + title;
+        }
+        return null;
+    }
+
+    /**
+     * Marks every item of a batch that did not fail as cancelled, because another one did.
+     *
+     * @param errors The reason each item failed, or {@code null}; updated by this call.
+     * @param reason The reason to give the cancelled items.
+     */
+    private static void cancelBatch(String[] errors, String reason) {
+        for (int i = 0; i < errors.length; i++) {
+            if (errors[i] == null) {
+                errors[i] = reason;
+            }
+        }
+    }
+
+    /**
+     * Returns the member at the head of the hold queue of a book.
+     *
+     * @param book The book.
+     * @return The member, or {@code null} if nobody is waiting.
+     */
+    private Member firstHolder(Book book) {
+        HoldQueue queue = library.getHoldQueue(book);
+        return queue == null ? null : queue.peek();
+    }
+
+    /**
+     * Returns the members at the head of the hold queue of a book.
+     *
+     * @param book  The book.
+     * @param count The number of members wanted.
+     * @return Up to {@code count} members, in the order they are served.
+     */
+    private List<Member> firstHolders(Book book, int count) {
+        HoldQueue queue = library.getHoldQueue(book);
+        if (queue == null || count <= 0) {
+            return List.of();
+        }
+        List<Member> members = queue.getMembers();
+        return members.subList(0, Math.min(count, members.size()));
+    }
+
+    /**
+     * Returns the members a batch of returns may hand copies to: for each book, as many members from
+     * the head of its hold queue as the copies the batch returns.
+     *
+     * @param copies The number of copies of each book the batch returns.
+     * @return The members, book by book.
+     */
+    private List<Member> batchHolders(Map<Book, Integer> copies) {
+        List<Member> holders = new ArrayList<>();
+        for (Map.Entry<Book, Integer> entry : copies.entrySet()) {
+            holders.addAll(firstHolders(entry.getKey(), entry.getValue()));
+        }
+        return holders;
+    }
+
+    /**
+     * Takes back a member's copy of a book. If members are waiting for the book and the copy is not
+     * one of those removed from the stock, it goes straight to the first of them; otherwise it goes
+     * back on the shelf. It is called while the lending locks of the book, the member and the first
+     * holder are held.
+     *
+     * @param book       The book.
+     * @param member     The member returning it.
+     * @param time       When it was returned, in milliseconds since the epoch.
+     * @param loanPeriod The loan period of a loan the hand-over opens.
+     * @return The member the copy was handed to, or {@code null} if it went back on the shelf.
+     * @throws BookStateException If the book has no borrowed copies.
+     */
+    private Member takeBack(Book book, Member member, long time, Duration loanPeriod) throws BookStateException {
+        Member holder = firstHolder(book);
+        if (holder != null && book.getBorrowedQuantity() > 0 && book.getBorrowedQuantity() <= book.getQuantity()) {
+            closeLoan(book, member, time); // Hands the copy over without returning it to the shelf
+            library.pollHold(book);
+            openLoan(book, holder, time, loanPeriod);
+            return holder;
+        }
+        book.returnCopy(); // Returns a borrowed copy of the book
+        closeLoan(book, member, time);
+        return null;
+    }
+
+    /**
+     * Records a new loan of a copy of a book that has already been taken off the shelf. It is called
+     * while the book's and the member's lending locks are held.
+     *
+     * @param book       The book.
+     * @param member     The member borrowing it.
+     * @param time       When the book was lent, in milliseconds since the epoch.
+     * @param loanPeriod The loan period of the loan.
+     */
+    private void openLoan(Book book, Member member, long time, Duration loanPeriod) {
+        Loan loan = new Loan(book, member, time, time + loanPeriod.toMillis()); // Creates a new Loan object due after the loan period
+        book.addLoan(loan); // Adds the loan to the book
+        member.addLoan(loan); // Adds the loan to the member
+        library.trackLoan(loan); // Schedules the loan to be reported if it becomes overdue
+        library.incrementLoanedBooks(); // Increments the count of loaned books in the library
+    }
+
+    /**
+     * Ends a member's loan of a book, if they have one. It is called while the book's and the
+     * member's lending locks are held.
+     *
+     * @param book   The book.
+     * @param member The member returning it.
+     * @param time   When the book was returned, in milliseconds since the epoch.
+     */
+    private void closeLoan(Book book, Member member, long time) {
+        Loan loan = member.findLoanByBook(book); // Finds the loan of the book in the member's index
+        if (loan != null) {
+            loan.setReturnTime(time); // Completes the loan
+            member.removeLoan(loan); // Removes the loan from the member
+            book.removeLoan(loan); // Removes the loan from the book
+            library.untrackLoan(loan); // Cancels its overdue report
+            library.archiveLoan(loan); // Keeps the completed loan if the library archives them
+            library.decrementLoanedBooks(); // Decrements the count of loaned books in the library
+        }
+    }
+
+    /**
+     * Buffers a record of a mutation in the library's journal. It is called while the mutation's
+     * locks are held, so that conflicting mutations are recorded in the order they were made.
+     *
+     * @param record The record of the mutation.
+     * @return The sequence number of the record, or 0 if the library has no journal.
+     */
+    private long record(LogRecord record) {
+        WriteAheadLog journal = library.getJournal();
+        return journal == null ? 0 : journal.write(record);
+    }
+
+    /**
+     * Waits until a recorded mutation is on disk. It is called after the mutation's locks are
+     * released, so that other mutations can be flushed together with it.
+     *
+     * @param entry The sequence number returned by {@link #record(LogRecord)}.
+     */
+    private void acknowledge(long entry) {
+        WriteAheadLog journal = library.getJournal();
+        if (entry > 0 && journal != null) {
+            journal.awaitDurable(entry);
+        }
+    }
 }
@@ -1,53 +1,317 @@
 package model;
 
+import DesingP.observer.ObserverRegistry;
+import analytics.PopularityTracker;
+import persistence.WriteAheadLog;
+
+import java.time.Duration;
+import java.util.AbstractList;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.RandomAccess;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 /**
  * The {@code Library} class represents a library containing a collection of books and members.
  * It provides methods to manage books and members, track loaned books, and summarize library information.
+ *
+ * <p>The library is safe for use by several threads. Lookups by title and member ID go through
+ * concurrent indexes without locking, changes to the catalog and the member list are serialized by
+ * read-write locks, and lending and returning are serialized per book and per member through
+ * {@link #getLendingLocks()}.</p>
+ *
+ * <p>The summary counts are kept up to date as books are added and removed and as their inventory
+ * changes, so {@link #getLibrarySummary()} takes constant time. {@link #verifyCounters()} recounts
+ * the catalog to check them.</p>
+ *
+ * <p>The books are stored in one of the {@link CatalogLayout layouts}. In the columnar layout the
+ * library keeps a copy of each book added and hands out views of it, so callers that go on using a
+ * book after adding it should use the one {@link #adopt(Book)} returns.</p>
  */
 public class Library {
 
+    /** The length of a time bucket of the popularity rankings. */
+    private static final Duration POPULARITY_BUCKET = Duration.ofMinutes(5);
+
+    /** The number of time buckets of the popularity rankings, which covers a day. */
+    private static final int POPULARITY_BUCKETS = 288;
+
+    /** The error bound of the popularity rankings, as a fraction of the loans in a window. */
+    private static final double POPULARITY_EPSILON = 0.002;
+
+    /** The probability that a popularity estimate exceeds its error bound. */
+    private static final double POPULARITY_DELTA = 0.01;
+
+    /** The number of candidates the popularity rankings keep per time bucket. */
+    private static final int POPULARITY_CANDIDATES = 128;
+
     /** A list of books in the library. */
     private final List<Book> books;
 
+    /** The columns the books are stored in, or {@code null} if they are stored as objects. */
+    private final ColumnarCatalog columns;
+
+    /** The versions of the list of books stored as objects, or {@code null} if they are stored in columns. */
+    private final VersionedList<Book> bookVersions;
+
+    /** An index of the books in the library keyed by their catalog title. */
+    private final Map<String, Book> booksByTitle;
+
+    /**
+     * The number of books in the catalog under each title beyond the one the title index holds, for
+     * the titles that have any, guarded by the catalog lock.
+     */
+    private final Map<String, Integer> titleDuplicates;
+
+    /**
+     * The dictionary of the authors of books stored as objects, or {@code null} if they are stored in
+     * columns, which keep their own. Replaced under the catalog lock when the catalog is cleared.
+     */
+    private volatile AuthorDictionary authors;
+
+    /** An index of the books in the library keyed by the ID of their author, guarded by the catalog lock. */
+    private final Map<Integer, List<Book>> booksByAuthor;
+
+    /** A trigram index over the titles and authors of the books. */
+    private BookSearchIndex searchIndex;
+
+    /** Whether the search index lags behind the catalog and must be rebuilt before it is searched. */
+    private boolean searchIndexStale;
+
+    /**
+     * The changes made to the catalog since the version a search index rebuild is working from, as
+     * pairs of the book removed and the book added, either of which may be {@code null}; {@code null}
+     * when no rebuild is in progress. Guarded by the catalog lock.
+     */
+    private List<Book[]> searchChanges;
+
+    /** Lets one thread at a time rebuild the search index. */
+    private final Lock searchRebuildLock;
+
+    /** A live view of the books that keeps the indexes in step with changes made through it. */
+    private final List<Book> bookView;
+
     /** A list of members in the library. */
     private final List<Member> members;
 
+    /** An index of the members in the library keyed by their ID. */
+    private final Map<String, Member> membersById;
+
+    /** A live view of the members that keeps the ID index in step with changes made through it. */
+    private final List<Member> memberView;
+
+    /** Guards the list of books and the search index. */
+    private final ReadWriteLock catalogLock;
+
+    /** Guards the list of members. */
+    private final ReadWriteLock memberLock;
+
+    /** The locks that serialize lending and returning, striped by book and by member. */
+    private final StripedLock lendingLocks;
+
     /** The count of books currently loaned out. */
-    private int loanedBooksCount;
+    private final LongAdder loanedBooksCount;
 
     /** The total count of loans made by the library. */
-    private int totalLoansCount;
+    private final LongAdder totalLoansCount;
+
+    /** The total quantity of all books in the catalog. */
+    private final LongAdder totalCopies;
+
+    /** The borrowed quantity of all books in the catalog. */
+    private final LongAdder borrowedCopies;
+
+    /** The journal mutations are recorded in, or {@code null} if the library is not persisted. */
+    private volatile WriteAheadLog journal;
+
+    /** The loans of recent time windows, by book title. */
+    private final PopularityTracker bookPopularity;
+
+    /** The loans of recent time windows, by author. */
+    private final PopularityTracker authorPopularity;
+
+    /** The time a book may be kept before its loan is overdue. */
+    private volatile Duration loanPeriod;
+
+    /** Reports the active loans that pass their due date. */
+    private final OverdueMonitor overdueMonitor;
+
+    /** Keeps the completed loans, or {@code null} if they are dropped when the book is returned. */
+    private volatile LoanArchive loanArchive;
+
+    /** The members waiting for each book, keyed by the base book; only books someone waits for have a queue. */
+    private final Map<Book, HoldQueue> holdQueues;
 
     /**
      * Constructs a new {@code Library} object with empty lists of books and members,
-     * and initializes loan counts to zero.
+     * and initializes loan counts to zero. The books are stored as objects.
      */
     public Library() {
-        this.books = new ArrayList<>();
+        this(CatalogLayout.OBJECTS);
+    }
+
+    /**
+     * Constructs a new {@code Library} object with empty lists of books and members that stores
+     * its books in the given layout.
+     *
+     * @param layout The layout of the catalog.
+     */
+    public Library(CatalogLayout layout) {
+        if (layout == CatalogLayout.COLUMNAR) {
+            this.columns = new ColumnarCatalog(this);
+            this.bookVersions = null;
+            this.books = columns;
+            this.booksByTitle = columns.getTitleIndex();
+        } else {
+            this.columns = null;
+            this.bookVersions = new VersionedList<>();
+            this.books = bookVersions;
+            this.booksByTitle = new ConcurrentHashMap<>();
+            this.authors = new AuthorDictionary();
+        }
+        this.titleDuplicates = new HashMap<>();
+        this.booksByAuthor = new HashMap<>();
+        this.searchIndex = new BookSearchIndex();
+        this.searchRebuildLock = new ReentrantLock();
+        this.bookView = new BookList();
         this.members = new ArrayList<>();
-        this.loanedBooksCount = 0;
-        this.totalLoansCount = 0;
+        this.membersById = new ConcurrentHashMap<>();
+        this.memberView = new MemberList();
+        this.catalogLock = new ReentrantReadWriteLock();
+        this.memberLock = new ReentrantReadWriteLock();
+        this.lendingLocks = new StripedLock(256);
+        this.loanedBooksCount = new LongAdder();
+        this.totalLoansCount = new LongAdder();
+        this.totalCopies = new LongAdder();
+        this.borrowedCopies = new LongAdder();
+        this.bookPopularity = newPopularityTracker();
+        this.authorPopularity = newPopularityTracker();
+        this.loanPeriod = Loan.DEFAULT_LOAN_PERIOD;
+        this.overdueMonitor = new OverdueMonitor(OverdueMonitor.DEFAULT_TICK, System::currentTimeMillis);
+        this.holdQueues = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * Creates a tracker for the popularity rankings.
+     *
+     * @return The tracker.
+     */
+    private static PopularityTracker newPopularityTracker() {
+        return new PopularityTracker(POPULARITY_BUCKET, POPULARITY_BUCKETS, POPULARITY_EPSILON,
+                POPULARITY_DELTA, POPULARITY_CANDIDATES);
     }
 
     /**
      * Returns the list of books in the library.
+     * Changes made through the returned list are reflected in the book indexes.
      *
      * @return The list of books.
      */
     public List<Book> getBooks() {
-        return books;
+        return bookView;
+    }
+
+    /**
+     * Returns the books in the library as they are now. Every change to the catalog publishes a new
+     * immutable version of it, so this takes neither a lock nor a copy: it returns the latest version,
+     * which later changes leave as it is.
+     *
+     * @return An immutable list of the books, in catalog order.
+     */
+    public List<Book> getBooksSnapshot() {
+        return columns == null ? bookVersions.snapshot() : columns.snapshot();
     }
 
     /**
      * Returns the list of members in the library.
+     * Changes made through the returned list are reflected in the ID index.
      *
      * @return The list of members.
      */
     public List<Member> getMembers() {
-        return members;
+        return memberView;
+    }
+
+    /**
+     * Returns the locks that serialize lending and returning. A lend or return locks the
+     * undecorated book and the member involved, so operations on other books and members
+     * proceed in parallel.
+     *
+     * @return The striped lending locks.
+     */
+    public StripedLock getLendingLocks() {
+        return lendingLocks;
+    }
+
+    /**
+     * Returns the journal the librarian records mutations in.
+     *
+     * @return The write-ahead log, or {@code null} if the library is not persisted.
+     */
+    public WriteAheadLog getJournal() {
+        return journal;
+    }
+
+    /**
+     * Sets the journal the librarian records mutations in.
+     *
+     * @param journal The write-ahead log, or {@code null} to stop recording mutations.
+     */
+    public void setJournal(WriteAheadLog journal) {
+        this.journal = journal;
+    }
+
+    /**
+     * Returns the layout the books are stored in.
+     *
+     * @return The layout of the catalog.
+     */
+    public CatalogLayout getLayout() {
+        return columns == null ? CatalogLayout.OBJECTS : CatalogLayout.COLUMNAR;
+    }
+
+    /**
+     * Returns the book the catalog will hold for a given book, without adding it. In the object layout
+     * this is the book itself. In the columnar layout it is a view of a new row holding a copy of the
+     * book, unless the book already is a view of this library; callers that lock a book or keep it
+     * around while it is added should use the view.
+     *
+     * @param book The book.
+     * @return The book the catalog holds for it.
+     * @throws UnsupportedOperationException If the catalog is columnar and the book is decorated.
+     */
+    public Book adopt(Book book) {
+        return columns == null ? book : columns.adopt(book);
+    }
+
+    /**
+     * Returns the dictionary of the authors of the books in the library, which gives out the IDs
+     * {@link #findBooksByAuthorId(int)} takes. Clearing the catalog starts a new dictionary, so IDs
+     * from before do not carry over.
+     *
+     * @return The author dictionary.
+     */
+    public AuthorDictionary getAuthorDictionary() {
+        return columns == null ? authors : columns.getAuthorDictionary();
+    }
+
+    /**
+     * Returns an estimate of the memory the columns of a columnar catalog take: the rows, the string
+     * pool and the indexes, but not the loan histories and ratings of the books.
+     *
+     * @return The estimated number of bytes, or -1 if the books are stored as objects.
+     */
+    public long getColumnarFootprint() {
+        return columns == null ? -1 : columns.footprint();
     }
 
     /**
@@ -56,7 +320,145 @@ public class Library {
      * @param book The book to be added.
      */
     public void addBook(Book book) {
-        books.add(book);
+        book = adopt(book); // Indexes the book the catalog holds, which is a view in the columnar layout
+        Lock lock = catalogLock.writeLock();
+        lock.lock();
+        try {
+            books.add(book);
+            indexBook(book); // Makes the book reachable through the indexes
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Adds several books to the library's collection at once, as when the library is loaded
+     * from a snapshot. The books are reachable by title right away. A batch smaller than the catalog
+     * it joins goes into the search index right away as well; a larger one leaves the index to be
+     * rebuilt by the first search or by {@link #rebuildSearchIndex()}, which costs about as much as
+     * indexing the batch and is done without holding up the catalog.
+     *
+     * @param additions The books to be added.
+     */
+    public void addBooks(Collection<? extends Book> additions) {
+        if (columns != null) {
+            List<Book> adopted = new ArrayList<>(additions.size());
+            for (Book book : additions) {
+                adopted.add(columns.adopt(book));
+            }
+            additions = adopted;
+        }
+        Lock lock = catalogLock.writeLock();
+        lock.lock();
+        try {
+            if (!searchIndexStale && additions.size() >= books.size()) {
+                searchIndexStale = true; // Indexing a bulk load under the lock would hold up every lookup
+            }
+            books.addAll(additions);
+            for (Book book : additions) {
+                indexTitle(book);
+                indexAuthor(book);
+                account(book);
+                addToSearchIndex(book);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Copies a range of the catalog under a single acquisition of the catalog lock, so a long pass over
+     * the catalog can read it a slice at a time without holding up changes for the whole pass.
+     *
+     * @param from The position of the first book to copy.
+     * @param into The array to copy the books into, from its start.
+     * @return The number of books copied, which is less than the length of the array only at the end of the catalog.
+     */
+    public int copyBooks(int from, Book[] into) {
+        Lock lock = catalogLock.readLock();
+        lock.lock();
+        try {
+            int count = Math.max(0, Math.min(into.length, books.size() - from));
+            for (int i = 0; i < count; i++) {
+                into[i] = books.get(from + i);
+            }
+            return count;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Rebuilds the search index if it lags behind the catalog. The index is built from a version of
+     * the catalog without holding the catalog lock, so lookups and catalog changes are not held up;
+     * the changes made in the meantime are then applied to it under the lock.
+     */
+    public void rebuildSearchIndex() {
+        Lock readLock = catalogLock.readLock();
+        readLock.lock();
+        try {
+            if (!searchIndexStale) {
+                return; // The common case for a search, which only needs the read lock to find out
+            }
+        } finally {
+            readLock.unlock();
+        }
+        searchRebuildLock.lock();
+        try {
+            while (true) {
+                List<Book> catalog;
+                List<Book[]> changes = new ArrayList<>();
+                Lock lock = catalogLock.writeLock();
+                lock.lock();
+                try {
+                    if (!searchIndexStale) {
+                        return;
+                    }
+                    catalog = getBooksSnapshot();
+                    searchChanges = changes; // Collects the changes the version does not have
+                } finally {
+                    lock.unlock();
+                }
+                BookSearchIndex rebuilt = buildSearchIndex(catalog);
+                lock.lock();
+                try {
+                    if (searchChanges != changes) {
+                        continue; // The catalog was cleared while the index was built
+                    }
+                    for (Book[] change : changes) {
+                        if (change[0] != null && change[1] != null) {
+                            rebuilt.replace(change[0], change[1]);
+                        } else if (change[0] != null) {
+                            rebuilt.remove(change[0]);
+                        } else {
+                            rebuilt.add(change[1]);
+                        }
+                    }
+                    searchIndex = rebuilt;
+                    searchIndexStale = false;
+                    searchChanges = null;
+                    return;
+                } finally {
+                    lock.unlock();
+                }
+            }
+        } finally {
+            searchRebuildLock.unlock();
+        }
+    }
+
+    /**
+     * Builds a search index over a list of books.
+     *
+     * @param catalog The books to index.
+     * @return The new search index.
+     */
+    private static BookSearchIndex buildSearchIndex(List<Book> catalog) {
+        BookSearchIndex index = new BookSearchIndex();
+        for (Book book : catalog) {
+            index.add(book);
+        }
+        return index;
     }
 
     /**
@@ -65,7 +467,338 @@ public class Library {
      * @param book The book to be removed.
      */
     public void removeBook(Book book) {
-        books.remove(book);
+        Lock lock = catalogLock.writeLock();
+        lock.lock();
+        try {
+            if (books.remove(book)) {
+                unindexBook(book); // Drops the book from the indexes
+                dropSubscriptions(book.getBaseBook());
+                holdQueues.remove(book.getBaseBook()); // Nobody can wait for a book that is gone
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Replaces a book in the library's collection with another one, keeping its position
+     * in the catalog and its entries in the indexes.
+     *
+     * @param book        The book to be replaced.
+     * @param replacement The book to take its place.
+     */
+    public void replaceBook(Book book, Book replacement) {
+        Lock lock = catalogLock.writeLock();
+        lock.lock();
+        try {
+            int position = books.indexOf(book);
+            if (position >= 0) {
+                bookView.set(position, replacement); // Swaps the book in place and re-indexes it
+            } else {
+                addBook(replacement); // Adds the replacement if the original book is not in the library
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Finds a book by its exact catalog title using the title index.
+     * Decorated books are indexed by the title of the book they decorate.
+     *
+     * @param title The exact title of the book.
+     * @return The book with the given title, or {@code null} if there is none.
+     */
+    public Book findBookByTitle(String title) {
+        return title == null ? null : booksByTitle.get(title);
+    }
+
+    /**
+     * Finds several books by their exact catalog titles in one pass over the title index.
+     *
+     * @param titles The exact titles of the books.
+     * @return The books, in the order of the titles, with {@code null} for each title that is not in the catalog.
+     */
+    public Book[] findBooksByTitle(List<String> titles) {
+        Book[] found = new Book[titles.size()];
+        int i = 0;
+        for (String title : titles) {
+            found[i++] = title == null ? null : booksByTitle.get(title);
+        }
+        return found;
+    }
+
+    /**
+     * Finds the first book whose title contains the given fragment.
+     * This scans the whole catalog, so exact lookups should use {@link #findBookByTitle(String)}.
+     *
+     * @param fragment The fragment to look for in the book titles.
+     * @return The first book whose title contains the fragment, or {@code null} if there is none.
+     */
+    public Book findBookByTitleContaining(String fragment) {
+        Lock lock = catalogLock.readLock();
+        lock.lock();
+        try {
+            for (Book book : books) {
+                if (book.getTitle().contains(fragment)) {
+                    return book; // Returns the first book whose title contains the fragment
+                }
+            }
+            return null; // Returns null if no title contains the fragment
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Finds the books by an author.
+     *
+     * @param author The name of the author.
+     * @return The books by the author, in the order they were added.
+     */
+    public List<Book> findBooksByAuthor(String author) {
+        Lock lock = catalogLock.readLock();
+        lock.lock();
+        try {
+            return booksByAuthorId(getAuthorDictionary().find(author));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Finds the books by an author, given the author's ID in the library's
+     * {@link #getAuthorDictionary() author dictionary}, using the author index.
+     *
+     * @param authorId The ID of the author.
+     * @return The books by the author, in the order they were added.
+     */
+    public List<Book> findBooksByAuthorId(int authorId) {
+        Lock lock = catalogLock.readLock();
+        lock.lock();
+        try {
+            return booksByAuthorId(authorId);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Copies the books indexed under an author. The caller must hold the catalog lock.
+     *
+     * @param authorId The ID of the author.
+     * @return The books by the author, in the order they were added.
+     */
+    private List<Book> booksByAuthorId(int authorId) {
+        List<Book> found = booksByAuthor.get(authorId);
+        return found == null ? new ArrayList<>() : new ArrayList<>(found);
+    }
+
+    /**
+     * Searches the titles and authors of the books for the given text, ignoring case.
+     *
+     * @param query The text to look for.
+     * @param limit The maximum number of books to return.
+     * @return The matching books, best match first.
+     * @see BookSearchIndex#search(String, int)
+     */
+    public List<Book> searchBooks(String query, int limit) {
+        rebuildSearchIndex(); // Brings the index up to date after a bulk load
+        Lock lock = catalogLock.readLock();
+        lock.lock();
+        try {
+            return searchIndex.search(query, limit);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Adds a book to the title and author indexes, the search index and the copy counts.
+     *
+     * @param book The book to index.
+     */
+    private void indexBook(Book book) {
+        indexTitle(book);
+        indexAuthor(book);
+        account(book);
+        addToSearchIndex(book);
+    }
+
+    /**
+     * Removes a book from the title and author indexes, the search index and the copy counts.
+     *
+     * @param book The book to remove from the indexes.
+     */
+    private void unindexBook(Book book) {
+        unindexTitle(book);
+        unindexAuthor(book);
+        unaccount(book);
+        if (!searchIndexStale) {
+            searchIndex.remove(book);
+        } else if (searchChanges != null) {
+            searchChanges.add(new Book[] {book, null}); // The rebuild in progress removes it too
+        }
+    }
+
+    /**
+     * Adds a book to the search index, or to the changes a rebuild in progress applies once it is done.
+     * A stale index with no rebuild in progress picks the book up when it is rebuilt.
+     *
+     * @param book The book to add.
+     */
+    private void addToSearchIndex(Book book) {
+        if (!searchIndexStale) {
+            searchIndex.add(book);
+        } else if (searchChanges != null) {
+            searchChanges.add(new Book[] {null, book});
+        }
+    }
+
+    /**
+     * Drops the subscriptions to a book or member that has left the library.
+     *
+     * @param subject The base book or the member.
+     */
+    private static void dropSubscriptions(Object subject) {
+        ObserverRegistry.getInstance().unsubscribeAll(subject);
+    }
+
+    /**
+     * Takes a member that has left the library off every hold queue, under the lending locks of each
+     * book and the member. It is called after the member lock is released, since the librarian takes
+     * the lending locks before it.
+     *
+     * @param member The member.
+     */
+    private void dropHolds(Member member) {
+        for (Book book : getHeldBooks(member)) {
+            lendingLocks.lock(book, member); // Serializes the removal with the queue's other changes
+            try {
+                removeHold(book, member);
+            } finally {
+                lendingLocks.unlock(book, member);
+            }
+        }
+    }
+
+    /**
+     * Adds a book to the title index unless another book with the same title is already indexed.
+     *
+     * @param book The book to index.
+     */
+    private void indexTitle(Book book) {
+        String title = catalogTitle(book);
+        if (booksByTitle.putIfAbsent(title, book) != null) {
+            titleDuplicates.merge(title, 1, Integer::sum);
+        }
+    }
+
+    /**
+     * Removes a book from the title index. If another book with the same title is still in the
+     * catalog, it takes over the index entry; the catalog is only searched for it when the title
+     * is known to have one.
+     *
+     * @param book The book to remove from the index.
+     */
+    private void unindexTitle(Book book) {
+        String title = catalogTitle(book);
+        Integer duplicates = titleDuplicates.get(title);
+        if (duplicates != null) {
+            if (duplicates == 1) {
+                titleDuplicates.remove(title);
+            } else {
+                titleDuplicates.put(title, duplicates - 1);
+            }
+        }
+        if (!booksByTitle.remove(title, book) || duplicates == null) {
+            return; // Another book with the same title owns the entry, or no other book has the title
+        }
+        for (Book other : books) {
+            if (catalogTitle(other).equals(title)) {
+                booksByTitle.put(title, other); // Promotes the next book with the same title
+                return;
+            }
+        }
+    }
+
+    /**
+     * Adds a book to the author index. A book stored as an object is given the dictionary's string for
+     * its author, so the books by one author share one string however many copies of the name were parsed.
+     *
+     * @param book The book to index.
+     */
+    private void indexAuthor(Book book) {
+        AuthorDictionary dictionary = getAuthorDictionary();
+        int authorId = dictionary.intern(book.getAuthor());
+        if (columns == null) {
+            book.getBaseBook().canonicalizeAuthor(dictionary.nameOf(authorId));
+        }
+        booksByAuthor.computeIfAbsent(authorId, id -> new ArrayList<>(1)).add(book);
+    }
+
+    /**
+     * Removes a book from the author index. Authors with no books left keep no entry.
+     *
+     * @param book The book to remove from the index.
+     */
+    private void unindexAuthor(Book book) {
+        int authorId = getAuthorDictionary().find(book.getAuthor());
+        List<Book> byAuthor = booksByAuthor.get(authorId);
+        if (byAuthor != null && byAuthor.remove(book) && byAuthor.isEmpty()) {
+            booksByAuthor.remove(authorId);
+        }
+    }
+
+    /**
+     * Adds the inventory of a book to the copy counts and has the book report later changes.
+     * The book's inventory must not change concurrently, which the lending locks ensure for books
+     * added and removed by the librarian.
+     *
+     * @param book The book added to the catalog.
+     */
+    private void account(Book book) {
+        Book base = book.getBaseBook(); // Decorators keep their inventory in the book they decorate
+        base.setOwner(this);
+        totalCopies.add(base.getQuantity());
+        borrowedCopies.add(base.getBorrowedQuantity());
+    }
+
+    /**
+     * Takes the inventory of a book out of the copy counts and stops it from reporting changes.
+     *
+     * @param book The book removed from the catalog.
+     */
+    private void unaccount(Book book) {
+        Book base = book.getBaseBook();
+        base.setOwner(null);
+        totalCopies.add(-base.getQuantity());
+        borrowedCopies.add(-base.getBorrowedQuantity());
+    }
+
+    /**
+     * Applies a change to the inventory of a book in the catalog to the copy counts.
+     *
+     * @param quantityDelta The change to the book's total quantity.
+     * @param borrowedDelta The change to the book's borrowed quantity.
+     */
+    void inventoryChanged(int quantityDelta, int borrowedDelta) {
+        if (quantityDelta != 0) {
+            totalCopies.add(quantityDelta);
+        }
+        if (borrowedDelta != 0) {
+            borrowedCopies.add(borrowedDelta);
+        }
+    }
+
+    /**
+     * Returns the title a book is indexed under, which is the title of the undecorated book.
+     *
+     * @param book The book.
+     * @return The catalog title of the book.
+     */
+    private static String catalogTitle(Book book) {
+        return book.getBaseBook().getTitle();
     }
 
     /**
@@ -74,7 +807,98 @@ public class Library {
      * @param member The member to be added.
      */
     public void addMember(Member member) {
-        members.add(member);
+        Lock lock = memberLock.writeLock();
+        lock.lock();
+        try {
+            members.add(member);
+            indexMember(member); // Makes the member reachable through the ID index
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Adds several members to the library at once, as when the library is loaded from a snapshot.
+     *
+     * @param additions The members to be added.
+     */
+    public void addMembers(Collection<? extends Member> additions) {
+        Lock lock = memberLock.writeLock();
+        lock.lock();
+        try {
+            members.addAll(additions);
+            for (Member member : additions) {
+                indexMember(member);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Adds a member to the library unless another member already has the same ID.
+     * The check and the addition happen atomically.
+     *
+     * @param member The member to be added.
+     * @return {@code true} if the member was added, {@code false} if the ID was already taken.
+     */
+    public boolean addMemberIfAbsent(Member member) {
+        Lock lock = memberLock.writeLock();
+        lock.lock();
+        try {
+            if (membersById.containsKey(member.getId())) {
+                return false; // The ID is already taken
+            }
+            addMember(member);
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Adds several members to the library at once, skipping those whose ID is already taken,
+     * including by an earlier member of the same batch. The checks and the additions happen atomically.
+     *
+     * @param additions The members to be added.
+     * @return The members that were added, in the order given.
+     */
+    public List<Member> addMembersIfAbsent(Collection<? extends Member> additions) {
+        List<Member> added = new ArrayList<>(additions.size());
+        Lock lock = memberLock.writeLock();
+        lock.lock();
+        try {
+            for (Member member : additions) {
+                if (membersById.putIfAbsent(member.getId(), member) == null) {
+                    members.add(member);
+                    added.add(member);
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+        return added;
+    }
+
+    /**
+     * Copies a range of the members under a single acquisition of the member lock.
+     *
+     * @param from The position of the first member to copy.
+     * @param into The array to copy the members into, from its start.
+     * @return The number of members copied, which is less than the length of the array only at the end of the list.
+     */
+    public int copyMembers(int from, Member[] into) {
+        Lock lock = memberLock.readLock();
+        lock.lock();
+        try {
+            int count = Math.max(0, Math.min(into.length, members.size() - from));
+            for (int i = 0; i < count; i++) {
+                into[i] = members.get(from + i);
+            }
+            return count;
+        } finally {
+            lock.unlock();
+        }
     }
 
     /**
@@ -83,12 +907,65 @@ public class Library {
      * @param member The member to be removed.
      */
     public void removeMember(Member member) {
-        members.remove(member);
+        Lock lock = memberLock.writeLock();
+        lock.lock();
+        boolean removed;
+        try {
+            removed = members.remove(member);
+            if (removed) {
+                unindexMember(member); // Drops the member from the ID index
+                dropSubscriptions(member);
+            }
+        } finally {
+            lock.unlock();
+        }
+        if (removed) {
+            dropHolds(member);
+        }
+    }
+
+    /**
+     * Finds a member by their ID using the ID index.
+     *
+     * @param id The ID of the member.
+     * @return The member with the given ID, or {@code null} if there is none.
+     */
+    public Member findMemberById(String id) {
+        return id == null ? null : membersById.get(id);
+    }
+
+    /**
+     * Adds a member to the ID index unless another member with the same ID is already indexed.
+     *
+     * @param member The member to index.
+     */
+    private void indexMember(Member member) {
+        membersById.putIfAbsent(member.getId(), member);
+    }
+
+    /**
+     * Removes a member from the ID index. If another member with the same ID is still registered,
+     * it takes over the index entry.
+     *
+     * @param member The member to remove from the index.
+     */
+    private void unindexMember(Member member) {
+        String id = member.getId();
+        if (!membersById.remove(id, member)) {
+            return; // Another member with the same ID owns the entry
+        }
+        for (Member other : members) {
+            if (other.getId().equals(id)) {
+                membersById.put(id, other); // Promotes the next member with the same ID
+                return;
+            }
+        }
     }
 
     /**
      * Returns a summary of the library's information, including total books, available books,
-     * loaned books, total members, and total loans.
+     * loaned books, total members, and total loans. Every count is kept up to date incrementally,
+     * so the summary takes constant time however large the catalog is.
      *
      * @return A summary of the library's information.
      */
@@ -96,23 +973,19 @@ public class Library {
         StringBuilder summary = new StringBuilder(); // Creates a new StringBuilder to build the summary
         summary.append("Total Books: ").append(countTotalBooks()).append("\n");
         summary.append("Available Books: ").append(countAvailableBooks()).append("\n");
-        summary.append("Loaned Books: ").append(loanedBooksCount).append("\n");
-        summary.append("Total Members: ").append(members.size()).append("\n");
-        summary.append("Total Loans: ").append(totalLoansCount).append("\n");
+        summary.append("Loaned Books: ").append(getLoanedBooksCount()).append("\n");
+        summary.append("Total Members: ").append(memberView.size()).append("\n");
+        summary.append("Total Loans: ").append(getTotalLoansCount()).append("\n");
         return summary.toString(); // Returns the summary as a string
     }
 
     /**
-     * Counts the total number of books in the library.
+     * Returns the total number of books in the library, counting every copy.
      *
      * @return The total number of books.
      */
     public int countTotalBooks() {
-        int totalBooks = 0; // Initializes the total books count to 0
-        for (Book book : books) {
-            totalBooks += book.getQuantity(); // Adds the quantity of each book to the total books count
-        }
-        return totalBooks; // Returns the total books count
+        return totalCopies.intValue(); // Kept up to date as books and their quantities change
     }
 
     /**
@@ -121,35 +994,317 @@ public class Library {
      * @return The count of loaned books.
      */
     public int getLoanedBooksCount() {
-        return loanedBooksCount;
+        return loanedBooksCount.intValue();
     }
 
     /**
-     * Counts the total number of available books in the library.
+     * Returns the total number of available books in the library, counting every copy.
      *
      * @return The total number of available books.
      */
     public int countAvailableBooks() {
-        int availableBooks = 0; // Initializes the available books count to 0
-        for (Book book : books) {
-            availableBooks += book.getAvailableQuantity(); // Adds the available quantity of each book to the available books count
+        return (int) (totalCopies.sum() - borrowedCopies.sum());
+    }
+
+    /**
+     * Checks the summary counts against a full recount of the catalog and the members. Lending
+     * and returning through the librarian are held off while the check runs, so it should not be
+     * run on a busy library.
+     *
+     * @throws IllegalStateException If a count does not match the recount.
+     */
+    public void verifyCounters() {
+        long quantity = 0;
+        long borrowed = 0;
+        long loans = 0;
+        lendingLocks.lockAll(); // Keeps inventories and loans still during the recount
+        Lock catalog = catalogLock.readLock();
+        Lock roster = memberLock.readLock();
+        catalog.lock();
+        roster.lock();
+        try {
+            for (Book book : books) {
+                quantity += book.getQuantity();
+                borrowed += book.getBorrowedQuantity();
+            }
+            for (Member member : members) {
+                loans += member.getLoans().size();
+            }
+            StringBuilder mismatches = new StringBuilder();
+            if (quantity != totalCopies.sum()) {
+                mismatches.append(" total books counted ").append(quantity).append(", tracked ").append(totalCopies.sum()).append(';');
+            }
+            if (borrowed != borrowedCopies.sum()) {
+                mismatches.append(" borrowed books counted ").append(borrowed).append(", tracked ").append(borrowedCopies.sum()).append(';');
+            }
+            if (loans != loanedBooksCount.sum()) {
+                mismatches.append(" loans counted ").append(loans).append(", tracked ").append(loanedBooksCount.sum()).append(';');
+            }
+            if (mismatches.length() > 0) {
+                throw new IllegalStateException("Summary counts out of step:" + mismatches);
+            }
+        } finally {
+            roster.unlock();
+            catalog.unlock();
+            lendingLocks.unlockAll();
         }
-        return availableBooks; // Returns the available books count
     }
 
     /**
      * Increments the count of loaned books and total loans by one.
      */
     public void incrementLoanedBooks() {
-        loanedBooksCount++; // Increments the loaned books count by 1
-        totalLoansCount++; // Increments the total loans count by 1
+        loanedBooksCount.increment(); // Increments the loaned books count by 1
+        totalLoansCount.increment(); // Increments the total loans count by 1
     }
 
     /**
      * Decrements the count of loaned books by one.
      */
     public void decrementLoanedBooks() {
-        loanedBooksCount--;
+        loanedBooksCount.decrement();
+    }
+
+    /**
+     * Restores the loan counts, as when the library is loaded from a snapshot.
+     *
+     * @param loanedBooks The count of books currently loaned out.
+     * @param totalLoans  The total count of loans made by the library.
+     */
+    public void restoreLoanCounts(long loanedBooks, long totalLoans) {
+        loanedBooksCount.reset();
+        loanedBooksCount.add(loanedBooks);
+        totalLoansCount.reset();
+        totalLoansCount.add(totalLoans);
+    }
+
+    /**
+     * Records a loan of a book in the popularity rankings of books and authors.
+     *
+     * @param book The book that was lent.
+     */
+    public void recordLend(Book book) {
+        Book base = book.getBaseBook();
+        bookPopularity.record(base.getTitle());
+        authorPopularity.record(base.getAuthor());
+    }
+
+    /**
+     * Returns the popularity ranking of books by title over recent time windows.
+     *
+     * @return The tracker of loans by title.
+     */
+    public PopularityTracker getBookPopularity() {
+        return bookPopularity;
+    }
+
+    /**
+     * Returns the popularity ranking of authors over recent time windows.
+     *
+     * @return The tracker of loans by author.
+     */
+    public PopularityTracker getAuthorPopularity() {
+        return authorPopularity;
+    }
+
+    /**
+     * Forgets the loans recorded in the popularity rankings, as after loans were replayed from a journal
+     * at a time that does not reflect when they were made.
+     */
+    public void resetPopularity() {
+        bookPopularity.clear();
+        authorPopularity.clear();
+    }
+
+    /**
+     * Returns the time a book may be kept before its loan is overdue.
+     *
+     * @return The loan period.
+     */
+    public Duration getLoanPeriod() {
+        return loanPeriod;
+    }
+
+    /**
+     * Sets the time a book may be kept before its loan is overdue. Loans already made keep their due dates.
+     *
+     * @param loanPeriod The loan period.
+     */
+    public void setLoanPeriod(Duration loanPeriod) {
+        this.loanPeriod = loanPeriod;
+    }
+
+    /**
+     * Schedules an active loan to be reported when it passes its due date.
+     *
+     * @param loan The loan.
+     */
+    public void trackLoan(Loan loan) {
+        overdueMonitor.start(); // Libraries that never lend never poll
+        overdueMonitor.track(loan);
+    }
+
+    /**
+     * Stops tracking a loan whose book has been returned.
+     *
+     * @param loan The loan.
+     */
+    public void untrackLoan(Loan loan) {
+        overdueMonitor.untrack(loan);
+    }
+
+    /**
+     * Returns the archive that keeps the completed loans.
+     *
+     * @return The loan archive, or {@code null} if completed loans are not kept.
+     */
+    public LoanArchive getLoanArchive() {
+        return loanArchive;
+    }
+
+    /**
+     * Sets the archive that keeps the loans completed from now on. By default the library keeps only
+     * active loans and drops a loan when its book is returned.
+     *
+     * @param loanArchive The loan archive, or {@code null} to stop keeping completed loans.
+     */
+    public void setLoanArchive(LoanArchive loanArchive) {
+        this.loanArchive = loanArchive;
+    }
+
+    /**
+     * Returns every loan of a book the library still knows of, oldest first: the completed loans kept
+     * in the loan archive, from whichever tier holds them, followed by the active loans. Archived loans
+     * are read only as the list is read. The list is read-only and does not see later loans.
+     *
+     * @param book The book.
+     * @return The loans of the book.
+     */
+    public List<Loan> getLoanHistory(Book book) {
+        Book base = book.getBaseBook();
+        LoanArchive archive = loanArchive;
+        lendingLocks.lock(base); // Keeps a return from moving a loan between the two parts while they are read
+        try {
+            List<Loan> completed = archive == null ? Collections.emptyList() : archive.loansOf(base);
+            return new LoanHistory(completed, new ArrayList<>(base.getLoanHistory()));
+        } finally {
+            lendingLocks.unlock(base);
+        }
+    }
+
+    /**
+     * Keeps a completed loan in the loan archive, if the library has one.
+     *
+     * @param loan The loan, whose book has been returned.
+     */
+    public void archiveLoan(Loan loan) {
+        LoanArchive archive = loanArchive;
+        if (archive != null) {
+            archive.append(loan);
+        }
+    }
+
+    /**
+     * Returns the monitor that reports the loans that pass their due date.
+     *
+     * @return The overdue monitor.
+     */
+    public OverdueMonitor getOverdueMonitor() {
+        return overdueMonitor;
+    }
+
+    /**
+     * Returns the active loans that passed their due date, as last reported by the overdue monitor.
+     *
+     * @return A copy of the overdue loans.
+     */
+    public List<Loan> getOverdueLoans() {
+        return overdueMonitor.getOverdueLoans();
+    }
+
+    /**
+     * Returns the queue of members waiting for a book. Callers that change it must hold the book's
+     * lending lock.
+     *
+     * @param book The book.
+     * @return The hold queue, or {@code null} if nobody is waiting for the book.
+     */
+    public HoldQueue getHoldQueue(Book book) {
+        return holdQueues.get(book.getBaseBook());
+    }
+
+    /**
+     * Returns the hold queues of the books members are waiting for.
+     *
+     * @return A read-only view of the queues, keyed by the base book.
+     */
+    public Map<Book, HoldQueue> getHoldQueues() {
+        return Collections.unmodifiableMap(holdQueues);
+    }
+
+    /**
+     * Returns the books a member is waiting for.
+     *
+     * @param member The member.
+     * @return The base books of the hold queues the member is in.
+     */
+    public List<Book> getHeldBooks(Member member) {
+        List<Book> held = new ArrayList<>();
+        for (Map.Entry<Book, HoldQueue> entry : holdQueues.entrySet()) {
+            if (entry.getValue().positionOf(member) > 0) {
+                held.add(entry.getKey());
+            }
+        }
+        return held;
+    }
+
+    /**
+     * Adds a member at the end of the hold queue of a book, as when a hold is placed or loaded from a
+     * snapshot. The caller must hold the book's lending lock.
+     *
+     * @param book   The book.
+     * @param member The member.
+     * @return {@code true} if the member was added, {@code false} if they were already waiting.
+     */
+    public boolean addHold(Book book, Member member) {
+        return holdQueues.computeIfAbsent(book.getBaseBook(), key -> new HoldQueue()).add(member);
+    }
+
+    /**
+     * Takes a member off the hold queue of a book. The caller must hold the book's lending lock.
+     *
+     * @param book   The book.
+     * @param member The member.
+     * @return {@code true} if the member was waiting.
+     */
+    public boolean removeHold(Book book, Member member) {
+        HoldQueue queue = holdQueues.get(book.getBaseBook());
+        if (queue == null || !queue.remove(member)) {
+            return false;
+        }
+        if (queue.isEmpty()) {
+            holdQueues.remove(book.getBaseBook(), queue); // Books nobody waits for keep no queue
+        }
+        return true;
+    }
+
+    /**
+     * Takes the member at the head of the hold queue of a book off it. The caller must hold the book's
+     * lending lock.
+     *
+     * @param book The book.
+     * @return The member, or {@code null} if nobody is waiting.
+     */
+    public Member pollHold(Book book) {
+        HoldQueue queue = holdQueues.get(book.getBaseBook());
+        if (queue == null) {
+            return null;
+        }
+        Member member = queue.poll();
+        if (queue.isEmpty()) {
+            holdQueues.remove(book.getBaseBook(), queue);
+        }
+        return member;
     }
 
     /**
@@ -158,6 +1313,270 @@ public class Library {
      * @return The total count of loans.
      */
     public int getTotalLoansCount() {
-        return totalLoansCount;
+        return totalLoansCount.intValue();
+    }
+
+    /**
+     * A list view over the books of the library that keeps the indexes consistent
+     * when books are added, replaced or removed through it. Each operation takes the catalog lock.
+     */
+    private final class BookList extends AbstractList<Book> implements RandomAccess {
+
+        @Override
+        public Book get(int index) {
+            Lock lock = catalogLock.readLock();
+            lock.lock();
+            try {
+                return books.get(index);
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        @Override
+        public int size() {
+            Lock lock = catalogLock.readLock();
+            lock.lock();
+            try {
+                return books.size();
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        @Override
+        public Object[] toArray() {
+            Lock lock = catalogLock.readLock();
+            lock.lock();
+            try {
+                return books.toArray(); // Copies the catalog under a single lock
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        @Override
+        public Book set(int index, Book book) {
+            Lock lock = catalogLock.writeLock();
+            lock.lock();
+            try {
+                book = adopt(book);
+                Book previous = books.set(index, book);
+                unindexTitle(previous); // Drops the replaced book from the title and author indexes
+                unindexAuthor(previous);
+                unaccount(previous);
+                indexTitle(book); // Indexes the new book
+                indexAuthor(book);
+                account(book);
+                if (!searchIndexStale) {
+                    searchIndex.replace(previous, book); // Moves the search entry over to the new book
+                } else if (searchChanges != null) {
+                    searchChanges.add(new Book[] {previous, book});
+                }
+                if (!previous.getBaseBook().equals(book.getBaseBook())) {
+                    dropSubscriptions(previous.getBaseBook()); // A decorated copy keeps the observers and the holds of the book
+                    holdQueues.remove(previous.getBaseBook());
+                }
+                return previous;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        @Override
+        public void add(int index, Book book) {
+            Lock lock = catalogLock.writeLock();
+            lock.lock();
+            try {
+                book = adopt(book);
+                books.add(index, book);
+                indexBook(book);
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        @Override
+        public Book remove(int index) {
+            Lock lock = catalogLock.writeLock();
+            lock.lock();
+            try {
+                Book removed = books.remove(index);
+                unindexBook(removed);
+                dropSubscriptions(removed.getBaseBook());
+                holdQueues.remove(removed.getBaseBook());
+                return removed;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        @Override
+        public void clear() {
+            Lock lock = catalogLock.writeLock();
+            lock.lock();
+            try {
+                for (Book book : books) {
+                    book.getBaseBook().setOwner(null);
+                    dropSubscriptions(book.getBaseBook());
+                }
+                books.clear();
+                totalCopies.reset(); // Clears the counts and the indexes together with the catalog
+                borrowedCopies.reset();
+                booksByTitle.clear();
+                titleDuplicates.clear();
+                booksByAuthor.clear();
+                if (columns == null) {
+                    authors = new AuthorDictionary(); // The columns start a dictionary of their own
+                }
+                searchIndex.clear();
+                holdQueues.clear();
+                searchIndexStale = false; // An empty index is up to date with an empty catalog
+                searchChanges = null; // A rebuild in progress has nothing left to build
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    /**
+     * A list view over the members of the library that keeps the ID index consistent
+     * when members are added, replaced or removed through it. Each operation takes the member lock.
+     */
+    private final class MemberList extends AbstractList<Member> implements RandomAccess {
+
+        @Override
+        public Member get(int index) {
+            Lock lock = memberLock.readLock();
+            lock.lock();
+            try {
+                return members.get(index);
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        @Override
+        public int size() {
+            Lock lock = memberLock.readLock();
+            lock.lock();
+            try {
+                return members.size();
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        @Override
+        public Object[] toArray() {
+            Lock lock = memberLock.readLock();
+            lock.lock();
+            try {
+                return members.toArray(); // Copies the members under a single lock
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        @Override
+        public Member set(int index, Member member) {
+            Lock lock = memberLock.writeLock();
+            lock.lock();
+            Member previous;
+            try {
+                previous = members.set(index, member);
+                unindexMember(previous); // Drops the replaced member from the index
+                indexMember(member); // Indexes the new member
+                if (previous != member) {
+                    dropSubscriptions(previous);
+                }
+            } finally {
+                lock.unlock();
+            }
+            if (previous != member) {
+                dropHolds(previous);
+            }
+            return previous;
+        }
+
+        @Override
+        public void add(int index, Member member) {
+            Lock lock = memberLock.writeLock();
+            lock.lock();
+            try {
+                members.add(index, member);
+                indexMember(member);
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        @Override
+        public Member remove(int index) {
+            Lock lock = memberLock.writeLock();
+            lock.lock();
+            Member removed;
+            try {
+                removed = members.remove(index);
+                unindexMember(removed);
+                dropSubscriptions(removed);
+            } finally {
+                lock.unlock();
+            }
+            dropHolds(removed);
+            return removed;
+        }
+
+        @Override
+        public void clear() {
+            Lock lock = memberLock.writeLock();
+            lock.lock();
+            try {
+                for (Member member : members) {
+                    dropSubscriptions(member);
+                }
+                members.clear();
+                membersById.clear(); // Clears the index together with the members
+                overdueMonitor.clear(); // The loans and the holds of the members go with them
+                holdQueues.clear();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    /**
+     * The {@code LoanHistory} class is the read-only list of a book's completed loans followed by its
+     * active loans.
+     */
+    private static final class LoanHistory extends AbstractList<Loan> implements RandomAccess {
+
+        /** The completed loans, oldest first. */
+        private final List<Loan> completed;
+
+        /** The active loans, oldest first. */
+        private final List<Loan> active;
+
+        /**
+         * Constructs the history from its two parts.
+         *
+         * @param completed The completed loans, oldest first.
+         * @param active    The active loans, oldest first.
+         */
+        LoanHistory(List<Loan> completed, List<Loan> active) {
+            this.completed = completed;
+            this.active = active;
+        }
+
+        @Override
+        public Loan get(int index) {
+            int archived = completed.size();
+            return index < archived ? completed.get(index) : active.get(index - archived);
+        }
+
+        @Override
+        public int size() {
+            return completed.size() + active.size();
+        }
     }
 }
@@ -1,12 +1,33 @@
 package model;
 
+import scheduling.Timeout;
+
+import java.time.Duration;
 import java.util.Date;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * The {@code Loan} class represents a loan of a book to a member in the library.
- * It contains information about the book, the member, the loan date, and the return date.
+ * It contains information about the book, the member, the loan date, the due date and the return date.
+ * Each loan has an ID, by which members and books index it; IDs are never reused while the program
+ * runs, and a loan restored from a snapshot keeps the ID it was saved with.
+ * A loan is a {@link Timeout} that expires on its due date, so the library can schedule it to be
+ * reported overdue without keeping anything else per loan. Its dates are kept as milliseconds since
+ * the epoch, and the {@link Date} accessors return a new {@code Date} on each call.
  */
-public class Loan {
+public class Loan extends Timeout {
+
+    /** The time a book may be kept when no other loan period is given. */
+    public static final Duration DEFAULT_LOAN_PERIOD = Duration.ofDays(14);
+
+    /** Marks a loan whose book has not been returned. */
+    public static final long NOT_RETURNED = Long.MIN_VALUE;
+
+    /** The ID given to the next loan. */
+    private static final AtomicLong NEXT_ID = new AtomicLong();
+
+    /** The ID of the loan. */
+    private final long id;
 
     /** The book that is being loaned. */
     private final Book book;
@@ -14,23 +35,90 @@ public class Loan {
     /** The member to whom the book is loaned. */
     private final Member member;
 
-    /** The date when the book was loaned. */
-    private final Date loanDate;
+    /** The time when the book was loaned, in milliseconds since the epoch. */
+    private final long loanTime;
 
-    /** The date when the book was returned. */
-    private Date returnDate;
+    /** The time when the book was returned, in milliseconds since the epoch, or {@link #NOT_RETURNED}. */
+    private volatile long returnTime;
 
     /**
      * Constructs a new {@code Loan} object with the specified book and member.
-     * The loan date is set to the current date.
+     * The loan date is set to the current date and the book is due after the default loan period.
      *
      * @param book The book that is being loaned.
      * @param member The member to whom the book is loaned.
      */
     public Loan(Book book, Member member) {
+        this(book, member, new Date());
+    }
+
+    /**
+     * Constructs a new {@code Loan} object with the specified book, member and loan date.
+     * The book is due after the default loan period.
+     *
+     * @param book The book that is being loaned.
+     * @param member The member to whom the book is loaned.
+     * @param loanDate The date when the book was loaned.
+     */
+    public Loan(Book book, Member member, Date loanDate) {
+        this(book, member, loanDate.getTime(), loanDate.getTime() + DEFAULT_LOAN_PERIOD.toMillis());
+    }
+
+    /**
+     * Constructs a new {@code Loan} object with the specified book, member, loan date and due date,
+     * as when a loan is loaded from a snapshot.
+     *
+     * @param book The book that is being loaned.
+     * @param member The member to whom the book is loaned.
+     * @param loanDate The date when the book was loaned.
+     * @param dueDate The date by which the book must be returned.
+     */
+    public Loan(Book book, Member member, Date loanDate, Date dueDate) {
+        this(book, member, loanDate.getTime(), dueDate.getTime());
+    }
+
+    /**
+     * Constructs a new {@code Loan} object with the specified book, member, loan time and due time.
+     *
+     * @param book The book that is being loaned.
+     * @param member The member to whom the book is loaned.
+     * @param loanTime The time when the book was loaned, in milliseconds since the epoch.
+     * @param dueTime The time by which the book must be returned, in milliseconds since the epoch.
+     */
+    public Loan(Book book, Member member, long loanTime, long dueTime) {
+        this(NEXT_ID.incrementAndGet(), book, member, loanTime, dueTime, NOT_RETURNED);
+    }
+
+    /**
+     * Constructs a {@code Loan} object with a given ID, as when a loan is restored from a snapshot or
+     * read back from a {@link LoanArchive}. Loans made afterwards get higher IDs.
+     *
+     * @param id The ID of the loan.
+     * @param book The book that is being loaned.
+     * @param member The member to whom the book is loaned.
+     * @param loanTime The time when the book was loaned, in milliseconds since the epoch.
+     * @param dueTime The time by which the book must be returned, in milliseconds since the epoch.
+     * @param returnTime The time when the book was returned, or {@link #NOT_RETURNED}.
+     */
+    public Loan(long id, Book book, Member member, long loanTime, long dueTime, long returnTime) {
+        super(dueTime);
+        if (NEXT_ID.get() < id) {
+            NEXT_ID.accumulateAndGet(id, Math::max); // Keeps new IDs clear of restored ones
+        }
+        this.id = id;
         this.book = book;
         this.member = member;
-        this.loanDate = new Date();
+        this.loanTime = loanTime;
+        this.returnTime = returnTime;
+    }
+
+    /**
+     * Returns the ID of the loan.
+     *
+     * @return The ID of the loan.
+     */
+    public long getId() {
+        return id;
     }
 
     /**
@@ -57,7 +145,35 @@ public class Loan {
      * @return The loan date.
      */
     public Date getLoanDate() {
-        return loanDate;
+        return new Date(loanTime);
+    }
+
+    /**
+     * Returns the time when the book was loaned.
+     *
+     * @return The loan time, in milliseconds since the epoch.
+     */
+    public long getLoanTime() {
+        return loanTime;
+    }
+
+    /**
+     * Returns the date by which the book must be returned.
+     *
+     * @return The due date.
+     */
+    public Date getDueDate() {
+        return new Date(getDeadline());
+    }
+
+    /**
+     * Returns whether the book is overdue at a given date: it has not been returned and the due date has passed.
+     *
+     * @param date The date to check at.
+     * @return {@code true} if the loan is overdue at the date, {@code false} otherwise.
+     */
+    public boolean isOverdue(Date date) {
+        return returnTime == NOT_RETURNED && date.getTime() > getDeadline();
     }
 
     /**
@@ -66,15 +182,43 @@ public class Loan {
      * @return The return date, or {@code null} if the book has not been returned yet.
      */
     public Date getReturnDate() {
-        return returnDate;
+        long time = returnTime;
+        return time == NOT_RETURNED ? null : new Date(time);
     }
 
     /**
      * Sets the date when the book was returned.
      *
-     * @param returnDate The return date to set.
+     * @param returnDate The return date to set, or {@code null} if the book has not been returned.
      */
     public void setReturnDate(Date returnDate) {
-        this.returnDate = returnDate;
+        this.returnTime = returnDate == null ? NOT_RETURNED : returnDate.getTime();
+    }
+
+    /**
+     * Returns the time when the book was returned.
+     *
+     * @return The return time, in milliseconds since the epoch, or {@link #NOT_RETURNED}.
+     */
+    public long getReturnTime() {
+        return returnTime;
+    }
+
+    /**
+     * Sets the time when the book was returned.
+     *
+     * @param returnTime The return time, in milliseconds since the epoch, or {@link #NOT_RETURNED}.
+     */
+    public void setReturnTime(long returnTime) {
+        this.returnTime = returnTime;
+    }
+
+    /**
+     * Returns whether the book has been returned.
+     *
+     * @return {@code true} if the loan is completed.
+     */
+    public boolean isReturned() {
+        return returnTime != NOT_RETURNED;
     }
 }
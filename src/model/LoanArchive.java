@@ -0,0 +1,445 @@
+package model;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.LongBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.RandomAccess;
+
+/**
+ * The {@code LoanArchive} class keeps completed loans in a packed, append-only array. Each loan is a
+ * fixed record of {@value #FIELDS} {@code long}s: its ID, its loan, due and return times, the handles
+ * of its book and member, and links to the previous record of the same book and of the same member.
+ * A handle is a small {@code int} given to each book and member the first time one of its loans is
+ * archived, so a record holds no references and the collector never has to trace it.
+ *
+ * <p>Records are stored in chunks of {@value #CHUNK_SIZE} that are allocated as the archive grows. The
+ * loans of a book or a member are found by following the links from its latest record, without
+ * scanning the archive. Loans read back from the archive are {@link Loan} objects built on demand; two
+ * reads of the same record give equal IDs but different objects.</p>
+ *
+ * <p>An archive given a directory keeps only its most recent chunks on the heap. Older chunks are
+ * spilled, whole, into segment files in the directory that are mapped into memory, so the heap the
+ * archive takes stays flat however many loans it holds, and reading a spilled record is a read of the
+ * page cache. The segment files are scratch space rather than a copy of the archive: closing the
+ * archive deletes them, and a library kept in a {@code persistence.LibraryStore} keeps its archived
+ * loans in the store's snapshots instead. If a chunk cannot be spilled, it stays on the heap and the archive stops
+ * spilling; {@link #getSpillFailure()} tells why.</p>
+ *
+ * <p>The methods are synchronized, so loans can be archived from any lending thread.</p>
+ */
+public final class LoanArchive implements Closeable {
+
+    /** The number of chunks kept on the heap when no other number is given. */
+    public static final int DEFAULT_HOT_CHUNKS = 4;
+
+    /** The number of {@code long}s in a record. */
+    private static final int FIELDS = 6;
+
+    /** The base-two logarithm of the number of records in a chunk. */
+    private static final int CHUNK_BITS = 13;
+
+    /** The number of records in a chunk. */
+    private static final int CHUNK_SIZE = 1 << CHUNK_BITS;
+
+    /** Masks a record number down to its index within its chunk. */
+    private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+
+    /** The number of bytes in a chunk. */
+    private static final int CHUNK_BYTES = CHUNK_SIZE * FIELDS * Long.BYTES;
+
+    /** The number of chunks in a segment file. */
+    private static final int SEGMENT_CHUNKS = 64;
+
+    /** The field holding the ID of the loan. */
+    private static final int ID = 0;
+
+    /** The field holding the loan time. */
+    private static final int LOAN_TIME = 1;
+
+    /** The field holding the due time. */
+    private static final int DUE_TIME = 2;
+
+    /** The field holding the return time. */
+    private static final int RETURN_TIME = 3;
+
+    /** The field holding the book handle in its high 32 bits and the member handle in its low 32 bits. */
+    private static final int HANDLES = 4;
+
+    /**
+     * The field holding the previous record of the same book, plus one, in its high 32 bits and the
+     * previous record of the same member, plus one, in its low 32 bits; zero means there is none.
+     */
+    private static final int LINKS = 5;
+
+    /** The chunks of records: arrays on the heap, then mapped segments once spilled. */
+    private LongBuffer[] chunks;
+
+    /** The number of records. */
+    private int size;
+
+    /** The directory the segment files are created in, or {@code null} if every chunk stays on the heap. */
+    private final Path directory;
+
+    /** The number of chunks kept on the heap. */
+    private final int hotChunks;
+
+    /** The number of chunks spilled, which are always the oldest ones. */
+    private int spilledChunks;
+
+    /** The segment files created so far. */
+    private final List<Path> segments;
+
+    /** The segment file chunks are being spilled into. */
+    private MappedByteBuffer segment;
+
+    /** The error that stopped spilling, or {@code null}. */
+    private IOException spillFailure;
+
+    /** Whether the archive has been closed. */
+    private boolean closed;
+
+    /** The base book of each book handle. */
+    private final List<Book> books;
+
+    /** The handle of each archived book. */
+    private final Map<Book, Integer> bookHandles;
+
+    /** The latest record of each book handle, plus one. */
+    private int[] lastOfBook;
+
+    /** The number of records of each book handle. */
+    private int[] countOfBook;
+
+    /** The member of each member handle. */
+    private final List<Member> members;
+
+    /** The handle of each archived member. */
+    private final Map<Member, Integer> memberHandles;
+
+    /** The latest record of each member handle, plus one. */
+    private int[] lastOfMember;
+
+    /** The number of records of each member handle. */
+    private int[] countOfMember;
+
+    /**
+     * Constructs a new, empty {@code LoanArchive} that keeps every record on the heap.
+     */
+    public LoanArchive() {
+        this(null, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Constructs a new, empty {@code LoanArchive} that keeps its {@value #DEFAULT_HOT_CHUNKS} most
+     * recent chunks on the heap and spills older ones into segment files.
+     *
+     * @param directory The existing directory to create the segment files in.
+     */
+    public LoanArchive(Path directory) {
+        this(directory, DEFAULT_HOT_CHUNKS);
+    }
+
+    /**
+     * Constructs a new, empty {@code LoanArchive} that keeps a given number of its most recent chunks on
+     * the heap and spills older ones into segment files.
+     *
+     * @param directory The existing directory to create the segment files in, or {@code null} to keep every
+     *                  chunk on the heap.
+     * @param hotChunks The number of chunks to keep on the heap, at least one.
+     */
+    public LoanArchive(Path directory, int hotChunks) {
+        if (hotChunks < 1) {
+            throw new IllegalArgumentException("At least one chunk must stay on the heap: " + hotChunks);
+        }
+        this.directory = directory;
+        this.hotChunks = hotChunks;
+        this.segments = new ArrayList<>();
+        this.chunks = new LongBuffer[1];
+        this.books = new ArrayList<>();
+        this.bookHandles = new HashMap<>(); // By equality, so every view of a book gets one handle
+        this.lastOfBook = new int[16];
+        this.countOfBook = new int[16];
+        this.members = new ArrayList<>();
+        this.memberHandles = new HashMap<>();
+        this.lastOfMember = new int[16];
+        this.countOfMember = new int[16];
+    }
+
+    /**
+     * Appends a completed loan to the archive.
+     *
+     * @param loan The loan, whose book has been returned.
+     * @throws IllegalArgumentException If the book of the loan has not been returned.
+     * @throws IllegalStateException If the archive is full or closed.
+     */
+    public synchronized void append(Loan loan) {
+        if (!loan.isReturned()) {
+            throw new IllegalArgumentException("Only completed loans can be archived: " + loan.getId());
+        }
+        if (closed || size == Integer.MAX_VALUE - 1) {
+            throw new IllegalStateException(closed ? "The loan archive is closed" : "The loan archive is full");
+        }
+        int book = bookHandle(loan.getBook().getBaseBook());
+        int member = memberHandle(loan.getMember());
+        int record = size;
+        int chunk = record >>> CHUNK_BITS;
+        if (chunk == chunks.length) {
+            chunks = Arrays.copyOf(chunks, chunk * 2);
+        }
+        if (chunks[chunk] == null) {
+            chunks[chunk] = LongBuffer.wrap(new long[CHUNK_SIZE * FIELDS]);
+            if (chunk - spilledChunks >= hotChunks && spillFailure == null && directory != null) {
+                spill(); // Keeps the heap to the most recent chunks
+            }
+        }
+        LongBuffer fields = chunks[chunk];
+        int base = (record & CHUNK_MASK) * FIELDS;
+        fields.put(base + ID, loan.getId());
+        fields.put(base + LOAN_TIME, loan.getLoanTime());
+        fields.put(base + DUE_TIME, loan.getDeadline());
+        fields.put(base + RETURN_TIME, loan.getReturnTime());
+        fields.put(base + HANDLES, (long) book << 32 | member);
+        fields.put(base + LINKS, (long) lastOfBook[book] << 32 | lastOfMember[member]);
+        lastOfBook[book] = record + 1;
+        countOfBook[book]++;
+        lastOfMember[member] = record + 1;
+        countOfMember[member]++;
+        size = record + 1;
+    }
+
+    /**
+     * Returns the number of loans in the archive.
+     *
+     * @return The number of archived loans.
+     */
+    public synchronized int size() {
+        return size;
+    }
+
+    /**
+     * Returns the directory the segment files are created in.
+     *
+     * @return The directory, or {@code null} if every chunk stays on the heap.
+     */
+    public Path getDirectory() {
+        return directory;
+    }
+
+    /**
+     * Returns the number of loans that have been spilled out of the heap into segment files.
+     *
+     * @return The number of spilled loans.
+     */
+    public synchronized int spilledSize() {
+        return Math.min(spilledChunks * CHUNK_SIZE, size);
+    }
+
+    /**
+     * Returns the error that stopped the archive from spilling chunks out of the heap.
+     *
+     * @return The error, or {@code null} if spilling works or the archive has no directory.
+     */
+    public synchronized IOException getSpillFailure() {
+        return spillFailure;
+    }
+
+    /**
+     * Returns an archived loan.
+     *
+     * @param index The position of the loan in the archive, in the order the loans were archived.
+     * @return A loan built from the record.
+     * @throws IndexOutOfBoundsException If there is no loan at the position.
+     */
+    public synchronized Loan get(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
+        LongBuffer fields = chunks[index >>> CHUNK_BITS];
+        int base = (index & CHUNK_MASK) * FIELDS;
+        long handles = fields.get(base + HANDLES);
+        return new Loan(fields.get(base + ID), books.get((int) (handles >>> 32)), members.get((int) handles),
+                fields.get(base + LOAN_TIME), fields.get(base + DUE_TIME), fields.get(base + RETURN_TIME));
+    }
+
+    /**
+     * Returns the archived loans of a book, oldest first. The list is read-only and does not see
+     * loans archived after it was returned.
+     *
+     * @param book The book.
+     * @return The completed loans of the book.
+     */
+    public synchronized List<Loan> loansOf(Book book) {
+        Integer handle = bookHandles.get(book.getBaseBook());
+        return handle == null ? new RecordList(new int[0])
+                : new RecordList(follow(lastOfBook[handle], countOfBook[handle], 32));
+    }
+
+    /**
+     * Returns the archived loans of a member, oldest first. The list is read-only and does not see
+     * loans archived after it was returned.
+     *
+     * @param member The member.
+     * @return The completed loans of the member.
+     */
+    public synchronized List<Loan> loansOf(Member member) {
+        Integer handle = memberHandles.get(member);
+        return handle == null ? new RecordList(new int[0])
+                : new RecordList(follow(lastOfMember[handle], countOfMember[handle], 0));
+    }
+
+    /**
+     * Collects the records of a chain of links, oldest first.
+     *
+     * @param last  The latest record of the chain, plus one.
+     * @param count The number of records in the chain.
+     * @param shift The position of the chain's link within the links field.
+     * @return The record numbers.
+     */
+    private int[] follow(int last, int count, int shift) {
+        int[] records = new int[count];
+        for (int i = count - 1, next = last; i >= 0; i--) {
+            int record = next - 1;
+            records[i] = record;
+            next = (int) (chunks[record >>> CHUNK_BITS].get((record & CHUNK_MASK) * FIELDS + LINKS) >>> shift);
+        }
+        return records;
+    }
+
+    /**
+     * Deletes the segment files. The archive cannot be used afterwards.
+     *
+     * @throws IOException If a segment file cannot be deleted.
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        chunks = new LongBuffer[1];
+        size = 0;
+        segment = null;
+        IOException failure = null;
+        for (Path file : segments) {
+            try {
+                Files.deleteIfExists(file); // The mapping lives on until it is collected, which the file system allows
+            } catch (IOException e) {
+                if (failure == null) {
+                    failure = e;
+                } else {
+                    failure.addSuppressed(e);
+                }
+            }
+        }
+        segments.clear();
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    /**
+     * Moves the oldest chunk on the heap into the current segment file, creating a new segment file
+     * when the current one is full. If that fails, the chunk stays on the heap.
+     */
+    private void spill() {
+        int chunk = spilledChunks;
+        int slot = chunk % SEGMENT_CHUNKS;
+        try {
+            if (slot == 0) {
+                Path file = Files.createTempFile(directory, "loans-", ".segment");
+                segments.add(file);
+                try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                    segment = channel.map(FileChannel.MapMode.READ_WRITE, 0, (long) SEGMENT_CHUNKS * CHUNK_BYTES);
+                }
+            }
+        } catch (IOException e) {
+            spillFailure = e;
+            return;
+        }
+        LongBuffer cold = segment.slice(slot * CHUNK_BYTES, CHUNK_BYTES).order(ByteOrder.nativeOrder()).asLongBuffer();
+        cold.put(0, chunks[chunk].array());
+        chunks[chunk] = cold;
+        spilledChunks = chunk + 1;
+    }
+
+    /**
+     * Returns the handle of a book, giving it one if it has none yet.
+     *
+     * @param book The base book.
+     * @return The handle.
+     */
+    private int bookHandle(Book book) {
+        Integer handle = bookHandles.get(book);
+        if (handle == null) {
+            handle = books.size();
+            books.add(book);
+            bookHandles.put(book, handle);
+            if (handle == lastOfBook.length) {
+                lastOfBook = Arrays.copyOf(lastOfBook, handle * 2);
+                countOfBook = Arrays.copyOf(countOfBook, handle * 2);
+            }
+        }
+        return handle;
+    }
+
+    /**
+     * Returns the handle of a member, giving it one if it has none yet.
+     *
+     * @param member The member.
+     * @return The handle.
+     */
+    private int memberHandle(Member member) {
+        Integer handle = memberHandles.get(member);
+        if (handle == null) {
+            handle = members.size();
+            members.add(member);
+            memberHandles.put(member, handle);
+            if (handle == lastOfMember.length) {
+                lastOfMember = Arrays.copyOf(lastOfMember, handle * 2);
+                countOfMember = Arrays.copyOf(countOfMember, handle * 2);
+            }
+        }
+        return handle;
+    }
+
+    /**
+     * The {@code RecordList} class is a read-only list of archived loans, holding only their record
+     * numbers and building each loan when it is read.
+     */
+    private final class RecordList extends AbstractList<Loan> implements RandomAccess {
+
+        /** The record numbers of the loans. */
+        private final int[] records;
+
+        /**
+         * Constructs a list of the given records.
+         *
+         * @param records The record numbers, oldest first.
+         */
+        RecordList(int[] records) {
+            this.records = records;
+        }
+
+        @Override
+        public Loan get(int index) {
+            return LoanArchive.this.get(records[index]);
+        }
+
+        @Override
+        public int size() {
+            return records.length;
+        }
+    }
+}
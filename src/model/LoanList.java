@@ -0,0 +1,95 @@
+package model;
+
+import java.util.AbstractList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * The {@code LoanList} class holds the active loans of a member or a book in the order they were made.
+ * The loans are keyed by their ID, so adding, finding and removing a loan take constant time however
+ * many loans there are. To callers it is a read-only list of the loans, oldest first; only the member
+ * or book that owns it changes it.
+ */
+public class LoanList extends AbstractList<Loan> {
+
+    /** Stands for the loans of a list that has never had any, so most books and members carry no map. */
+    private static final Map<Long, Loan> NO_LOANS = Collections.emptyMap();
+
+    /** The loans keyed by their ID, in the order they were added; {@link #NO_LOANS} until the first one. */
+    private Map<Long, Loan> loans;
+
+    /**
+     * Constructs a new, empty {@code LoanList}.
+     */
+    LoanList() {
+        this.loans = NO_LOANS;
+    }
+
+    /**
+     * Adds a loan at the end of the list.
+     *
+     * @param loan The loan to add.
+     */
+    void insert(Loan loan) {
+        if (loans == NO_LOANS) {
+            loans = new LinkedHashMap<>();
+        }
+        loans.put(loan.getId(), loan);
+    }
+
+    /**
+     * Removes a loan from the list.
+     *
+     * @param loan The loan to remove.
+     * @return {@code true} if the loan was in the list.
+     */
+    boolean delete(Loan loan) {
+        return loans.remove(loan.getId(), loan);
+    }
+
+    /**
+     * Removes every loan from the list.
+     */
+    void deleteAll() {
+        loans.clear();
+    }
+
+    /**
+     * Finds a loan by its ID.
+     *
+     * @param id The ID of the loan.
+     * @return The loan, or {@code null} if it is not in the list.
+     */
+    public Loan findById(long id) {
+        return loans.get(id);
+    }
+
+    @Override
+    public boolean contains(Object object) {
+        return object instanceof Loan && loans.get(((Loan) object).getId()) == object;
+    }
+
+    @Override
+    public Loan get(int index) {
+        if (index < 0 || index >= loans.size()) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + loans.size());
+        }
+        Iterator<Loan> iterator = loans.values().iterator();
+        for (int i = 0; i < index; i++) {
+            iterator.next(); // Walks to the position; the oldest loans are the cheapest to reach
+        }
+        return iterator.next();
+    }
+
+    @Override
+    public int size() {
+        return loans.size();
+    }
+
+    @Override
+    public Iterator<Loan> iterator() {
+        return Collections.unmodifiableCollection(loans.values()).iterator();
+    }
+}
@@ -1,15 +1,17 @@
 package model;
 
 import DesingP.observer.Observable;
-import DesingP.observer.Observer;
 
-import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 
 /**
  * The {@code Member} class represents a member of the library.
  * It contains information about the member's name, ID, and loans.
+ * The loans are indexed by loan ID and by book, so a loan is found and removed in constant
+ * time however many loans the member holds.
  * The class also supports observer pattern to notify observers of changes.
  */
 public class Member extends Observable {
@@ -21,10 +23,13 @@ public class Member extends Observable {
     private final String id;
 
     /** The list of loans that the member has. */
-    private final List<Loan> loans;
+    private final LoanList loans;
 
-    /** The list of observers observing this member. */
-    private final List<Observer> observers;
+    /** The oldest loan the member has of each book, keyed by the base book. */
+    private final Map<Book, Loan> loansByBook;
+
+    /** The number of loans not in {@link #loansByBook} because an older loan of the same book is. */
+    private int shadowedLoans;
 
     /**
      * Constructs a new {@code Member} object with the specified name and ID.
@@ -35,8 +40,8 @@ public class Member extends Observable {
     public Member(String name, String id) {
         this.name = name;
         this.id = id;
-        this.loans = new ArrayList<>();
-        this.observers = new ArrayList<>();
+        this.loans = new LoanList();
+        this.loansByBook = new HashMap<>();
     }
 
     /**
@@ -58,7 +63,7 @@ public class Member extends Observable {
     }
 
     /**
-     * Returns the list of loans that the member has.
+     * Returns the list of loans that the member has, oldest loan first. The list is read-only.
      *
      * @return The list of loans.
      */
@@ -72,7 +77,10 @@ public class Member extends Observable {
      * @param loan The loan to add.
      */
     public void addLoan(Loan loan) {
-        loans.add(loan);
+        loans.insert(loan);
+        if (loansByBook.putIfAbsent(loan.getBook().getBaseBook(), loan) != null) {
+            shadowedLoans++; // The member already has a copy of this book
+        }
     }
 
     /**
@@ -81,40 +89,58 @@ public class Member extends Observable {
      * @param loan The loan to remove.
      */
     public void removeLoan(Loan loan) {
-        loans.remove(loan);
+        if (!loans.delete(loan)) {
+            return;
+        }
+        Book book = loan.getBook().getBaseBook();
+        if (!loansByBook.remove(book, loan)) {
+            shadowedLoans--;
+        } else if (shadowedLoans > 0) {
+            for (Loan other : loans) { // Only members holding several copies of a book get here
+                if (other.getBook().getBaseBook().equals(book)) {
+                    loansByBook.put(book, other);
+                    shadowedLoans--;
+                    break;
+                }
+            }
+        }
     }
 
     /**
-     * Finds a loan by the book's title.
+     * Finds a loan by its ID.
      *
-     * @param title The title of the book.
-     * @return The loan corresponding to the book title, or {@code null} if not found.
+     * @param id The ID of the loan.
+     * @return The loan, or {@code null} if the member does not have it.
      */
-    public Loan findLoanByBook(String title) {
-        for (Loan loan : loans) {
-            if (loan.getBook().getTitle().equals(title)) {
-                return loan;
-            }
-        }
-        return null;
+    public Loan findLoanById(long id) {
+        return loans.findById(id);
     }
 
     /**
-     * Adds an observer to the member.
+     * Finds the oldest loan the member has of a book. Decorated copies of the book count as the
+     * same book.
      *
-     * @param observer The observer to add.
+     * @param book The book.
+     * @return The loan of the book, or {@code null} if not found.
      */
-    public void addObserver(Observer observer) {
-        observers.add(observer);
+    public Loan findLoanByBook(Book book) {
+        return loansByBook.get(book.getBaseBook());
     }
 
     /**
-     * Removes an observer from the member.
+     * Finds a loan by the book's title. This scans the member's loans; when the book
+     * itself is at hand, {@link #findLoanByBook(Book)} is faster.
      *
-     * @param observer The observer to remove.
+     * @param title The title of the book.
+     * @return The loan corresponding to the book title, or {@code null} if not found.
      */
-    public void removeObserver(Observer observer) {
-        observers.remove(observer);
+    public Loan findLoanByBook(String title) {
+        for (Loan loan : loans) {
+            if (loan.getBook().getTitle().equals(title)) {
+                return loan;
+            }
+        }
+        return null;
     }
 
     /**
@@ -122,9 +148,8 @@ public class Member extends Observable {
      *
      * @param message The message to send to observers.
      */
+    @Override
     public void notifyObservers(String message) {
-        for (Observer observer : observers) {
-            observer.update(message);
-        }
+        super.notifyObservers(message);
     }
 }
\ No newline at end of file
@@ -0,0 +1,194 @@
+package model;
+
+import scheduling.TimingWheel;
+
+import java.lang.ref.WeakReference;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * The {@code OverdueMonitor} class reports loans that pass their due date. Every active loan is
+ * scheduled on a {@link TimingWheel} when it is made and cancelled when the book is returned, both in
+ * constant time, and each {@link #poll()} expires the loans whose due date passed since the last one.
+ * An expired loan joins the overdue loans and its book and member notify their observers, so no poll
+ * ever looks at a loan that is not yet due.
+ *
+ * <p>Once {@link #start()} is called, a shared daemon thread polls the monitor every tick for as long
+ * as the monitor is in use. All methods are thread-safe.</p>
+ */
+public class OverdueMonitor {
+
+    /** The tick the monitors of libraries use: overdue loans are reported within a minute. */
+    public static final Duration DEFAULT_TICK = Duration.ofMinutes(1);
+
+    /** The thread that polls every started monitor. */
+    private static final ScheduledExecutorService POLLER = Executors.newSingleThreadScheduledExecutor(task -> {
+        Thread thread = new Thread(task, "overdue-poller");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /** The loans waiting for their due date. */
+    private final TimingWheel<Loan> wheel;
+
+    /** The loans that passed their due date and have not been returned, oldest first. */
+    private final LoanList overdueLoans;
+
+    /** The source of the current time, in milliseconds. */
+    private final LongSupplier clock;
+
+    /** The number of loans that have been reported overdue. */
+    private long overdueCount;
+
+    /** The periodic poll, or {@code null} until the monitor is started. */
+    private volatile ScheduledFuture<?> poll;
+
+    /**
+     * Constructs a new {@code OverdueMonitor} with no loans.
+     *
+     * @param tick  The precision due dates are checked with.
+     * @param clock The source of the current time, in milliseconds.
+     */
+    public OverdueMonitor(Duration tick, LongSupplier clock) {
+        this.wheel = new TimingWheel<>(tick, clock.getAsLong());
+        this.overdueLoans = new LoanList();
+        this.clock = clock;
+    }
+
+    /**
+     * Starts polling the monitor every tick on a shared daemon thread. Starting it again has no effect.
+     * The polling stops by itself once the monitor is no longer referenced.
+     */
+    public void start() {
+        if (poll == null) {
+            synchronized (this) {
+                if (poll == null) {
+                    long tick = wheel.getTick().toMillis();
+                    Poll task = new Poll(this);
+                    poll = task.future = POLLER.scheduleAtFixedRate(task, tick, tick, TimeUnit.MILLISECONDS);
+                }
+            }
+        }
+    }
+
+    /**
+     * Schedules a loan to be reported when it passes its due date.
+     *
+     * @param loan The loan.
+     */
+    public synchronized void track(Loan loan) {
+        wheel.schedule(loan);
+    }
+
+    /**
+     * Stops tracking a loan, as when its book is returned.
+     *
+     * @param loan The loan.
+     */
+    public synchronized void untrack(Loan loan) {
+        if (!wheel.cancel(loan)) {
+            overdueLoans.delete(loan); // It has already been reported
+        }
+    }
+
+    /**
+     * Reports the loans that passed their due date since the last poll: they join the overdue loans,
+     * and their books and members notify their observers.
+     *
+     * @return The number of loans reported.
+     */
+    public int poll() {
+        List<Loan> expired;
+        synchronized (this) {
+            expired = wheel.advance(clock.getAsLong());
+            for (Loan loan : expired) {
+                overdueLoans.insert(loan);
+            }
+            overdueCount += expired.size();
+        }
+        for (Loan loan : expired) {
+            Book book = loan.getBook();
+            Member member = loan.getMember();
+            Date dueDate = loan.getDueDate();
+            book.notifyObservers("Book overdue: " + book.getTitle() + " borrowed by " + member.getName() + ", due " + dueDate);
+            member.notifyObservers(member.getName() + " is overdue returning " + book.getTitle() + ", due " + dueDate);
+        }
+        return expired.size();
+    }
+
+    /**
+     * Returns the loans that passed their due date and have not been returned.
+     *
+     * @return A copy of the overdue loans, oldest report first.
+     */
+    public synchronized List<Loan> getOverdueLoans() {
+        return new ArrayList<>(overdueLoans);
+    }
+
+    /**
+     * Returns the number of loans waiting for their due date.
+     *
+     * @return The number of scheduled loans.
+     */
+    public synchronized int getScheduledCount() {
+        return wheel.size();
+    }
+
+    /**
+     * Returns the number of loans that have been reported overdue, including those since returned.
+     *
+     * @return The number of overdue reports.
+     */
+    public synchronized long getOverdueCount() {
+        return overdueCount;
+    }
+
+    /**
+     * Forgets every loan, as when the members are cleared.
+     */
+    public synchronized void clear() {
+        wheel.clear();
+        overdueLoans.deleteAll();
+    }
+
+    /**
+     * Polls a monitor for the shared poller without keeping the monitor alive.
+     */
+    private static final class Poll implements Runnable {
+
+        /** The monitor to poll. */
+        private final WeakReference<OverdueMonitor> monitor;
+
+        /** The periodic task running the poll. */
+        private volatile ScheduledFuture<?> future;
+
+        /**
+         * Constructs a new {@code Poll} of a monitor.
+         *
+         * @param monitor The monitor.
+         */
+        Poll(OverdueMonitor monitor) {
+            this.monitor = new WeakReference<>(monitor);
+        }
+
+        /**
+         * Polls the monitor, or stops polling once it has been collected.
+         */
+        @Override
+        public void run() {
+            OverdueMonitor target = monitor.get();
+            if (target != null) {
+                target.poll();
+            } else if (future != null) {
+                future.cancel(false); // The library is gone
+            }
+        }
+    }
+}
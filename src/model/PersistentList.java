@@ -0,0 +1,494 @@
+package model;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.RandomAccess;
+
+/**
+ * The {@code PersistentList} class is an immutable list that is changed by making a new version of it.
+ * The elements are kept in a tree of small arrays: leaves of up to {@value #MAX_LEAF} elements under
+ * branches of up to {@value #MAX_BRANCH} children, each branch knowing how many elements lie under each
+ * of its children. A change copies only the nodes on the path from the root to the element it touches,
+ * a handful of small arrays however long the list, and shares every other node with the version it was
+ * made from.
+ *
+ * <p>Since no version ever changes, a version can be read by any number of threads without locking,
+ * and iterating over it never fails, whatever versions are made from it meanwhile.</p>
+ *
+ * @param <E> The type of the elements.
+ */
+public final class PersistentList<E> extends AbstractList<E> implements RandomAccess {
+
+    /** The largest number of elements in a leaf. */
+    private static final int MAX_LEAF = 64;
+
+    /** The largest number of children of a branch. */
+    private static final int MAX_BRANCH = 32;
+
+    /** The list with no elements. */
+    private static final PersistentList<?> EMPTY = new PersistentList<>(new Object[0], 0);
+
+    /** The root of the tree: an {@code Object[]} leaf or a {@link Branch}. */
+    private final Object root;
+
+    /** The number of elements. */
+    private final int size;
+
+    /**
+     * Constructs a version with the given tree.
+     *
+     * @param root The root of the tree.
+     * @param size The number of elements under it.
+     */
+    private PersistentList(Object root, int size) {
+        this.root = root;
+        this.size = size;
+    }
+
+    /**
+     * Returns the list with no elements.
+     *
+     * @param <E> The type of the elements.
+     * @return The empty list.
+     */
+    @SuppressWarnings("unchecked")
+    public static <E> PersistentList<E> empty() {
+        return (PersistentList<E>) EMPTY;
+    }
+
+    /**
+     * Returns a version of this list with an element added at the end.
+     *
+     * @param element The element to add.
+     * @return The new version.
+     */
+    public PersistentList<E> plus(E element) {
+        return plus(size, element);
+    }
+
+    /**
+     * Returns a version of this list with an element inserted at a position.
+     *
+     * @param index   The position to insert the element at.
+     * @param element The element to insert.
+     * @return The new version.
+     * @throws IndexOutOfBoundsException If the position is outside the list.
+     */
+    public PersistentList<E> plus(int index, E element) {
+        if (index < 0 || index > size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
+        return withRoot(join(insert(root, index, element)), size + 1);
+    }
+
+    /**
+     * Returns a version of this list with several elements added at the end. Long runs of elements
+     * are packed into full leaves rather than added one by one.
+     *
+     * @param elements The elements to add, in order.
+     * @return The new version.
+     */
+    public PersistentList<E> plusAll(Collection<? extends E> elements) {
+        Object[] added = elements.toArray();
+        PersistentList<E> result = this;
+        int from = 0;
+        if (added.length >= MAX_LEAF) {
+            for (; from + MAX_LEAF <= added.length; from += MAX_LEAF) {
+                Object[] leaf = Arrays.copyOfRange(added, from, from + MAX_LEAF);
+                Object root = result.size == 0 ? leaf : join(appendLeaf(result.root, leaf));
+                result = new PersistentList<>(root, result.size + MAX_LEAF);
+            }
+        }
+        for (; from < added.length; from++) {
+            @SuppressWarnings("unchecked")
+            E element = (E) added[from];
+            result = result.plus(element);
+        }
+        return result;
+    }
+
+    /**
+     * Returns a version of this list with the element at a position replaced.
+     *
+     * @param index   The position of the element.
+     * @param element The element to put there.
+     * @return The new version.
+     * @throws IndexOutOfBoundsException If there is no element at the position.
+     */
+    public PersistentList<E> with(int index, E element) {
+        checkIndex(index);
+        return new PersistentList<>(replace(root, index, element), size);
+    }
+
+    /**
+     * Returns a version of this list without the element at a position.
+     *
+     * @param index The position of the element.
+     * @return The new version.
+     * @throws IndexOutOfBoundsException If there is no element at the position.
+     */
+    public PersistentList<E> minus(int index) {
+        checkIndex(index);
+        if (size == 1) {
+            return empty();
+        }
+        Object shrunk = delete(root, index);
+        while (shrunk instanceof Branch && ((Branch) shrunk).children.length == 1) {
+            shrunk = ((Branch) shrunk).children[0]; // Drops a root left with a single child
+        }
+        return new PersistentList<>(shrunk, size - 1);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public E get(int index) {
+        checkIndex(index);
+        Object node = root;
+        while (node instanceof Branch) {
+            Branch branch = (Branch) node;
+            int child = branch.childFor(index);
+            index -= branch.startOf(child);
+            node = branch.children[child];
+        }
+        return (E) ((Object[]) node)[index];
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public int indexOf(Object element) {
+        int index = 0;
+        for (E candidate : this) { // Walks the leaves rather than descending for every position
+            if (element == null ? candidate == null : element.equals(candidate)) {
+                return index;
+            }
+            index++;
+        }
+        return -1;
+    }
+
+    @Override
+    public Iterator<E> iterator() {
+        return new Iterator<>() {
+
+            /** The leaf holding the next element. */
+            private Object[] leaf = new Object[0];
+
+            /** The position of the first element of the leaf in the list. */
+            private int leafStart;
+
+            /** The position of the next element in the list. */
+            private int next;
+
+            @Override
+            public boolean hasNext() {
+                return next < size;
+            }
+
+            @Override
+            @SuppressWarnings("unchecked")
+            public E next() {
+                if (next >= size) {
+                    throw new NoSuchElementException();
+                }
+                if (next - leafStart >= leaf.length) {
+                    leafStart = next; // Descends once per leaf rather than once per element
+                    Object node = root;
+                    int index = next;
+                    while (node instanceof Branch) {
+                        Branch branch = (Branch) node;
+                        int child = branch.childFor(index);
+                        index -= branch.startOf(child);
+                        node = branch.children[child];
+                    }
+                    leaf = (Object[]) node;
+                }
+                return (E) leaf[next++ - leafStart];
+            }
+        };
+    }
+
+    /**
+     * Checks that there is an element at a position.
+     *
+     * @param index The position.
+     * @throws IndexOutOfBoundsException If there is no element at the position.
+     */
+    private void checkIndex(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
+    }
+
+    /**
+     * Returns a version with a new tree, reusing the empty list when there are no elements.
+     *
+     * @param root The root of the tree.
+     * @param size The number of elements.
+     * @return The version.
+     */
+    private PersistentList<E> withRoot(Object root, int size) {
+        return size == 0 ? empty() : new PersistentList<>(root, size);
+    }
+
+    /**
+     * Returns a single root for the nodes a change produced, adding a level when the old root split.
+     *
+     * @param nodes One node, or the two halves of a node that split.
+     * @return The root.
+     */
+    private static Object join(Object[] nodes) {
+        return nodes.length == 1 ? nodes[0] : new Branch(nodes);
+    }
+
+    /**
+     * Inserts an element under a node.
+     *
+     * @param node    The node.
+     * @param index   The position to insert at, relative to the node.
+     * @param element The element.
+     * @return The node that replaces it, or the two halves it split into.
+     */
+    private static Object[] insert(Object node, int index, Object element) {
+        if (!(node instanceof Branch)) {
+            Object[] leaf = (Object[]) node;
+            Object[] grown = new Object[leaf.length + 1];
+            System.arraycopy(leaf, 0, grown, 0, index);
+            grown[index] = element;
+            System.arraycopy(leaf, index, grown, index + 1, leaf.length - index);
+            return grown.length <= MAX_LEAF ? new Object[] {grown} : split(grown, index == leaf.length);
+        }
+        Branch branch = (Branch) node;
+        int child = branch.childFor(index);
+        Object[] replacement = insert(branch.children[child], index - branch.startOf(child), element);
+        Object[] children = splice(branch.children, child, replacement);
+        if (children.length <= MAX_BRANCH) {
+            return new Object[] {new Branch(children)};
+        }
+        Object[] halves = split(children, child == branch.children.length - 1);
+        return new Object[] {new Branch((Object[]) halves[0]), new Branch((Object[]) halves[1])};
+    }
+
+    /**
+     * Appends a full leaf after the last leaf under a node.
+     *
+     * @param node The node, which is not empty.
+     * @param leaf The leaf.
+     * @return The node that replaces it, or the two halves it split into.
+     */
+    private static Object[] appendLeaf(Object node, Object[] leaf) {
+        if (!(node instanceof Branch)) {
+            return new Object[] {node, leaf}; // The root was a leaf, so the two become siblings
+        }
+        Branch branch = (Branch) node;
+        int last = branch.children.length - 1;
+        Object[] replacement = branch.children[last] instanceof Branch
+                ? appendLeaf(branch.children[last], leaf)
+                : new Object[] {branch.children[last], leaf};
+        Object[] children = splice(branch.children, last, replacement);
+        if (children.length <= MAX_BRANCH) {
+            return new Object[] {new Branch(children)};
+        }
+        Object[] halves = split(children, true);
+        return new Object[] {new Branch((Object[]) halves[0]), new Branch((Object[]) halves[1])};
+    }
+
+    /**
+     * Replaces an element under a node.
+     *
+     * @param node    The node.
+     * @param index   The position of the element, relative to the node.
+     * @param element The element to put there.
+     * @return The node that replaces it.
+     */
+    private static Object replace(Object node, int index, Object element) {
+        if (!(node instanceof Branch)) {
+            Object[] copy = ((Object[]) node).clone();
+            copy[index] = element;
+            return copy;
+        }
+        Branch branch = (Branch) node;
+        int child = branch.childFor(index);
+        Object[] children = branch.children.clone();
+        children[child] = replace(children[child], index - branch.startOf(child), element);
+        return new Branch(children, branch.ends); // The sizes are unchanged
+    }
+
+    /**
+     * Removes an element under a node, merging a child that gets small into a neighbour it fits with.
+     *
+     * @param node  The node.
+     * @param index The position of the element, relative to the node.
+     * @return The node that replaces it, which may be empty.
+     */
+    private static Object delete(Object node, int index) {
+        if (!(node instanceof Branch)) {
+            Object[] leaf = (Object[]) node;
+            Object[] shrunk = new Object[leaf.length - 1];
+            System.arraycopy(leaf, 0, shrunk, 0, index);
+            System.arraycopy(leaf, index + 1, shrunk, index, shrunk.length - index);
+            return shrunk;
+        }
+        Branch branch = (Branch) node;
+        int child = branch.childFor(index);
+        Object replacement = delete(branch.children[child], index - branch.startOf(child));
+        int width = width(replacement);
+        if (width == 0) {
+            return new Branch(splice(branch.children, child, new Object[0])); // Drops the empty child
+        }
+        if (width < (replacement instanceof Branch ? MAX_BRANCH : MAX_LEAF) / 4 && branch.children.length > 1) {
+            int left = child > 0 ? child - 1 : child; // Merges with the left neighbour, or the right one for the first child
+            Object first = left == child ? replacement : branch.children[left];
+            Object second = left == child ? branch.children[child + 1] : replacement;
+            if (width(first) + width(second) <= (replacement instanceof Branch ? MAX_BRANCH : MAX_LEAF)) {
+                Object[] children = splice(branch.children, left, new Object[] {merge(first, second)});
+                return new Branch(splice(children, left + 1, new Object[0]));
+            }
+        }
+        return new Branch(splice(branch.children, child, new Object[] {replacement}));
+    }
+
+    /**
+     * Returns the number of entries of a node: elements for a leaf, children for a branch.
+     *
+     * @param node The node.
+     * @return The number of entries.
+     */
+    private static int width(Object node) {
+        return node instanceof Branch ? ((Branch) node).children.length : ((Object[]) node).length;
+    }
+
+    /**
+     * Merges two neighbouring nodes of the same depth into one.
+     *
+     * @param first  The first node.
+     * @param second The node after it.
+     * @return The merged node.
+     */
+    private static Object merge(Object first, Object second) {
+        if (first instanceof Branch) {
+            return new Branch(concat(((Branch) first).children, ((Branch) second).children));
+        }
+        return concat((Object[]) first, (Object[]) second);
+    }
+
+    /**
+     * Concatenates two arrays.
+     *
+     * @param first  The first array.
+     * @param second The second array.
+     * @return A new array with the entries of both.
+     */
+    private static Object[] concat(Object[] first, Object[] second) {
+        Object[] joined = Arrays.copyOf(first, first.length + second.length);
+        System.arraycopy(second, 0, joined, first.length, second.length);
+        return joined;
+    }
+
+    /**
+     * Returns a copy of an array with one entry replaced by zero, one or two entries.
+     *
+     * @param entries     The array.
+     * @param position    The position of the entry to replace.
+     * @param replacement The entries to put in its place.
+     * @return The new array.
+     */
+    private static Object[] splice(Object[] entries, int position, Object[] replacement) {
+        Object[] spliced = new Object[entries.length - 1 + replacement.length];
+        System.arraycopy(entries, 0, spliced, 0, position);
+        System.arraycopy(replacement, 0, spliced, position, replacement.length);
+        System.arraycopy(entries, position + 1, spliced, position + replacement.length, entries.length - position - 1);
+        return spliced;
+    }
+
+    /**
+     * Splits an overfull array in two. An array that grew at its end keeps as many entries as it can
+     * in its first half, so a list built by appending is made of full nodes; any other array is split
+     * evenly.
+     *
+     * @param entries  The array.
+     * @param atEnd    Whether it grew at its end.
+     * @return The two halves.
+     */
+    private static Object[] split(Object[] entries, boolean atEnd) {
+        int first = atEnd ? entries.length - 1 : entries.length / 2;
+        return new Object[] {Arrays.copyOfRange(entries, 0, first), Arrays.copyOfRange(entries, first, entries.length)};
+    }
+
+    /**
+     * The {@code Branch} class is an inner node of the tree: its children and the number of elements
+     * under each of them.
+     */
+    private static final class Branch {
+
+        /** The children: all leaves or all branches. */
+        final Object[] children;
+
+        /** The number of elements under each child and every child before it. */
+        final int[] ends;
+
+        /**
+         * Constructs a branch over the given children, counting the elements under them.
+         *
+         * @param children The children.
+         */
+        Branch(Object[] children) {
+            this.children = children;
+            this.ends = new int[children.length];
+            int total = 0;
+            for (int i = 0; i < children.length; i++) {
+                Object child = children[i];
+                total += child instanceof Branch ? ((Branch) child).size() : ((Object[]) child).length;
+                ends[i] = total;
+            }
+        }
+
+        /**
+         * Constructs a branch over the given children whose counts are already known.
+         *
+         * @param children The children.
+         * @param ends     The counts, shared with the branch they were taken from.
+         */
+        Branch(Object[] children, int[] ends) {
+            this.children = children;
+            this.ends = ends;
+        }
+
+        /**
+         * Returns the number of elements under the branch.
+         *
+         * @return The number of elements.
+         */
+        int size() {
+            return ends[ends.length - 1];
+        }
+
+        /**
+         * Returns the child holding a position, or the last child for the position just past the end.
+         *
+         * @param index The position, relative to the branch.
+         * @return The index of the child.
+         */
+        int childFor(int index) {
+            int found = Arrays.binarySearch(ends, index);
+            int child = found >= 0 ? found + 1 : -found - 1; // The first child ending after the position
+            return Math.min(child, children.length - 1);
+        }
+
+        /**
+         * Returns the position of the first element under a child.
+         *
+         * @param child The index of the child.
+         * @return The position, relative to the branch.
+         */
+        int startOf(int child) {
+            return child == 0 ? 0 : ends[child - 1];
+        }
+    }
+}
@@ -0,0 +1,224 @@
+package model;
+
+import java.util.Arrays;
+
+/**
+ * The {@code RatingStats} class aggregates the ratings a book has received. Each rating is folded into
+ * running totals as it arrives (the count, the sum, the sum of squares, the lowest and highest rating
+ * and a histogram with one bucket per whole point from 0 to 10), so adding a rating and reading the
+ * mean take constant time however many ratings there are, and no rating is stored individually.
+ * Percentiles are estimated from the histogram.
+ *
+ * <p>All methods are synchronized, so a {@code RatingStats} can be read while it is being updated.</p>
+ */
+public class RatingStats {
+
+    /** The lowest rating accepted. */
+    public static final double MIN_RATING = 0.0;
+
+    /** The highest rating accepted. */
+    public static final double MAX_RATING = 10.0;
+
+    /** The number of histogram buckets: one for each whole point, with 10 in a bucket of its own. */
+    public static final int BUCKETS = (int) MAX_RATING + 1;
+
+    /** The number of ratings. */
+    private long count;
+
+    /** The sum of the ratings. */
+    private double sum;
+
+    /** The sum of the squares of the ratings. */
+    private double sumOfSquares;
+
+    /** The lowest rating. */
+    private double min = Double.POSITIVE_INFINITY;
+
+    /** The highest rating. */
+    private double max = Double.NEGATIVE_INFINITY;
+
+    /** The number of ratings in each bucket; bucket {@code b} holds the ratings from {@code b} up to {@code b + 1}. */
+    private final long[] histogram = new long[BUCKETS];
+
+    /**
+     * Constructs a new {@code RatingStats} object with no ratings.
+     */
+    public RatingStats() {
+    }
+
+    /**
+     * Returns whether a rating is within the accepted range.
+     *
+     * @param rating The rating.
+     * @return {@code true} if the rating is between {@link #MIN_RATING} and {@link #MAX_RATING}.
+     */
+    public static boolean isValid(double rating) {
+        return rating >= MIN_RATING && rating <= MAX_RATING; // Also rejects NaN
+    }
+
+    /**
+     * Adds a rating.
+     *
+     * @param rating The rating, between {@link #MIN_RATING} and {@link #MAX_RATING}.
+     * @throws IllegalArgumentException If the rating is out of range.
+     */
+    public synchronized void add(double rating) {
+        if (!isValid(rating)) {
+            throw new IllegalArgumentException("Rating out of range: " + rating);
+        }
+        count++;
+        sum += rating;
+        sumOfSquares += rating * rating;
+        min = Math.min(min, rating);
+        max = Math.max(max, rating);
+        histogram[(int) rating]++;
+    }
+
+    /**
+     * Returns the number of ratings.
+     *
+     * @return The number of ratings.
+     */
+    public synchronized long getCount() {
+        return count;
+    }
+
+    /**
+     * Returns the mean rating.
+     *
+     * @return The mean rating, or {@code 0.0} if there are no ratings.
+     */
+    public synchronized double getMean() {
+        return count == 0 ? 0.0 : sum / count;
+    }
+
+    /**
+     * Returns the sum of the ratings.
+     *
+     * @return The sum of the ratings.
+     */
+    public synchronized double getSum() {
+        return sum;
+    }
+
+    /**
+     * Returns the sum of the squares of the ratings.
+     *
+     * @return The sum of the squares.
+     */
+    public synchronized double getSumOfSquares() {
+        return sumOfSquares;
+    }
+
+    /**
+     * Returns the population standard deviation of the ratings.
+     *
+     * @return The standard deviation, or {@code 0.0} if there are no ratings.
+     */
+    public synchronized double getStandardDeviation() {
+        if (count == 0) {
+            return 0.0;
+        }
+        double mean = sum / count;
+        return Math.sqrt(Math.max(0.0, sumOfSquares / count - mean * mean)); // Rounding can make the difference slightly negative
+    }
+
+    /**
+     * Returns the lowest rating.
+     *
+     * @return The lowest rating, or {@code NaN} if there are no ratings.
+     */
+    public synchronized double getMin() {
+        return count == 0 ? Double.NaN : min;
+    }
+
+    /**
+     * Returns the highest rating.
+     *
+     * @return The highest rating, or {@code NaN} if there are no ratings.
+     */
+    public synchronized double getMax() {
+        return count == 0 ? Double.NaN : max;
+    }
+
+    /**
+     * Returns a copy of the histogram.
+     *
+     * @return The number of ratings in each of the {@link #BUCKETS} buckets.
+     */
+    public synchronized long[] getHistogram() {
+        return histogram.clone();
+    }
+
+    /**
+     * Estimates a percentile of the ratings from the histogram, assuming the ratings in a bucket are
+     * spread evenly across it. The estimate never falls outside the lowest and highest rating.
+     *
+     * @param percentile The percentile, between 0 and 100.
+     * @return The estimated rating, or {@code NaN} if there are no ratings.
+     * @throws IllegalArgumentException If the percentile is out of range.
+     */
+    public synchronized double getPercentile(double percentile) {
+        if (!(percentile >= 0 && percentile <= 100)) {
+            throw new IllegalArgumentException("Percentile out of range: " + percentile);
+        }
+        if (count == 0) {
+            return Double.NaN;
+        }
+        double rank = percentile / 100 * count;
+        long below = 0;
+        for (int bucket = 0; bucket < BUCKETS; bucket++) {
+            long inBucket = histogram[bucket];
+            if (inBucket > 0 && below + inBucket >= rank) {
+                double width = bucket == BUCKETS - 1 ? 0.0 : 1.0; // The last bucket holds only the top rating
+                double estimate = bucket + width * (rank - below) / inBucket;
+                return Math.min(max, Math.max(min, estimate));
+            }
+            below += inBucket;
+        }
+        return max;
+    }
+
+    /**
+     * Returns a copy of these statistics.
+     *
+     * @return The copy.
+     */
+    public synchronized RatingStats copy() {
+        RatingStats copy = new RatingStats();
+        copy.restore(count, sum, sumOfSquares, min, max, histogram);
+        return copy;
+    }
+
+    /**
+     * Replaces these statistics with saved totals, as when they are loaded from a snapshot.
+     *
+     * @param count        The number of ratings.
+     * @param sum          The sum of the ratings.
+     * @param sumOfSquares The sum of the squares of the ratings.
+     * @param min          The lowest rating.
+     * @param max          The highest rating.
+     * @param histogram    The number of ratings in each bucket.
+     */
+    public synchronized void restore(long count, double sum, double sumOfSquares, double min, double max, long[] histogram) {
+        if (histogram.length != BUCKETS) {
+            throw new IllegalArgumentException("Expected " + BUCKETS + " buckets, got " + histogram.length);
+        }
+        this.count = count;
+        this.sum = sum;
+        this.sumOfSquares = sumOfSquares;
+        this.min = min;
+        this.max = max;
+        System.arraycopy(histogram, 0, this.histogram, 0, BUCKETS);
+    }
+
+    /**
+     * Returns a summary of the statistics.
+     *
+     * @return A string with the count, the mean and the histogram.
+     */
+    @Override
+    public synchronized String toString() {
+        return String.format("%d ratings, mean %.2f, histogram %s", count, getMean(), Arrays.toString(histogram));
+    }
+}
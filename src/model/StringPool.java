@@ -0,0 +1,264 @@
+package model;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * The {@code StringPool} class stores each distinct string once, as UTF-8 bytes packed into large
+ * pages, and names it by an {@code int} ID. A string costs its bytes plus about twenty bytes of
+ * bookkeeping, rather than the forty or so bytes of header a {@link String} and its array carry, and
+ * a string added many times, such as the name of a prolific author, is stored only once.
+ *
+ * <p>Strings are only ever added. Pages, locations and hashes are written once, before the ID that
+ * reaches them is published, so {@link #get(int)} and {@link #find(String)} take no lock and may run
+ * alongside {@link #intern(String)}, which is serialized on the pool.</p>
+ */
+final class StringPool {
+
+    /** The number of bytes in a page; a longer string gets a page of its own. */
+    private static final int PAGE_SIZE = 64 * 1024;
+
+    /** The base-two logarithm of the number of IDs in a chunk of locations and hashes. */
+    private static final int CHUNK_BITS = 12;
+
+    /** Masks an ID down to its index within its chunk. */
+    private static final int CHUNK_MASK = (1 << CHUNK_BITS) - 1;
+
+    /** Reads and writes the slots of the hash table with acquire and release ordering. */
+    private static final VarHandle SLOTS = MethodHandles.arrayElementVarHandle(int[].class);
+
+    /** The pages of string bytes; each string is its length as a variable-length integer, then its bytes. */
+    private volatile byte[][] pages = new byte[1][];
+
+    /** The number of pages in use. */
+    private int pageCount;
+
+    /** The number of bytes used in the last page. */
+    private int pageUsed = PAGE_SIZE;
+
+    /** The location of each string, by ID: its page in the high 32 bits and its offset in the low 32 bits. */
+    private volatile long[][] locations = new long[1][];
+
+    /** The hash code of each string, by ID. */
+    private volatile int[][] hashes = new int[1][];
+
+    /** The number of strings in the pool. */
+    private volatile int size;
+
+    /** The open-addressing hash table, holding each string's ID plus one; zero marks an empty slot. */
+    private volatile int[] table = new int[1024];
+
+    /**
+     * Returns the ID of a string, adding the string to the pool if it is not there yet.
+     *
+     * @param value The string.
+     * @return The ID of the string.
+     */
+    synchronized int intern(String value) {
+        int hash = spread(value.hashCode());
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        int[] slots = table;
+        int mask = slots.length - 1;
+        int slot = hash & mask;
+        for (int entry; (entry = (int) SLOTS.getAcquire(slots, slot)) != 0; slot = (slot + 1) & mask) {
+            if (hashOf(entry - 1) == hash && matches(entry - 1, bytes)) {
+                return entry - 1;
+            }
+        }
+        int id = size;
+        store(id, bytes, hash);
+        SLOTS.setRelease(slots, slot, id + 1);
+        size = id + 1; // Publishes the new string
+        if ((id + 1) * 2 > slots.length) {
+            rehash(slots.length * 2);
+        }
+        return id;
+    }
+
+    /**
+     * Returns the ID of a string without adding it to the pool.
+     *
+     * @param value The string.
+     * @return The ID of the string, or -1 if it is not in the pool.
+     */
+    int find(String value) {
+        int hash = spread(value.hashCode());
+        byte[] bytes = null;
+        int[] slots = table;
+        int mask = slots.length - 1;
+        for (int slot = hash & mask, entry; (entry = (int) SLOTS.getAcquire(slots, slot)) != 0; slot = (slot + 1) & mask) {
+            if (hashOf(entry - 1) == hash) {
+                if (bytes == null) {
+                    bytes = value.getBytes(StandardCharsets.UTF_8); // Encoded only once a hash matches
+                }
+                if (matches(entry - 1, bytes)) {
+                    return entry - 1;
+                }
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Returns a string of the pool.
+     *
+     * @param id The ID of the string.
+     * @return A new {@link String} with the characters of the string.
+     */
+    String get(int id) {
+        long location = locations[id >>> CHUNK_BITS][id & CHUNK_MASK];
+        byte[] page = pages[(int) (location >>> 32)];
+        int offset = (int) location;
+        int length = 0;
+        for (int shift = 0; ; shift += 7) {
+            byte b = page[offset++];
+            length |= (b & 0x7F) << shift;
+            if (b >= 0) {
+                break;
+            }
+        }
+        return new String(page, offset, length, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Returns the number of strings in the pool.
+     *
+     * @return The number of strings.
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * Returns an estimate of the memory the pool takes, for reporting.
+     *
+     * @return The estimated number of bytes.
+     */
+    synchronized long footprint() {
+        long pageBytes = (long) (pageCount - 1) * PAGE_SIZE + pageUsed;
+        long chunks = (size >>> CHUNK_BITS) + 1;
+        return pageBytes + chunks * (1 << CHUNK_BITS) * (Long.BYTES + Integer.BYTES) + (long) table.length * Integer.BYTES;
+    }
+
+    /**
+     * Writes the bytes, location and hash of a new string.
+     *
+     * @param id    The ID of the string.
+     * @param bytes The UTF-8 bytes of the string.
+     * @param hash  The spread hash code of the string.
+     */
+    private void store(int id, byte[] bytes, int hash) {
+        int needed = bytes.length + 5; // The bytes and at most five bytes of length
+        byte[] page;
+        if (needed > PAGE_SIZE - pageUsed) {
+            page = new byte[Math.max(PAGE_SIZE, needed)];
+            addPage(page);
+            pageUsed = needed > PAGE_SIZE ? PAGE_SIZE : 0; // An oversized page takes no other string
+        } else {
+            page = pages[pageCount - 1];
+        }
+        int start = needed > PAGE_SIZE ? 0 : pageUsed;
+        int offset = start;
+        for (int length = bytes.length; ; length >>>= 7) {
+            if ((length & ~0x7F) == 0) {
+                page[offset++] = (byte) length;
+                break;
+            }
+            page[offset++] = (byte) ((length & 0x7F) | 0x80);
+        }
+        System.arraycopy(bytes, 0, page, offset, bytes.length);
+        if (needed <= PAGE_SIZE) {
+            pageUsed = offset + bytes.length;
+        }
+
+        int chunk = id >>> CHUNK_BITS;
+        if (chunk == locations.length || locations[chunk] == null) {
+            if (chunk == locations.length) {
+                locations = Arrays.copyOf(locations, chunk * 2);
+                hashes = Arrays.copyOf(hashes, chunk * 2);
+            }
+            locations[chunk] = new long[1 << CHUNK_BITS];
+            hashes[chunk] = new int[1 << CHUNK_BITS];
+        }
+        locations[chunk][id & CHUNK_MASK] = (long) (pageCount - 1) << 32 | start;
+        hashes[chunk][id & CHUNK_MASK] = hash;
+    }
+
+    /**
+     * Appends a page.
+     *
+     * @param page The page.
+     */
+    private void addPage(byte[] page) {
+        byte[][] current = pages;
+        if (pageCount == current.length) {
+            current = Arrays.copyOf(current, pageCount * 2);
+        }
+        current[pageCount++] = page;
+        pages = current; // Publishes the page before any location that points into it
+    }
+
+    /**
+     * Moves every ID into a larger hash table. Readers keep probing the old table until the new one
+     * is published, and the old table still holds every string added before the rehash.
+     *
+     * @param capacity The capacity of the new table, a power of two.
+     */
+    private void rehash(int capacity) {
+        int[] slots = new int[capacity];
+        int mask = capacity - 1;
+        for (int id = 0; id < size; id++) {
+            int slot = hashOf(id) & mask;
+            while (slots[slot] != 0) {
+                slot = (slot + 1) & mask;
+            }
+            slots[slot] = id + 1;
+        }
+        table = slots;
+    }
+
+    /**
+     * Returns the spread hash code of a string of the pool.
+     *
+     * @param id The ID of the string.
+     * @return The hash code.
+     */
+    private int hashOf(int id) {
+        return hashes[id >>> CHUNK_BITS][id & CHUNK_MASK];
+    }
+
+    /**
+     * Returns whether a string of the pool has the given bytes.
+     *
+     * @param id    The ID of the string.
+     * @param bytes The UTF-8 bytes to compare with.
+     * @return {@code true} if the bytes are the same.
+     */
+    private boolean matches(int id, byte[] bytes) {
+        long location = locations[id >>> CHUNK_BITS][id & CHUNK_MASK];
+        byte[] page = pages[(int) (location >>> 32)];
+        int offset = (int) location;
+        int length = 0;
+        for (int shift = 0; ; shift += 7) {
+            byte b = page[offset++];
+            length |= (b & 0x7F) << shift;
+            if (b >= 0) {
+                break;
+            }
+        }
+        return length == bytes.length && Arrays.equals(page, offset, offset + length, bytes, 0, length);
+    }
+
+    /**
+     * Spreads the bits of a hash code, so strings with similar hash codes land far apart.
+     *
+     * @param hash The hash code.
+     * @return The spread hash code.
+     */
+    private static int spread(int hash) {
+        hash *= 0x9E3779B9;
+        return hash ^ (hash >>> 16);
+    }
+}
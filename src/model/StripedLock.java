@@ -0,0 +1,204 @@
+package model;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * The {@code StripedLock} class maps objects onto a fixed set of locks, so that operations on
+ * different objects rarely contend while operations on the same object are serialized.
+ * Objects are mapped by their hash codes, so objects that are equal, such as two views of the same
+ * book in a columnar catalog, share a stripe; objects that do not override {@link Object#hashCode()}
+ * are mapped by identity.
+ */
+public class StripedLock {
+
+    /** The locks, one per stripe. */
+    private final ReentrantLock[] stripes;
+
+    /**
+     * Constructs a new {@code StripedLock} with at least the given number of stripes.
+     *
+     * @param stripes The minimum number of stripes; it is rounded up to a power of two.
+     */
+    public StripedLock(int stripes) {
+        int size = Integer.highestOneBit(Math.max(1, stripes - 1)) << 1; // Rounds up to a power of two
+        this.stripes = new ReentrantLock[size];
+        for (int i = 0; i < size; i++) {
+            this.stripes[i] = new ReentrantLock();
+        }
+    }
+
+    /**
+     * Acquires the lock of the stripe an object maps to.
+     *
+     * @param key The object to lock.
+     */
+    public void lock(Object key) {
+        stripes[stripeOf(key)].lock();
+    }
+
+    /**
+     * Releases the lock of the stripe an object maps to.
+     *
+     * @param key The object to unlock.
+     */
+    public void unlock(Object key) {
+        stripes[stripeOf(key)].unlock();
+    }
+
+    /**
+     * Acquires the locks of the stripes two objects map to. The stripes are always taken in the
+     * same order, so two threads locking the same pair cannot deadlock.
+     *
+     * @param first  The first object to lock.
+     * @param second The second object to lock.
+     */
+    public void lock(Object first, Object second) {
+        int a = stripeOf(first);
+        int b = stripeOf(second);
+        stripes[Math.min(a, b)].lock();
+        if (a != b) {
+            stripes[Math.max(a, b)].lock();
+        }
+    }
+
+    /**
+     * Releases the locks acquired by {@link #lock(Object, Object)}.
+     *
+     * @param first  The first object to unlock.
+     * @param second The second object to unlock.
+     */
+    public void unlock(Object first, Object second) {
+        int a = stripeOf(first);
+        int b = stripeOf(second);
+        if (a != b) {
+            stripes[Math.max(a, b)].unlock();
+        }
+        stripes[Math.min(a, b)].unlock();
+    }
+
+    /**
+     * Acquires the locks of the stripes three objects map to, in stripe order like
+     * {@link #lock(Object, Object)}.
+     *
+     * @param first  The first object to lock.
+     * @param second The second object to lock.
+     * @param third  The third object to lock.
+     */
+    public void lock(Object first, Object second, Object third) {
+        int[] order = orderOf(first, second, third);
+        for (int i = 0; i < order.length; i++) {
+            if (i == 0 || order[i] != order[i - 1]) {
+                stripes[order[i]].lock();
+            }
+        }
+    }
+
+    /**
+     * Releases the locks acquired by {@link #lock(Object, Object, Object)}.
+     *
+     * @param first  The first object to unlock.
+     * @param second The second object to unlock.
+     * @param third  The third object to unlock.
+     */
+    public void unlock(Object first, Object second, Object third) {
+        int[] order = orderOf(first, second, third);
+        for (int i = order.length - 1; i >= 0; i--) {
+            if (i == 0 || order[i] != order[i - 1]) {
+                stripes[order[i]].unlock();
+            }
+        }
+    }
+
+    /**
+     * Acquires the locks of the stripes any number of objects map to, in stripe order like
+     * {@link #lock(Object, Object)}, so that a batch of operations can be applied as one.
+     *
+     * @param keys The objects to lock.
+     */
+    public void lock(Collection<?> keys) {
+        for (int stripe : stripesOf(keys)) {
+            stripes[stripe].lock();
+        }
+    }
+
+    /**
+     * Releases the locks acquired by {@link #lock(Collection)}.
+     *
+     * @param keys The objects to unlock.
+     */
+    public void unlock(Collection<?> keys) {
+        int[] order = stripesOf(keys);
+        for (int i = order.length - 1; i >= 0; i--) {
+            stripes[order[i]].unlock();
+        }
+    }
+
+    /**
+     * Acquires the locks of every stripe, in stripe order, so that no operation guarded by this
+     * lock is in progress until {@link #unlockAll()} is called.
+     */
+    public void lockAll() {
+        for (ReentrantLock stripe : stripes) {
+            stripe.lock();
+        }
+    }
+
+    /**
+     * Releases the locks acquired by {@link #lockAll()}.
+     */
+    public void unlockAll() {
+        for (int i = stripes.length - 1; i >= 0; i--) {
+            stripes[i].unlock();
+        }
+    }
+
+    /**
+     * Returns the stripes three objects map to, in ascending order.
+     *
+     * @param first  The first object.
+     * @param second The second object.
+     * @param third  The third object.
+     * @return The sorted indexes of their stripes, which may repeat.
+     */
+    private int[] orderOf(Object first, Object second, Object third) {
+        int[] order = {stripeOf(first), stripeOf(second), stripeOf(third)};
+        Arrays.sort(order);
+        return order;
+    }
+
+    /**
+     * Returns the distinct stripes any number of objects map to, in ascending order.
+     *
+     * @param keys The objects.
+     * @return The sorted indexes of their stripes, without repeats.
+     */
+    private int[] stripesOf(Collection<?> keys) {
+        int[] order = new int[keys.size()];
+        int i = 0;
+        for (Object key : keys) {
+            order[i++] = stripeOf(key);
+        }
+        Arrays.sort(order);
+        int distinct = 0;
+        for (int j = 0; j < order.length; j++) {
+            if (j == 0 || order[j] != order[j - 1]) {
+                order[distinct++] = order[j];
+            }
+        }
+        return Arrays.copyOf(order, distinct);
+    }
+
+    /**
+     * Returns the stripe an object maps to.
+     *
+     * @param key The object.
+     * @return The index of its stripe.
+     */
+    private int stripeOf(Object key) {
+        int hash = key.hashCode();
+        hash ^= hash >>> 16; // Spreads the high bits into the low ones
+        return hash & (stripes.length - 1);
+    }
+}
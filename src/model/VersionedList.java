@@ -0,0 +1,99 @@
+package model;
+
+import java.util.AbstractList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * The {@code VersionedList} class is a list that keeps its elements in a {@link PersistentList} and
+ * replaces it with a new version on every change. Changes must be made one at a time, as the library
+ * makes them under its catalog lock, but {@link #snapshot()} may be called from any thread without
+ * locking: it returns the current version, which never changes afterwards.
+ *
+ * <p>Iterating over the list iterates over the version current when the iteration started, so it
+ * never fails with a {@link java.util.ConcurrentModificationException}.</p>
+ *
+ * @param <E> The type of the elements.
+ */
+final class VersionedList<E> extends AbstractList<E> implements RandomAccess {
+
+    /** The current version of the list. */
+    private volatile PersistentList<E> current = PersistentList.empty();
+
+    /**
+     * Returns the current version of the list.
+     *
+     * @return An immutable list of the elements as they are now.
+     */
+    List<E> snapshot() {
+        return current;
+    }
+
+    @Override
+    public E get(int index) {
+        return current.get(index);
+    }
+
+    @Override
+    public int size() {
+        return current.size();
+    }
+
+    @Override
+    public int indexOf(Object element) {
+        return current.indexOf(element);
+    }
+
+    @Override
+    public Iterator<E> iterator() {
+        return current.iterator();
+    }
+
+    @Override
+    public E set(int index, E element) {
+        PersistentList<E> version = current;
+        E previous = version.get(index);
+        current = version.with(index, element);
+        return previous;
+    }
+
+    @Override
+    public void add(int index, E element) {
+        current = current.plus(index, element);
+        modCount++;
+    }
+
+    @Override
+    public boolean addAll(Collection<? extends E> elements) {
+        current = current.plusAll(elements);
+        modCount++;
+        return !elements.isEmpty();
+    }
+
+    @Override
+    public E remove(int index) {
+        PersistentList<E> version = current;
+        E removed = version.get(index);
+        current = version.minus(index);
+        modCount++;
+        return removed;
+    }
+
+    @Override
+    public boolean remove(Object element) {
+        int index = indexOf(element); // The iterator of a version cannot remove
+        if (index < 0) {
+            return false;
+        }
+        remove(index);
+        return true;
+    }
+
+    @Override
+    public void clear() {
+        current = PersistentList.empty();
+        modCount++;
+    }
+}
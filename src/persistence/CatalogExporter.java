@@ -0,0 +1,523 @@
+package persistence;
+
+import model.Book;
+import model.Library;
+import model.Loan;
+import model.Member;
+import model.RatingStats;
+import model.StripedLock;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.IntFunction;
+
+/**
+ * The {@code CatalogExporter} class writes full exports of a library: the catalog, the members, the
+ * active loans and the rating statistics, each to a CSV file or to a compact binary file.
+ *
+ * <p>An export reads the library a window at a time: a window of books or members is copied under a
+ * single acquisition of the library's lock, split into chunks that are encoded in parallel on a
+ * {@link ForkJoinPool}, and written with one gathering write. The next window is encoded while the
+ * current one is written, and the two windows and their buffers are reused to the end, so an export
+ * takes the same memory however large the library is.</p>
+ *
+ * <p>Because the library is read a window at a time, books and members added or removed while an
+ * export runs may be missed; every record is itself consistent. The loans of a member are read under
+ * the member's lending lock.</p>
+ *
+ * <p>A binary file starts with the magic number {@code LBX1}, a format version and the kind of record
+ * it holds, followed by the records. Numbers are variable-length integers, zigzag-encoded where they
+ * may be negative, and strings are length-prefixed UTF-8; see {@link EncodeBuffer}.</p>
+ */
+public class CatalogExporter {
+
+    /** The number of books or members encoded by one task. */
+    public static final int DEFAULT_CHUNK_SIZE = 4096;
+
+    /** The number of chunks in a window for each thread of the pool, so a slow chunk does not idle the others. */
+    private static final int CHUNKS_PER_THREAD = 4;
+
+    /** The magic number at the start of binary files: "LBX1". */
+    private static final int MAGIC = 0x4C425831;
+
+    /** The version of the binary format. */
+    private static final int VERSION = 1;
+
+    /** The kind of binary file holding books. */
+    private static final int BOOKS = 1;
+
+    /** The kind of binary file holding members. */
+    private static final int MEMBERS = 2;
+
+    /** The kind of binary file holding loans. */
+    private static final int LOANS = 3;
+
+    /** The kind of binary file holding rating statistics. */
+    private static final int RATINGS = 4;
+
+    /**
+     * The formats a library can be exported to.
+     */
+    public enum Format {
+        /** Comma-separated values with a header line; the catalog and member files can be imported again. */
+        CSV(".csv"),
+        /** The compact binary format. */
+        BINARY(".bin");
+
+        /** The extension of the files. */
+        private final String extension;
+
+        Format(String extension) {
+            this.extension = extension;
+        }
+
+        /**
+         * Returns the extension of the files in this format.
+         *
+         * @return The extension, with its dot.
+         */
+        public String getExtension() {
+            return extension;
+        }
+    }
+
+    /** The library being exported. */
+    private final Library library;
+
+    /** The pool the chunks are encoded on. */
+    private final ForkJoinPool pool;
+
+    /** The number of books or members encoded by one task. */
+    private final int chunkSize;
+
+    /**
+     * Constructs a new {@code CatalogExporter} that encodes on the common pool.
+     *
+     * @param library The library to export.
+     */
+    public CatalogExporter(Library library) {
+        this(library, ForkJoinPool.commonPool(), DEFAULT_CHUNK_SIZE);
+    }
+
+    /**
+     * Constructs a new {@code CatalogExporter}.
+     *
+     * @param library   The library to export.
+     * @param pool      The pool the chunks are encoded on.
+     * @param chunkSize The number of books or members encoded by one task.
+     */
+    public CatalogExporter(Library library, ForkJoinPool pool, int chunkSize) {
+        if (chunkSize < 1) {
+            throw new IllegalArgumentException("Chunk size must be positive: " + chunkSize);
+        }
+        this.library = library;
+        this.pool = pool;
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * Exports everything to a directory, creating it if needed: {@code catalog}, {@code members},
+     * {@code loans} and {@code ratings}, with the extension of the format.
+     *
+     * @param directory The directory.
+     * @param format    The format of the files.
+     * @return The files written.
+     * @throws IOException If a file cannot be written.
+     */
+    public List<Path> exportAll(Path directory, Format format) throws IOException {
+        Files.createDirectories(directory);
+        Path catalog = directory.resolve("catalog" + format.getExtension());
+        Path members = directory.resolve("members" + format.getExtension());
+        Path loans = directory.resolve("loans" + format.getExtension());
+        Path ratings = directory.resolve("ratings" + format.getExtension());
+        exportBooks(catalog, format);
+        exportMembers(members, format);
+        exportLoans(loans, format);
+        exportRatings(ratings, format);
+        return List.of(catalog, members, loans, ratings);
+    }
+
+    /**
+     * Exports the catalog: the title, author, year, quantity and borrowed quantity of each book.
+     *
+     * @param file   The file to write.
+     * @param format The format of the file.
+     * @return The number of books written.
+     * @throws IOException If the file cannot be written.
+     */
+    public long exportBooks(Path file, Format format) throws IOException {
+        return export(file, format, BOOKS, "title,author,year,quantity,borrowed", Book[]::new, library::copyBooks,
+                (book, out) -> {
+                    Book base = book.getBaseBook();
+                    int quantity = book.getQuantity();
+                    int borrowed = book.getBorrowedQuantity();
+                    if (format == Format.CSV) {
+                        out.putCsv(base.getTitle());
+                        out.put(',');
+                        out.putCsv(base.getAuthor());
+                        out.put(',');
+                        out.putDecimal(base.getYear());
+                        out.put(',');
+                        out.putDecimal(quantity);
+                        out.put(',');
+                        out.putDecimal(borrowed);
+                        out.put('\n');
+                    } else {
+                        out.putString(base.getTitle());
+                        out.putString(base.getAuthor());
+                        out.putSignedVarLong(base.getYear());
+                        out.putVarLong(quantity);
+                        out.putVarLong(borrowed);
+                    }
+                    return 1;
+                });
+    }
+
+    /**
+     * Exports the members: the name and ID of each.
+     *
+     * @param file   The file to write.
+     * @param format The format of the file.
+     * @return The number of members written.
+     * @throws IOException If the file cannot be written.
+     */
+    public long exportMembers(Path file, Format format) throws IOException {
+        return export(file, format, MEMBERS, "name,id", Member[]::new, library::copyMembers, (member, out) -> {
+            if (format == Format.CSV) {
+                out.putCsv(member.getName());
+                out.put(',');
+                out.putCsv(member.getId());
+                out.put('\n');
+            } else {
+                out.putString(member.getName());
+                out.putString(member.getId());
+            }
+            return 1;
+        });
+    }
+
+    /**
+     * Exports the active loans, member by member: the title of the book, the ID of the member, and the
+     * loan and due dates. The dates are ISO-8601 instants in CSV and epoch milliseconds in binary.
+     *
+     * @param file   The file to write.
+     * @param format The format of the file.
+     * @return The number of loans written.
+     * @throws IOException If the file cannot be written.
+     */
+    public long exportLoans(Path file, Format format) throws IOException {
+        StripedLock locks = library.getLendingLocks();
+        return export(file, format, LOANS, "title,member_id,loan_date,due_date", Member[]::new, library::copyMembers,
+                (member, out) -> {
+                    int count = 0;
+                    locks.lock(member); // Keeps the loans from changing while they are read
+                    try {
+                        for (Loan loan : member.getLoans()) {
+                            String title = loan.getBook().getBaseBook().getTitle();
+                            long loanDate = loan.getLoanTime();
+                            if (format == Format.CSV) {
+                                out.putCsv(title);
+                                out.put(',');
+                                out.putCsv(member.getId());
+                                out.put(',');
+                                out.putAscii(Instant.ofEpochMilli(loanDate).toString());
+                                out.put(',');
+                                out.putAscii(Instant.ofEpochMilli(loan.getDeadline()).toString());
+                                out.put('\n');
+                            } else {
+                                out.putString(title);
+                                out.putString(member.getId());
+                                out.putVarLong(loanDate);
+                                out.putSignedVarLong(loan.getDeadline() - loanDate); // The loan period fits in a few bytes
+                            }
+                            count++;
+                        }
+                    } finally {
+                        locks.unlock(member);
+                    }
+                    return count;
+                });
+    }
+
+    /**
+     * Exports the rating statistics of the rated books. CSV holds the title, count, mean, standard
+     * deviation, lowest and highest rating; binary holds the title and the totals the statistics are
+     * kept as, histogram included.
+     *
+     * @param file   The file to write.
+     * @param format The format of the file.
+     * @return The number of rated books written.
+     * @throws IOException If the file cannot be written.
+     */
+    public long exportRatings(Path file, Format format) throws IOException {
+        return export(file, format, RATINGS, "title,count,mean,stddev,min,max", Book[]::new, library::copyBooks,
+                (book, out) -> {
+                    RatingStats live = book.getRatings();
+                    if (live == null) {
+                        return 0;
+                    }
+                    RatingStats stats = live.copy(); // Reads the totals consistently
+                    String title = book.getBaseBook().getTitle();
+                    if (format == Format.CSV) {
+                        out.putCsv(title);
+                        out.put(',');
+                        out.putDecimal(stats.getCount());
+                        out.put(',');
+                        out.putAscii(Double.toString(stats.getMean()));
+                        out.put(',');
+                        out.putAscii(Double.toString(stats.getStandardDeviation()));
+                        out.put(',');
+                        out.putAscii(Double.toString(stats.getMin()));
+                        out.put(',');
+                        out.putAscii(Double.toString(stats.getMax()));
+                        out.put('\n');
+                    } else {
+                        out.putString(title);
+                        out.putVarLong(stats.getCount());
+                        out.putDouble(stats.getSum());
+                        out.putDouble(stats.getSumOfSquares());
+                        out.putDouble(stats.getMin());
+                        out.putDouble(stats.getMax());
+                        for (long bucket : stats.getHistogram()) {
+                            out.putVarLong(bucket);
+                        }
+                    }
+                    return 1;
+                });
+    }
+
+    /**
+     * Exports the items of the library window by window, encoding each window on the pool while the
+     * previous one is written.
+     *
+     * @param file     The file to write.
+     * @param format   The format of the file.
+     * @param kind     The kind of records, for the binary header.
+     * @param header   The header line of the CSV file.
+     * @param newArray Creates the array a window is copied into.
+     * @param source   Copies a window of items from the library.
+     * @param encoder  Encodes an item into zero or more records.
+     * @return The number of records written.
+     * @throws IOException If the file cannot be written.
+     */
+    private <T> long export(Path file, Format format, int kind, String header, IntFunction<T[]> newArray,
+                            Source<T> source, Encoder<T> encoder) throws IOException {
+        int chunks = Math.max(1, pool.getParallelism() * CHUNKS_PER_THREAD);
+        Window<T> current = new Window<>(newArray.apply(chunks * chunkSize), chunks);
+        Window<T> spare = new Window<>(newArray.apply(chunks * chunkSize), chunks);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            EncodeBuffer start = new EncodeBuffer();
+            if (format == Format.CSV) {
+                start.putAscii(header);
+                start.put('\n');
+            } else {
+                for (int shift = 24; shift >= 0; shift -= 8) {
+                    start.put(MAGIC >>> shift);
+                }
+                start.put(VERSION);
+                start.put(kind);
+            }
+            writeFully(channel, new ByteBuffer[] {start.view()});
+
+            long records = 0;
+            int position = current.fill(source, 0);
+            ForkJoinTask<?> encoding = current.count > 0 ? pool.submit(new EncodeTask<>(current, encoder, chunkSize)) : null;
+            while (encoding != null) {
+                encoding.join();
+                ForkJoinTask<?> next = null;
+                if (current.count == current.items.length) { // A full window may not be the last
+                    position = spare.fill(source, position);
+                    if (spare.count > 0) {
+                        next = pool.submit(new EncodeTask<>(spare, encoder, chunkSize));
+                    }
+                }
+                try {
+                    records += current.write(channel, chunkSize);
+                } catch (IOException e) {
+                    if (next != null) {
+                        next.cancel(false);
+                    }
+                    throw e;
+                }
+                Window<T> written = current;
+                current = spare;
+                spare = written;
+                encoding = next;
+            }
+            return records;
+        }
+    }
+
+    /**
+     * Writes buffers with gathering writes until they are all written.
+     *
+     * @param channel The file.
+     * @param buffers The buffers.
+     * @throws IOException If the file cannot be written.
+     */
+    private static void writeFully(FileChannel channel, ByteBuffer[] buffers) throws IOException {
+        long remaining = 0;
+        for (ByteBuffer buffer : buffers) {
+            remaining += buffer.remaining();
+        }
+        while (remaining > 0) {
+            remaining -= channel.write(buffers);
+        }
+    }
+
+    /**
+     * Copies a window of items from the library.
+     */
+    @FunctionalInterface
+    private interface Source<T> {
+
+        /**
+         * Copies items into an array.
+         *
+         * @param from The position of the first item.
+         * @param into The array.
+         * @return The number of items copied.
+         */
+        int copy(int from, T[] into);
+    }
+
+    /**
+     * Encodes an item.
+     */
+    @FunctionalInterface
+    private interface Encoder<T> {
+
+        /**
+         * Encodes an item into zero or more records.
+         *
+         * @param item The item.
+         * @param out  The buffer of the chunk.
+         * @return The number of records written.
+         */
+        int encode(T item, EncodeBuffer out);
+    }
+
+    /**
+     * A window of items copied from the library, with a buffer and a record count for each of its chunks.
+     */
+    private static final class Window<T> {
+
+        /** The items of the window; only the first {@link #count} are current. */
+        final T[] items;
+
+        /** The number of items in the window. */
+        int count;
+
+        /** The encoded records of each chunk. */
+        final EncodeBuffer[] buffers;
+
+        /** The number of records encoded for each chunk. */
+        final long[] records;
+
+        Window(T[] items, int chunks) {
+            this.items = items;
+            this.buffers = new EncodeBuffer[chunks];
+            this.records = new long[chunks];
+            for (int i = 0; i < chunks; i++) {
+                buffers[i] = new EncodeBuffer();
+            }
+        }
+
+        /**
+         * Copies the next items from the library into the window.
+         *
+         * @param source The library.
+         * @param from   The position of the first item.
+         * @return The position after the items copied.
+         */
+        int fill(Source<T> source, int from) {
+            count = source.copy(from, items);
+            return from + count;
+        }
+
+        /**
+         * Writes the encoded chunks with one gathering write.
+         *
+         * @param channel   The file.
+         * @param chunkSize The number of items in a chunk.
+         * @return The number of records written.
+         * @throws IOException If the file cannot be written.
+         */
+        long write(FileChannel channel, int chunkSize) throws IOException {
+            int used = (count + chunkSize - 1) / chunkSize;
+            ByteBuffer[] views = new ByteBuffer[used];
+            long total = 0;
+            for (int i = 0; i < used; i++) {
+                views[i] = buffers[i].view();
+                total += records[i];
+            }
+            writeFully(channel, views);
+            return total;
+        }
+    }
+
+    /**
+     * Encodes a range of the chunks of a window, splitting it in halves down to single chunks.
+     */
+    private static final class EncodeTask<T> extends RecursiveAction {
+
+        /** The serialization version of the task. */
+        private static final long serialVersionUID = 1L;
+
+        /** The window. */
+        private final Window<T> window;
+
+        /** Encodes the items. */
+        private final Encoder<T> encoder;
+
+        /** The number of items in a chunk. */
+        private final int chunkSize;
+
+        /** The first chunk to encode. */
+        private final int first;
+
+        /** The chunk after the last to encode. */
+        private final int end;
+
+        EncodeTask(Window<T> window, Encoder<T> encoder, int chunkSize) {
+            this(window, encoder, chunkSize, 0, (window.count + chunkSize - 1) / chunkSize);
+        }
+
+        private EncodeTask(Window<T> window, Encoder<T> encoder, int chunkSize, int first, int end) {
+            this.window = window;
+            this.encoder = encoder;
+            this.chunkSize = chunkSize;
+            this.first = first;
+            this.end = end;
+        }
+
+        @Override
+        protected void compute() {
+            if (end - first > 1) {
+                int middle = (first + end) >>> 1;
+                invokeAll(new EncodeTask<>(window, encoder, chunkSize, first, middle),
+                        new EncodeTask<>(window, encoder, chunkSize, middle, end));
+                return;
+            }
+            EncodeBuffer out = window.buffers[first];
+            out.clear();
+            long records = 0;
+            int from = first * chunkSize;
+            int to = Math.min(window.count, from + chunkSize);
+            for (int i = from; i < to; i++) {
+                records += encoder.encode(window.items[i], out);
+            }
+            window.records[first] = records;
+        }
+    }
+}
@@ -0,0 +1,213 @@
+package persistence;
+
+import model.Book;
+import model.Librarian;
+import model.Member;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * The {@code CatalogImporter} class loads books and members from CSV or JSON Lines files, as when a
+ * branch is onboarded. The file is streamed through a fixed buffer and parsed without regular
+ * expressions, and the records are added in batches through {@link Librarian#addBooks(List)} and
+ * {@link Librarian#addMembers(List)}, so the indexes are updated and the journal is waited for once
+ * per batch rather than once per record.
+ *
+ * <p>Book files have the columns {@code title}, {@code author}, {@code year} and {@code quantity};
+ * member files have {@code name} and {@code id}. A CSV file names its columns in a header line.</p>
+ *
+ * <p>A malformed record stops the import with an {@link IOException} naming the record. The batches
+ * added before it stay in the library.</p>
+ */
+public class CatalogImporter {
+
+    /** The number of records added to the library at a time. */
+    public static final int DEFAULT_BATCH_SIZE = 8192;
+
+    /** The columns of a book file. */
+    private static final String[] BOOK_COLUMNS = {"title", "author", "year", "quantity"};
+
+    /** The columns of a member file. */
+    private static final String[] MEMBER_COLUMNS = {"name", "id"};
+
+    /**
+     * The formats files can be imported from.
+     */
+    public enum Format {
+        /** Comma-separated values with a header line. */
+        CSV,
+        /** One JSON object per line. */
+        JSONL;
+
+        /**
+         * Picks the format of a file from its extension: {@code .csv}, or {@code .jsonl} or {@code .ndjson}.
+         *
+         * @param path The file.
+         * @return The format.
+         * @throws IllegalArgumentException If the extension is not recognized.
+         */
+        public static Format of(Path path) {
+            String name = path.getFileName().toString().toLowerCase(Locale.ROOT);
+            if (name.endsWith(".csv")) {
+                return CSV;
+            } else if (name.endsWith(".jsonl") || name.endsWith(".ndjson")) {
+                return JSONL;
+            }
+            throw new IllegalArgumentException("Unknown import format: " + path);
+        }
+
+        /**
+         * Opens a file in this format.
+         */
+        private RecordReader open(Path path, String[] columns) throws IOException {
+            return this == CSV ? new CsvRecordReader(path, columns) : new JsonLinesRecordReader(path, columns);
+        }
+    }
+
+    /** The librarian the records are added through. */
+    private final Librarian librarian;
+
+    /** The number of records added to the library at a time. */
+    private final int batchSize;
+
+    /**
+     * Constructs a new {@code CatalogImporter} that adds records {@link #DEFAULT_BATCH_SIZE} at a time.
+     *
+     * @param librarian The librarian the records are added through.
+     */
+    public CatalogImporter(Librarian librarian) {
+        this(librarian, DEFAULT_BATCH_SIZE);
+    }
+
+    /**
+     * Constructs a new {@code CatalogImporter}.
+     *
+     * @param librarian The librarian the records are added through.
+     * @param batchSize The number of records added to the library at a time.
+     */
+    public CatalogImporter(Librarian librarian, int batchSize) {
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("Batch size must be positive: " + batchSize);
+        }
+        this.librarian = librarian;
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Imports the books of a file, in the format its extension names.
+     *
+     * @param path The file.
+     * @return The number of books read and added.
+     * @throws IOException If the file cannot be read or a record is malformed.
+     */
+    public ImportResult importBooks(Path path) throws IOException {
+        return importBooks(path, Format.of(path));
+    }
+
+    /**
+     * Imports the books of a file.
+     *
+     * @param path   The file.
+     * @param format The format of the file.
+     * @return The number of books read and added.
+     * @throws IOException If the file cannot be read or a record is malformed.
+     */
+    public ImportResult importBooks(Path path, Format format) throws IOException {
+        String[] fields = new String[BOOK_COLUMNS.length];
+        List<Book> batch = new ArrayList<>(batchSize);
+        long records = 0;
+        try (RecordReader reader = format.open(path, BOOK_COLUMNS)) {
+            while (reader.next(fields)) {
+                String title = fields[0];
+                if (title == null || title.isEmpty()) {
+                    throw reader.error("Missing title");
+                }
+                int quantity = number(reader, fields[3], "quantity");
+                if (quantity < 0) {
+                    throw reader.error("Negative quantity");
+                }
+                batch.add(new Book(title, fields[1], number(reader, fields[2], "year"), quantity));
+                records++;
+                if (batch.size() == batchSize) {
+                    librarian.addBooks(batch);
+                    batch.clear();
+                }
+            }
+        } finally {
+            librarian.addBooks(batch); // The records read before a malformed one are kept
+        }
+        return new ImportResult(records, records);
+    }
+
+    /**
+     * Imports the members of a file, in the format its extension names.
+     *
+     * @param path The file.
+     * @return The number of members read and added.
+     * @throws IOException If the file cannot be read or a record is malformed.
+     */
+    public ImportResult importMembers(Path path) throws IOException {
+        return importMembers(path, Format.of(path));
+    }
+
+    /**
+     * Imports the members of a file. Members whose ID is already taken, by a registered member or by
+     * an earlier record of the file, are skipped.
+     *
+     * @param path   The file.
+     * @param format The format of the file.
+     * @return The number of members read and added.
+     * @throws IOException If the file cannot be read or a record is malformed.
+     */
+    public ImportResult importMembers(Path path, Format format) throws IOException {
+        String[] fields = new String[MEMBER_COLUMNS.length];
+        List<Member> batch = new ArrayList<>(batchSize);
+        long records = 0;
+        long imported = 0;
+        try (RecordReader reader = format.open(path, MEMBER_COLUMNS)) {
+            while (reader.next(fields)) {
+                String name = fields[0];
+                String id = fields[1];
+                if (name == null) {
+                    throw reader.error("Missing name");
+                }
+                if (id == null || id.isEmpty()) {
+                    throw reader.error("Missing ID");
+                }
+                batch.add(new Member(name, id));
+                records++;
+                if (batch.size() == batchSize) {
+                    imported += librarian.addMembers(batch);
+                    batch.clear();
+                }
+            }
+        } finally {
+            imported += librarian.addMembers(batch); // The records read before a malformed one are kept
+        }
+        return new ImportResult(records, imported);
+    }
+
+    /**
+     * Parses a whole number field.
+     *
+     * @param reader The reader of the record, to report a malformed field.
+     * @param value  The field.
+     * @param column The name of the column.
+     * @return The number.
+     * @throws IOException If the field is missing or is not a whole number.
+     */
+    private static int number(RecordReader reader, String value, String column) throws IOException {
+        if (value == null) {
+            throw reader.error("Missing " + column);
+        }
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            throw reader.error("Invalid " + column + " '" + value + "'");
+        }
+    }
+}
@@ -0,0 +1,150 @@
+package persistence;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The {@code CsvRecordReader} class reads comma-separated records as described by RFC 4180. The first
+ * record is a header naming the columns, in any order; every column the reader was opened with must
+ * be present, and other columns are ignored. Fields may be quoted, in which case they can contain
+ * commas, line breaks and doubled quotes. Unquoted fields are taken as they are, without trimming.
+ */
+final class CsvRecordReader extends RecordReader {
+
+    /** For each column of the file, the slot its values are read into, or -1 if it is ignored. */
+    private final int[] slots;
+
+    /** The columns of the header while it is read, or {@code null} once it has been read. */
+    private List<String> header;
+
+    /**
+     * Opens a CSV file and reads its header.
+     *
+     * @param path    The file.
+     * @param columns The names of the columns read into each record.
+     * @throws IOException If the file cannot be read or a column is missing from the header.
+     */
+    CsvRecordReader(Path path, String[] columns) throws IOException {
+        super(path, columns);
+        header = new ArrayList<>();
+        try {
+            if (!next(new String[0])) {
+                throw error("Missing header");
+            }
+            slots = new int[header.size()];
+            Arrays.fill(slots, -1);
+            for (int slot = 0; slot < columns.length; slot++) {
+                int column = header.indexOf(columns[slot]);
+                if (column < 0) {
+                    throw error("Missing column '" + columns[slot] + "'");
+                }
+                slots[column] = slot;
+            }
+            header = null;
+        } catch (IOException e) {
+            close();
+            throw e;
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    int parse(String[] fields) throws IOException {
+        byte[] data = this.data;
+        int limit = this.limit;
+        int p = position;
+        int column = 0;
+        while (true) {
+            String value;
+            if (p < limit && data[p] == '"') {
+                int start = p + 1;
+                int quotes = 0; // The doubled quotes in the field
+                int q = start;
+                while (true) {
+                    if (q >= limit) {
+                        if (endOfInput) {
+                            throw error("Unterminated quoted field");
+                        }
+                        return INCOMPLETE;
+                    }
+                    if (data[q] == '"') {
+                        if (q + 1 == limit && !endOfInput) {
+                            return INCOMPLETE; // The next byte decides whether the quote is doubled
+                        }
+                        if (q + 1 < limit && data[q + 1] == '"') {
+                            quotes++;
+                            q += 2;
+                            continue;
+                        }
+                        break;
+                    }
+                    q++;
+                }
+                value = quotes == 0 ? decode(start, q) : unquote(start, q, quotes);
+                p = q + 1;
+                if (p < limit && data[p] != ',' && data[p] != '\n' && data[p] != '\r') {
+                    throw error("Unexpected character after quoted field");
+                }
+            } else {
+                int start = p;
+                while (p < limit && data[p] != ',' && data[p] != '\n' && data[p] != '\r') {
+                    p++;
+                }
+                if (p == limit && !endOfInput) {
+                    return INCOMPLETE;
+                }
+                value = decode(start, p);
+            }
+            store(column++, value, fields);
+            if (p == limit) {
+                return endOfInput ? p : INCOMPLETE; // A comma or line break may still follow
+            }
+            if (data[p] == ',') {
+                p++;
+            } else {
+                return data[p] == '\r' && p + 1 < limit && data[p + 1] == '\n' ? p + 2 : p + 1;
+            }
+        }
+    }
+
+    /**
+     * Stores the value of a column of the file in the slot it is read into.
+     *
+     * @param column The column of the file.
+     * @param value  The value.
+     * @param fields The record being read.
+     */
+    private void store(int column, String value, String[] fields) {
+        if (header != null) {
+            header.add(value);
+        } else if (column < slots.length && slots[column] >= 0) {
+            fields[slots[column]] = value;
+        }
+    }
+
+    /**
+     * Decodes a quoted field, turning each doubled quote into a single quote.
+     *
+     * @param start  The position after the opening quote.
+     * @param end    The position of the closing quote.
+     * @param quotes The number of doubled quotes in the field.
+     * @return The field.
+     */
+    private String unquote(int start, int end, int quotes) {
+        byte[] bytes = new byte[end - start - quotes];
+        int length = 0;
+        for (int i = start; i < end; i++) {
+            bytes[length++] = data[i];
+            if (data[i] == '"') {
+                i++; // Skips the second quote of the pair
+            }
+        }
+        return new String(bytes, 0, length, StandardCharsets.UTF_8);
+    }
+}
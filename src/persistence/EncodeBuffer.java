@@ -0,0 +1,226 @@
+package persistence;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * The {@code EncodeBuffer} class collects the encoded records of one chunk of an export. It grows to
+ * fit the largest chunk it has held and is then reused, and strings and numbers are encoded straight
+ * into it, so an export makes next to no garbage once its first chunks are encoded. Numbers in the
+ * binary format are written as variable-length integers (seven bits to a byte, low bits first) and
+ * strings as their UTF-8 length plus one followed by the bytes, with a length of zero standing for
+ * {@code null}.
+ */
+final class EncodeBuffer {
+
+    /** The initial capacity of a buffer. */
+    private static final int INITIAL_CAPACITY = 64 * 1024;
+
+    /** The encoded bytes. */
+    private byte[] bytes = new byte[INITIAL_CAPACITY];
+
+    /** The number of encoded bytes. */
+    private int size;
+
+    /**
+     * Discards the encoded bytes, keeping the capacity.
+     */
+    void clear() {
+        size = 0;
+    }
+
+    /**
+     * Returns a view of the encoded bytes for writing.
+     *
+     * @return A buffer positioned at the first encoded byte and limited to the last.
+     */
+    ByteBuffer view() {
+        return ByteBuffer.wrap(bytes, 0, size);
+    }
+
+    /**
+     * Writes a byte.
+     *
+     * @param value The byte.
+     */
+    void put(int value) {
+        ensure(1);
+        bytes[size++] = (byte) value;
+    }
+
+    /**
+     * Writes the ASCII characters of a string, as a header, a separator or a number.
+     *
+     * @param text The text, all ASCII.
+     */
+    void putAscii(String text) {
+        int length = text.length();
+        ensure(length);
+        for (int i = 0; i < length; i++) {
+            bytes[size++] = (byte) text.charAt(i);
+        }
+    }
+
+    /**
+     * Writes a whole number as decimal text.
+     *
+     * @param value The number.
+     */
+    void putDecimal(long value) {
+        if (value == Long.MIN_VALUE) {
+            putAscii(Long.toString(value)); // Has no positive counterpart
+            return;
+        }
+        ensure(20);
+        if (value < 0) {
+            bytes[size++] = '-';
+            value = -value;
+        }
+        int digits = 1;
+        for (long rest = value / 10; rest != 0; rest /= 10) {
+            digits++;
+        }
+        for (int i = size + digits - 1; i >= size; i--) {
+            bytes[i] = (byte) ('0' + value % 10);
+            value /= 10;
+        }
+        size += digits;
+    }
+
+    /**
+     * Writes a field of a CSV record, quoting it if it holds a comma, a quote or a line break.
+     *
+     * @param value The field; {@code null} is written as an empty field.
+     */
+    void putCsv(String value) {
+        if (value == null) {
+            return;
+        }
+        boolean quote = false;
+        for (int i = 0; i < value.length() && !quote; i++) {
+            char c = value.charAt(i);
+            quote = c == ',' || c == '"' || c == '\n' || c == '\r';
+        }
+        if (!quote) {
+            putUtf8(value, false);
+            return;
+        }
+        put('"');
+        putUtf8(value, true);
+        put('"');
+    }
+
+    /**
+     * Writes a non-negative number as a variable-length integer.
+     *
+     * @param value The number.
+     */
+    void putVarLong(long value) {
+        ensure(10);
+        while ((value & ~0x7FL) != 0) {
+            bytes[size++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        bytes[size++] = (byte) value;
+    }
+
+    /**
+     * Writes a number that may be negative as a zigzag-encoded variable-length integer.
+     *
+     * @param value The number.
+     */
+    void putSignedVarLong(long value) {
+        putVarLong((value << 1) ^ (value >> 63));
+    }
+
+    /**
+     * Writes a floating-point number as its eight bytes, high byte first.
+     *
+     * @param value The number.
+     */
+    void putDouble(double value) {
+        ensure(Long.BYTES);
+        long bits = Double.doubleToLongBits(value);
+        for (int shift = 56; shift >= 0; shift -= 8) {
+            bytes[size++] = (byte) (bits >>> shift);
+        }
+    }
+
+    /**
+     * Writes a string of the binary format: its UTF-8 length plus one, then its bytes.
+     *
+     * @param value The string, possibly {@code null}.
+     */
+    void putString(String value) {
+        if (value == null) {
+            putVarLong(0);
+            return;
+        }
+        int length = 0;
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c < 0x80) {
+                length++;
+            } else if (c < 0x800) {
+                length += 2;
+            } else if (Character.isHighSurrogate(c) && i + 1 < value.length() && Character.isLowSurrogate(value.charAt(i + 1))) {
+                length += 4;
+                i++;
+            } else {
+                length += Character.isSurrogate(c) ? 1 : 3;
+            }
+        }
+        putVarLong(length + 1L);
+        putUtf8(value, false);
+    }
+
+    /**
+     * Writes the UTF-8 bytes of a string, encoding it in place rather than through a byte array.
+     * A lone surrogate is written as {@code '?'}, as {@link String#getBytes} does.
+     *
+     * @param value       The string.
+     * @param doubleQuote Whether to write each quote twice, as inside a quoted CSV field.
+     */
+    private void putUtf8(String value, boolean doubleQuote) {
+        int length = value.length();
+        ensure(length * 3 + (doubleQuote ? length : 0));
+        byte[] bytes = this.bytes;
+        int size = this.size;
+        for (int i = 0; i < length; i++) {
+            char c = value.charAt(i);
+            if (c < 0x80) {
+                bytes[size++] = (byte) c;
+                if (c == '"' && doubleQuote) {
+                    bytes[size++] = '"';
+                }
+            } else if (c < 0x800) {
+                bytes[size++] = (byte) (0xC0 | c >> 6);
+                bytes[size++] = (byte) (0x80 | c & 0x3F);
+            } else if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(value.charAt(i + 1))) {
+                int code = Character.toCodePoint(c, value.charAt(++i));
+                bytes[size++] = (byte) (0xF0 | code >> 18);
+                bytes[size++] = (byte) (0x80 | code >> 12 & 0x3F);
+                bytes[size++] = (byte) (0x80 | code >> 6 & 0x3F);
+                bytes[size++] = (byte) (0x80 | code & 0x3F);
+            } else if (Character.isSurrogate(c)) {
+                bytes[size++] = '?';
+            } else {
+                bytes[size++] = (byte) (0xE0 | c >> 12);
+                bytes[size++] = (byte) (0x80 | c >> 6 & 0x3F);
+                bytes[size++] = (byte) (0x80 | c & 0x3F);
+            }
+        }
+        this.size = size;
+    }
+
+    /**
+     * Makes room for more bytes, doubling the capacity as needed.
+     *
+     * @param needed The number of bytes about to be written.
+     */
+    private void ensure(int needed) {
+        if (bytes.length - size < needed) {
+            bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, size + needed));
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package persistence;
+
+/**
+ * The {@code ImportResult} class reports how an import went: how many records the file held and how
+ * many of them were added to the library. The rest were skipped, as members whose ID was already taken.
+ */
+public final class ImportResult {
+
+    /** The number of records read. */
+    private final long records;
+
+    /** The number of records added to the library. */
+    private final long imported;
+
+    /**
+     * Constructs a new {@code ImportResult}.
+     *
+     * @param records  The number of records read.
+     * @param imported The number of records added to the library.
+     */
+    ImportResult(long records, long imported) {
+        this.records = records;
+        this.imported = imported;
+    }
+
+    /**
+     * Returns the number of records read.
+     *
+     * @return The number of records.
+     */
+    public long getRecords() {
+        return records;
+    }
+
+    /**
+     * Returns the number of records added to the library.
+     *
+     * @return The number of imported records.
+     */
+    public long getImported() {
+        return imported;
+    }
+
+    /**
+     * Returns the number of records that were not added to the library.
+     *
+     * @return The number of skipped records.
+     */
+    public long getSkipped() {
+        return records - imported;
+    }
+
+    /**
+     * Returns a summary of the import.
+     *
+     * @return A string with the number of records read, imported and skipped.
+     */
+    @Override
+    public String toString() {
+        return records + " records, " + imported + " imported, " + getSkipped() + " skipped";
+    }
+}
@@ -0,0 +1,235 @@
+package persistence;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+/**
+ * The {@code JsonLinesRecordReader} class reads records written as JSON Lines: one JSON object per
+ * line. The members of each object are matched to the columns by name; members that match no column
+ * are ignored. Values must be strings, numbers, booleans or {@code null}, and a number or boolean is
+ * read as the text it is written as.
+ */
+final class JsonLinesRecordReader extends RecordReader {
+
+    /** The names of the columns in UTF-8, to match member names against without decoding them. */
+    private final byte[][] names;
+
+    /** The position after the string or value parsed last. */
+    private int cursor;
+
+    /**
+     * Opens a JSON Lines file.
+     *
+     * @param path    The file.
+     * @param columns The names of the columns read into each record.
+     * @throws IOException If the file cannot be opened.
+     */
+    JsonLinesRecordReader(Path path, String[] columns) throws IOException {
+        super(path, columns);
+        names = new byte[columns.length][];
+        for (int i = 0; i < columns.length; i++) {
+            names[i] = columns[i].getBytes(StandardCharsets.UTF_8);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    int parse(String[] fields) throws IOException {
+        byte[] data = this.data;
+        int next = position;
+        while (next < limit && data[next] != '\n') {
+            next++;
+        }
+        if (next == limit && !endOfInput) {
+            return INCOMPLETE;
+        }
+        int end = next > position && data[next - 1] == '\r' ? next - 1 : next;
+
+        int p = skipSpace(position, end);
+        if (p == end || data[p] != '{') {
+            throw error("Expected an object");
+        }
+        p = skipSpace(p + 1, end);
+        if (p < end && data[p] == '}') {
+            p++;
+        } else {
+            while (true) {
+                if (p == end || data[p] != '"') {
+                    throw error("Expected a member name");
+                }
+                int slot = slotOf(p, end);
+                p = skipSpace(cursor, end);
+                if (p == end || data[p] != ':') {
+                    throw error("Expected ':'");
+                }
+                p = skipSpace(p + 1, end);
+                String value = value(p, end);
+                if (slot >= 0) {
+                    fields[slot] = value;
+                }
+                p = skipSpace(cursor, end);
+                if (p < end && data[p] == ',') {
+                    p = skipSpace(p + 1, end);
+                } else if (p < end && data[p] == '}') {
+                    p++;
+                    break;
+                } else {
+                    throw error("Expected ',' or '}'");
+                }
+            }
+        }
+        if (skipSpace(p, end) != end) {
+            throw error("Unexpected text after the object");
+        }
+        return next < limit ? next + 1 : next;
+    }
+
+    /**
+     * Parses a member name and finds the column it names.
+     *
+     * @param start The position of the opening quote.
+     * @param end   The end of the line.
+     * @return The slot of the column, or -1 if the member matches no column.
+     * @throws IOException If the name is malformed.
+     */
+    private int slotOf(int start, int end) throws IOException {
+        int q = start + 1;
+        while (q < end && data[q] != '"' && data[q] != '\\') {
+            q++;
+        }
+        if (q < end && data[q] == '"') {
+            cursor = q + 1;
+            for (int slot = 0; slot < names.length; slot++) {
+                if (Arrays.equals(data, start + 1, q, names[slot], 0, names[slot].length)) {
+                    return slot;
+                }
+            }
+            return -1;
+        }
+        String name = string(start, end); // An escaped name is rare enough to decode
+        for (int slot = 0; slot < columns.length; slot++) {
+            if (columns[slot].equals(name)) {
+                return slot;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Parses a value.
+     *
+     * @param start The position of the value.
+     * @param end   The end of the line.
+     * @return The value as text, or {@code null} for {@code null}.
+     * @throws IOException If the value is malformed or is an object or an array.
+     */
+    private String value(int start, int end) throws IOException {
+        if (start == end) {
+            throw error("Expected a value");
+        }
+        byte first = data[start];
+        if (first == '"') {
+            return string(start, end);
+        }
+        if (first == '{' || first == '[') {
+            throw error("Nested objects and arrays are not supported");
+        }
+        int p = start;
+        while (p < end && data[p] != ',' && data[p] != '}' && data[p] != ' ' && data[p] != '\t') {
+            p++;
+        }
+        cursor = p;
+        if (p == start) {
+            throw error("Expected a value");
+        }
+        if (p - start == 4 && first == 'n' && data[start + 1] == 'u' && data[start + 2] == 'l' && data[start + 3] == 'l') {
+            return null;
+        }
+        return decode(start, p);
+    }
+
+    /**
+     * Parses a string, decoding its escape sequences.
+     *
+     * @param start The position of the opening quote.
+     * @param end   The end of the line.
+     * @return The string.
+     * @throws IOException If the string is unterminated or has an invalid escape sequence.
+     */
+    private String string(int start, int end) throws IOException {
+        int p = start + 1;
+        int run = p; // The start of the bytes not yet copied
+        StringBuilder builder = null;
+        while (true) {
+            if (p >= end) {
+                throw error("Unterminated string");
+            }
+            byte b = data[p];
+            if (b == '"') {
+                cursor = p + 1;
+                if (builder == null) {
+                    return decode(run, p);
+                }
+                return builder.append(decode(run, p)).toString();
+            }
+            if (b != '\\') {
+                p++;
+                continue;
+            }
+            if (builder == null) {
+                builder = new StringBuilder();
+            }
+            builder.append(decode(run, p));
+            if (p + 1 >= end) {
+                throw error("Unterminated string");
+            }
+            byte escape = data[p + 1];
+            p += 2;
+            switch (escape) {
+                case '"' -> builder.append('"');
+                case '\\' -> builder.append('\\');
+                case '/' -> builder.append('/');
+                case 'b' -> builder.append('\b');
+                case 'f' -> builder.append('\f');
+                case 'n' -> builder.append('\n');
+                case 'r' -> builder.append('\r');
+                case 't' -> builder.append('\t');
+                case 'u' -> {
+                    if (p + 4 > end) {
+                        throw error("Invalid escape sequence");
+                    }
+                    int code = 0;
+                    for (int i = 0; i < 4; i++) {
+                        int digit = Character.digit(data[p + i], 16);
+                        if (digit < 0) {
+                            throw error("Invalid escape sequence");
+                        }
+                        code = code << 4 | digit;
+                    }
+                    builder.append((char) code); // A surrogate pair arrives as two escapes
+                    p += 4;
+                }
+                default -> throw error("Invalid escape sequence");
+            }
+            run = p;
+        }
+    }
+
+    /**
+     * Skips spaces and tabs.
+     *
+     * @param p   The position to start at.
+     * @param end The end of the line.
+     * @return The position of the first other byte, or {@code end}.
+     */
+    private int skipSpace(int p, int end) {
+        while (p < end && (data[p] == ' ' || data[p] == '\t')) {
+            p++;
+        }
+        return p;
+    }
+}
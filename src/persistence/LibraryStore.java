@@ -0,0 +1,264 @@
+package persistence;
+
+import model.Librarian;
+import model.Library;
+import model.LoanArchive;
+import model.StripedLock;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * The {@code LibraryStore} class keeps a library in a directory as a {@link Snapshot} followed by
+ * {@link WriteAheadLog} segments. Files are numbered by generation: {@code snapshot-N.snap} holds
+ * everything recorded in the journal segments before {@code journal-N.wal}, so recovery loads the
+ * newest snapshot and replays only the segments from its generation on.
+ *
+ * <p>A {@link #checkpoint()} briefly holds every lending lock to rotate the journal to a new segment,
+ * which takes no longer however large the library is. The snapshot is then built on a background
+ * thread by loading the previous snapshot into a private library and replaying the closed segments
+ * into it, so the live library is never copied. Loans kept in the library's {@link LoanArchive} are
+ * rebuilt and written with it, so their history outlives the segments. Once the snapshot is on disk,
+ * the segments and snapshots it replaces are deleted.</p>
+ */
+public class LibraryStore implements AutoCloseable {
+
+    /** The prefix of snapshot file names. */
+    private static final String SNAPSHOT_PREFIX = "snapshot-";
+
+    /** The suffix of snapshot file names. */
+    private static final String SNAPSHOT_SUFFIX = ".snap";
+
+    /** The prefix of journal segment file names. */
+    private static final String JOURNAL_PREFIX = "journal-";
+
+    /** The suffix of journal segment file names. */
+    private static final String JOURNAL_SUFFIX = ".wal";
+
+    /** The directory holding the files. */
+    private final Path directory;
+
+    /** The library kept in the store. */
+    private final Library library;
+
+    /** The journal the library records its mutations in. */
+    private final WriteAheadLog journal;
+
+    /** The thread snapshots are written on. */
+    private final ExecutorService writer;
+
+    /** The number of journal records replayed when the store was opened. */
+    private final long replayedRecords;
+
+    /** The generation of the journal segment being written. */
+    private long generation;
+
+    /** The generation of the newest snapshot on disk, or -1 if there is none; used on the writer thread. */
+    private long snapshotGeneration;
+
+    /** The most recent checkpoint, which may still be writing its snapshot. */
+    private CompletableFuture<Path> checkpoint;
+
+    /**
+     * Constructs a new {@code LibraryStore}.
+     */
+    private LibraryStore(Path directory, Library library, WriteAheadLog journal, long generation,
+                         long snapshotGeneration, long replayedRecords) {
+        this.directory = directory;
+        this.library = library;
+        this.journal = journal;
+        this.generation = generation;
+        this.snapshotGeneration = snapshotGeneration;
+        this.replayedRecords = replayedRecords;
+        this.writer = Executors.newSingleThreadExecutor(task -> {
+            Thread thread = new Thread(task, "snapshot-writer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.checkpoint = CompletableFuture.completedFuture(null);
+    }
+
+    /**
+     * Opens the store in a directory, creating the directory if needed. The library is rebuilt from
+     * the newest snapshot and the journal segments after it, and then records its mutations in the
+     * newest segment.
+     *
+     * @param directory The directory of the store.
+     * @param library   An empty library to rebuild.
+     * @return The open store.
+     * @throws IOException If the files cannot be read or the journal cannot be opened.
+     */
+    public static LibraryStore open(Path directory, Library library) throws IOException {
+        Files.createDirectories(directory);
+        long generation = 0;
+        long snapshotGeneration = -1;
+        List<Long> snapshots = generations(directory, SNAPSHOT_PREFIX, SNAPSHOT_SUFFIX);
+        if (!snapshots.isEmpty()) {
+            generation = snapshots.get(snapshots.size() - 1);
+            snapshotGeneration = generation;
+            Snapshot.load(file(directory, SNAPSHOT_PREFIX, generation, SNAPSHOT_SUFFIX), library);
+        }
+        Librarian librarian = new Librarian(library);
+        long replayed = 0;
+        for (long segment : generations(directory, JOURNAL_PREFIX, JOURNAL_SUFFIX)) {
+            if (segment >= generation) {
+                replayed += WriteAheadLog.replay(file(directory, JOURNAL_PREFIX, segment, JOURNAL_SUFFIX), librarian);
+                generation = segment;
+            }
+        }
+        library.resetPopularity(); // Replayed loans happened before the restart, not now
+        WriteAheadLog journal = WriteAheadLog.open(file(directory, JOURNAL_PREFIX, generation, JOURNAL_SUFFIX));
+        library.setJournal(journal);
+        return new LibraryStore(directory, library, journal, generation, snapshotGeneration, replayed);
+    }
+
+    /**
+     * Returns the number of journal records replayed when the store was opened.
+     *
+     * @return The number of replayed records.
+     */
+    public long getReplayedRecords() {
+        return replayedRecords;
+    }
+
+    /**
+     * Takes a snapshot of the library. Lending and returning pause only while the journal is rotated;
+     * the snapshot is built and written in the background. If a checkpoint is already being written,
+     * that checkpoint is returned instead of starting another.
+     *
+     * @return A future completed with the path of the snapshot once it is on disk.
+     */
+    public synchronized CompletableFuture<Path> checkpoint() {
+        if (!checkpoint.isDone()) {
+            return checkpoint;
+        }
+        long next = generation + 1;
+        StripedLock locks = library.getLendingLocks();
+        locks.lockAll(); // Waits for mutations in progress and holds off new ones
+        try {
+            journal.rotate(file(directory, JOURNAL_PREFIX, next, JOURNAL_SUFFIX));
+        } catch (IOException e) {
+            return CompletableFuture.failedFuture(e);
+        } finally {
+            locks.unlockAll();
+        }
+        generation = next;
+        checkpoint = CompletableFuture.supplyAsync(() -> write(next), writer);
+        return checkpoint;
+    }
+
+    /**
+     * Builds the snapshot that ends at a journal generation from the previous snapshot and the closed
+     * segments, writes it and deletes the files it replaces.
+     *
+     * @param next The generation of the segment the journal was rotated to.
+     * @return The path of the snapshot file.
+     */
+    private Path write(long next) {
+        Path path = file(directory, SNAPSHOT_PREFIX, next, SNAPSHOT_SUFFIX);
+        LoanArchive live = library.getLoanArchive();
+        LoanArchive history = live == null ? null : new LoanArchive(live.getDirectory()); // Spills like the live archive
+        try {
+            try {
+                Library shadow = new Library(); // Rebuilt as a restart would, without touching the live library
+                shadow.setLoanArchive(history);
+                if (snapshotGeneration >= 0) {
+                    Snapshot.load(file(directory, SNAPSHOT_PREFIX, snapshotGeneration, SNAPSHOT_SUFFIX), shadow);
+                }
+                Librarian librarian = new Librarian(shadow);
+                for (long segment : generations(directory, JOURNAL_PREFIX, JOURNAL_SUFFIX)) {
+                    if (segment >= snapshotGeneration && segment < next) {
+                        WriteAheadLog.replay(file(directory, JOURNAL_PREFIX, segment, JOURNAL_SUFFIX), librarian);
+                    }
+                }
+                Snapshot.capture(shadow, next).writeTo(path);
+            } finally {
+                if (history != null) {
+                    history.close(); // Deletes the segments the rebuilt archive spilled
+                }
+            }
+            snapshotGeneration = next;
+            for (long older : generations(directory, JOURNAL_PREFIX, JOURNAL_SUFFIX)) {
+                if (older < next) {
+                    Files.deleteIfExists(file(directory, JOURNAL_PREFIX, older, JOURNAL_SUFFIX));
+                }
+            }
+            for (long older : generations(directory, SNAPSHOT_PREFIX, SNAPSHOT_SUFFIX)) {
+                if (older < next) {
+                    Files.deleteIfExists(file(directory, SNAPSHOT_PREFIX, older, SNAPSHOT_SUFFIX));
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return path;
+    }
+
+    /**
+     * Waits for a checkpoint in progress, then closes the journal and detaches it from the library.
+     *
+     * @throws IOException If the journal cannot be closed.
+     */
+    @Override
+    public void close() throws IOException {
+        CompletableFuture<Path> last;
+        synchronized (this) {
+            last = checkpoint;
+        }
+        try {
+            last.join();
+        } catch (RuntimeException e) {
+            // A failed snapshot leaves the journal segments in place, so nothing is lost
+        }
+        writer.shutdown();
+        library.setJournal(null);
+        journal.close();
+    }
+
+    /**
+     * Returns the path of a numbered file in the store.
+     *
+     * @param directory  The directory of the store.
+     * @param prefix     The prefix of the file name.
+     * @param generation The generation of the file.
+     * @param suffix     The suffix of the file name.
+     * @return The path of the file.
+     */
+    private static Path file(Path directory, String prefix, long generation, String suffix) {
+        return directory.resolve(String.format("%s%020d%s", prefix, generation, suffix));
+    }
+
+    /**
+     * Lists the generations of the numbered files of one kind in the store.
+     *
+     * @param directory The directory of the store.
+     * @param prefix    The prefix of the file names.
+     * @param suffix    The suffix of the file names.
+     * @return The generations, in ascending order.
+     * @throws IOException If the directory cannot be read.
+     */
+    private static List<Long> generations(Path directory, String prefix, String suffix) throws IOException {
+        List<Long> generations = new ArrayList<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, prefix + "*" + suffix)) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                try {
+                    generations.add(Long.parseLong(name.substring(prefix.length(), name.length() - suffix.length())));
+                } catch (NumberFormatException e) {
+                    // Not one of the store's files
+                }
+            }
+        }
+        Collections.sort(generations);
+        return generations;
+    }
+}
@@ -0,0 +1,389 @@
+package persistence;
+
+import DesingP.util.BookStateException;
+import model.Librarian;
+
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.util.zip.CRC32C;
+
+/**
+ * The {@code LogRecord} class represents one mutation of the library as it is stored in the
+ * {@link WriteAheadLog}. Each record is framed as its payload length, a CRC32C checksum of the
+ * payload and the payload itself, which holds the operation, a timestamp and the operation's arguments.
+ *
+ * <p>The mutations that can open loans, directly or by handing copies to the members waiting for
+ * them, also hold the loan period in effect. Replaying them dates the loans at the timestamp and
+ * makes them due after that period, so a recovered loan falls due when the original did.</p>
+ */
+public final class LogRecord {
+
+    /**
+     * The kinds of mutations that are logged, each with the byte that identifies it on disk.
+     */
+    public enum Type {
+        ADD_BOOK(1),
+        REMOVE_BOOK(2),
+        ADD_MEMBER(3),
+        REMOVE_MEMBER(4),
+        LEND_BOOK(5),
+        RETURN_BOOK(6),
+        RATE_BOOK(7),
+        UPDATE_BOOK_QUANTITY(8),
+        PLACE_HOLD(9),
+        CANCEL_HOLD(10);
+
+        /** The byte that identifies the operation on disk. */
+        private final byte code;
+
+        Type(int code) {
+            this.code = (byte) code;
+        }
+
+        /**
+         * Returns the operation identified by a byte read from disk.
+         *
+         * @param code The byte.
+         * @return The operation, or {@code null} if the byte is not a known operation.
+         */
+        static Type of(byte code) {
+            for (Type type : values()) {
+                if (type.code == code) {
+                    return type;
+                }
+            }
+            return null;
+        }
+    }
+
+    /** The size of the frame header: the payload length and the checksum. */
+    static final int HEADER_SIZE = Integer.BYTES * 2;
+
+    /** The kind of mutation. */
+    private final Type type;
+
+    /** When the mutation happened, in milliseconds since the epoch. */
+    private final long timestamp;
+
+    /** The first text argument: a title, a member name or a member ID. */
+    private final String first;
+
+    /** The second text argument: an author or a member ID, if the operation has one. */
+    private final String second;
+
+    /** The publication year argument, if the operation has one. */
+    private final int year;
+
+    /** The quantity argument, if the operation has one. */
+    private final int quantity;
+
+    /** The rating argument, if the operation has one. */
+    private final double rating;
+
+    /** The loan period in effect, in milliseconds, if the operation can open loans. */
+    private final long loanPeriod;
+
+    /**
+     * Constructs a new {@code LogRecord}.
+     */
+    private LogRecord(Type type, long timestamp, String first, String second, int year, int quantity, double rating) {
+        this(type, timestamp, first, second, year, quantity, rating, 0);
+    }
+
+    /**
+     * Constructs a new {@code LogRecord} of an operation that can open loans.
+     */
+    private LogRecord(Type type, long timestamp, String first, String second, int year, int quantity, double rating, long loanPeriod) {
+        this.type = type;
+        this.timestamp = timestamp;
+        this.first = first;
+        this.second = second;
+        this.year = year;
+        this.quantity = quantity;
+        this.rating = rating;
+        this.loanPeriod = loanPeriod;
+    }
+
+    /**
+     * Creates a record of a book being added.
+     *
+     * @param title    The title of the book.
+     * @param author   The author of the book.
+     * @param year     The publication year of the book.
+     * @param quantity The quantity of the book.
+     * @return The record.
+     */
+    public static LogRecord addBook(String title, String author, int year, int quantity) {
+        return new LogRecord(Type.ADD_BOOK, System.currentTimeMillis(), title, author, year, quantity, 0);
+    }
+
+    /**
+     * Creates a record of a book being removed.
+     *
+     * @param title The title of the book.
+     * @return The record.
+     */
+    public static LogRecord removeBook(String title) {
+        return new LogRecord(Type.REMOVE_BOOK, System.currentTimeMillis(), title, null, 0, 0, 0);
+    }
+
+    /**
+     * Creates a record of a member being added.
+     *
+     * @param name The name of the member.
+     * @param id   The ID of the member.
+     * @return The record.
+     */
+    public static LogRecord addMember(String name, String id) {
+        return new LogRecord(Type.ADD_MEMBER, System.currentTimeMillis(), name, id, 0, 0, 0);
+    }
+
+    /**
+     * Creates a record of a member being removed.
+     *
+     * @param id The ID of the member.
+     * @return The record.
+     */
+    public static LogRecord removeMember(String id) {
+        return new LogRecord(Type.REMOVE_MEMBER, System.currentTimeMillis(), id, null, 0, 0, 0);
+    }
+
+    /**
+     * Creates a record of a book being lent.
+     *
+     * @param title      The title of the book.
+     * @param memberId   The ID of the member borrowing it.
+     * @param time       When the book was lent, in milliseconds since the epoch.
+     * @param loanPeriod The loan period in effect.
+     * @return The record.
+     */
+    public static LogRecord lendBook(String title, String memberId, long time, Duration loanPeriod) {
+        return new LogRecord(Type.LEND_BOOK, time, title, memberId, 0, 0, 0, loanPeriod.toMillis());
+    }
+
+    /**
+     * Creates a record of a book being returned, which may hand the copy to the next member waiting.
+     *
+     * @param title      The title of the book.
+     * @param memberId   The ID of the member returning it.
+     * @param time       When the book was returned, in milliseconds since the epoch.
+     * @param loanPeriod The loan period in effect.
+     * @return The record.
+     */
+    public static LogRecord returnBook(String title, String memberId, long time, Duration loanPeriod) {
+        return new LogRecord(Type.RETURN_BOOK, time, title, memberId, 0, 0, 0, loanPeriod.toMillis());
+    }
+
+    /**
+     * Creates a record of a member joining the hold queue of a book, or borrowing it straight away.
+     *
+     * @param title      The title of the book.
+     * @param memberId   The ID of the member.
+     * @param time       When the hold was placed, in milliseconds since the epoch.
+     * @param loanPeriod The loan period in effect.
+     * @return The record.
+     */
+    public static LogRecord placeHold(String title, String memberId, long time, Duration loanPeriod) {
+        return new LogRecord(Type.PLACE_HOLD, time, title, memberId, 0, 0, 0, loanPeriod.toMillis());
+    }
+
+    /**
+     * Creates a record of a member leaving the hold queue of a book.
+     *
+     * @param title    The title of the book.
+     * @param memberId The ID of the member.
+     * @return The record.
+     */
+    public static LogRecord cancelHold(String title, String memberId) {
+        return new LogRecord(Type.CANCEL_HOLD, System.currentTimeMillis(), title, memberId, 0, 0, 0);
+    }
+
+    /**
+     * Creates a record of a book being rated.
+     *
+     * @param title  The title of the book.
+     * @param rating The rating.
+     * @return The record.
+     */
+    public static LogRecord rateBook(String title, double rating) {
+        return new LogRecord(Type.RATE_BOOK, System.currentTimeMillis(), title, null, 0, 0, rating);
+    }
+
+    /**
+     * Creates a record of a book's quantity being updated, which may lend added copies to the members
+     * waiting for them.
+     *
+     * @param title      The title of the book.
+     * @param quantity   The new quantity.
+     * @param time       When the quantity was updated, in milliseconds since the epoch.
+     * @param loanPeriod The loan period in effect.
+     * @return The record.
+     */
+    public static LogRecord updateBookQuantity(String title, int quantity, long time, Duration loanPeriod) {
+        return new LogRecord(Type.UPDATE_BOOK_QUANTITY, time, title, null, 0, quantity, 0, loanPeriod.toMillis());
+    }
+
+    /**
+     * Returns the kind of mutation.
+     *
+     * @return The type of the record.
+     */
+    public Type getType() {
+        return type;
+    }
+
+    /**
+     * Returns when the mutation happened.
+     *
+     * @return The timestamp in milliseconds since the epoch.
+     */
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    /**
+     * Returns the loan period that was in effect, for the operations that can open loans.
+     *
+     * @return The loan period, or zero if the operation cannot open loans.
+     */
+    public Duration getLoanPeriod() {
+        return Duration.ofMillis(loanPeriod);
+    }
+
+    /**
+     * Applies the mutation to the library through a librarian. Loans it opens or closes are dated at
+     * the record's timestamp, not at the time of the replay.
+     *
+     * @param librarian The librarian of the library being rebuilt.
+     * @throws BookStateException If the mutation no longer applies.
+     */
+    public void applyTo(Librarian librarian) throws BookStateException {
+        Duration period = getLoanPeriod();
+        switch (type) {
+            case ADD_BOOK -> librarian.addBook(first, second, year, quantity);
+            case REMOVE_BOOK -> librarian.removeBook(first);
+            case ADD_MEMBER -> librarian.addMember(first, second);
+            case REMOVE_MEMBER -> librarian.removeMember(first);
+            case LEND_BOOK -> librarian.lendBook(first, second, timestamp, period);
+            case RETURN_BOOK -> librarian.returnBook(first, second, timestamp, period);
+            case RATE_BOOK -> librarian.rateBook(first, rating);
+            case UPDATE_BOOK_QUANTITY -> librarian.updateBookQuantity(first, quantity, timestamp, period);
+            case PLACE_HOLD -> librarian.placeHold(first, second, timestamp, period);
+            case CANCEL_HOLD -> librarian.cancelHold(first, second);
+        }
+    }
+
+    /**
+     * Returns the number of bytes the framed record takes.
+     *
+     * @return The frame size in bytes.
+     */
+    public int frameSize() {
+        return HEADER_SIZE + payloadSize();
+    }
+
+    /**
+     * Writes the framed record: its payload length, the checksum of the payload and the payload.
+     *
+     * @param buffer The buffer to write to, with at least {@link #frameSize()} bytes remaining.
+     */
+    public void writeTo(ByteBuffer buffer) {
+        int start = buffer.position();
+        buffer.position(start + HEADER_SIZE); // Leaves room for the header
+        buffer.put(type.code);
+        buffer.putLong(timestamp);
+        switch (type) {
+            case ADD_BOOK -> {
+                Strings.put(buffer, first);
+                Strings.put(buffer, second);
+                buffer.putInt(year);
+                buffer.putInt(quantity);
+            }
+            case ADD_MEMBER, CANCEL_HOLD -> {
+                Strings.put(buffer, first);
+                Strings.put(buffer, second);
+            }
+            case LEND_BOOK, RETURN_BOOK, PLACE_HOLD -> {
+                Strings.put(buffer, first);
+                Strings.put(buffer, second);
+                buffer.putLong(loanPeriod);
+            }
+            case REMOVE_BOOK, REMOVE_MEMBER -> Strings.put(buffer, first);
+            case RATE_BOOK -> {
+                Strings.put(buffer, first);
+                buffer.putDouble(rating);
+            }
+            case UPDATE_BOOK_QUANTITY -> {
+                Strings.put(buffer, first);
+                buffer.putInt(quantity);
+                buffer.putLong(loanPeriod);
+            }
+        }
+        int end = buffer.position();
+        CRC32C checksum = new CRC32C();
+        checksum.update(buffer.duplicate().position(start + HEADER_SIZE).limit(end));
+        buffer.putInt(start, end - start - HEADER_SIZE);
+        buffer.putInt(start + Integer.BYTES, (int) checksum.getValue());
+    }
+
+    /**
+     * Reads the next framed record from a buffer.
+     *
+     * @param buffer The buffer to read from.
+     * @return The record, or {@code null} if the buffer does not hold a whole record yet.
+     * @throws IllegalStateException If the record is corrupt.
+     */
+    static LogRecord readFrom(ByteBuffer buffer) {
+        if (buffer.remaining() < HEADER_SIZE) {
+            return null; // The header is incomplete
+        }
+        int start = buffer.position();
+        int length = buffer.getInt(start);
+        int expected = buffer.getInt(start + Integer.BYTES);
+        if (length <= 0) {
+            throw new IllegalStateException("Invalid record length: " + length);
+        }
+        if (buffer.remaining() < HEADER_SIZE + length) {
+            return null; // The payload is incomplete
+        }
+        ByteBuffer payload = buffer.duplicate().position(start + HEADER_SIZE).limit(start + HEADER_SIZE + length);
+        CRC32C checksum = new CRC32C();
+        checksum.update(payload.duplicate());
+        if ((int) checksum.getValue() != expected) {
+            throw new IllegalStateException("Checksum mismatch at offset " + start);
+        }
+        Type type = Type.of(payload.get());
+        if (type == null) {
+            throw new IllegalStateException("Unknown operation at offset " + start);
+        }
+        long timestamp = payload.getLong();
+        LogRecord record = switch (type) {
+            case ADD_BOOK -> new LogRecord(type, timestamp, Strings.get(payload), Strings.get(payload), payload.getInt(), payload.getInt(), 0);
+            case ADD_MEMBER, CANCEL_HOLD -> new LogRecord(type, timestamp, Strings.get(payload), Strings.get(payload), 0, 0, 0);
+            case LEND_BOOK, RETURN_BOOK, PLACE_HOLD -> new LogRecord(type, timestamp, Strings.get(payload), Strings.get(payload), 0, 0, 0, payload.getLong());
+            case REMOVE_BOOK, REMOVE_MEMBER -> new LogRecord(type, timestamp, Strings.get(payload), null, 0, 0, 0);
+            case RATE_BOOK -> new LogRecord(type, timestamp, Strings.get(payload), null, 0, 0, payload.getDouble());
+            case UPDATE_BOOK_QUANTITY -> new LogRecord(type, timestamp, Strings.get(payload), null, 0, payload.getInt(), 0, payload.getLong());
+        };
+        buffer.position(start + HEADER_SIZE + length); // Moves past the record
+        return record;
+    }
+
+    /**
+     * Returns the size of the payload in bytes.
+     *
+     * @return The payload size.
+     */
+    private int payloadSize() {
+        int size = 1 + Long.BYTES; // The operation and the timestamp
+        switch (type) {
+            case ADD_BOOK -> size += Strings.size(first) + Strings.size(second) + Integer.BYTES * 2;
+            case ADD_MEMBER, CANCEL_HOLD -> size += Strings.size(first) + Strings.size(second);
+            case LEND_BOOK, RETURN_BOOK, PLACE_HOLD -> size += Strings.size(first) + Strings.size(second) + Long.BYTES;
+            case REMOVE_BOOK, REMOVE_MEMBER -> size += Strings.size(first);
+            case RATE_BOOK -> size += Strings.size(first) + Double.BYTES;
+            case UPDATE_BOOK_QUANTITY -> size += Strings.size(first) + Integer.BYTES + Long.BYTES;
+        }
+        return size;
+    }
+}
@@ -0,0 +1,176 @@
+package persistence;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * The {@code RecordReader} class reads the records of an import file through a {@link FileChannel}
+ * into a reusable buffer and parses them straight from its bytes, so reading a record allocates
+ * nothing but the strings of its fields. Each record is read into an array with one slot for each of
+ * the columns the reader was opened with; subclasses parse a particular format.
+ *
+ * <p>A record that runs past the end of the buffer is parsed again once more of the file has been
+ * read behind it, so the buffer grows only if a single record is longer than the buffer.</p>
+ */
+abstract class RecordReader implements Closeable {
+
+    /** The initial size of the buffer. */
+    private static final int BUFFER_SIZE = 256 * 1024;
+
+    /** Returned by {@link #parse(String[])} when the record does not end within the buffer. */
+    static final int INCOMPLETE = -1;
+
+    /** The file being read. */
+    private final Path path;
+
+    /** The channel the file is read through. */
+    private final FileChannel channel;
+
+    /** The names of the columns read into each record. */
+    final String[] columns;
+
+    /** The bytes read from the file; those from {@link #position} to {@link #limit} are not parsed yet. */
+    byte[] data;
+
+    /** The position of the next record in {@link #data}. */
+    int position;
+
+    /** The end of the bytes read into {@link #data}. */
+    int limit;
+
+    /** Whether the whole file has been read into the buffer. */
+    boolean endOfInput;
+
+    /** The number of the record being read, counting from 1. */
+    private long record;
+
+    /**
+     * Opens a file for reading.
+     *
+     * @param path    The file.
+     * @param columns The names of the columns read into each record.
+     * @throws IOException If the file cannot be opened.
+     */
+    RecordReader(Path path, String[] columns) throws IOException {
+        this.path = path;
+        this.channel = FileChannel.open(path, StandardOpenOption.READ);
+        this.columns = columns;
+        this.data = new byte[BUFFER_SIZE];
+    }
+
+    /**
+     * Reads the next record. Blank lines are skipped.
+     *
+     * @param fields The array to read the record into, with one slot for each column; columns
+     *               the record has no value for are set to {@code null}.
+     * @return {@code true} if a record was read, {@code false} at the end of the file.
+     * @throws IOException If the file cannot be read or the record is malformed.
+     */
+    final boolean next(String[] fields) throws IOException {
+        while (true) {
+            while (position < limit && (data[position] == '\n' || data[position] == '\r')) {
+                position++;
+            }
+            if (position == limit) {
+                if (fill()) {
+                    continue;
+                }
+                return false;
+            }
+            record++;
+            Arrays.fill(fields, null);
+            int end = parse(fields);
+            if (end != INCOMPLETE) {
+                position = end;
+                return true;
+            }
+            record--;
+            fill(); // At the end of the file the next attempt parses the record up to the end
+        }
+    }
+
+    /**
+     * Parses the record at {@link #position}. The record ends at a line break or, once
+     * {@link #endOfInput} is set, at {@link #limit}.
+     *
+     * @param fields The array to read the record into, cleared beforehand.
+     * @return The position after the record, or {@link #INCOMPLETE} if more of the file is needed;
+     *         never {@link #INCOMPLETE} once the whole file has been read.
+     * @throws IOException If the record is malformed.
+     */
+    abstract int parse(String[] fields) throws IOException;
+
+    /**
+     * Moves the unparsed bytes to the start of the buffer and reads more of the file behind them,
+     * growing the buffer if it is full.
+     *
+     * @return {@code true} if more bytes were read, {@code false} at the end of the file.
+     * @throws IOException If the file cannot be read.
+     */
+    final boolean fill() throws IOException {
+        if (endOfInput) {
+            return false;
+        }
+        if (position > 0) {
+            System.arraycopy(data, position, data, 0, limit - position);
+            limit -= position;
+            position = 0;
+        }
+        if (limit == data.length) {
+            data = Arrays.copyOf(data, data.length * 2); // A single record fills the buffer
+        }
+        int read = channel.read(ByteBuffer.wrap(data, limit, data.length - limit));
+        if (read < 0) {
+            endOfInput = true;
+            return false;
+        }
+        limit += read;
+        return true;
+    }
+
+    /**
+     * Decodes a field from the buffer.
+     *
+     * @param start The position of the first byte of the field.
+     * @param end   The position after the last byte of the field.
+     * @return The field.
+     */
+    final String decode(int start, int end) {
+        return new String(data, start, end - start, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Returns the number of the record read last, counting from 1.
+     *
+     * @return The record number.
+     */
+    final long getRecord() {
+        return record;
+    }
+
+    /**
+     * Creates an exception for a malformed record, naming the record and the file.
+     *
+     * @param message What is wrong with the record.
+     * @return The exception.
+     */
+    final IOException error(String message) {
+        return new IOException(message + " in record " + record + " of " + path);
+    }
+
+    /**
+     * Closes the file.
+     *
+     * @throws IOException If the file cannot be closed.
+     */
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
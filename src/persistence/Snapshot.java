@@ -0,0 +1,588 @@
+package persistence;
+
+import model.Book;
+import model.HoldQueue;
+import model.Library;
+import model.Loan;
+import model.LoanArchive;
+import model.Member;
+import model.RatingStats;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32C;
+
+/**
+ * The {@code Snapshot} class is a point-in-time image of a {@link Library}: its books with their
+ * inventory and rating statistics, its members, the active loans, the loan counts and the completed
+ * loans kept in its {@link LoanArchive}.
+ *
+ * <p>A snapshot is taken in two steps. {@link #capture(Library, long)} copies the state into flat
+ * arrays and must run while the library is kept from changing; strings and books, members and loans
+ * are shared rather than copied. {@link #writeTo(Path)} then encodes the arrays into a file and can
+ * run while the library changes again. {@link #load(Path, Library)} maps the file into memory and
+ * rebuilds the library from it in one pass.</p>
+ *
+ * <p>The file starts with a magic number, the format version and the journal generation the snapshot
+ * was taken at, followed by the loan counts, the books, the members, the loans and the holds, which refer
+ * to books and members by their position in the file, and the archived loans. It ends with a CRC32C
+ * checksum of everything before it.</p>
+ */
+public final class Snapshot {
+
+    /** The first four bytes of every snapshot file, "LIBS". */
+    private static final int MAGIC = 0x4C494253;
+
+    /** The version of the file format. */
+    public static final int VERSION = 1;
+
+    /** The flag marking a book that has ratings. */
+    private static final byte RATED = 1;
+
+    /** The size of the rating statistics of a book in the file. */
+    private static final int RATINGS_SIZE = Long.BYTES + Double.BYTES * 4 + Long.BYTES * RatingStats.BUCKETS;
+
+    /** The size of the buffer the file is written through. */
+    private static final int BUFFER_SIZE = 1024 * 1024;
+
+    /** The journal generation the snapshot was taken at. */
+    private final long generation;
+
+    /** The books of the catalog, in catalog order. */
+    private final Book[] books;
+
+    /** The total quantity of each book. */
+    private final int[] quantities;
+
+    /** The borrowed quantity of each book. */
+    private final int[] borrowed;
+
+    /** A copy of the rating statistics of each book, or {@code null} if it is not rated. */
+    private final RatingStats[] ratings;
+
+    /** The members of the library. */
+    private final Member[] members;
+
+    /** The number of active loans of each member. */
+    private final int[] loanCounts;
+
+    /** The active loans, grouped by member in member order. */
+    private final Loan[] loans;
+
+    /** The count of books loaned out. */
+    private final long loanedBooks;
+
+    /** The total count of loans made. */
+    private final long totalLoans;
+
+    /** The books members are waiting for, with their queues in the same order in {@link #holders}. */
+    private final Book[] heldBooks;
+
+    /** The members waiting for each book of {@link #heldBooks}, first in line first. */
+    private final Member[][] holders;
+
+    /** The loan archive of the library, or {@code null} if it keeps none. */
+    private final LoanArchive archive;
+
+    /** The number of loans in the archive when the snapshot was captured. */
+    private final int archived;
+
+    /**
+     * Constructs a new {@code Snapshot} from captured arrays.
+     */
+    private Snapshot(long generation, Book[] books, int[] quantities, int[] borrowed, RatingStats[] ratings,
+                     Member[] members, int[] loanCounts, Loan[] loans, long loanedBooks, long totalLoans,
+                     Book[] heldBooks, Member[][] holders, LoanArchive archive, int archived) {
+        this.generation = generation;
+        this.books = books;
+        this.quantities = quantities;
+        this.borrowed = borrowed;
+        this.ratings = ratings;
+        this.members = members;
+        this.loanCounts = loanCounts;
+        this.loans = loans;
+        this.loanedBooks = loanedBooks;
+        this.totalLoans = totalLoans;
+        this.heldBooks = heldBooks;
+        this.holders = holders;
+        this.archive = archive;
+        this.archived = archived;
+    }
+
+    /**
+     * Captures the state of a library. The caller must keep the library from changing while this
+     * runs, for example by holding every stripe of its {@link Library#getLendingLocks() lending locks}.
+     *
+     * @param library    The library.
+     * @param generation The journal generation that follows the snapshot.
+     * @return The captured snapshot, ready to be written.
+     */
+    public static Snapshot capture(Library library, long generation) {
+        Object[] catalog = library.getBooks().toArray();
+        Book[] books = Arrays.copyOf(catalog, catalog.length, Book[].class);
+        int[] quantities = new int[books.length];
+        int[] borrowed = new int[books.length];
+        RatingStats[] ratings = new RatingStats[books.length];
+        for (int i = 0; i < books.length; i++) {
+            quantities[i] = books[i].getQuantity();
+            borrowed[i] = books[i].getBorrowedQuantity();
+            RatingStats stats = books[i].getRatings();
+            ratings[i] = stats == null ? null : stats.copy(); // Only rated books pay for a copy
+        }
+
+        Object[] roster = library.getMembers().toArray();
+        Member[] members = Arrays.copyOf(roster, roster.length, Member[].class);
+        int[] loanCounts = new int[members.length];
+        int total = 0;
+        for (int m = 0; m < members.length; m++) {
+            loanCounts[m] = members[m].getLoans().size();
+            total += loanCounts[m];
+        }
+        Loan[] loans = new Loan[total]; // Only the fields a loan is created with are written, and those never change
+        int next = 0;
+        for (Member member : members) {
+            for (Loan loan : member.getLoans()) {
+                loans[next++] = loan;
+            }
+        }
+        Map<Book, HoldQueue> queues = library.getHoldQueues();
+        Book[] heldBooks = new Book[queues.size()];
+        Member[][] holders = new Member[queues.size()][];
+        int held = 0;
+        for (Map.Entry<Book, HoldQueue> queue : queues.entrySet()) {
+            heldBooks[held] = queue.getKey();
+            holders[held++] = queue.getValue().getMembers().toArray(new Member[0]);
+        }
+        LoanArchive archive = library.getLoanArchive();
+        int archived = archive == null ? 0 : archive.size(); // Archived records never change, so they are read when written
+        return new Snapshot(generation, books, quantities, borrowed, ratings, members, loanCounts, loans,
+                library.getLoanedBooksCount(), library.getTotalLoansCount(), heldBooks, holders, archive, archived);
+    }
+
+    /**
+     * Returns the journal generation the snapshot was taken at.
+     *
+     * @return The generation.
+     */
+    public long getGeneration() {
+        return generation;
+    }
+
+    /**
+     * Writes the snapshot to a file. Loans are matched to the positions of their books here rather
+     * than during the capture, keeping the capture short. The file is written under a temporary name,
+     * forced to disk and then renamed, so a crash never leaves a partial snapshot under the final name.
+     *
+     * @param path The path of the snapshot file.
+     * @throws IOException If the file cannot be written.
+     */
+    public void writeTo(Path path) throws IOException {
+        Path temporary = path.resolveSibling(path.getFileName() + ".tmp");
+        try (Writer writer = new Writer(FileChannel.open(temporary, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE))) {
+            writer.reserve(Integer.BYTES * 2 + Long.BYTES * 3 + Integer.BYTES);
+            writer.buffer.putInt(MAGIC);
+            writer.buffer.putInt(VERSION);
+            writer.buffer.putLong(generation);
+            writer.buffer.putLong(loanedBooks);
+            writer.buffer.putLong(totalLoans);
+            writer.buffer.putInt(books.length);
+            for (int i = 0; i < books.length; i++) {
+                Book base = books[i].getBaseBook();
+                writer.putString(base.getTitle());
+                writer.putString(base.getAuthor());
+                writer.reserve(Integer.BYTES * 3 + 1 + RATINGS_SIZE);
+                writer.buffer.putInt(base.getYear());
+                writer.buffer.putInt(quantities[i]);
+                writer.buffer.putInt(borrowed[i]);
+                RatingStats stats = ratings[i];
+                if (stats == null) {
+                    writer.buffer.put((byte) 0);
+                } else {
+                    writer.buffer.put(RATED);
+                    writer.buffer.putLong(stats.getCount());
+                    writer.buffer.putDouble(stats.getSum());
+                    writer.buffer.putDouble(stats.getSumOfSquares());
+                    writer.buffer.putDouble(stats.getMin());
+                    writer.buffer.putDouble(stats.getMax());
+                    for (long bucket : stats.getHistogram()) {
+                        writer.buffer.putLong(bucket);
+                    }
+                }
+            }
+            writer.reserve(Integer.BYTES);
+            writer.buffer.putInt(members.length);
+            for (Member member : members) {
+                writer.putString(member.getName());
+                writer.putString(member.getId());
+            }
+            Map<Book, Integer> positions = new HashMap<>(books.length * 2); // By equality, which matches views of the same book
+            for (int i = 0; i < books.length; i++) {
+                positions.putIfAbsent(books[i].getBaseBook(), i);
+            }
+            int loanCount = 0;
+            for (Loan loan : loans) {
+                if (positions.containsKey(loan.getBook().getBaseBook())) {
+                    loanCount++;
+                }
+            }
+            writer.reserve(Integer.BYTES);
+            writer.buffer.putInt(loanCount);
+            int next = 0;
+            for (int m = 0; m < members.length; m++) {
+                for (int end = next + loanCounts[m]; next < end; next++) {
+                    Integer position = positions.get(loans[next].getBook().getBaseBook());
+                    if (position == null) {
+                        continue; // The book is no longer in the catalog
+                    }
+                    writer.reserve(Integer.BYTES * 2 + Long.BYTES * 3);
+                    writer.buffer.putInt(position);
+                    writer.buffer.putInt(m);
+                    writer.buffer.putLong(loans[next].getId());
+                    writer.buffer.putLong(loans[next].getLoanTime());
+                    writer.buffer.putLong(loans[next].getDeadline());
+                }
+            }
+            Map<Member, Integer> memberPositions = new IdentityHashMap<>(members.length * 2);
+            for (int m = 0; m < members.length; m++) {
+                memberPositions.put(members[m], m);
+            }
+            int holdCount = 0;
+            for (int h = 0; h < heldBooks.length; h++) {
+                if (positions.containsKey(heldBooks[h])) {
+                    for (Member holder : holders[h]) {
+                        if (memberPositions.containsKey(holder)) {
+                            holdCount++;
+                        }
+                    }
+                }
+            }
+            writer.reserve(Integer.BYTES);
+            writer.buffer.putInt(holdCount);
+            for (int h = 0; h < heldBooks.length; h++) {
+                Integer position = positions.get(heldBooks[h]);
+                if (position == null) {
+                    continue;
+                }
+                for (Member holder : holders[h]) { // In queue order, so loading them in turn rebuilds the queue
+                    Integer member = memberPositions.get(holder);
+                    if (member != null) {
+                        writer.reserve(Integer.BYTES * 2);
+                        writer.buffer.putInt(position);
+                        writer.buffer.putInt(member);
+                    }
+                }
+            }
+            writeArchive(writer, positions, memberPositions);
+            writer.finish();
+        }
+        Files.move(temporary, path, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    /**
+     * Loads a snapshot into an empty library by mapping the file into memory.
+     *
+     * @param path    The path of the snapshot file.
+     * @param library The library to load into.
+     * @return The journal generation the snapshot was taken at.
+     * @throws IOException If the file cannot be read, is corrupt or has an unsupported version.
+     */
+    public static long load(Path path, Library library) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException("Snapshot too large to map: " + path);
+            }
+            if (size < Integer.BYTES * 2) {
+                throw new IOException("Truncated snapshot: " + path);
+            }
+            MappedByteBuffer map = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            int end = (int) size - Integer.BYTES;
+            CRC32C checksum = new CRC32C();
+            checksum.update(map.duplicate().limit(end));
+            if ((int) checksum.getValue() != map.getInt(end)) {
+                throw new IOException("Corrupt snapshot: " + path);
+            }
+            if (map.getInt() != MAGIC) {
+                throw new IOException("Not a snapshot: " + path);
+            }
+            int version = map.getInt();
+            if (version != VERSION) {
+                throw new IOException("Unsupported snapshot version " + version + ": " + path);
+            }
+            long generation = map.getLong();
+            long loanedBooks = map.getLong();
+            long totalLoans = map.getLong();
+
+            Book[] books = new Book[map.getInt()];
+            for (int i = 0; i < books.length; i++) {
+                String title = Strings.get(map);
+                String author = Strings.get(map);
+                int year = map.getInt();
+                int quantity = map.getInt();
+                Book book = library.adopt(new Book(title, author, year, quantity)); // Loans must point at the book the catalog holds
+                book.restoreInventory(quantity, map.getInt());
+                if (map.get() == RATED) {
+                    book.restoreRatings(readRatings(map));
+                }
+                books[i] = book;
+            }
+
+            Member[] members = new Member[map.getInt()];
+            for (int i = 0; i < members.length; i++) {
+                String name = Strings.get(map);
+                members[i] = new Member(name, Strings.get(map));
+            }
+
+            int loanCount = map.getInt();
+            for (int i = 0; i < loanCount; i++) {
+                Book book = books[map.getInt()];
+                Member member = members[map.getInt()];
+                long id = map.getLong();
+                long loanTime = map.getLong();
+                Loan loan = new Loan(id, book, member, loanTime, map.getLong(), Loan.NOT_RETURNED); // Keeps its ID across restarts
+                book.addLoan(loan);
+                member.addLoan(loan);
+                library.trackLoan(loan); // Loans that fell due while the library was closed are reported at the first poll
+            }
+
+            int holdCount = map.getInt();
+            for (int i = 0; i < holdCount; i++) {
+                Book book = books[map.getInt()];
+                library.addHold(book, members[map.getInt()]);
+            }
+
+            readArchive(map, books, members, library.getLoanArchive());
+
+            library.addBooks(Arrays.asList(books));
+            library.addMembers(Arrays.asList(members));
+            library.restoreLoanCounts(loanedBooks, totalLoans);
+            return generation;
+        }
+    }
+
+    /**
+     * Writes the loans that were in the archive when the snapshot was captured. The books and members
+     * of archived loans are listed first, by their position in the file; one that has left the library
+     * is written out in full, so its history is kept.
+     *
+     * @param writer          The writer of the file.
+     * @param positions       The position of each book in the file.
+     * @param memberPositions The position of each member in the file.
+     * @throws IOException If the file cannot be written.
+     */
+    private void writeArchive(Writer writer, Map<Book, Integer> positions, Map<Member, Integer> memberPositions)
+            throws IOException {
+        List<Book> archivedBooks = new ArrayList<>();
+        Map<Book, Integer> bookHandles = new IdentityHashMap<>();
+        List<Member> archivedMembers = new ArrayList<>();
+        Map<Member, Integer> memberHandles = new IdentityHashMap<>();
+        for (int i = 0; i < archived; i++) {
+            Loan loan = archive.get(i);
+            if (bookHandles.putIfAbsent(loan.getBook(), archivedBooks.size()) == null) {
+                archivedBooks.add(loan.getBook());
+            }
+            if (memberHandles.putIfAbsent(loan.getMember(), archivedMembers.size()) == null) {
+                archivedMembers.add(loan.getMember());
+            }
+        }
+        writer.reserve(Integer.BYTES);
+        writer.buffer.putInt(archivedBooks.size());
+        for (Book book : archivedBooks) {
+            Integer position = positions.get(book);
+            writer.reserve(Integer.BYTES);
+            writer.buffer.putInt(position == null ? -1 : position);
+            if (position == null) {
+                writer.putString(book.getTitle());
+                writer.putString(book.getAuthor());
+                writer.reserve(Integer.BYTES);
+                writer.buffer.putInt(book.getYear());
+            }
+        }
+        writer.reserve(Integer.BYTES);
+        writer.buffer.putInt(archivedMembers.size());
+        for (Member member : archivedMembers) {
+            Integer position = memberPositions.get(member);
+            writer.reserve(Integer.BYTES);
+            writer.buffer.putInt(position == null ? -1 : position);
+            if (position == null) {
+                writer.putString(member.getName());
+                writer.putString(member.getId());
+            }
+        }
+        writer.reserve(Integer.BYTES);
+        writer.buffer.putInt(archived);
+        for (int i = 0; i < archived; i++) {
+            Loan loan = archive.get(i);
+            writer.reserve(Long.BYTES * 4 + Integer.BYTES * 2);
+            writer.buffer.putLong(loan.getId());
+            writer.buffer.putLong(loan.getLoanTime());
+            writer.buffer.putLong(loan.getDeadline());
+            writer.buffer.putLong(loan.getReturnTime());
+            writer.buffer.putInt(bookHandles.get(loan.getBook()));
+            writer.buffer.putInt(memberHandles.get(loan.getMember()));
+        }
+    }
+
+    /**
+     * Reads the archived loans into the archive of the library being loaded.
+     *
+     * @param map     The mapped file, positioned at the archived loans.
+     * @param books   The books read from the file.
+     * @param members The members read from the file.
+     * @param archive The loan archive of the library, or {@code null} if it keeps none.
+     */
+    private static void readArchive(ByteBuffer map, Book[] books, Member[] members, LoanArchive archive) {
+        Book[] archivedBooks = new Book[map.getInt()];
+        for (int i = 0; i < archivedBooks.length; i++) {
+            int position = map.getInt();
+            if (position >= 0) {
+                archivedBooks[i] = books[position];
+            } else {
+                String title = Strings.get(map);
+                String author = Strings.get(map);
+                archivedBooks[i] = new Book(title, author, map.getInt(), 0); // Removed from the catalog, but part of the history
+            }
+        }
+        Member[] archivedMembers = new Member[map.getInt()];
+        for (int i = 0; i < archivedMembers.length; i++) {
+            int position = map.getInt();
+            if (position >= 0) {
+                archivedMembers[i] = members[position];
+            } else {
+                String name = Strings.get(map);
+                archivedMembers[i] = new Member(name, Strings.get(map));
+            }
+        }
+        int archived = map.getInt();
+        if (archive == null) {
+            return; // The library keeps no completed loans
+        }
+        for (int i = 0; i < archived; i++) {
+            long id = map.getLong();
+            long loanTime = map.getLong();
+            long dueTime = map.getLong();
+            long returnTime = map.getLong();
+            Book book = archivedBooks[map.getInt()];
+            archive.append(new Loan(id, book, archivedMembers[map.getInt()], loanTime, dueTime, returnTime));
+        }
+    }
+
+    /**
+     * Reads the rating statistics of a book.
+     *
+     * @param map The mapped file, positioned at the statistics.
+     * @return The rating statistics.
+     */
+    private static RatingStats readRatings(ByteBuffer map) {
+        RatingStats stats = new RatingStats();
+        long count = map.getLong();
+        double sum = map.getDouble();
+        double sumOfSquares = map.getDouble();
+        double min = map.getDouble();
+        double max = map.getDouble();
+        long[] histogram = new long[RatingStats.BUCKETS];
+        for (int bucket = 0; bucket < histogram.length; bucket++) {
+            histogram[bucket] = map.getLong();
+        }
+        stats.restore(count, sum, sumOfSquares, min, max, histogram);
+        return stats;
+    }
+
+    /**
+     * Writes a snapshot file through a buffer, keeping a running checksum of what was written.
+     */
+    private static final class Writer implements AutoCloseable {
+
+        /** The file being written. */
+        private final FileChannel channel;
+
+        /** The checksum of the bytes written so far. */
+        private final CRC32C checksum = new CRC32C();
+
+        /** The buffer the next bytes are put into. */
+        private ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+
+        /**
+         * Constructs a new {@code Writer} for a file.
+         *
+         * @param channel The file.
+         */
+        private Writer(FileChannel channel) {
+            this.channel = channel;
+        }
+
+        /**
+         * Makes room in the buffer for the given number of bytes, writing out what it holds if needed.
+         *
+         * @param bytes The number of bytes about to be put.
+         * @throws IOException If the file cannot be written.
+         */
+        private void reserve(int bytes) throws IOException {
+            if (buffer.remaining() >= bytes) {
+                return;
+            }
+            drain();
+            if (buffer.capacity() < bytes) {
+                buffer = ByteBuffer.allocate(bytes); // A single value larger than the buffer
+            }
+        }
+
+        /**
+         * Puts a string into the buffer.
+         *
+         * @param value The string.
+         * @throws IOException If the file cannot be written.
+         */
+        private void putString(String value) throws IOException {
+            reserve(Strings.size(value));
+            Strings.put(buffer, value);
+        }
+
+        /**
+         * Writes out the buffer, then the checksum, and forces the file to disk.
+         *
+         * @throws IOException If the file cannot be written.
+         */
+        private void finish() throws IOException {
+            drain();
+            buffer.putInt((int) checksum.getValue());
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            channel.force(true);
+        }
+
+        /**
+         * Adds the buffered bytes to the checksum and writes them to the file.
+         *
+         * @throws IOException If the file cannot be written.
+         */
+        private void drain() throws IOException {
+            buffer.flip();
+            checksum.update(buffer.duplicate());
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            buffer.clear();
+        }
+
+        @Override
+        public void close() throws IOException {
+            channel.close();
+        }
+    }
+}
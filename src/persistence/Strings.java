@@ -0,0 +1,64 @@
+package persistence;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * The {@code Strings} class encodes strings in the binary files of this package: the byte length
+ * of the string followed by its UTF-8 bytes, with a length of -1 standing for {@code null}.
+ */
+final class Strings {
+
+    /**
+     * Prevents instantiation of this utility class.
+     */
+    private Strings() {
+    }
+
+    /**
+     * Returns the encoded size of a string.
+     *
+     * @param value The string, possibly {@code null}.
+     * @return The encoded size in bytes.
+     */
+    static int size(String value) {
+        return Integer.BYTES + (value == null ? 0 : value.getBytes(StandardCharsets.UTF_8).length);
+    }
+
+    /**
+     * Writes a string.
+     *
+     * @param buffer The buffer to write to.
+     * @param value  The string, possibly {@code null}.
+     */
+    static void put(ByteBuffer buffer, String value) {
+        if (value == null) {
+            buffer.putInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        buffer.putInt(bytes.length);
+        buffer.put(bytes);
+    }
+
+    /**
+     * Reads a string written by {@link #put(ByteBuffer, String)}.
+     *
+     * @param buffer The buffer to read from.
+     * @return The string, possibly {@code null}.
+     */
+    static String get(ByteBuffer buffer) {
+        int length = buffer.getInt();
+        if (length < 0) {
+            return null;
+        }
+        if (buffer.hasArray()) {
+            String value = new String(buffer.array(), buffer.arrayOffset() + buffer.position(), length, StandardCharsets.UTF_8);
+            buffer.position(buffer.position() + length);
+            return value;
+        }
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
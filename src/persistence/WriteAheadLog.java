@@ -0,0 +1,314 @@
+package persistence;
+
+import DesingP.util.BookStateException;
+import model.Librarian;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * The {@code WriteAheadLog} class is an append-only binary journal of the mutations made to the library.
+ * A mutation is acknowledged only once its {@link LogRecord} is on disk, so the library can be rebuilt
+ * after a restart or a crash by replaying the journal with {@link #replay(Path, Librarian)}.
+ *
+ * <p>Records are written in two steps. {@link #write(LogRecord)} copies the record into an in-memory
+ * buffer and returns its sequence number without blocking, so it can be called while the caller holds
+ * the locks that order the mutation. {@link #awaitDurable(long)} then waits until the record has been
+ * forced to disk. A single flusher thread writes and forces whatever has accumulated since its last
+ * flush, so one {@code fsync} acknowledges every record that arrived while the previous one was running.</p>
+ */
+public class WriteAheadLog implements AutoCloseable {
+
+    /** The initial capacity of the in-memory buffers. */
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    /** The size of the chunks the journal is read in during replay. */
+    private static final int READ_SIZE = 1024 * 1024;
+
+    /** The file the journal is written to; replaced when the journal is rotated. */
+    private FileChannel channel;
+
+    /** The thread that writes and forces the buffered records. */
+    private final Thread flusher;
+
+    /** Guards the buffers, the sequence numbers and the state below. */
+    private final Object monitor = new Object();
+
+    /** The records written since the last flush began. */
+    private ByteBuffer pending;
+
+    /** The records being flushed; swapped with {@link #pending} at the start of each flush. */
+    private ByteBuffer flushing;
+
+    /** The sequence number of the last record written. */
+    private long writtenSequence;
+
+    /** The sequence number of the last record forced to disk. */
+    private long durableSequence;
+
+    /** The error that stopped the flusher, if any. */
+    private IOException failure;
+
+    /** Whether the journal has been closed. */
+    private boolean closed;
+
+    /**
+     * Constructs a new {@code WriteAheadLog} that appends to the given file.
+     *
+     * @param channel The file, positioned at its end.
+     */
+    private WriteAheadLog(FileChannel channel) {
+        this.channel = channel;
+        this.pending = ByteBuffer.allocate(BUFFER_SIZE);
+        this.flushing = ByteBuffer.allocate(BUFFER_SIZE);
+        this.flusher = new Thread(this::flushLoop, "wal-flusher");
+        this.flusher.setDaemon(true);
+        this.flusher.start();
+    }
+
+    /**
+     * Opens a journal for appending, creating the file if it does not exist.
+     *
+     * @param path The path of the journal.
+     * @return The open journal.
+     * @throws IOException If the file cannot be opened.
+     */
+    public static WriteAheadLog open(Path path) throws IOException {
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        channel.position(channel.size());
+        return new WriteAheadLog(channel);
+    }
+
+    /**
+     * Writes a record to the journal and waits until it is on disk.
+     *
+     * @param record The record to write.
+     * @throws UncheckedIOException If the journal could not be written.
+     */
+    public void append(LogRecord record) {
+        awaitDurable(write(record));
+    }
+
+    /**
+     * Buffers a record for the next flush without waiting for it to reach the disk. Records
+     * are written to the file in the order of their sequence numbers.
+     *
+     * @param record The record to write.
+     * @return The sequence number of the record, to be passed to {@link #awaitDurable(long)}.
+     * @throws IllegalStateException If the journal is closed.
+     * @throws UncheckedIOException  If an earlier flush failed.
+     */
+    public long write(LogRecord record) {
+        int size = record.frameSize();
+        synchronized (monitor) {
+            if (closed) {
+                throw new IllegalStateException("The journal is closed");
+            }
+            if (failure != null) {
+                throw new UncheckedIOException("The journal could not be written", failure);
+            }
+            if (pending.remaining() < size) {
+                pending = grow(pending, size);
+            }
+            record.writeTo(pending);
+            monitor.notifyAll(); // Wakes the flusher if it is idle
+            return ++writtenSequence;
+        }
+    }
+
+    /**
+     * Waits until the record with the given sequence number, and every record before it, is on disk.
+     *
+     * @param sequence The sequence number returned by {@link #write(LogRecord)}.
+     * @throws UncheckedIOException If the journal could not be written.
+     */
+    public void awaitDurable(long sequence) {
+        synchronized (monitor) {
+            boolean interrupted = false;
+            while (durableSequence < sequence && failure == null) {
+                try {
+                    monitor.wait();
+                } catch (InterruptedException e) {
+                    interrupted = true; // The record must still be acknowledged, so keep waiting
+                }
+            }
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+            if (durableSequence < sequence) {
+                throw new UncheckedIOException("The journal could not be written", failure);
+            }
+        }
+    }
+
+    /**
+     * Switches the journal to a new file. Every record written before the call is forced to the
+     * old file, which is then closed; records written afterwards go to the new file.
+     *
+     * @param path The path of the new file.
+     * @throws IOException If the new file cannot be opened or the old one cannot be closed.
+     */
+    public void rotate(Path path) throws IOException {
+        FileChannel next = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        next.position(next.size());
+        FileChannel previous;
+        synchronized (monitor) {
+            try {
+                while (durableSequence < writtenSequence) {
+                    awaitDurable(writtenSequence); // Drains the old file; once nothing is pending, no flush is in progress
+                }
+            } catch (UncheckedIOException e) {
+                next.close();
+                throw e.getCause();
+            }
+            previous = channel;
+            channel = next;
+        }
+        previous.close();
+    }
+
+    /**
+     * Flushes the buffered records and closes the journal.
+     *
+     * @throws IOException If the file cannot be closed.
+     */
+    @Override
+    public void close() throws IOException {
+        synchronized (monitor) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            monitor.notifyAll();
+        }
+        try {
+            flusher.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        synchronized (monitor) {
+            channel.close();
+        }
+    }
+
+    /**
+     * Writes and forces the buffered records until the journal is closed.
+     */
+    private void flushLoop() {
+        while (true) {
+            long sequence;
+            FileChannel target;
+            synchronized (monitor) {
+                while (pending.position() == 0 && !closed) {
+                    try {
+                        monitor.wait();
+                    } catch (InterruptedException e) {
+                        // Only closing the journal stops the flusher
+                    }
+                }
+                if (pending.position() == 0) {
+                    return; // Closed and fully flushed
+                }
+                ByteBuffer full = pending; // Lets writers fill the other buffer during the flush
+                pending = flushing;
+                flushing = full;
+                sequence = writtenSequence;
+                target = channel;
+            }
+            try {
+                flushing.flip();
+                while (flushing.hasRemaining()) {
+                    target.write(flushing);
+                }
+                target.force(false);
+            } catch (IOException e) {
+                synchronized (monitor) {
+                    failure = e;
+                    monitor.notifyAll();
+                }
+                return;
+            } finally {
+                flushing.clear();
+            }
+            synchronized (monitor) {
+                durableSequence = sequence;
+                monitor.notifyAll();
+            }
+        }
+    }
+
+    /**
+     * Replays a journal into the library of a librarian. Records that no longer apply are skipped.
+     * A torn or corrupt record at the end of the journal, left by a crash in the middle of a write,
+     * marks the end of the journal and is cut off so that later records are appended after the last
+     * complete one.
+     *
+     * @param path      The path of the journal; nothing happens if it does not exist.
+     * @param librarian The librarian of the library to rebuild.
+     * @return The number of records read.
+     * @throws IOException If the file cannot be read.
+     */
+    public static long replay(Path path, Librarian librarian) throws IOException {
+        if (!Files.exists(path)) {
+            return 0;
+        }
+        long records = 0;
+        long validLength = 0;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            ByteBuffer buffer = ByteBuffer.allocate(READ_SIZE);
+            boolean corrupt = false;
+            while (!corrupt && channel.read(buffer) >= 0) {
+                buffer.flip();
+                while (true) {
+                    int start = buffer.position();
+                    LogRecord record;
+                    try {
+                        record = LogRecord.readFrom(buffer);
+                    } catch (IllegalStateException | IndexOutOfBoundsException e) {
+                        corrupt = true;
+                        break;
+                    }
+                    if (record == null) {
+                        break; // The rest of the record is in the next chunk
+                    }
+                    validLength += buffer.position() - start;
+                    records++;
+                    try {
+                        record.applyTo(librarian);
+                    } catch (BookStateException e) {
+                        // The mutation failed when it was first made too, so it is skipped again
+                    }
+                }
+                buffer.compact();
+                if (!buffer.hasRemaining()) {
+                    buffer = grow(buffer, buffer.capacity()); // A single record is larger than the buffer
+                }
+            }
+            if (channel.size() > validLength) {
+                channel.truncate(validLength);
+                channel.force(true);
+            }
+        }
+        return records;
+    }
+
+    /**
+     * Returns a copy of a buffer with room for at least the given number of additional bytes.
+     *
+     * @param buffer The buffer, in write mode.
+     * @param needed The number of bytes that must fit.
+     * @return The larger buffer, in write mode.
+     */
+    private static ByteBuffer grow(ByteBuffer buffer, int needed) {
+        int capacity = Math.max(buffer.capacity() * 2, buffer.position() + needed);
+        ByteBuffer larger = ByteBuffer.allocate(capacity);
+        buffer.flip();
+        larger.put(buffer);
+        return larger;
+    }
+}
@@ -0,0 +1,49 @@
+package scheduling;
+
+/**
+ * The {@code Timeout} class is the base of everything a {@link TimingWheel} can schedule. The wheel
+ * links timeouts into its slots through fields of the timeout itself, so scheduling millions of them
+ * allocates nothing beyond the objects being scheduled, and a timeout is unlinked in constant time when
+ * it is cancelled.
+ *
+ * <p>A timeout can be scheduled on one wheel at a time. Its links are guarded by whatever guards that
+ * wheel.</p>
+ */
+public abstract class Timeout {
+
+    /** The time the timeout expires at, in milliseconds since the epoch. */
+    private final long deadline;
+
+    /** The previous timeout in the slot, or {@code null} if the timeout is not scheduled. */
+    Timeout prev;
+
+    /** The next timeout in the slot, or {@code null} if the timeout is not scheduled. */
+    Timeout next;
+
+    /**
+     * Constructs a new {@code Timeout} that expires at the given time.
+     *
+     * @param deadline The time the timeout expires at, in milliseconds since the epoch.
+     */
+    protected Timeout(long deadline) {
+        this.deadline = deadline;
+    }
+
+    /**
+     * Returns the time the timeout expires at.
+     *
+     * @return The deadline, in milliseconds since the epoch.
+     */
+    public long getDeadline() {
+        return deadline;
+    }
+
+    /**
+     * Returns whether the timeout is waiting on a wheel.
+     *
+     * @return {@code true} if the timeout is scheduled and has neither expired nor been cancelled.
+     */
+    public boolean isScheduled() {
+        return next != null;
+    }
+}
@@ -0,0 +1,280 @@
+package scheduling;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The {@code TimingWheel} class is a hierarchical timing wheel: it keeps scheduled {@link Timeout}s in
+ * {@value #LEVELS} levels of {@value #SLOTS} slots, where a slot of level 0 spans one tick and a slot of
+ * each higher level spans a whole turn of the level below. A timeout goes into the lowest level whose
+ * turn reaches its deadline. When the wheel turns onto a slot of a higher level, that slot's timeouts
+ * move down to the levels below, so a timeout moves at most {@value #LEVELS} times before it expires.
+ * Scheduling, cancelling and expiring therefore take constant amortized time, and the wheel never
+ * sweeps over the timeouts that are not due.
+ *
+ * <p>With a tick of a minute the levels reach 32 years ahead; timeouts further out wait in an overflow
+ * list that is revisited each time the highest level completes a turn.</p>
+ *
+ * <p>The wheel is not thread-safe; its owner must guard it.</p>
+ *
+ * @param <T> The type of the timeouts.
+ */
+public class TimingWheel<T extends Timeout> {
+
+    /** The number of bits of a tick that select a slot of one level. */
+    private static final int SLOT_BITS = 6;
+
+    /** The number of slots in each level. */
+    public static final int SLOTS = 1 << SLOT_BITS;
+
+    /** The number of levels. */
+    public static final int LEVELS = 4;
+
+    /** The length of a tick, in milliseconds. */
+    private final long tickMillis;
+
+    /** The heads of the slots of each level; each slot is a circular list through its head. */
+    private final Timeout[][] slots;
+
+    /** The head of the timeouts beyond the highest level. */
+    private final Timeout overflow;
+
+    /** The head of the timeouts that were already due when they were scheduled. */
+    private final Timeout due;
+
+    /** The tick the wheel has turned to. */
+    private long currentTick;
+
+    /** The number of scheduled timeouts. */
+    private int size;
+
+    /**
+     * Constructs a new, empty {@code TimingWheel}.
+     *
+     * @param tick  The length of a tick, the precision timeouts expire with.
+     * @param start The time the wheel starts at, in milliseconds since the epoch.
+     */
+    public TimingWheel(Duration tick, long start) {
+        if (tick.toMillis() < 1) {
+            throw new IllegalArgumentException("The tick must be at least a millisecond long: " + tick);
+        }
+        this.tickMillis = tick.toMillis();
+        this.slots = new Timeout[LEVELS][SLOTS];
+        for (Timeout[] level : slots) {
+            for (int slot = 0; slot < SLOTS; slot++) {
+                level[slot] = new Head();
+            }
+        }
+        this.overflow = new Head();
+        this.due = new Head();
+        this.currentTick = Math.floorDiv(start, tickMillis);
+    }
+
+    /**
+     * Schedules a timeout. It expires at the first tick after its deadline; a timeout whose deadline has
+     * passed expires at the next {@link #advance}.
+     *
+     * @param timeout The timeout.
+     * @throws IllegalStateException If the timeout is already scheduled.
+     */
+    public void schedule(T timeout) {
+        if (timeout.isScheduled()) {
+            throw new IllegalStateException("Timeout already scheduled");
+        }
+        place(timeout);
+        size++;
+    }
+
+    /**
+     * Cancels a timeout.
+     *
+     * @param timeout The timeout.
+     * @return {@code true} if the timeout was scheduled, {@code false} if it had expired or was never scheduled.
+     */
+    public boolean cancel(T timeout) {
+        if (!timeout.isScheduled()) {
+            return false;
+        }
+        unlink(timeout);
+        size--;
+        return true;
+    }
+
+    /**
+     * Turns the wheel to a time and removes the timeouts that expired on the way.
+     *
+     * @param now The time to turn to, in milliseconds since the epoch; earlier times change nothing.
+     * @return The expired timeouts.
+     */
+    public List<T> advance(long now) {
+        long target = Math.floorDiv(now, tickMillis);
+        List<T> expired = new ArrayList<>();
+        drain(due, expired);
+        while (currentTick < target) {
+            if (size == 0) {
+                currentTick = target; // Nothing to expire or move down on the way
+                break;
+            }
+            currentTick++;
+            if ((currentTick & ((1L << (SLOT_BITS * LEVELS)) - 1)) == 0) {
+                cascade(overflow); // The highest level has completed a turn
+            }
+            for (int level = LEVELS - 1; level > 0; level--) {
+                if ((currentTick & ((1L << (SLOT_BITS * level)) - 1)) == 0) {
+                    cascade(slots[level][slotOf(currentTick, level)]); // Highest first, so the timeouts can fall several levels
+                }
+            }
+            drain(slots[0][slotOf(currentTick, 0)], expired);
+            drain(due, expired);
+        }
+        return expired;
+    }
+
+    /**
+     * Cancels every timeout.
+     */
+    public void clear() {
+        for (Timeout[] level : slots) {
+            for (Timeout head : level) {
+                unlinkAll(head);
+            }
+        }
+        unlinkAll(overflow);
+        unlinkAll(due);
+        size = 0;
+    }
+
+    /**
+     * Returns the number of scheduled timeouts.
+     *
+     * @return The number of timeouts.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns the length of a tick.
+     *
+     * @return The tick.
+     */
+    public Duration getTick() {
+        return Duration.ofMillis(tickMillis);
+    }
+
+    /**
+     * Links a timeout into the slot its deadline falls into, as seen from the current tick.
+     *
+     * @param timeout The timeout.
+     */
+    private void place(Timeout timeout) {
+        long tick = Math.floorDiv(timeout.getDeadline(), tickMillis) + 1; // The first tick that starts after the deadline, so a timeout never expires early
+        if (tick <= currentTick) {
+            link(due, timeout);
+            return;
+        }
+        int level = (63 - Long.numberOfLeadingZeros(tick ^ currentTick)) / SLOT_BITS; // The highest level the two ticks differ in
+        link(level < LEVELS ? slots[level][slotOf(tick, level)] : overflow, timeout);
+    }
+
+    /**
+     * Moves the timeouts of a slot to the slots they now fall into.
+     *
+     * @param head The head of the slot.
+     */
+    private void cascade(Timeout head) {
+        Timeout timeout = head.next;
+        head.next = head.prev = head;
+        while (timeout != head) {
+            Timeout next = timeout.next;
+            timeout.prev = timeout.next = null;
+            place(timeout);
+            timeout = next;
+        }
+    }
+
+    /**
+     * Empties a slot into a list of expired timeouts.
+     *
+     * @param head    The head of the slot.
+     * @param expired The list to add the timeouts to.
+     */
+    @SuppressWarnings("unchecked")
+    private void drain(Timeout head, List<T> expired) {
+        Timeout timeout = head.next;
+        head.next = head.prev = head;
+        while (timeout != head) {
+            Timeout next = timeout.next;
+            timeout.prev = timeout.next = null;
+            expired.add((T) timeout); // Only the heads are not of type T, and they are never linked into a slot
+            size--;
+            timeout = next;
+        }
+    }
+
+    /**
+     * Unlinks every timeout of a slot.
+     *
+     * @param head The head of the slot.
+     */
+    private static void unlinkAll(Timeout head) {
+        Timeout timeout = head.next;
+        head.next = head.prev = head;
+        while (timeout != head) {
+            Timeout next = timeout.next;
+            timeout.prev = timeout.next = null;
+            timeout = next;
+        }
+    }
+
+    /**
+     * Returns the slot of a level that a tick falls into.
+     *
+     * @param tick  The tick.
+     * @param level The level.
+     * @return The slot.
+     */
+    private static int slotOf(long tick, int level) {
+        return (int) (tick >>> (SLOT_BITS * level)) & (SLOTS - 1);
+    }
+
+    /**
+     * Links a timeout at the end of a slot.
+     *
+     * @param head    The head of the slot.
+     * @param timeout The timeout.
+     */
+    private static void link(Timeout head, Timeout timeout) {
+        Timeout last = head.prev;
+        timeout.prev = last;
+        timeout.next = head;
+        last.next = timeout;
+        head.prev = timeout;
+    }
+
+    /**
+     * Unlinks a timeout from its slot.
+     *
+     * @param timeout The timeout.
+     */
+    private static void unlink(Timeout timeout) {
+        timeout.prev.next = timeout.next;
+        timeout.next.prev = timeout.prev;
+        timeout.prev = timeout.next = null;
+    }
+
+    /**
+     * The head of a slot, which links to itself while the slot is empty.
+     */
+    private static final class Head extends Timeout {
+
+        /**
+         * Constructs a new {@code Head} of an empty slot.
+         */
+        Head() {
+            super(0);
+            prev = next = this;
+        }
+    }
+}
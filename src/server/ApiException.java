@@ -0,0 +1,34 @@
+package server;
+
+/**
+ * The {@code ApiException} class represents a request the API cannot serve, such as a malformed body,
+ * an unknown resource or an unsupported method. It carries the HTTP status to answer with.
+ */
+class ApiException extends RuntimeException {
+
+    /** The serialization version of the exception. */
+    private static final long serialVersionUID = 1L;
+
+    /** The HTTP status of the response. */
+    private final int status;
+
+    /**
+     * Constructs a new {@code ApiException}.
+     *
+     * @param status  The HTTP status of the response.
+     * @param message The message sent to the client.
+     */
+    ApiException(int status, String message) {
+        super(message);
+        this.status = status;
+    }
+
+    /**
+     * Returns the HTTP status of the response.
+     *
+     * @return The status.
+     */
+    int getStatus() {
+        return status;
+    }
+}
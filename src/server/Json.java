@@ -0,0 +1,284 @@
+package server;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The {@code Json} class parses the JSON bodies of API requests. Objects become maps in the order of
+ * their members, arrays become lists, numbers become {@link Long} or {@link Double}, and strings,
+ * booleans and {@code null} become their Java counterparts.
+ */
+final class Json {
+
+    /** The text being parsed. */
+    private final String text;
+
+    /** The position of the next character to parse. */
+    private int position;
+
+    /**
+     * Constructs a new {@code Json} parser.
+     *
+     * @param text The text to parse.
+     */
+    private Json(String text) {
+        this.text = text;
+    }
+
+    /**
+     * Parses a JSON object.
+     *
+     * @param text The text of the object.
+     * @return The members of the object.
+     * @throws ApiException If the text is not a JSON object.
+     */
+    @SuppressWarnings("unchecked")
+    static Map<String, Object> parseObject(String text) {
+        Json parser = new Json(text);
+        parser.skipSpace();
+        if (parser.position == text.length() || text.charAt(parser.position) != '{') {
+            throw parser.error("Expected an object");
+        }
+        Object value = parser.value();
+        parser.skipSpace();
+        if (parser.position != text.length()) {
+            throw parser.error("Unexpected text after the object");
+        }
+        return (Map<String, Object>) value;
+    }
+
+    /**
+     * Parses a value at the current position.
+     *
+     * @return The value.
+     */
+    private Object value() {
+        skipSpace();
+        if (position == text.length()) {
+            throw error("Expected a value");
+        }
+        char c = text.charAt(position);
+        switch (c) {
+            case '{':
+                return object();
+            case '[':
+                return array();
+            case '"':
+                return string();
+            case 't':
+                return literal("true", Boolean.TRUE);
+            case 'f':
+                return literal("false", Boolean.FALSE);
+            case 'n':
+                return literal("null", null);
+            default:
+                if (c == '-' || (c >= '0' && c <= '9')) {
+                    return number();
+                }
+                throw error("Unexpected character '" + c + "'");
+        }
+    }
+
+    /**
+     * Parses an object.
+     *
+     * @return The members of the object.
+     */
+    private Map<String, Object> object() {
+        Map<String, Object> members = new LinkedHashMap<>();
+        position++; // Skips '{'
+        skipSpace();
+        if (peek() == '}') {
+            position++;
+            return members;
+        }
+        while (true) {
+            skipSpace();
+            if (peek() != '"') {
+                throw error("Expected a member name");
+            }
+            String name = string();
+            skipSpace();
+            expect(':');
+            members.put(name, value());
+            skipSpace();
+            char c = peek();
+            position++;
+            if (c == '}') {
+                return members;
+            } else if (c != ',') {
+                throw error("Expected ',' or '}'");
+            }
+        }
+    }
+
+    /**
+     * Parses an array.
+     *
+     * @return The elements of the array.
+     */
+    private List<Object> array() {
+        List<Object> elements = new ArrayList<>();
+        position++; // Skips '['
+        skipSpace();
+        if (peek() == ']') {
+            position++;
+            return elements;
+        }
+        while (true) {
+            elements.add(value());
+            skipSpace();
+            char c = peek();
+            position++;
+            if (c == ']') {
+                return elements;
+            } else if (c != ',') {
+                throw error("Expected ',' or ']'");
+            }
+        }
+    }
+
+    /**
+     * Parses a string, decoding its escape sequences.
+     *
+     * @return The string.
+     */
+    private String string() {
+        position++; // Skips the opening quote
+        StringBuilder builder = null;
+        int run = position; // The start of the characters not yet copied
+        while (position < text.length()) {
+            char c = text.charAt(position);
+            if (c == '"') {
+                String value = builder == null ? text.substring(run, position)
+                        : builder.append(text, run, position).toString();
+                position++;
+                return value;
+            }
+            if (c != '\\') {
+                position++;
+                continue;
+            }
+            if (builder == null) {
+                builder = new StringBuilder();
+            }
+            builder.append(text, run, position);
+            if (position + 1 >= text.length()) {
+                break;
+            }
+            char escape = text.charAt(position + 1);
+            position += 2;
+            switch (escape) {
+                case '"', '\\', '/' -> builder.append(escape);
+                case 'b' -> builder.append('\b');
+                case 'f' -> builder.append('\f');
+                case 'n' -> builder.append('\n');
+                case 'r' -> builder.append('\r');
+                case 't' -> builder.append('\t');
+                case 'u' -> {
+                    if (position + 4 > text.length()) {
+                        throw error("Invalid escape sequence");
+                    }
+                    try {
+                        builder.append((char) Integer.parseInt(text.substring(position, position + 4), 16));
+                    } catch (NumberFormatException e) {
+                        throw error("Invalid escape sequence");
+                    }
+                    position += 4;
+                }
+                default -> throw error("Invalid escape sequence");
+            }
+            run = position;
+        }
+        throw error("Unterminated string");
+    }
+
+    /**
+     * Parses a number.
+     *
+     * @return The number, as a {@link Long} if it is whole and fits, otherwise as a {@link Double}.
+     */
+    private Number number() {
+        int start = position;
+        boolean whole = true;
+        while (position < text.length()) {
+            char c = text.charAt(position);
+            if (c == '.' || c == 'e' || c == 'E') {
+                whole = false;
+            } else if (!(c == '-' || c == '+' || (c >= '0' && c <= '9'))) {
+                break;
+            }
+            position++;
+        }
+        String number = text.substring(start, position);
+        try {
+            if (whole) {
+                try {
+                    return Long.parseLong(number);
+                } catch (NumberFormatException e) {
+                    // Too large for a long
+                }
+            }
+            return Double.parseDouble(number);
+        } catch (NumberFormatException e) {
+            throw error("Invalid number '" + number + "'");
+        }
+    }
+
+    /**
+     * Parses a literal.
+     *
+     * @param word  The literal.
+     * @param value The value it stands for.
+     * @return The value.
+     */
+    private Object literal(String word, Object value) {
+        if (!text.startsWith(word, position)) {
+            throw error("Unexpected text");
+        }
+        position += word.length();
+        return value;
+    }
+
+    /**
+     * Skips a character, which must be the given one.
+     *
+     * @param c The character.
+     */
+    private void expect(char c) {
+        if (peek() != c) {
+            throw error("Expected '" + c + "'");
+        }
+        position++;
+    }
+
+    /**
+     * Returns the character at the current position.
+     *
+     * @return The character, or 0 at the end of the text.
+     */
+    private char peek() {
+        return position < text.length() ? text.charAt(position) : 0;
+    }
+
+    /**
+     * Skips whitespace.
+     */
+    private void skipSpace() {
+        while (position < text.length() && Character.isWhitespace(text.charAt(position))) {
+            position++;
+        }
+    }
+
+    /**
+     * Creates an exception for malformed JSON.
+     *
+     * @param message What is wrong.
+     * @return The exception.
+     */
+    private ApiException error(String message) {
+        return new ApiException(400, "Malformed JSON: " + message + " at offset " + position);
+    }
+}
@@ -0,0 +1,180 @@
+package server;
+
+/**
+ * The {@code JsonWriter} class builds the JSON bodies of API responses. Commas are placed by the
+ * writer, so callers only open and close objects and arrays and add names and values in order.
+ */
+final class JsonWriter {
+
+    /** The JSON written so far. */
+    private final StringBuilder out = new StringBuilder(128);
+
+    /** Whether the next value is the first of its object or array, and so needs no comma. */
+    private boolean first = true;
+
+    /**
+     * Opens an object.
+     *
+     * @return This writer.
+     */
+    JsonWriter beginObject() {
+        separate();
+        out.append('{');
+        first = true;
+        return this;
+    }
+
+    /**
+     * Closes an object.
+     *
+     * @return This writer.
+     */
+    JsonWriter endObject() {
+        out.append('}');
+        first = false;
+        return this;
+    }
+
+    /**
+     * Opens an array.
+     *
+     * @return This writer.
+     */
+    JsonWriter beginArray() {
+        separate();
+        out.append('[');
+        first = true;
+        return this;
+    }
+
+    /**
+     * Closes an array.
+     *
+     * @return This writer.
+     */
+    JsonWriter endArray() {
+        out.append(']');
+        first = false;
+        return this;
+    }
+
+    /**
+     * Writes the name of the next member of an object.
+     *
+     * @param name The name.
+     * @return This writer.
+     */
+    JsonWriter name(String name) {
+        separate();
+        quote(name);
+        out.append(':');
+        first = true; // The value follows the colon directly
+        return this;
+    }
+
+    /**
+     * Writes a string.
+     *
+     * @param value The string, possibly {@code null}.
+     * @return This writer.
+     */
+    JsonWriter value(String value) {
+        separate();
+        if (value == null) {
+            out.append("null");
+        } else {
+            quote(value);
+        }
+        first = false;
+        return this;
+    }
+
+    /**
+     * Writes a whole number.
+     *
+     * @param value The number.
+     * @return This writer.
+     */
+    JsonWriter value(long value) {
+        separate();
+        out.append(value);
+        first = false;
+        return this;
+    }
+
+    /**
+     * Writes a number; JSON has no infinities or NaN, so those are written as {@code null}.
+     *
+     * @param value The number.
+     * @return This writer.
+     */
+    JsonWriter value(double value) {
+        separate();
+        if (Double.isFinite(value)) {
+            out.append(value);
+        } else {
+            out.append("null");
+        }
+        first = false;
+        return this;
+    }
+
+    /**
+     * Writes a boolean.
+     *
+     * @param value The boolean.
+     * @return This writer.
+     */
+    JsonWriter value(boolean value) {
+        separate();
+        out.append(value);
+        first = false;
+        return this;
+    }
+
+    /**
+     * Returns the JSON written.
+     *
+     * @return The JSON text.
+     */
+    @Override
+    public String toString() {
+        return out.toString();
+    }
+
+    /**
+     * Writes a comma unless the next value is the first of its object or array.
+     */
+    private void separate() {
+        if (!first) {
+            out.append(',');
+        }
+    }
+
+    /**
+     * Writes a string in quotes, escaping the characters JSON requires.
+     *
+     * @param value The string.
+     */
+    private void quote(String value) {
+        out.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"' -> out.append("\\\"");
+                case '\\' -> out.append("\\\\");
+                case '\n' -> out.append("\\n");
+                case '\r' -> out.append("\\r");
+                case '\t' -> out.append("\\t");
+                default -> {
+                    if (c < 0x20) {
+                        out.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        out.append(c);
+                    }
+                }
+            }
+        }
+        out.append('"');
+    }
+}
@@ -0,0 +1,677 @@
+package server;
+
+import DesingP.facade.LibraryFacade;
+import DesingP.util.BookStateException;
+import analytics.TopEntry;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import model.BatchMode;
+import model.Book;
+import model.ItemResult;
+import model.RatingStats;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The {@code LibraryApi} class routes the requests of a {@link LibraryServer} to the operations of a
+ * {@link LibraryFacade}. Bodies are JSON objects, and path segments are URL-decoded, so a title with a
+ * slash is written with {@code %2F}. The routes are:
+ *
+ * <ul>
+ *     <li>{@code GET /books?offset=&limit=} lists the catalog a page at a time, and
+ *     {@code GET /books?q=&limit=} searches it;</li>
+ *     <li>{@code POST /books} adds a book ({@code title}, {@code author}, {@code year}, {@code quantity});</li>
+ *     <li>{@code GET /books/{title}} gets a book and {@code DELETE /books/{title}} removes it;</li>
+ *     <li>{@code PUT /books/{title}/quantity} sets the quantity of a book ({@code quantity});</li>
+ *     <li>{@code GET /books/{title}/ratings} gets the rating statistics of a book and
+ *     {@code POST /books/{title}/ratings} rates it ({@code rating});</li>
+ *     <li>{@code POST /members} adds a member ({@code name}, {@code id}), {@code DELETE /members/{id}}
+ *     removes one and {@code GET /members/{id}/loans} lists the books a member has on loan;</li>
+ *     <li>{@code POST /loans} lends a book and {@code POST /returns} returns one ({@code title},
+ *     {@code memberId}); {@code POST /loans/batch} and {@code POST /returns/batch} do so for a basket
+ *     ({@code memberId}, {@code titles}, optionally {@code mode});</li>
+ *     <li>{@code POST /holds} reserves a book ({@code title}, {@code memberId}), and
+ *     {@code GET} or {@code DELETE /holds/{memberId}/{title}} gets or cancels a reservation;</li>
+ *     <li>{@code GET /popular/books} and {@code GET /popular/authors?n=&window=} rank the most lent
+ *     books and authors of a recent window, given as an ISO-8601 duration such as {@code PT1H};</li>
+ *     <li>{@code GET /summary} summarizes the library.</li>
+ * </ul>
+ *
+ * <p>A request the library refuses, such as lending a book with no copy available, is answered with
+ * 409 Conflict, a lookup of something that does not exist with 404 Not Found, and a malformed request
+ * with 400 Bad Request. Error bodies are objects with an {@code error} member.</p>
+ */
+class LibraryApi implements HttpHandler {
+
+    /** The largest request body accepted. */
+    private static final int MAX_BODY_BYTES = 1024 * 1024;
+
+    /** The default number of books in a page or a search. */
+    private static final int DEFAULT_LIMIT = 100;
+
+    /** The largest number of books in a page or a search. */
+    private static final int MAX_LIMIT = 1000;
+
+    /** The default number of entries of a popularity ranking. */
+    private static final int DEFAULT_TOP = 10;
+
+    /** The default window of a popularity ranking. */
+    private static final Duration DEFAULT_WINDOW = Duration.ofHours(1);
+
+    /** The facade whose operations are served. */
+    private final LibraryFacade facade;
+
+    /**
+     * Constructs a new {@code LibraryApi}.
+     *
+     * @param facade The facade whose operations are served.
+     */
+    LibraryApi(LibraryFacade facade) {
+        this.facade = facade;
+    }
+
+    @Override
+    public void handle(HttpExchange exchange) throws IOException {
+        Response response;
+        try {
+            response = route(new Request(exchange));
+        } catch (ApiException e) {
+            response = Response.error(e.getStatus(), e.getMessage());
+        } catch (BookStateException e) {
+            response = Response.error(409, e.getMessage());
+        } catch (RuntimeException e) {
+            response = Response.error(500, "Internal error: " + e);
+        }
+        send(exchange, response);
+    }
+
+    /**
+     * Routes a request to its operation.
+     *
+     * @param request The request.
+     * @return The response.
+     * @throws BookStateException If the library refuses the operation.
+     * @throws IOException        If the body cannot be read.
+     */
+    private Response route(Request request) throws BookStateException, IOException {
+        List<String> path = request.path;
+        String resource = path.isEmpty() ? "" : path.get(0);
+        switch (resource) {
+            case "books":
+                return books(request);
+            case "members":
+                return members(request);
+            case "loans":
+            case "returns":
+                return loans(request, resource.equals("loans"));
+            case "holds":
+                return holds(request);
+            case "popular":
+                if (path.size() == 2 && (path.get(1).equals("books") || path.get(1).equals("authors"))) {
+                    request.require("GET");
+                    return popular(request, path.get(1).equals("books"));
+                }
+                break;
+            case "summary":
+                if (path.size() == 1) {
+                    request.require("GET");
+                    return Response.ok(new JsonWriter().beginObject()
+                            .name("summary").value(facade.getLibrarySummary())
+                            .name("totalLoans").value(facade.getTotalLoans())
+                            .endObject());
+                }
+                break;
+            default:
+                break;
+        }
+        throw new ApiException(404, "No such resource: " + request.exchange.getRequestURI().getPath());
+    }
+
+    /**
+     * Serves the {@code /books} routes.
+     *
+     * @param request The request.
+     * @return The response.
+     * @throws BookStateException If the library refuses the operation.
+     * @throws IOException        If the body cannot be read.
+     */
+    private Response books(Request request) throws BookStateException, IOException {
+        List<String> path = request.path;
+        if (path.size() == 1) {
+            if (request.method.equals("POST")) {
+                Map<String, Object> body = request.body();
+                String title = string(body, "title");
+                facade.addBook(title, optionalString(body, "author"), integer(body, "year"), integer(body, "quantity"));
+                return Response.created(book(new JsonWriter(), facade.findBookByTitle(title)));
+            }
+            request.require("GET");
+            int limit = Math.min(request.intParameter("limit", DEFAULT_LIMIT), MAX_LIMIT);
+            String query = request.parameter("q");
+            List<Book> books = query != null ? facade.searchBooks(query, limit)
+                    : facade.getBooks(request.intParameter("offset", 0), limit);
+            JsonWriter json = new JsonWriter().beginArray();
+            for (Book book : books) {
+                book(json, book);
+            }
+            return Response.ok(json.endArray());
+        }
+        String title = path.get(1);
+        if (path.size() == 2) {
+            if (request.method.equals("DELETE")) {
+                facade.removeBook(title);
+                return Response.noContent();
+            }
+            request.require("GET");
+            return Response.ok(book(new JsonWriter(), find(title)));
+        }
+        if (path.size() == 3 && path.get(2).equals("quantity")) {
+            request.require("PUT");
+            facade.updateBookQuantity(title, integer(request.body(), "quantity"));
+            return Response.ok(book(new JsonWriter(), facade.findBookByTitle(title)));
+        }
+        if (path.size() == 3 && path.get(2).equals("ratings")) {
+            if (request.method.equals("POST")) {
+                facade.rateBook(title, number(request.body(), "rating"));
+                return Response.noContent();
+            }
+            request.require("GET");
+            find(title);
+            return Response.ok(ratings(facade.getBookRatingStats(title)));
+        }
+        throw new ApiException(404, "No such resource: " + request.exchange.getRequestURI().getPath());
+    }
+
+    /**
+     * Serves the {@code /members} routes.
+     *
+     * @param request The request.
+     * @return The response.
+     * @throws BookStateException If the library refuses the operation.
+     * @throws IOException        If the body cannot be read.
+     */
+    private Response members(Request request) throws BookStateException, IOException {
+        List<String> path = request.path;
+        if (path.size() == 1) {
+            request.require("POST");
+            Map<String, Object> body = request.body();
+            String id = string(body, "id");
+            facade.addMember(string(body, "name"), id);
+            return Response.created(new JsonWriter().beginObject().name("id").value(id).endObject());
+        }
+        String id = path.get(1);
+        if (path.size() == 2) {
+            request.require("DELETE");
+            facade.removeMember(id);
+            return Response.noContent();
+        }
+        if (path.size() == 3 && path.get(2).equals("loans")) {
+            request.require("GET");
+            List<Book> loans;
+            try {
+                loans = facade.getUserLoans(id);
+            } catch (BookStateException e) {
+                throw new ApiException(404, e.getMessage());
+            }
+            JsonWriter json = new JsonWriter().beginArray();
+            for (Book book : loans) {
+                book(json, book);
+            }
+            return Response.ok(json.endArray());
+        }
+        throw new ApiException(404, "No such resource: " + request.exchange.getRequestURI().getPath());
+    }
+
+    /**
+     * Serves the {@code /loans} and {@code /returns} routes.
+     *
+     * @param request The request.
+     * @param lend    Whether books are lent rather than returned.
+     * @return The response.
+     * @throws BookStateException If the library refuses the operation.
+     * @throws IOException        If the body cannot be read.
+     */
+    private Response loans(Request request, boolean lend) throws BookStateException, IOException {
+        List<String> path = request.path;
+        request.require("POST");
+        Map<String, Object> body = request.body();
+        String memberId = string(body, "memberId");
+        if (path.size() == 1) {
+            String title = string(body, "title");
+            if (lend) {
+                if (!facade.lendBook(title, memberId)) {
+                    throw new BookStateException("No copy of the book is available: " + title);
+                }
+                return Response.created(new JsonWriter().beginObject()
+                        .name("title").value(title).name("memberId").value(memberId).endObject());
+            }
+            facade.returnBook(title, memberId);
+            return Response.noContent();
+        }
+        if (path.size() == 2 && path.get(1).equals("batch")) {
+            List<String> titles = strings(body, "titles");
+            BatchMode mode = BatchMode.BEST_EFFORT;
+            String name = optionalString(body, "mode");
+            if (name != null) {
+                try {
+                    mode = BatchMode.valueOf(name);
+                } catch (IllegalArgumentException e) {
+                    throw new ApiException(400, "Unknown batch mode: " + name);
+                }
+            }
+            List<ItemResult> results = lend ? facade.lendBooks(memberId, titles, mode)
+                    : facade.returnBooks(memberId, titles, mode);
+            JsonWriter json = new JsonWriter().beginArray();
+            for (ItemResult result : results) {
+                json.beginObject().name("title").value(result.getTitle()).name("success").value(result.isSuccess());
+                if (result.getError() != null) {
+                    json.name("error").value(result.getError());
+                }
+                json.endObject();
+            }
+            return Response.ok(json.endArray());
+        }
+        throw new ApiException(404, "No such resource: " + request.exchange.getRequestURI().getPath());
+    }
+
+    /**
+     * Serves the {@code /holds} routes.
+     *
+     * @param request The request.
+     * @return The response.
+     * @throws BookStateException If the library refuses the operation.
+     * @throws IOException        If the body cannot be read.
+     */
+    private Response holds(Request request) throws BookStateException, IOException {
+        List<String> path = request.path;
+        if (path.size() == 1) {
+            request.require("POST");
+            Map<String, Object> body = request.body();
+            int position = facade.reserveBook(string(body, "title"), string(body, "memberId"));
+            return Response.created(new JsonWriter().beginObject().name("position").value(position).endObject());
+        }
+        if (path.size() == 3) {
+            String memberId = path.get(1);
+            String title = path.get(2);
+            if (request.method.equals("DELETE")) {
+                facade.cancelReservation(title, memberId);
+                return Response.noContent();
+            }
+            request.require("GET");
+            int position;
+            Duration wait;
+            try {
+                position = facade.getHoldPosition(title, memberId);
+                wait = facade.getExpectedWait(title, memberId);
+            } catch (BookStateException e) {
+                throw new ApiException(404, e.getMessage());
+            }
+            return Response.ok(new JsonWriter().beginObject()
+                    .name("position").value(position)
+                    .name("expectedWaitSeconds").value(wait.getSeconds())
+                    .endObject());
+        }
+        throw new ApiException(404, "No such resource: " + request.exchange.getRequestURI().getPath());
+    }
+
+    /**
+     * Serves the {@code /popular} routes.
+     *
+     * @param request The request.
+     * @param books   Whether books are ranked rather than authors.
+     * @return The response.
+     */
+    private Response popular(Request request, boolean books) {
+        int n = request.intParameter("n", DEFAULT_TOP);
+        Duration window = DEFAULT_WINDOW;
+        String text = request.parameter("window");
+        if (text != null) {
+            try {
+                window = Duration.parse(text);
+            } catch (DateTimeParseException e) {
+                throw new ApiException(400, "Invalid window: " + text);
+            }
+        }
+        List<TopEntry> top;
+        try {
+            top = books ? facade.getTopBooks(n, window) : facade.getTopAuthors(n, window);
+        } catch (IllegalArgumentException e) {
+            throw new ApiException(400, e.getMessage());
+        }
+        JsonWriter json = new JsonWriter().beginArray();
+        for (TopEntry entry : top) {
+            json.beginObject().name(books ? "title" : "author").value(entry.getKey())
+                    .name("count").value(entry.getCount()).endObject();
+        }
+        return Response.ok(json.endArray());
+    }
+
+    /**
+     * Finds a book that a request names in its path.
+     *
+     * @param title The title of the book.
+     * @return The book.
+     * @throws ApiException If there is no such book.
+     */
+    private Book find(String title) {
+        try {
+            return facade.findBookByTitle(title);
+        } catch (BookStateException e) {
+            throw new ApiException(404, e.getMessage());
+        }
+    }
+
+    /**
+     * Writes a book as a JSON object.
+     *
+     * @param json The writer.
+     * @param book The book.
+     * @return The writer.
+     */
+    private static JsonWriter book(JsonWriter json, Book book) {
+        return json.beginObject()
+                .name("title").value(book.getTitle())
+                .name("author").value(book.getAuthor())
+                .name("year").value(book.getYear())
+                .name("quantity").value(book.getQuantity())
+                .name("available").value(book.getAvailableQuantity())
+                .name("rating").value(book.getAverageRating())
+                .endObject();
+    }
+
+    /**
+     * Writes rating statistics as a JSON object.
+     *
+     * @param stats The statistics.
+     * @return The writer.
+     */
+    private static JsonWriter ratings(RatingStats stats) {
+        JsonWriter json = new JsonWriter().beginObject().name("count").value(stats.getCount());
+        if (stats.getCount() > 0) {
+            json.name("mean").value(stats.getMean())
+                    .name("stddev").value(stats.getStandardDeviation())
+                    .name("min").value(stats.getMin())
+                    .name("max").value(stats.getMax())
+                    .name("median").value(stats.getPercentile(50));
+        }
+        json.name("histogram").beginArray();
+        for (long count : stats.getHistogram()) {
+            json.value(count);
+        }
+        return json.endArray().endObject();
+    }
+
+    /**
+     * Returns a required string member of a body.
+     *
+     * @param body The body.
+     * @param name The name of the member.
+     * @return The string.
+     * @throws ApiException If the member is missing or not a string.
+     */
+    private static String string(Map<String, Object> body, String name) {
+        String value = optionalString(body, name);
+        if (value == null) {
+            throw new ApiException(400, "Missing member: " + name);
+        }
+        return value;
+    }
+
+    /**
+     * Returns an optional string member of a body.
+     *
+     * @param body The body.
+     * @param name The name of the member.
+     * @return The string, or {@code null} if the member is missing or {@code null}.
+     * @throws ApiException If the member is not a string.
+     */
+    private static String optionalString(Map<String, Object> body, String name) {
+        Object value = body.get(name);
+        if (value != null && !(value instanceof String)) {
+            throw new ApiException(400, "Member is not a string: " + name);
+        }
+        return (String) value;
+    }
+
+    /**
+     * Returns a required list of strings of a body.
+     *
+     * @param body The body.
+     * @param name The name of the member.
+     * @return The strings.
+     * @throws ApiException If the member is missing or not an array of strings.
+     */
+    private static List<String> strings(Map<String, Object> body, String name) {
+        Object value = body.get(name);
+        if (!(value instanceof List<?> list)) {
+            throw new ApiException(400, "Missing array: " + name);
+        }
+        List<String> strings = new ArrayList<>(list.size());
+        for (Object element : list) {
+            if (!(element instanceof String)) {
+                throw new ApiException(400, "Array is not of strings: " + name);
+            }
+            strings.add((String) element);
+        }
+        return strings;
+    }
+
+    /**
+     * Returns a required whole number member of a body.
+     *
+     * @param body The body.
+     * @param name The name of the member.
+     * @return The number.
+     * @throws ApiException If the member is missing or not a whole number that fits an {@code int}.
+     */
+    private static int integer(Map<String, Object> body, String name) {
+        Object value = body.get(name);
+        if (!(value instanceof Long number) || number != number.intValue()) {
+            throw new ApiException(400, "Missing whole number: " + name);
+        }
+        return number.intValue();
+    }
+
+    /**
+     * Returns a required number member of a body.
+     *
+     * @param body The body.
+     * @param name The name of the member.
+     * @return The number.
+     * @throws ApiException If the member is missing or not a number.
+     */
+    private static double number(Map<String, Object> body, String name) {
+        Object value = body.get(name);
+        if (!(value instanceof Number number)) {
+            throw new ApiException(400, "Missing number: " + name);
+        }
+        return number.doubleValue();
+    }
+
+    /**
+     * Sends a response.
+     *
+     * @param exchange The exchange of the request.
+     * @param response The response.
+     * @throws IOException If the response cannot be sent.
+     */
+    private static void send(HttpExchange exchange, Response response) throws IOException {
+        byte[] bytes = response.body == null ? new byte[0] : response.body.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length > 0) {
+            exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        }
+        exchange.sendResponseHeaders(response.status, bytes.length == 0 ? -1 : bytes.length);
+        if (bytes.length > 0) {
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(bytes);
+            }
+        }
+        exchange.close();
+    }
+
+    /**
+     * The {@code Request} class holds the parts of a request the routes look at: its method, its
+     * decoded path segments, its query parameters and, once read, its body.
+     */
+    private static final class Request {
+
+        /** The exchange of the request. */
+        private final HttpExchange exchange;
+
+        /** The method of the request. */
+        private final String method;
+
+        /** The decoded segments of the path. */
+        private final List<String> path;
+
+        /** The decoded query parameters, parsed when first needed. */
+        private Map<String, String> parameters;
+
+        /**
+         * Constructs a new {@code Request}.
+         *
+         * @param exchange The exchange of the request.
+         */
+        Request(HttpExchange exchange) {
+            this.exchange = exchange;
+            this.method = exchange.getRequestMethod();
+            String raw = exchange.getRequestURI().getRawPath();
+            List<String> segments = new ArrayList<>(4);
+            for (String segment : raw.split("/")) {
+                if (!segment.isEmpty()) {
+                    // '+' only means a space in a query, so it is kept in the path
+                    segments.add(URLDecoder.decode(segment.replace("+", "%2B"), StandardCharsets.UTF_8));
+                }
+            }
+            this.path = segments;
+        }
+
+        /**
+         * Checks the method of the request.
+         *
+         * @param expected The method the route accepts.
+         * @throws ApiException If the request has another method.
+         */
+        void require(String expected) {
+            if (!method.equals(expected)) {
+                exchange.getResponseHeaders().set("Allow", expected);
+                throw new ApiException(405, "Method not allowed: " + method);
+            }
+        }
+
+        /**
+         * Reads the body of the request as a JSON object.
+         *
+         * @return The members of the object.
+         * @throws IOException  If the body cannot be read.
+         * @throws ApiException If the body is too large or not a JSON object.
+         */
+        Map<String, Object> body() throws IOException {
+            byte[] bytes;
+            try (InputStream in = exchange.getRequestBody()) {
+                bytes = in.readNBytes(MAX_BODY_BYTES + 1);
+            }
+            if (bytes.length > MAX_BODY_BYTES) {
+                throw new ApiException(413, "Request body is larger than " + MAX_BODY_BYTES + " bytes");
+            }
+            return Json.parseObject(new String(bytes, StandardCharsets.UTF_8));
+        }
+
+        /**
+         * Returns a query parameter.
+         *
+         * @param name The name of the parameter.
+         * @return The value, or {@code null} if the query does not have it.
+         */
+        String parameter(String name) {
+            if (parameters == null) {
+                String query = exchange.getRequestURI().getRawQuery();
+                if (query == null) {
+                    parameters = Collections.emptyMap();
+                } else {
+                    parameters = new HashMap<>();
+                    for (String pair : query.split("&")) {
+                        int equals = pair.indexOf('=');
+                        String key = equals < 0 ? pair : pair.substring(0, equals);
+                        String value = equals < 0 ? "" : pair.substring(equals + 1);
+                        parameters.put(URLDecoder.decode(key, StandardCharsets.UTF_8), URLDecoder.decode(value, StandardCharsets.UTF_8));
+                    }
+                }
+            }
+            return parameters.get(name);
+        }
+
+        /**
+         * Returns a query parameter that is a non-negative whole number.
+         *
+         * @param name     The name of the parameter.
+         * @param fallback The value if the query does not have the parameter.
+         * @return The value.
+         * @throws ApiException If the parameter is not a non-negative whole number.
+         */
+        int intParameter(String name, int fallback) {
+            String value = parameter(name);
+            if (value == null) {
+                return fallback;
+            }
+            try {
+                int number = Integer.parseInt(value);
+                if (number >= 0) {
+                    return number;
+                }
+            } catch (NumberFormatException e) {
+                // Falls through to the error below
+            }
+            throw new ApiException(400, "Invalid " + name + ": " + value);
+        }
+    }
+
+    /**
+     * The {@code Response} class holds the status and JSON body of a response.
+     */
+    private static final class Response {
+
+        /** The HTTP status. */
+        private final int status;
+
+        /** The JSON body, or {@code null} for none. */
+        private final String body;
+
+        /**
+         * Constructs a new {@code Response}.
+         *
+         * @param status The HTTP status.
+         * @param body   The JSON body, or {@code null} for none.
+         */
+        private Response(int status, String body) {
+            this.status = status;
+            this.body = body;
+        }
+
+        static Response ok(JsonWriter json) {
+            return new Response(200, json.toString());
+        }
+
+        static Response created(JsonWriter json) {
+            return new Response(201, json.toString());
+        }
+
+        static Response noContent() {
+            return new Response(204, null);
+        }
+
+        static Response error(int status, String message) {
+            return new Response(status, new JsonWriter().beginObject().name("error").value(message).endObject().toString());
+        }
+    }
+}
@@ -0,0 +1,160 @@
+package server;
+
+import DesingP.facade.LibraryFacade;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.net.InetSocketAddress;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The {@code LibraryServer} class serves the operations of a {@link LibraryFacade} as a JSON API over
+ * HTTP, using the HTTP server built into the JDK. The routes are described by {@link LibraryApi}.
+ *
+ * <p>Each request runs on a virtual thread of its own where the JDK has them, so a request that waits,
+ * for a lending lock or for its journal record to be forced to disk, parks a virtual thread rather than
+ * holding a platform thread, and many thousands of connections can be served at once. Where the JDK has
+ * no virtual threads, or they are still a preview feature that is not enabled, requests run on a fixed
+ * pool of {@value #FALLBACK_THREADS} platform threads instead.</p>
+ */
+public class LibraryServer implements AutoCloseable {
+
+    /** The default port of the server. */
+    public static final int DEFAULT_PORT = 8080;
+
+    /** The number of connections that may wait to be accepted. */
+    private static final int BACKLOG = 16 * 1024;
+
+    /** The number of platform threads serving requests where there are no virtual threads. */
+    private static final int FALLBACK_THREADS = 256;
+
+    /** The system property of the JDK's HTTP server that bounds the idle keep-alive connections. */
+    private static final String MAX_IDLE_CONNECTIONS = "sun.net.httpserver.maxIdleConnections";
+
+    static {
+        // The JDK closes keep-alive connections beyond 200 idle ones, so clients that keep many
+        // connections open would have to reconnect between requests; the property is read once,
+        // when the first server is created, and is left alone if it was set on the command line
+        if (System.getProperty(MAX_IDLE_CONNECTIONS) == null) {
+            System.setProperty(MAX_IDLE_CONNECTIONS, Integer.toString(64 * 1024));
+        }
+    }
+
+    /** The HTTP server. */
+    private final HttpServer server;
+
+    /** The executor running the requests. */
+    private final ExecutorService executor;
+
+    /** Whether the executor runs each request on a virtual thread. */
+    private final boolean virtualThreads;
+
+    /**
+     * Constructs a new {@code LibraryServer} bound to the given address. The server does not accept
+     * requests until it is started.
+     *
+     * @param facade  The facade whose operations are served.
+     * @param address The address to listen on; port 0 picks a free port.
+     * @throws IOException If the address cannot be bound.
+     */
+    public LibraryServer(LibraryFacade facade, InetSocketAddress address) throws IOException {
+        ExecutorService virtual = newVirtualThreadExecutor();
+        this.virtualThreads = virtual != null;
+        this.executor = virtual != null ? virtual : Executors.newFixedThreadPool(FALLBACK_THREADS, new RequestThreadFactory());
+        this.server = HttpServer.create(address, BACKLOG);
+        this.server.createContext("/", new LibraryApi(facade));
+        this.server.setExecutor(executor);
+    }
+
+    /**
+     * Starts accepting requests.
+     */
+    public void start() {
+        server.start();
+    }
+
+    /**
+     * Returns the port the server listens on.
+     *
+     * @return The port.
+     */
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    /**
+     * Returns whether requests run on virtual threads rather than on a pool of platform threads.
+     *
+     * @return {@code true} if each request runs on a virtual thread.
+     */
+    public boolean usesVirtualThreads() {
+        return virtualThreads;
+    }
+
+    /**
+     * Stops the server, letting the requests in progress finish for up to a second.
+     */
+    @Override
+    public void close() {
+        server.stop(1);
+        executor.shutdown();
+        try {
+            executor.awaitTermination(1, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Creates an executor that starts a virtual thread for each task. The executor is looked up at run
+     * time, so the server builds and runs on JDKs that predate virtual threads.
+     *
+     * @return The executor, or {@code null} if virtual threads are not available.
+     */
+    private static ExecutorService newVirtualThreadExecutor() {
+        try {
+            Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) factory.invoke(null);
+        } catch (ReflectiveOperationException | UnsupportedOperationException e) {
+            return null; // No virtual threads, or a preview feature that is not enabled
+        }
+    }
+
+    /**
+     * Starts a server on the port given as the only argument, or on {@value #DEFAULT_PORT}, serving a
+     * facade over the library of {@link DesingP.singleton.SingletonLibrary}.
+     *
+     * @param args The port, optionally.
+     * @throws IOException If the port cannot be bound.
+     */
+    public static void main(String[] args) throws IOException {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_PORT;
+        LibraryServer server = new LibraryServer(new LibraryFacade(), new InetSocketAddress(port));
+        Runtime.getRuntime().addShutdownHook(new Thread(server::close));
+        server.start();
+        System.out.println("Library API listening on port " + server.getPort()
+                + (server.usesVirtualThreads() ? " (virtual threads)" : " (platform threads)"));
+    }
+
+    /**
+     * The {@code RequestThreadFactory} class names the platform threads that serve requests where there
+     * are no virtual threads.
+     */
+    private static final class RequestThreadFactory implements ThreadFactory {
+
+        /** The number of threads created so far. */
+        private final AtomicInteger created = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable task) {
+            Thread thread = new Thread(task, "library-api-" + created.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
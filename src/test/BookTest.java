@@ -3,8 +3,10 @@ package test;
 import static org.junit.jupiter.api.Assertions.*;
 
 import model.Book;
+import model.Library;
 import model.Loan;
 import model.Member;
+import DesingP.decorator.RatedBook;
 import DesingP.util.BookStateException;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -84,5 +86,54 @@ public class BookTest {
         }
     }
 
-}
+    @Test
+    public void testLendCopyWhenNoCopiesAvailable() throws BookStateException {
+        Book book = new Book("Test Title", "Test Author", 2023, 1);
+        book.lendCopy();
+        assertThrows(BookStateException.class, book::lendCopy);
+        assertEquals(1, book.getBorrowedQuantity());
+        assertEquals(0, book.getAvailableQuantity());
+    }
+
+    @Test
+    public void testSetQuantityKeepsBorrowedCopies() throws BookStateException {
+        Book book = new Book("Test Title", "Test Author", 2023, 5);
+        book.lendCopy();
+        book.setQuantity(3);
+        assertEquals(3, book.getQuantity());
+        assertEquals(1, book.getBorrowedQuantity());
+        assertEquals(2, book.getAvailableQuantity());
+    }
+
+    @Test
+    public void testCloneHasIndependentInventory() throws BookStateException {
+        Book clonedBook = book.clone();
+        clonedBook.lendCopy();
+        assertEquals(0, book.getBorrowedQuantity());
+        assertEquals(1, clonedBook.getBorrowedQuantity());
+    }
 
+    @Test
+    public void testRatedBookDelegatesInventory() throws BookStateException {
+        RatedBook ratedBook = new RatedBook(book, 8.0);
+        ratedBook.lendCopy();
+        assertEquals(1, ratedBook.getBorrowedQuantity());
+        assertEquals(4, ratedBook.getAvailableQuantity());
+        assertEquals(1, book.getBorrowedQuantity());
+        ratedBook.setAvailable(false);
+        assertEquals(0, book.getQuantity());
+    }
+
+    @Test
+    public void testBooksByOneAuthorShareTheName() {
+        Book other = new Book("Franny and Zooey", new String("J.D. Salinger"), 1961, 1); // A copy, as parsed from a file
+        Library library = new Library();
+        library.addBook(book);
+        library.addBook(new RatedBook(other, 9.0));
+        assertSame(book.getAuthor(), other.getAuthor());
+        assertEquals(1, library.getAuthorDictionary().size());
+        library.getBooks().clear();
+        assertEquals(0, library.getAuthorDictionary().size()); // The dictionary goes with the catalog
+        assertNull(new Book("Anonymous", null, 1900, 1).getAuthor());
+    }
+}
@@ -0,0 +1,169 @@
+package test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import DesingP.util.BookStateException;
+import model.Book;
+import model.Librarian;
+import model.Library;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import persistence.CatalogExporter;
+import persistence.CatalogImporter;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Stream;
+
+public class CatalogExporterTest {
+
+    private Path directory;
+    private Library library;
+    private Librarian librarian;
+    private ForkJoinPool pool;
+    private CatalogExporter exporter;
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("export");
+        library = new Library();
+        librarian = new Librarian(library);
+        pool = new ForkJoinPool(3);
+        exporter = new CatalogExporter(library, pool, 4); // Small chunks, so even a small library spans several windows
+    }
+
+    @AfterEach
+    public void tearDown() throws IOException {
+        pool.shutdown();
+        try (Stream<Path> files = Files.walk(directory)) {
+            for (Path file : files.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(file);
+            }
+        }
+    }
+
+    @Test
+    public void testCsvExportImportsBack() throws BookStateException, IOException {
+        for (int i = 0; i < 100; i++) {
+            librarian.addBook("Title " + i, "Author " + i % 7, 1900 + i, 1 + i % 3);
+        }
+        librarian.addBook("War, and \"Peace\"", "Leo Tolstoy", 1869, 2);
+        librarian.addMember("Doe, Jane", "M1");
+        librarian.addMember("John", "M2");
+        librarian.lendBook("War, and \"Peace\"", "M1");
+        librarian.lendBook("Title 5", "M2");
+        librarian.lendBook("Title 6", "M2");
+        librarian.rateBook("Title 5", 8.0);
+        librarian.rateBook("Title 5", 6.0);
+
+        List<Path> files = exporter.exportAll(directory.resolve("nightly"), CatalogExporter.Format.CSV);
+        assertEquals(4, files.size());
+
+        List<String> catalog = Files.readAllLines(files.get(0));
+        assertEquals("title,author,year,quantity,borrowed", catalog.get(0));
+        assertEquals(102, catalog.size());
+        assertEquals("Title 0,Author 0,1900,1,0", catalog.get(1)); // Catalog order is kept across chunks and windows
+        assertEquals("Title 99,Author 1,1999,1,0", catalog.get(100));
+        assertEquals("\"War, and \"\"Peace\"\"\",Leo Tolstoy,1869,2,1", catalog.get(101));
+
+        List<String> loans = Files.readAllLines(files.get(2));
+        assertEquals(4, loans.size());
+        assertTrue(loans.get(1).startsWith("\"War, and \"\"Peace\"\"\",M1,"), loans.get(1));
+        assertTrue(loans.get(3).startsWith("Title 6,M2,"), loans.get(3));
+
+        List<String> ratings = Files.readAllLines(files.get(3));
+        assertEquals(List.of("title,count,mean,stddev,min,max", "Title 5,2,7.0,1.0,6.0,8.0"), ratings);
+
+        Library copy = new Library();
+        CatalogImporter importer = new CatalogImporter(new Librarian(copy));
+        assertEquals(101, importer.importBooks(files.get(0)).getImported());
+        assertEquals(2, importer.importMembers(files.get(1)).getImported());
+        Book imported = copy.findBookByTitle("War, and \"Peace\"");
+        assertEquals("Leo Tolstoy", imported.getAuthor());
+        assertEquals(2, imported.getQuantity());
+        assertEquals("Doe, Jane", copy.findMemberById("M1").getName());
+    }
+
+    @Test
+    public void testBinaryExport() throws IOException {
+        for (int i = 0; i < 50; i++) {
+            librarian.addBook("Book " + i, i % 2 == 0 ? "Author" : null, i - 10, i);
+        }
+        Path file = directory.resolve("catalog.bin");
+
+        assertEquals(50, exporter.exportBooks(file, CatalogExporter.Format.BINARY));
+
+        ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(file));
+        assertEquals(0x4C425831, buffer.getInt());
+        assertEquals(1, buffer.get());
+        assertEquals(1, buffer.get());
+        for (int i = 0; i < 50; i++) {
+            assertEquals("Book " + i, readString(buffer));
+            assertEquals(i % 2 == 0 ? "Author" : null, readString(buffer));
+            long year = readVarLong(buffer);
+            assertEquals(i - 10, (year >>> 1) ^ -(year & 1));
+            assertEquals(i, readVarLong(buffer));
+            assertEquals(0, readVarLong(buffer));
+        }
+        assertFalse(buffer.hasRemaining());
+        assertTrue(Files.size(file) < Files.size(exportCsv()));
+    }
+
+    @Test
+    public void testUnicodeRoundTrip() throws IOException {
+        librarian.addBook("Café \uD834\uDD1E, \u65E5\u672C", "\u00C9mile", 1900, 1);
+        Path csv = directory.resolve("catalog.csv");
+        Path bin = directory.resolve("catalog.bin");
+        exporter.exportBooks(csv, CatalogExporter.Format.CSV);
+        exporter.exportBooks(bin, CatalogExporter.Format.BINARY);
+
+        Library copy = new Library();
+        new CatalogImporter(new Librarian(copy)).importBooks(csv);
+        assertEquals("\u00C9mile", copy.findBookByTitle("Café \uD834\uDD1E, \u65E5\u672C").getAuthor());
+        ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(bin));
+        buffer.position(6);
+        assertEquals("Café \uD834\uDD1E, \u65E5\u672C", readString(buffer));
+        assertEquals("\u00C9mile", readString(buffer));
+    }
+
+    @Test
+    public void testEmptyLibrary() throws IOException {
+        Path file = directory.resolve("members.csv");
+        assertEquals(0, exporter.exportMembers(file, CatalogExporter.Format.CSV));
+        assertEquals("name,id\n", Files.readString(file));
+    }
+
+    private Path exportCsv() throws IOException {
+        Path file = directory.resolve("catalog.csv");
+        exporter.exportBooks(file, CatalogExporter.Format.CSV);
+        return file;
+    }
+
+    private static long readVarLong(ByteBuffer buffer) {
+        long value = 0;
+        for (int shift = 0; ; shift += 7) {
+            byte b = buffer.get();
+            value |= (long) (b & 0x7F) << shift;
+            if (b >= 0) {
+                return value;
+            }
+        }
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        int length = (int) readVarLong(buffer);
+        if (length == 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length - 1];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
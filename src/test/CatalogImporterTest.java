@@ -0,0 +1,149 @@
+package test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import model.Book;
+import model.Librarian;
+import model.Library;
+import model.Member;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import persistence.CatalogImporter;
+import persistence.ImportResult;
+import persistence.LibraryStore;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.stream.Stream;
+
+public class CatalogImporterTest {
+
+    private Path directory;
+    private Library library;
+    private CatalogImporter importer;
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("import");
+        library = new Library();
+        importer = new CatalogImporter(new Librarian(library), 2);
+    }
+
+    @AfterEach
+    public void tearDown() throws IOException {
+        try (Stream<Path> files = Files.walk(directory)) {
+            for (Path file : files.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(file);
+            }
+        }
+    }
+
+    private Path write(String name, String content) throws IOException {
+        return Files.writeString(directory.resolve(name), content, StandardCharsets.UTF_8);
+    }
+
+    @Test
+    public void testImportBooksFromCsv() throws IOException {
+        Path file = write("books.csv", "quantity,title,shelf,author,year\r\n"
+                + "3,Dune,A1,Frank Herbert,1965\r\n"
+                + "\r\n"
+                + "1,\"War, and Peace\",B2,Leo Tolstoy,1869\n"
+                + "2,\"The \"\"Quoted\"\" Book\",C3,\"Line\nBreak\",2001\n"
+                + "4,Café,D4,Émile,1900");
+
+        ImportResult result = importer.importBooks(file);
+
+        assertEquals(4, result.getRecords());
+        assertEquals(4, result.getImported());
+        assertEquals(4, library.getBooks().size());
+        Book dune = library.findBookByTitle("Dune");
+        assertEquals("Frank Herbert", dune.getAuthor());
+        assertEquals(1965, dune.getYear());
+        assertEquals(3, dune.getQuantity());
+        assertEquals("Leo Tolstoy", library.findBookByTitle("War, and Peace").getAuthor());
+        assertEquals("Line\nBreak", library.findBookByTitle("The \"Quoted\" Book").getAuthor());
+        assertEquals("Émile", library.findBookByTitle("Café").getAuthor());
+        assertEquals(10, library.countTotalBooks());
+        assertEquals(1, library.searchBooks("tolstoy", 10).size()); // The search index catches up with the batches
+    }
+
+    @Test
+    public void testImportMembersFromJsonLines() throws IOException {
+        library.addMember(new Member("Registered", "M1"));
+        Path file = write("members.jsonl", "{\"id\": \"M1\", \"name\": \"Taken\"}\n"
+                + "{\"name\":\"Ann \\\"Nan\\\" Lee\",\"id\":\"M2\",\"age\":41,\"active\":true}\n"
+                + "\n"
+                + "  { \"name\" : \"Bo\\u00e9\\n\" , \"id\" : \"M3\" , \"note\" : null }  \r\n"
+                + "{\"name\":\"Twice\",\"id\":\"M2\"}\n"
+                + "{\"id\":\"M4\",\"name\":\"Dee\"}");
+
+        ImportResult result = importer.importMembers(file);
+
+        assertEquals(5, result.getRecords());
+        assertEquals(3, result.getImported());
+        assertEquals(2, result.getSkipped());
+        assertEquals("Registered", library.findMemberById("M1").getName());
+        assertEquals("Ann \"Nan\" Lee", library.findMemberById("M2").getName());
+        assertEquals("Boé\n", library.findMemberById("M3").getName());
+        assertEquals("Dee", library.findMemberById("M4").getName());
+        assertEquals(4, library.getMembers().size());
+    }
+
+    @Test
+    public void testRecordsLongerThanTheBuffer() throws IOException {
+        String longTitle = "T".repeat(600_000);
+        StringBuilder csv = new StringBuilder("title,author,year,quantity\n");
+        for (int i = 0; i < 20_000; i++) {
+            csv.append("Book ").append(i).append(",\"Author, ").append(i % 7).append("\",").append(1900 + i % 100).append(",1\n");
+        }
+        csv.append(longTitle).append(",Long,2000,1\n");
+        Path file = write("large.csv", csv.toString());
+
+        ImportResult result = new CatalogImporter(new Librarian(library)).importBooks(file);
+
+        assertEquals(20_001, result.getImported());
+        assertEquals("Author, 5", library.findBookByTitle("Book 19997").getAuthor());
+        assertEquals(1997, library.findBookByTitle("Book 19997").getYear());
+        assertNotNull(library.findBookByTitle(longTitle));
+    }
+
+    @Test
+    public void testMalformedRecordStopsTheImport() throws IOException {
+        Path file = write("books.jsonl", "{\"title\":\"One\",\"author\":\"A\",\"year\":2000,\"quantity\":1}\n"
+                + "{\"title\":\"Two\",\"author\":\"B\",\"year\":2001,\"quantity\":1}\n"
+                + "{\"title\":\"Three\",\"author\":\"C\",\"year\":\"soon\",\"quantity\":1}\n"
+                + "{\"title\":\"Four\",\"author\":\"D\",\"year\":2003,\"quantity\":1}\n");
+
+        IOException e = assertThrows(IOException.class, () -> importer.importBooks(file));
+        assertTrue(e.getMessage().contains("record 3"), e.getMessage());
+        assertNotNull(library.findBookByTitle("Two")); // Earlier records stay in the library
+        assertNull(library.findBookByTitle("Four"));
+
+        Path missing = write("missing.csv", "title,author,year\nDune,Frank Herbert,1965\n");
+        assertThrows(IOException.class, () -> importer.importBooks(missing));
+        Path unterminated = write("open.csv", "title,author,year,quantity\n\"Dune,Frank Herbert,1965,1\n");
+        assertThrows(IOException.class, () -> importer.importBooks(unterminated));
+        assertThrows(IllegalArgumentException.class, () -> importer.importBooks(directory.resolve("books.xml")));
+    }
+
+    @Test
+    public void testImportIsJournaled() throws IOException {
+        Path store = directory.resolve("store");
+        Path file = write("books.csv", "title,author,year,quantity\nDune,Frank Herbert,1965,3\nEmma,Jane Austen,1815,2\nUlysses,James Joyce,1922,1\n");
+        try (LibraryStore opened = LibraryStore.open(store, library)) {
+            assertEquals(0, opened.getReplayedRecords()); // A new store starts with an empty journal
+            importer.importBooks(file);
+        }
+
+        Library recovered = new Library();
+        try (LibraryStore opened = LibraryStore.open(store, recovered)) {
+            assertEquals(3, opened.getReplayedRecords());
+        }
+        assertEquals(3, recovered.getBooks().size());
+        assertEquals(2, recovered.findBookByTitle("Emma").getQuantity());
+    }
+}
@@ -0,0 +1,250 @@
+package test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import DesingP.decorator.RatedBook;
+import DesingP.util.BookStateException;
+import model.BatchMode;
+import model.Book;
+import model.CatalogLayout;
+import model.ItemResult;
+import model.Librarian;
+import model.Library;
+import model.Loan;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import persistence.Snapshot;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+public class ColumnarCatalogTest {
+
+    private Library library;
+    private Librarian librarian;
+
+    @BeforeEach
+    public void setUp() throws BookStateException {
+        library = new Library(CatalogLayout.COLUMNAR);
+        librarian = new Librarian(library);
+        librarian.addMember("Jane Doe", "M1");
+        librarian.addMember("John Doe", "M2");
+    }
+
+    @Test
+    public void testBooksAreStoredAndLent() throws BookStateException {
+        librarian.addBook("Dune", "Frank Herbert", 1965, 2);
+        librarian.addBook("Dune Messiah", "Frank Herbert", 1969, 1);
+        librarian.addBook("Café 𝄞", null, -200, 1);
+        assertEquals(CatalogLayout.COLUMNAR, library.getLayout());
+
+        Book dune = library.findBookByTitle("Dune");
+        assertEquals("Frank Herbert", dune.getAuthor());
+        assertEquals(1965, dune.getYear());
+        assertNull(library.findBookByTitle("Café 𝄞").getAuthor());
+        assertEquals(-200, library.getBooks().get(2).getYear());
+
+        assertTrue(librarian.lendBook("Dune", "M1"));
+        assertTrue(librarian.lendBook("Dune", "M2"));
+        assertThrows(BookStateException.class, () -> librarian.lendBook("Dune", "M1"));
+        assertEquals(0, dune.getAvailableQuantity()); // Every view reads the same row
+        assertEquals(1, librarian.getUserLoans("M1").size());
+        assertEquals(2, library.findBookByTitle("Dune").getLoanHistory().size());
+
+        librarian.returnBook("Dune", "M1");
+        librarian.rateBook("Dune", 8.0);
+        assertEquals(1, dune.getAvailableQuantity());
+        assertEquals(8.0, library.findBookByTitle("Dune").getAverageRating());
+        assertEquals(1, library.getLoanedBooksCount());
+        assertTrue(library.getLibrarySummary().contains("Total Books: 4"), library.getLibrarySummary());
+        library.verifyCounters();
+    }
+
+    @Test
+    public void testViewsAreEqualButNotIdentical() {
+        librarian.addBook("Dune", "Frank Herbert", 1965, 2);
+        Book first = library.findBookByTitle("Dune");
+        Book second = library.getBooks().get(0);
+        assertNotSame(first, second);
+        assertEquals(first, second);
+        assertEquals(first.hashCode(), second.hashCode());
+        assertNotEquals(first, library.adopt(new Book("Dune", "Frank Herbert", 1965, 2)));
+    }
+
+    @Test
+    public void testAddedBookIsCopied() {
+        Book original = new Book("Dune", "Frank Herbert", 1965, 2);
+        original.restoreInventory(2, 1);
+        library.addBook(original);
+        Book held = library.findBookByTitle("Dune");
+        assertNotSame(original, held);
+        assertEquals(1, held.getBorrowedQuantity());
+        assertEquals(2, library.countTotalBooks());
+        library.verifyCounters();
+    }
+
+    @Test
+    public void testDuplicateTitlesAndRemoval() throws BookStateException {
+        librarian.addBook("Dune", "Frank Herbert", 1965, 1);
+        librarian.addBook("Dune", "Someone Else", 2021, 1);
+        assertEquals("Frank Herbert", library.findBookByTitle("Dune").getAuthor());
+
+        librarian.removeBook("Dune");
+        assertEquals("Someone Else", library.findBookByTitle("Dune").getAuthor()); // The next book takes over the title
+        assertEquals(1, library.getBooks().size());
+        librarian.removeBook("Dune");
+        assertNull(library.findBookByTitle("Dune"));
+        assertEquals(0, library.countTotalBooks());
+    }
+
+    @Test
+    public void testBatchCountsRepeatedTitlesOnce() throws BookStateException {
+        librarian.addBook("Dune", "Frank Herbert", 1965, 1);
+        List<ItemResult> results = librarian.lendBooks("M1", List.of("Dune", "Dune"), BatchMode.ALL_OR_NOTHING);
+        assertFalse(results.get(1).isSuccess()); // Two lookups of the title are views of the same row
+        assertEquals(1, library.findBookByTitle("Dune").getAvailableQuantity());
+    }
+
+    @Test
+    public void testClearKeepsOldViewsReadable() throws BookStateException {
+        librarian.addBook("Dune", "Frank Herbert", 1965, 1);
+        librarian.lendBook("Dune", "M1");
+        Loan loan = library.findMemberById("M1").getLoans().get(0);
+        library.getBooks().clear();
+
+        assertNull(library.findBookByTitle("Dune"));
+        assertEquals("Dune", loan.getBook().getTitle());
+        librarian.addBook("Emma", "Jane Austen", 1815, 1);
+        assertEquals("Emma", library.getBooks().get(0).getTitle());
+        assertEquals("Dune", loan.getBook().getTitle()); // The new columns do not overwrite the old row
+    }
+
+    @Test
+    public void testSnapshotsKeepTheirVersion() throws BookStateException {
+        librarian.addBook("Dune", "Frank Herbert", 1965, 2);
+        librarian.addBook("Emma", "Jane Austen", 1815, 1);
+        List<Book> first = library.getBooksSnapshot();
+        librarian.addBook("Ulysses", "James Joyce", 1922, 1); // Written in place, past the first version
+        List<Book> second = library.getBooksSnapshot();
+        library.getBooks().remove(0);
+        library.getBooks().set(0, new Book("Persuasion", "Jane Austen", 1817, 1));
+        List<Book> third = library.getBooksSnapshot();
+        library.getBooks().clear();
+
+        assertEquals(List.of("Dune", "Emma"), titles(first));
+        assertEquals(List.of("Dune", "Emma", "Ulysses"), titles(second));
+        assertEquals(List.of("Persuasion", "Ulysses"), titles(third));
+        assertTrue(library.getBooksSnapshot().isEmpty());
+        assertThrows(UnsupportedOperationException.class, () -> first.add(new Book("Dune", "Frank Herbert", 1965, 1)));
+    }
+
+    @Test
+    public void testRemovedRowsAreReused() throws BookStateException {
+        for (int i = 0; i < 300; i++) {
+            librarian.addBook("Book " + i, "Author " + i, 2000, 1);
+        }
+        assertTrue(librarian.lendBook("Book 0", "M1"));
+        Book lent = library.findBookByTitle("Book 0");
+        Book removed = library.findBookByTitle("Book 1");
+        List<Book> before = library.getBooksSnapshot();
+        library.removeBook(removed);
+        for (int i = 0; i < 200; i += 2) { // Enough tombstones for a compaction
+            library.removeBook(library.findBookByTitle("Book " + i));
+        }
+        assertEquals(199, library.getBooks().size());
+        assertEquals("Book 3", library.getBooks().get(0).getTitle());
+        assertEquals("Book 299", library.getBooks().get(198).getTitle());
+        assertEquals(300, before.size()); // The version from before keeps the removed books
+        assertEquals("Book 1", before.get(1).getTitle());
+        assertEquals("Book 0", lent.getTitle()); // A lent book keeps its row for its loans
+
+        before = null;
+        for (int attempt = 0; attempt < 20 && "Book 1".equals(removed.getTitle()); attempt++) {
+            System.gc(); // Rows are reused once no version from before the compaction is reachable
+            for (int i = 0; i < 10; i++) {
+                librarian.addBook("New " + attempt + "-" + i, "Author", 2020, 1);
+            }
+        }
+        assertNotEquals("Book 1", removed.getTitle());
+        assertThrows(IllegalStateException.class, () -> library.adopt(removed));
+        assertEquals("Book 0", lent.getTitle());
+        assertEquals("Book 3", library.getBooks().get(0).getTitle());
+        library.verifyCounters();
+    }
+
+    private static List<String> titles(List<Book> books) {
+        List<String> titles = new ArrayList<>();
+        for (Book book : books) {
+            titles.add(book.getTitle());
+        }
+        return titles;
+    }
+
+    @Test
+    public void testDecoratedBooksAreRejected() {
+        Book book = new Book("Dune", "Frank Herbert", 1965, 1);
+        assertThrows(UnsupportedOperationException.class, () -> library.addBook(new RatedBook(book, 4.0)));
+    }
+
+    @Test
+    public void testSnapshotRoundTrip() throws Exception {
+        for (int i = 0; i < 40_000; i++) { // Spans several chunks of rows
+            library.addBook(new Book("Title " + i, "Author " + i % 10, 1900 + i % 100, 1 + i % 3));
+        }
+        librarian.lendBook("Title 39999", "M1");
+        Path file = Files.createTempFile("columnar", ".snapshot");
+        try {
+            Snapshot.capture(library, 3).writeTo(file);
+            Library loaded = new Library(CatalogLayout.COLUMNAR);
+            Snapshot.load(file, loaded);
+            assertEquals(40_000, loaded.getBooks().size());
+            Book book = loaded.findBookByTitle("Title 39999");
+            assertEquals("Author 9", book.getAuthor());
+            assertEquals(1, book.getBorrowedQuantity());
+            assertEquals(book, loaded.findMemberById("M1").getLoans().get(0).getBook());
+            loaded.verifyCounters();
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    public void testConcurrentLendingNeverOverLends() throws Exception {
+        librarian.addBook("Hot", "Author", 2024, 3);
+        for (int m = 0; m < 8; m++) {
+            librarian.addMember("Member " + m, "T" + m);
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<?>> workers = new ArrayList<>();
+            for (int m = 0; m < 8; m++) {
+                String memberId = "T" + m;
+                workers.add(executor.submit(() -> {
+                    for (int round = 0; round < 500; round++) {
+                        try {
+                            librarian.lendBook("Hot", memberId);
+                        } catch (BookStateException e) {
+                            continue; // All copies are out
+                        }
+                        Book book = library.findBookByTitle("Hot");
+                        assertTrue(book.getBorrowedQuantity() <= book.getQuantity());
+                        librarian.returnBook("Hot", memberId);
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> worker : workers) {
+                worker.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+        assertEquals(0, library.findBookByTitle("Hot").getBorrowedQuantity());
+        library.verifyCounters();
+    }
+}
@@ -0,0 +1,303 @@
+package test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import DesingP.facade.LibraryFacade;
+import DesingP.singleton.SingletonLibrary;
+import DesingP.util.BookStateException;
+import model.Book;
+import model.Library;
+import model.Member;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class ConcurrentLendingTest {
+
+    private static final int THREADS = 32;
+    private static final int ROUNDS = 2_000;
+    private static final String[] TITLES = {"Hot Title 1", "Hot Title 2", "Hot Title 3"};
+    private static final int COPIES = 4;
+
+    private LibraryFacade libraryFacade;
+    private Library library;
+
+    @BeforeEach
+    public void setUp() throws BookStateException {
+        SingletonLibrary.resetInstance();
+        library = SingletonLibrary.getInstance();
+        libraryFacade = new LibraryFacade();
+        library.getBooks().clear();
+        for (String title : TITLES) {
+            libraryFacade.addBook(title, "Author", 2024, COPIES);
+        }
+        for (int t = 0; t < THREADS; t++) {
+            libraryFacade.addMember("Member " + t, "M" + t);
+        }
+    }
+
+    @Test
+    public void testConcurrentLendAndReturnNeverOverLends() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS + 1);
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicBoolean running = new AtomicBoolean(true);
+        AtomicInteger overLends = new AtomicInteger();
+        AtomicInteger successfulLends = new AtomicInteger();
+
+        // A watcher keeps checking that no book ever has more copies out than it owns
+        Future<?> watcher = executor.submit(() -> {
+            while (running.get()) {
+                for (String title : TITLES) {
+                    Book book = library.findBookByTitle(title);
+                    if (book.getBorrowedQuantity() > book.getQuantity()) {
+                        overLends.incrementAndGet();
+                    }
+                }
+            }
+        });
+
+        List<Future<?>> workers = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            String memberId = "M" + t;
+            Random random = new Random(t);
+            workers.add(executor.submit(() -> {
+                start.await();
+                for (int round = 0; round < ROUNDS; round++) {
+                    String title = TITLES[random.nextInt(TITLES.length)];
+                    try {
+                        libraryFacade.lendBook(title, memberId);
+                    } catch (BookStateException e) {
+                        continue; // All copies are out, which is expected under contention
+                    }
+                    successfulLends.incrementAndGet();
+                    Book book = library.findBookByTitle(title);
+                    if (book.getBorrowedQuantity() > book.getQuantity()) {
+                        overLends.incrementAndGet();
+                    }
+                    libraryFacade.returnBook(title, memberId);
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> worker : workers) {
+            worker.get(2, TimeUnit.MINUTES);
+        }
+        running.set(false);
+        watcher.get(1, TimeUnit.MINUTES);
+        executor.shutdown();
+
+        assertEquals(0, overLends.get(), "A book was lent more times than it has copies");
+        for (String title : TITLES) {
+            Book book = library.findBookByTitle(title);
+            assertEquals(0, book.getBorrowedQuantity());
+            assertTrue(book.getLoanHistory().isEmpty());
+        }
+        for (Member member : library.getMembers()) {
+            assertTrue(member.getLoans().isEmpty());
+        }
+        assertEquals(0, library.getLoanedBooksCount());
+        assertEquals(successfulLends.get(), library.getTotalLoansCount());
+        library.verifyCounters(); // The incremental counts survived the contention
+    }
+
+    @Test
+    public void testConcurrentLendsOfLastCopies() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Boolean>> attempts = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            String memberId = "M" + t;
+            attempts.add(executor.submit(() -> {
+                start.await();
+                try {
+                    return libraryFacade.lendBook(TITLES[0], memberId);
+                } catch (BookStateException e) {
+                    return false;
+                }
+            }));
+        }
+        start.countDown();
+        int lent = 0;
+        for (Future<Boolean> attempt : attempts) {
+            if (attempt.get(1, TimeUnit.MINUTES)) {
+                lent++;
+            }
+        }
+        executor.shutdown();
+
+        assertEquals(COPIES, lent);
+        assertEquals(COPIES, library.findBookByTitle(TITLES[0]).getBorrowedQuantity());
+        assertEquals(COPIES, library.getLoanedBooksCount());
+    }
+
+    @Test
+    public void testConcurrentReturnsServeEveryHolderOnce() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Integer>> members = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            String memberId = "M" + t;
+            members.add(executor.submit(() -> {
+                start.await();
+                libraryFacade.reserveBook(TITLES[0], memberId);
+                while (libraryFacade.getUserLoans(memberId).isEmpty()) {
+                    Thread.onSpinWait(); // Waits for a copy to be handed over, never retrying the lend
+                }
+                assertEquals(0, libraryFacade.getHoldPosition(TITLES[0], memberId));
+                libraryFacade.returnBook(TITLES[0], memberId);
+                return 1;
+            }));
+        }
+        start.countDown();
+        int served = 0;
+        for (Future<Integer> member : members) {
+            served += member.get(1, TimeUnit.MINUTES);
+        }
+        executor.shutdown();
+
+        assertEquals(THREADS, served);
+        Book book = library.findBookByTitle(TITLES[0]);
+        assertEquals(0, book.getBorrowedQuantity());
+        assertNull(library.getHoldQueue(book));
+        assertEquals(THREADS, library.getTotalLoansCount()); // Each member borrowed exactly once
+        assertEquals(0, library.getLoanedBooksCount());
+        library.verifyCounters();
+    }
+
+    @Test
+    public void testConcurrentDuplicateMemberRegistration() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Boolean>> attempts = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            attempts.add(executor.submit(() -> {
+                start.await();
+                try {
+                    libraryFacade.addMember("Same Person", "SHARED");
+                    return true;
+                } catch (BookStateException e) {
+                    return false;
+                }
+            }));
+        }
+        start.countDown();
+        int registered = 0;
+        for (Future<Boolean> attempt : attempts) {
+            if (attempt.get(1, TimeUnit.MINUTES)) {
+                registered++;
+            }
+        }
+        executor.shutdown();
+
+        assertEquals(1, registered);
+        assertEquals(THREADS + 1, library.getMembers().size());
+    }
+
+    @Test
+    public void testConcurrentLendCopyOnSingleBook() throws Exception {
+        Book book = new Book("Rush Title", "Author", 2024, 10);
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicInteger lent = new AtomicInteger();
+        List<Future<?>> workers = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            workers.add(executor.submit(() -> {
+                start.await();
+                for (int round = 0; round < ROUNDS; round++) {
+                    try {
+                        book.lendCopy();
+                        lent.incrementAndGet();
+                    } catch (BookStateException e) {
+                        // Sold out
+                    }
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> worker : workers) {
+            worker.get(1, TimeUnit.MINUTES);
+        }
+        executor.shutdown();
+
+        assertEquals(10, lent.get());
+        assertEquals(10, book.getBorrowedQuantity());
+        assertEquals(0, book.getAvailableQuantity());
+    }
+
+    @Test
+    public void testSnapshotsStayConsistentUnderCatalogChurn() throws Exception {
+        int writers = 4;
+        int readers = 4;
+        ExecutorService executor = Executors.newFixedThreadPool(writers + readers);
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicBoolean running = new AtomicBoolean(true);
+        AtomicInteger snapshots = new AtomicInteger();
+
+        List<Future<?>> workers = new ArrayList<>();
+        for (int w = 0; w < writers; w++) {
+            int writer = w;
+            workers.add(executor.submit(() -> {
+                start.await();
+                for (int round = 0; round < ROUNDS; round++) {
+                    String title = "Churn " + writer + "-" + round;
+                    libraryFacade.addBook(title, "Author", 2024, 1);
+                    if (round % 4 != 3) {
+                        libraryFacade.removeBook(title); // Keeps a quarter of the books, so the catalog grows
+                    }
+                }
+                return null;
+            }));
+        }
+        List<Future<?>> watchers = new ArrayList<>();
+        for (int r = 0; r < readers; r++) {
+            watchers.add(executor.submit(() -> {
+                start.await();
+                while (running.get()) {
+                    List<Book> snapshot = libraryFacade.getAllBooks();
+                    int size = snapshot.size();
+                    int seen = 0;
+                    int hot = 0;
+                    for (Book book : snapshot) {
+                        assertEquals(book, snapshot.get(seen));
+                        if (book.getTitle().startsWith("Hot Title")) {
+                            hot++;
+                        }
+                        seen++;
+                    }
+                    assertEquals(size, seen); // The snapshot did not change while it was iterated
+                    assertEquals(TITLES.length, hot);
+                    snapshots.incrementAndGet();
+                }
+                return null;
+            }));
+        }
+        List<Book> before = libraryFacade.getAllBooks();
+        start.countDown();
+        for (Future<?> worker : workers) {
+            worker.get(1, TimeUnit.MINUTES);
+        }
+        running.set(false);
+        for (Future<?> watcher : watchers) {
+            watcher.get(1, TimeUnit.MINUTES);
+        }
+        executor.shutdown();
+
+        assertTrue(snapshots.get() > 0);
+        assertEquals(TITLES.length, before.size()); // Taken before the churn, and untouched by it
+        List<Book> after = libraryFacade.getAllBooks();
+        assertEquals(TITLES.length + writers * ROUNDS / 4, after.size());
+        assertEquals(library.getBooks(), after);
+    }
+}
@@ -0,0 +1,146 @@
+package test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import DesingP.observer.BackpressurePolicy;
+import DesingP.observer.EventBus;
+import DesingP.observer.Observer;
+import DesingP.util.BookStateException;
+import model.Librarian;
+import model.Library;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+public class EventBusTest {
+
+    private EventBus bus;
+
+    @AfterEach
+    public void tearDown() {
+        if (bus != null) {
+            bus.close();
+        }
+    }
+
+    @Test
+    public void testEventsOfASubjectArriveInOrder() throws InterruptedException {
+        bus = new EventBus(16, 4, 4, BackpressurePolicy.BLOCK);
+        List<String> first = Collections.synchronizedList(new ArrayList<>());
+        List<String> second = Collections.synchronizedList(new ArrayList<>());
+        List<Observer> firstObservers = List.of(first::add);
+        List<Observer> secondObservers = List.of(second::add);
+        for (int i = 0; i < 1000; i++) {
+            bus.publish("first", firstObservers, "event " + i);
+            bus.publish("second", secondObservers, "event " + i);
+        }
+
+        assertTrue(bus.awaitIdle(10, TimeUnit.SECONDS));
+        assertEquals(1000, first.size());
+        assertEquals(1000, second.size());
+        for (int i = 0; i < 1000; i++) {
+            assertEquals("event " + i, first.get(i));
+            assertEquals("event " + i, second.get(i));
+        }
+    }
+
+    @Test
+    public void testDropOldestWhenFull() throws InterruptedException {
+        bus = new EventBus(4, 1, 1, BackpressurePolicy.DROP_OLDEST);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        List<String> received = new CopyOnWriteArrayList<>();
+        List<Observer> observers = holdFirst(started, release, received);
+        bus.publish(this, observers, "held");
+        assertTrue(started.await(10, TimeUnit.SECONDS)); // The consumer is stuck on the first event
+        for (int i = 0; i < 10; i++) {
+            bus.publish(this, observers, "event " + i); // Never waits, although the buffer is full
+        }
+        release.countDown();
+
+        assertTrue(bus.awaitIdle(10, TimeUnit.SECONDS));
+        assertEquals(6, bus.getDroppedEvents());
+        assertEquals(List.of("held", "event 6", "event 7", "event 8", "event 9"), received);
+    }
+
+    @Test
+    public void testCoalesceKeepsTheLatestMessage() throws InterruptedException {
+        bus = new EventBus(4, 1, 1, BackpressurePolicy.COALESCE);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        List<String> received = new CopyOnWriteArrayList<>();
+        List<Observer> observers = holdFirst(started, release, received);
+        bus.publish("blocker", observers, "held");
+        assertTrue(started.await(10, TimeUnit.SECONDS));
+        for (int i = 0; i < 100; i++) {
+            bus.publish("book", observers, "quantity " + i);
+        }
+        release.countDown();
+
+        assertTrue(bus.awaitIdle(10, TimeUnit.SECONDS));
+        assertEquals(99, bus.getCoalescedEvents());
+        assertEquals(List.of("held", "quantity 99"), received);
+    }
+
+    @Test
+    public void testDecoratedBookNotifiesObserversOfTheOriginal() throws BookStateException, InterruptedException {
+        bus = new EventBus(16, 1, 8, BackpressurePolicy.BLOCK);
+        EventBus previous = EventBus.setDefault(bus);
+        try {
+            Library library = new Library();
+            Librarian librarian = new Librarian(library);
+            librarian.addBook("Observed Book", "Author", 2024, 2);
+            librarian.addMember("John Doe", "1");
+            List<String> bookMessages = new CopyOnWriteArrayList<>();
+            List<String> memberMessages = new CopyOnWriteArrayList<>();
+            library.findBookByTitle("Observed Book").addObserver(bookMessages::add);
+            library.findMemberById("1").addObserver(memberMessages::add);
+
+            librarian.lendBook("Observed Book", "1"); // Lending and returning notify nobody
+            librarian.rateBook("Observed Book", 4.0); // The rated book shares the observers of the original
+            librarian.returnBook("Observed Book", "1");
+            library.findBookByTitle("Observed Book").notifyObservers("Rated");
+
+            assertTrue(bus.awaitIdle(10, TimeUnit.SECONDS));
+            assertEquals(List.of("Rated"), bookMessages);
+            assertTrue(memberMessages.isEmpty());
+        } finally {
+            EventBus.setDefault(previous);
+        }
+    }
+
+    @Test
+    public void testDefaultBusNeverDropsNotices() {
+        EventBus previous = EventBus.setDefault(null);
+        try {
+            assertEquals(BackpressurePolicy.BLOCK, EventBus.getDefault().getPolicy());
+        } finally {
+            EventBus created = EventBus.setDefault(previous);
+            created.close();
+        }
+    }
+
+    /**
+     * Returns observers that record their messages, holding up the consumer on the first one
+     * until released.
+     */
+    private static List<Observer> holdFirst(CountDownLatch started, CountDownLatch release, List<String> received) {
+        return List.of(message -> {
+            if (started.getCount() > 0) {
+                started.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            received.add(message);
+        });
+    }
+}
@@ -3,13 +3,32 @@ package test;
 import static org.junit.jupiter.api.Assertions.*;
 
 import DesingP.util.BookStateException;
+import model.BatchMode;
 import model.Book;
+import model.ItemResult;
 import model.Librarian;
 import model.Library;
+import model.Loan;
+import model.LoanArchive;
+import model.Member;
+import model.OverdueMonitor;
+import DesingP.observer.EventBus;
+import DesingP.observer.MemberObserver;
 import DesingP.singleton.SingletonLibrary;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
 public class LibrarianTest {
     private Librarian librarian;
     private Library library;
@@ -76,6 +95,9 @@ public class LibrarianTest {
     public void testAddMember() throws BookStateException {
         librarian.addMember("Member 1", "ID1");
         assertEquals(1, library.getMembers().size());
+        assertTrue(library.getMembers().get(0).getObservers().get(0) instanceof MemberObserver);
+        assertThrows(BookStateException.class, () -> librarian.addMember(new Member("Member 2", "ID1")));
+        assertEquals(1, library.getMembers().get(0).getObservers().size());
     }
 
     @Test
@@ -106,6 +128,238 @@ public class LibrarianTest {
         assertEquals(0, book.getBorrowedQuantity());
     }
 
+    @Test
+    public void testLoanIsDueAfterTheLoanPeriod() throws BookStateException {
+        librarian.addBook("Book Title 1", "Author 1", 2001, 5);
+        librarian.addMember("John Doe", "123");
+        librarian.lendBook("Book Title 1", "123");
+        Loan loan = library.findMemberById("123").getLoans().get(0);
+        assertEquals(Loan.DEFAULT_LOAN_PERIOD.toMillis(), loan.getDueDate().getTime() - loan.getLoanDate().getTime());
+        assertFalse(loan.isOverdue(new Date()));
+        assertTrue(loan.isOverdue(new Date(loan.getDueDate().getTime() + 1)));
+    }
+
+    @Test
+    public void testCompletedLoansAreArchived() throws BookStateException {
+        Library library = new Library();
+        Librarian librarian = new Librarian(library);
+        librarian.addBook("Book Title 1", "Author 1", 2001, 5);
+        librarian.addBook("Book Title 2", "Author 2", 2002, 5);
+        librarian.addMember("John Doe", "123");
+        librarian.addMember("Jane Doe", "456");
+        librarian.lendBook("Book Title 1", "123");
+        librarian.returnBook("Book Title 1", "123"); // Returned before the library archives loans
+        assertNull(library.getLoanArchive());
+
+        library.setLoanArchive(new LoanArchive());
+        librarian.lendBook("Book Title 1", "123");
+        Loan first = library.findMemberById("123").getLoans().get(0);
+        librarian.returnBook("Book Title 1", "123");
+        librarian.lendBook("Book Title 2", "123");
+        librarian.lendBook("Book Title 1", "456");
+        librarian.returnBook("Book Title 1", "456");
+        librarian.returnBook("Book Title 2", "123");
+
+        LoanArchive archive = library.getLoanArchive();
+        assertEquals(3, archive.size());
+        assertTrue(first.isReturned());
+        List<Loan> history = archive.loansOf(library.findBookByTitle("Book Title 1"));
+        assertEquals(2, history.size());
+        assertEquals(first.getId(), history.get(0).getId()); // Oldest first
+        assertEquals(first.getLoanTime(), history.get(0).getLoanTime());
+        assertEquals(first.getDueDate(), history.get(0).getDueDate());
+        assertEquals(first.getReturnDate(), history.get(0).getReturnDate());
+        assertSame(library.findMemberById("456"), history.get(1).getMember());
+        assertEquals(List.of("Book Title 1", "Book Title 2"), archive.loansOf(library.findMemberById("123")).stream()
+                .map(loan -> loan.getBook().getTitle()).collect(Collectors.toList()));
+        assertFalse(history.get(0).isOverdue(new Date(Long.MAX_VALUE))); // A completed loan is never overdue
+        assertThrows(IllegalArgumentException.class, () -> archive.append(new Loan(new Book("Other", "Author", 2000, 1), new Member("Other", "789"))));
+    }
+
+    @Test
+    public void testLoanHistorySpansSpilledArchive() throws BookStateException, IOException {
+        Path directory = Files.createTempDirectory("archive");
+        Library library = new Library();
+        Librarian librarian = new Librarian(library);
+        LoanArchive archive = new LoanArchive(directory, 1);
+        library.setLoanArchive(archive);
+        librarian.addBook("Book Title 1", "Author 1", 2001, 5);
+        librarian.addBook("Book Title 2", "Author 2", 2002, 5);
+        librarian.addMember("John Doe", "123");
+        try {
+            for (int i = 0; i < 20_000; i++) { // Fills a few chunks, so all but the last are spilled
+                String title = i % 4 == 0 ? "Book Title 1" : "Book Title 2";
+                librarian.lendBook(title, "123");
+                librarian.returnBook(title, "123");
+            }
+            librarian.lendBook("Book Title 1", "123");
+            assertNull(archive.getSpillFailure());
+            assertTrue(archive.spilledSize() >= 8_192, "spilled " + archive.spilledSize());
+
+            List<Loan> history = library.getLoanHistory(library.findBookByTitle("Book Title 1"));
+            assertEquals(5_001, history.size());
+            for (int i = 1; i < 5_000; i++) {
+                assertTrue(history.get(i - 1).getId() < history.get(i).getId());
+                assertTrue(history.get(i).isReturned());
+            }
+            assertFalse(history.get(5_000).isReturned()); // The active loan comes last
+            assertEquals(15_000, archive.loansOf(library.findMemberById("123")).size() - 5_000);
+            assertEquals(history.get(0).getDueDate(), new Date(history.get(0).getLoanTime() + Loan.DEFAULT_LOAN_PERIOD.toMillis()));
+        } finally {
+            archive.close();
+        }
+        try (Stream<Path> files = Files.list(directory)) {
+            assertEquals(0, files.count()); // Closing deletes the segments
+        }
+        Files.delete(directory);
+    }
+
+    @Test
+    public void testOverdueLoansAreReportedToObservers() throws BookStateException, InterruptedException {
+        Library library = new Library();
+        Librarian librarian = new Librarian(library);
+        librarian.addBook("Book Title 1", "Author 1", 2001, 5);
+        librarian.addBook("Book Title 2", "Author 2", 2002, 5);
+        librarian.addMember("John Doe", "123");
+        List<String> messages = new CopyOnWriteArrayList<>();
+        library.findMemberById("123").addObserver(messages::add);
+        library.setLoanPeriod(Duration.ofMillis(-OverdueMonitor.DEFAULT_TICK.toMillis())); // Due before it is made
+        librarian.lendBook("Book Title 1", "123");
+        librarian.lendBook("Book Title 2", "123");
+        librarian.returnBook("Book Title 2", "123"); // Returned before the monitor reports it
+
+        assertEquals(1, library.getOverdueMonitor().poll());
+        assertTrue(EventBus.getDefault().awaitIdle(10, TimeUnit.SECONDS));
+        assertEquals(1, messages.stream().filter(message -> message.contains("overdue")).count());
+        assertEquals(1, library.getOverdueLoans().size());
+        assertEquals("Book Title 1", library.getOverdueLoans().get(0).getBook().getTitle());
+
+        librarian.returnBook("Book Title 1", "123");
+        assertTrue(library.getOverdueLoans().isEmpty());
+        assertEquals(0, library.getOverdueMonitor().poll());
+        assertEquals(1, library.getOverdueMonitor().getOverdueCount());
+    }
+
+    @Test
+    public void testReturnHandsTheCopyToTheFirstHolder() throws BookStateException {
+        Library library = new Library();
+        Librarian librarian = new Librarian(library);
+        librarian.addBook("Hot Book", "Author", 2024, 1);
+        librarian.addMember("John Doe", "1");
+        librarian.addMember("Jane Doe", "2");
+        librarian.addMember("Jim Doe", "3");
+        assertEquals(0, librarian.placeHold("Hot Book", "1")); // A free copy is lent straight away
+        assertEquals(1, librarian.placeHold("Hot Book", "2"));
+        assertEquals(2, librarian.placeHold("Hot Book", "3"));
+        assertThrows(BookStateException.class, () -> librarian.placeHold("Hot Book", "3"));
+        assertThrows(BookStateException.class, () -> librarian.lendBook("Hot Book", "3"));
+        assertThrows(BookStateException.class, () -> librarian.placeHold("Hot Book", "99")); // Not a null member to notify
+        assertThrows(BookStateException.class, () -> librarian.getExpectedWait("No Such Book", "3"));
+
+        librarian.returnBook("Hot Book", "1");
+
+        Book book = library.findBookByTitle("Hot Book");
+        assertEquals(1, book.getBorrowedQuantity()); // The copy never went back on the shelf
+        assertEquals(1, library.findMemberById("2").getLoans().size());
+        assertTrue(library.findMemberById("1").getLoans().isEmpty());
+        assertEquals(0, librarian.getHoldPosition("Hot Book", "2"));
+        assertEquals(1, librarian.getHoldPosition("Hot Book", "3"));
+        assertEquals(1, library.getLoanedBooksCount());
+        assertEquals(2, library.getTotalLoansCount());
+        Duration wait = librarian.getExpectedWait("Hot Book", "3");
+        assertTrue(wait.compareTo(library.getLoanPeriod()) <= 0 && wait.compareTo(library.getLoanPeriod().minusMinutes(1)) > 0);
+
+        librarian.cancelHold("Hot Book", "3");
+        assertNull(library.getHoldQueue(book)); // Books nobody waits for keep no queue
+        librarian.returnBook("Hot Book", "2");
+        assertEquals(0, book.getBorrowedQuantity());
+        library.verifyCounters();
+    }
+
+    @Test
+    public void testReturnByANonBorrowerHandsNothingOver() throws BookStateException {
+        Library library = new Library();
+        Librarian librarian = new Librarian(library);
+        librarian.addBook("Hot Book", "Author", 2024, 1);
+        librarian.addMember("John Doe", "1");
+        librarian.addMember("Jane Doe", "2");
+        librarian.addMember("Jim Doe", "3");
+        librarian.lendBook("Hot Book", "1");
+        librarian.placeHold("Hot Book", "2");
+
+        assertThrows(BookStateException.class, () -> librarian.returnBook("Hot Book", "3"));
+        assertEquals(List.of("Member has not borrowed the book: Hot Book"),
+                librarian.returnBooks("3", List.of("Hot Book"), BatchMode.BEST_EFFORT).stream()
+                        .map(ItemResult::getError).collect(Collectors.toList()));
+
+        assertEquals(1, library.findMemberById("1").getLoans().size());
+        assertTrue(library.findMemberById("2").getLoans().isEmpty());
+        assertEquals(1, librarian.getHoldPosition("Hot Book", "2"));
+        assertEquals(1, library.findBookByTitle("Hot Book").getBorrowedQuantity());
+        library.verifyCounters();
+    }
+
+    @Test
+    public void testRemovedMemberLeavesHoldQueues() throws BookStateException {
+        Library library = new Library();
+        Librarian librarian = new Librarian(library);
+        librarian.addBook("Hot Book", "Author", 2024, 1);
+        librarian.addMember("John Doe", "1");
+        librarian.addMember("Jane Doe", "2");
+        librarian.addMember("Jim Doe", "3");
+        librarian.lendBook("Hot Book", "1");
+        librarian.placeHold("Hot Book", "2");
+        librarian.placeHold("Hot Book", "3");
+
+        librarian.removeMember("2");
+
+        assertTrue(library.getHeldBooks(library.findMemberById("3")).contains(library.findBookByTitle("Hot Book")));
+        assertEquals(1, librarian.getHoldPosition("Hot Book", "3"));
+        librarian.returnBook("Hot Book", "1");
+        assertEquals(1, library.findMemberById("3").getLoans().size());
+    }
+
+    @Test
+    public void testBatchReturnHandsCopiesToHolders() throws BookStateException {
+        Library library = new Library();
+        Librarian librarian = new Librarian(library);
+        librarian.addBook("Hot Book", "Author", 2024, 2);
+        librarian.addMember("John Doe", "1");
+        librarian.addMember("Jane Doe", "2");
+        librarian.addMember("Jim Doe", "3");
+        librarian.lendBooks("1", List.of("Hot Book", "Hot Book"), BatchMode.ALL_OR_NOTHING);
+        librarian.placeHold("Hot Book", "2");
+        librarian.placeHold("Hot Book", "3");
+
+        librarian.returnBooks("1", List.of("Hot Book", "Hot Book"), BatchMode.ALL_OR_NOTHING);
+
+        assertTrue(library.findMemberById("1").getLoans().isEmpty());
+        assertEquals(1, library.findMemberById("2").getLoans().size());
+        assertEquals(1, library.findMemberById("3").getLoans().size());
+        assertEquals(2, library.findBookByTitle("Hot Book").getBorrowedQuantity());
+        library.verifyCounters();
+    }
+
+    @Test
+    public void testAddedCopiesServeHolders() throws BookStateException {
+        Library library = new Library();
+        Librarian librarian = new Librarian(library);
+        librarian.addBook("Hot Book", "Author", 2024, 1);
+        librarian.addMember("John Doe", "1");
+        librarian.addMember("Jane Doe", "2");
+        librarian.addMember("Jim Doe", "3");
+        librarian.lendBook("Hot Book", "1");
+        librarian.placeHold("Hot Book", "2");
+        librarian.placeHold("Hot Book", "3");
+        assertTrue(librarian.getExpectedWait("Hot Book", "3").compareTo(library.getLoanPeriod()) > 0); // Waits for two loans to end
+
+        librarian.updateBookQuantity("Hot Book", 2);
+
+        assertEquals(1, library.findMemberById("2").getLoans().size());
+        assertEquals(1, librarian.getHoldPosition("Hot Book", "3"));
+        assertEquals(2, library.findBookByTitle("Hot Book").getBorrowedQuantity());
+    }
+
     @Test
     public void testLendBookWhenNoCopiesAvailable() {
         try {
@@ -132,4 +386,32 @@ public class LibrarianTest {
             librarian.addMember("Member 2", "ID1");
         });
     }
+
+    @Test
+    public void testRateBookKeepsTitleLookup() throws BookStateException {
+        librarian.addBook("Book Title 1", "Author 1", 2001, 5);
+        Book original = librarian.findBookByTitle("Book Title 1");
+        librarian.rateBook("Book Title 1", 8.0);
+        librarian.rateBook("Book Title 1", 6.0);
+        Book book = librarian.findBookByTitle("Book Title 1");
+        assertSame(original, book); // Rating no longer swaps the book in the catalog
+        assertEquals(2, book.getRatings().getCount());
+        assertEquals(7.0, book.getAverageRating());
+        assertEquals(1, library.getBooks().size());
+    }
+
+    @Test
+    public void testRateBookRejectsOutOfRangeRatings() {
+        librarian.addBook("Book Title 1", "Author 1", 2001, 5);
+        assertThrows(BookStateException.class, () -> librarian.rateBook("Book Title 1", 10.5));
+        assertThrows(BookStateException.class, () -> librarian.rateBook("Book Title 1", Double.NaN));
+        assertNull(librarian.findBookByTitle("Book Title 1").getRatings());
+    }
+
+    @Test
+    public void testFindBookByTitleContaining() throws BookStateException {
+        librarian.addBook("Book Title 1", "Author 1", 2001, 5);
+        assertNull(librarian.findBookByTitle("Title 1"));
+        assertNotNull(librarian.findBookByTitleContaining("Title 1"));
+    }
 }
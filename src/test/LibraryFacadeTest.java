@@ -6,10 +6,16 @@ import DesingP.util.BookStateException;
 import model.Book;
 import DesingP.facade.LibraryFacade;
 import model.Library;
+import analytics.TopEntry;
+import model.BatchMode;
+import model.ItemResult;
 import DesingP.singleton.SingletonLibrary;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import java.time.Duration;
+import java.util.List;
+
 public class LibraryFacadeTest {
     private LibraryFacade libraryFacade;
     private Library library;
@@ -20,6 +26,7 @@ public class LibraryFacadeTest {
         libraryFacade = new LibraryFacade();
         library.getBooks().clear();
         library.getMembers().clear();
+        library.resetPopularity();
     }
 
     @Test
@@ -118,5 +125,79 @@ public class LibraryFacadeTest {
         });
     }
 
+    @Test
+    public void testTopBooksAndAuthors() throws BookStateException {
+        libraryFacade.addBook("Emma", "Jane Austen", 1815, 5);
+        libraryFacade.addBook("Persuasion", "Jane Austen", 1817, 5);
+        libraryFacade.addBook("Dune", "Frank Herbert", 1965, 5);
+        libraryFacade.addMember("John Doe", "1");
+        libraryFacade.lendBook("Emma", "1");
+        libraryFacade.lendBook("Persuasion", "1");
+        libraryFacade.lendBook("Dune", "1");
+        libraryFacade.returnBook("Emma", "1");
+        libraryFacade.lendBook("Emma", "1");
+
+        List<TopEntry> books = libraryFacade.getTopBooks(1, Duration.ofHours(1));
+        assertEquals(1, books.size());
+        assertEquals("Emma", books.get(0).getKey());
+        assertEquals(2, books.get(0).getCount());
+        List<TopEntry> authors = libraryFacade.getTopAuthors(2, Duration.ofHours(1));
+        assertEquals("Jane Austen", authors.get(0).getKey());
+        assertEquals(3, authors.get(0).getCount());
+        assertEquals("Frank Herbert", authors.get(1).getKey());
+    }
 
+    @Test
+    public void testLendBooksAllOrNothing() throws BookStateException {
+        libraryFacade.addBook("Book Title 1", "Author 1", 2001, 1);
+        libraryFacade.addBook("Book Title 2", "Author 2", 2002, 1);
+        libraryFacade.addMember("John Doe", "1");
+
+        List<ItemResult> results = libraryFacade.lendBooks("1", List.of("Book Title 1", "Book Title 2", "Book Title 2"), BatchMode.ALL_OR_NOTHING);
+
+        assertEquals(3, results.size());
+        assertFalse(results.get(0).isSuccess()); // Cancelled with the rest of the basket
+        assertFalse(results.get(1).isSuccess());
+        assertEquals("No available copies of the book: Book Title 2", results.get(2).getError()); // Only one copy to lend
+        assertEquals(0, library.findBookByTitle("Book Title 1").getBorrowedQuantity());
+        assertEquals(0, library.findBookByTitle("Book Title 2").getBorrowedQuantity());
+    }
+
+    @Test
+    public void testLendAndReturnBooksBestEffort() throws BookStateException {
+        libraryFacade.addBook("Book Title 1", "Author 1", 2001, 1);
+        libraryFacade.addBook("Book Title 2", "Author 2", 2002, 2);
+        libraryFacade.addMember("John Doe", "1");
+
+        List<ItemResult> lent = libraryFacade.lendBooks("1", List.of("Book Title 1", "Missing Title", "Book Title 2", "Book Title 2"), BatchMode.BEST_EFFORT);
+
+        assertTrue(lent.get(0).isSuccess());
+        assertEquals("Book not found: Missing Title", lent.get(1).getError());
+        assertTrue(lent.get(2).isSuccess());
+        assertTrue(lent.get(3).isSuccess());
+        assertEquals(3, libraryFacade.getUserLoans("1").size());
+
+        List<ItemResult> returned = libraryFacade.returnBooks("1", List.of("Book Title 2", "Book Title 1", "Book Title 1"), BatchMode.BEST_EFFORT);
+
+        assertTrue(returned.get(0).isSuccess());
+        assertTrue(returned.get(1).isSuccess());
+        assertFalse(returned.get(2).isSuccess()); // Only one copy was borrowed
+        assertEquals(1, libraryFacade.getUserLoans("1").size());
+        assertEquals(0, library.findBookByTitle("Book Title 1").getBorrowedQuantity());
+        assertThrows(BookStateException.class, () -> libraryFacade.lendBooks("2", List.of("Book Title 1"), BatchMode.BEST_EFFORT));
+    }
+
+    @Test
+    public void testReturnBooksServesHolders() throws BookStateException {
+        libraryFacade.addBook("Book Title 1", "Author 1", 2001, 1);
+        libraryFacade.addMember("John Doe", "1");
+        libraryFacade.addMember("Jane Doe", "2");
+        libraryFacade.lendBooks("1", List.of("Book Title 1"), BatchMode.ALL_OR_NOTHING);
+        assertEquals(1, libraryFacade.reserveBook("Book Title 1", "2"));
+
+        libraryFacade.returnBooks("1", List.of("Book Title 1"), BatchMode.ALL_OR_NOTHING);
+
+        assertEquals(1, libraryFacade.getUserLoans("2").size());
+        assertEquals(0, libraryFacade.getHoldPosition("Book Title 1", "2"));
+    }
 }
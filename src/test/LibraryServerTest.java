@@ -0,0 +1,136 @@
+package test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import DesingP.facade.LibraryFacade;
+import DesingP.singleton.SingletonLibrary;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import server.LibraryServer;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+public class LibraryServerTest {
+
+    private LibraryServer server;
+    private HttpClient client;
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        SingletonLibrary.resetInstance();
+        LibraryFacade facade = new LibraryFacade();
+        SingletonLibrary.getInstance().getBooks().clear();
+        server = new LibraryServer(facade, new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+        server.start();
+        client = HttpClient.newHttpClient();
+    }
+
+    @AfterEach
+    public void tearDown() {
+        server.close();
+    }
+
+    @Test
+    public void testBooksAndLoans() throws Exception {
+        HttpResponse<String> added = send("POST", "/books", "{\"title\":\"Dune/Messiah\",\"author\":\"Frank Herbert\",\"year\":1969,\"quantity\":1}");
+        assertEquals(201, added.statusCode());
+        assertTrue(added.body().contains("\"title\":\"Dune/Messiah\""), added.body());
+        assertEquals(201, send("POST", "/members", "{\"name\":\"Jane \\\"JD\\\" Doe\",\"id\":\"M1\"}").statusCode());
+        assertEquals(201, send("POST", "/members", "{\"name\":\"John\",\"id\":\"M2\"}").statusCode());
+
+        HttpResponse<String> book = send("GET", "/books/Dune%2FMessiah", null);
+        assertEquals(200, book.statusCode());
+        assertEquals("{\"title\":\"Dune/Messiah\",\"author\":\"Frank Herbert\",\"year\":1969,\"quantity\":1,\"available\":1,\"rating\":0.0}", book.body());
+
+        assertEquals(201, send("POST", "/loans", "{\"title\":\"Dune/Messiah\",\"memberId\":\"M1\"}").statusCode());
+        HttpResponse<String> refused = send("POST", "/loans", "{\"title\":\"Dune/Messiah\",\"memberId\":\"M2\"}");
+        assertEquals(409, refused.statusCode());
+        assertTrue(refused.body().startsWith("{\"error\":"), refused.body());
+
+        HttpResponse<String> hold = send("POST", "/holds", "{\"title\":\"Dune/Messiah\",\"memberId\":\"M2\"}");
+        assertEquals("{\"position\":1}", hold.body());
+        assertEquals(200, send("GET", "/holds/M2/Dune%2FMessiah", null).statusCode());
+
+        HttpResponse<String> loans = send("GET", "/members/M1/loans", null);
+        assertTrue(loans.body().contains("Dune/Messiah"), loans.body());
+        assertEquals(204, send("POST", "/returns", "{\"title\":\"Dune/Messiah\",\"memberId\":\"M1\"}").statusCode());
+        assertEquals("[]", send("GET", "/members/M1/loans", null).body());
+        assertTrue(send("GET", "/members/M2/loans", null).body().contains("Dune/Messiah")); // The hold was filled on return
+
+        assertEquals(204, send("POST", "/books/Dune%2FMessiah/ratings", "{\"rating\":8}").statusCode());
+        assertTrue(send("GET", "/books/Dune%2FMessiah/ratings", null).body().startsWith("{\"count\":1,\"mean\":8.0"));
+        assertTrue(send("GET", "/popular/books?window=PT1H", null).body().contains("{\"title\":\"Dune/Messiah\",\"count\":2}"));
+    }
+
+    @Test
+    public void testBatchLending() throws Exception {
+        send("POST", "/books", "{\"title\":\"A\",\"author\":\"X\",\"year\":2000,\"quantity\":1}");
+        send("POST", "/books", "{\"title\":\"B\",\"author\":\"X\",\"year\":2000,\"quantity\":1}");
+        send("POST", "/members", "{\"name\":\"Jane\",\"id\":\"M1\"}");
+
+        HttpResponse<String> results = send("POST", "/loans/batch", "{\"memberId\":\"M1\",\"titles\":[\"A\",\"Missing\",\"B\"]}");
+        assertEquals(200, results.statusCode());
+        assertTrue(results.body().startsWith("[{\"title\":\"A\",\"success\":true},{\"title\":\"Missing\",\"success\":false,\"error\":"), results.body());
+
+        HttpResponse<String> page = send("GET", "/books?offset=1&limit=5", null);
+        assertTrue(page.body().startsWith("[{\"title\":\"B\",\"author\":\"X\",\"year\":2000,\"quantity\":1,\"available\":0"), page.body());
+    }
+
+    @Test
+    public void testErrors() throws Exception {
+        assertEquals(404, send("GET", "/books/Missing", null).statusCode());
+        assertEquals(404, send("GET", "/nothing", null).statusCode());
+        assertEquals(405, send("DELETE", "/summary", null).statusCode());
+        assertEquals(400, send("POST", "/books", "{\"title\":\"A\",").statusCode());
+        assertEquals(400, send("POST", "/books", "{\"title\":\"A\",\"year\":\"1999\",\"quantity\":1}").statusCode());
+        assertEquals(400, send("GET", "/books?limit=-1", null).statusCode());
+        assertEquals(400, send("GET", "/popular/authors?window=an-hour", null).statusCode());
+        assertEquals(409, send("POST", "/loans", "{\"title\":\"Missing\",\"memberId\":\"M1\"}").statusCode());
+    }
+
+    @Test
+    public void testConcurrentRequests() throws Exception {
+        send("POST", "/books", "{\"title\":\"Hot\",\"author\":\"X\",\"year\":2000,\"quantity\":10}");
+        List<CompletableFuture<HttpResponse<String>>> responses = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            send("POST", "/members", "{\"name\":\"Member\",\"id\":\"M" + i + "\"}");
+        }
+        for (int i = 0; i < 50; i++) {
+            responses.add(client.sendAsync(request("POST", "/loans", "{\"title\":\"Hot\",\"memberId\":\"M" + i + "\"}"),
+                    HttpResponse.BodyHandlers.ofString()));
+        }
+        int lent = 0;
+        int refused = 0;
+        for (CompletableFuture<HttpResponse<String>> response : responses) {
+            int status = response.get().statusCode();
+            if (status == 201) {
+                lent++;
+            } else if (status == 409) {
+                refused++;
+            }
+        }
+        assertEquals(10, lent);
+        assertEquals(40, refused);
+        assertTrue(send("GET", "/books/Hot", null).body().contains("\"available\":0"));
+    }
+
+    private HttpResponse<String> send(String method, String path, String body) throws IOException, InterruptedException {
+        return client.send(request(method, path, body), HttpResponse.BodyHandlers.ofString());
+    }
+
+    private HttpRequest request(String method, String path, String body) {
+        return HttpRequest.newBuilder(URI.create("http://localhost:" + server.getPort() + path))
+                .method(method, body == null ? HttpRequest.BodyPublishers.noBody() : HttpRequest.BodyPublishers.ofString(body))
+                .build();
+    }
+}
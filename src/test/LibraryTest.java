@@ -2,12 +2,17 @@ package test;
 
 import static org.junit.jupiter.api.Assertions.*;
 
+import DesingP.decorator.RatedBook;
+import DesingP.util.BookStateException;
 import model.Library;
 import model.Book;
 import model.Member;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import java.util.List;
+import java.util.stream.Collectors;
+
 public class LibraryTest {
     private Library library;
 
@@ -93,4 +98,161 @@ public class LibraryTest {
                 "Total Loans: 1\n";
         assertEquals(expectedSummary, library.getLibrarySummary());
     }
+
+    @Test
+    public void testFindBookByTitle() {
+        Book book = new Book("Book Title", "Author", 2000, 5);
+        library.addBook(book);
+        assertSame(book, library.findBookByTitle("Book Title"));
+        assertNull(library.findBookByTitle("Book"));
+        library.removeBook(book);
+        assertNull(library.findBookByTitle("Book Title"));
+    }
+
+    @Test
+    public void testFindBookByTitleAfterDuplicateRemoved() {
+        Book first = new Book("Book Title", "Author 1", 2000, 5);
+        Book second = new Book("Book Title", "Author 2", 2005, 3);
+        library.addBook(first);
+        library.addBook(second);
+        assertSame(first, library.findBookByTitle("Book Title"));
+        library.removeBook(first);
+        assertSame(second, library.findBookByTitle("Book Title"));
+
+        Book third = new Book("Book Title", "Author 3", 2010, 1);
+        library.addBook(third);
+        library.addBook(first);
+        library.removeBook(third); // A duplicate that does not own the entry
+        library.removeBook(second);
+        assertSame(first, library.findBookByTitle("Book Title"));
+        library.removeBook(first);
+        assertNull(library.findBookByTitle("Book Title"));
+    }
+
+    @Test
+    public void testTitleIndexFollowsBookList() {
+        library.addBook(new Book("Book Title", "Author", 2000, 5));
+        library.getBooks().clear();
+        assertNull(library.findBookByTitle("Book Title"));
+        Book book = new Book("Book Title", "Author", 2000, 5);
+        library.getBooks().add(book);
+        assertSame(book, library.findBookByTitle("Book Title"));
+    }
+
+    @Test
+    public void testFindBookByTitleContaining() {
+        Book book = new Book("Book Title", "Author", 2000, 5);
+        library.addBook(book);
+        assertSame(book, library.findBookByTitleContaining("Title"));
+        assertNull(library.findBookByTitleContaining("Missing"));
+    }
+
+    @Test
+    public void testFindMemberById() {
+        Member member = new Member("Member Name", "ID1");
+        library.addMember(member);
+        assertSame(member, library.findMemberById("ID1"));
+        library.removeMember(member);
+        assertNull(library.findMemberById("ID1"));
+    }
+
+    @Test
+    public void testMemberIndexFollowsMemberList() {
+        library.addMember(new Member("Member Name", "ID1"));
+        library.getMembers().clear();
+        assertNull(library.findMemberById("ID1"));
+    }
+
+    @Test
+    public void testSearchBooks() {
+        Book gatsby = new Book("The Great Gatsby", "F. Scott Fitzgerald", 1925, 5);
+        Book great = new Book("Great Expectations", "Charles Dickens", 1861, 5);
+        Book other = new Book("1984", "George Orwell", 1949, 5);
+        library.addBook(gatsby);
+        library.addBook(great);
+        library.addBook(other);
+        assertEquals(java.util.List.of(great, gatsby), library.searchBooks("great", 10));
+        assertEquals(java.util.List.of(great), library.searchBooks("great", 1));
+        assertEquals(java.util.List.of(other), library.searchBooks("orwell", 10));
+        assertEquals(java.util.List.of(other), library.searchBooks("98", 10));
+        assertTrue(library.searchBooks("gatsby dickens", 10).isEmpty());
+    }
+
+    @Test
+    public void testSearchBooksAfterRemoval() {
+        Book book = new Book("The Great Gatsby", "F. Scott Fitzgerald", 1925, 5);
+        library.addBook(book);
+        library.removeBook(book);
+        assertTrue(library.searchBooks("gatsby", 10).isEmpty());
+        library.addBook(book);
+        library.getBooks().clear();
+        assertTrue(library.searchBooks("gatsby", 10).isEmpty());
+    }
+
+    @Test
+    public void testSearchBooksAfterBatches() {
+        library.addBooks(java.util.List.of(new Book("War and Peace", "Leo Tolstoy", 1869, 1),
+                new Book("Anna Karenina", "Leo Tolstoy", 1878, 1))); // A bulk load, indexed by the first search
+        assertEquals(2, library.searchBooks("tolstoy", 10).size());
+        Book resurrection = new Book("Resurrection", "Leo Tolstoy", 1899, 1);
+        library.addBooks(java.util.List.of(resurrection)); // A smaller batch, indexed as it is added
+        assertEquals(3, library.searchBooks("tolstoy", 10).size());
+        library.removeBook(resurrection);
+        assertTrue(library.searchBooks("resurrection", 10).isEmpty());
+    }
+
+    @Test
+    public void testSummaryCountsFollowInventory() throws BookStateException {
+        Book book = new Book("Book Title", "Author", 2000, 5);
+        Book other = new Book("Other Title", "Author", 2001, 3);
+        library.addBook(book);
+        library.addBook(other);
+        book.lendCopy();
+        book.lendCopy();
+        other.setQuantity(4);
+        assertEquals(9, library.countTotalBooks());
+        assertEquals(7, library.countAvailableBooks());
+
+        library.replaceBook(book, new RatedBook(book, 4.0)); // The rated book shares the inventory
+        library.findBookByTitle("Book Title").returnCopy();
+        assertEquals(9, library.countTotalBooks());
+        assertEquals(8, library.countAvailableBooks());
+
+        library.removeBook(other);
+        other.setQuantity(10); // A removed book no longer counts
+        book.clone().setQuantity(20); // Neither does a copy that was never added
+        assertEquals(5, library.countTotalBooks());
+        assertEquals(4, library.countAvailableBooks());
+        library.verifyCounters();
+
+        library.getBooks().clear();
+        assertEquals(0, library.countTotalBooks());
+        library.verifyCounters();
+    }
+
+    @Test
+    public void testVerifyCountersDetectsMismatch() {
+        library.addBook(new Book("Book Title", "Author", 2000, 5));
+        library.incrementLoanedBooks(); // A loan count with no loan behind it
+        assertThrows(IllegalStateException.class, () -> library.verifyCounters());
+    }
+
+    @Test
+    public void testFindBooksByAuthor() {
+        library.addBook(new Book("Emma", "Jane Austen", 1815, 1));
+        library.addBook(new Book("Dune", "Frank Herbert", 1965, 1));
+        library.addBook(new Book("Persuasion", "Jane Austen", 1817, 1));
+
+        List<Book> books = library.findBooksByAuthor("Jane Austen");
+        assertEquals(List.of("Emma", "Persuasion"), books.stream().map(Book::getTitle).collect(Collectors.toList()));
+        assertEquals(books, library.findBooksByAuthorId(library.getAuthorDictionary().find(books.get(0).getAuthor())));
+        assertTrue(library.findBooksByAuthor("Nobody Ever").isEmpty());
+
+        library.removeBook(books.get(0));
+        library.getBooks().set(0, new Book("Dune Messiah", "Frank Herbert", 1969, 1)); // Replaces Dune
+        assertEquals(List.of(books.get(1)), library.findBooksByAuthor("Jane Austen"));
+        assertEquals(List.of("Dune Messiah"), library.findBooksByAuthor("Frank Herbert").stream().map(Book::getTitle).collect(Collectors.toList()));
+        library.getBooks().clear();
+        assertTrue(library.findBooksByAuthor("Jane Austen").isEmpty());
+    }
 }
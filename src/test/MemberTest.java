@@ -2,6 +2,7 @@ package test;
 
 import static org.junit.jupiter.api.Assertions.*;
 
+import DesingP.decorator.RatedBook;
 import model.Book;
 import model.Loan;
 import model.Member;
@@ -40,5 +41,39 @@ public class MemberTest {
         assertEquals(0, member.getLoans().size());
     }
 
-}
+    @Test
+    public void testFindLoanByBook() {
+        Book book = new Book("Test Title", "Test Author", 2023, 5);
+        Book other = new Book("Other Title", "Test Author", 2023, 5);
+        Loan first = new Loan(new RatedBook(book, 4.0), member);
+        Loan second = new Loan(book, member);
+        Loan third = new Loan(other, member);
+        member.addLoan(first);
+        member.addLoan(second);
+        member.addLoan(third);
+
+        assertSame(first, member.findLoanByBook(book)); // A rated copy is the same book
+        assertSame(third, member.findLoanById(third.getId()));
+        member.removeLoan(first);
+        assertSame(second, member.findLoanByBook(book));
+        member.removeLoan(second);
+        assertNull(member.findLoanByBook(book));
+        assertSame(third, member.findLoanByBook(other));
+    }
 
+    @Test
+    public void testLoansKeepTheirOrder() {
+        Loan[] loans = new Loan[5];
+        for (int i = 0; i < loans.length; i++) {
+            loans[i] = new Loan(new Book("Title " + i, "Test Author", 2023, 1), member);
+            member.addLoan(loans[i]);
+        }
+        member.removeLoan(loans[2]);
+
+        assertEquals(4, member.getLoans().size());
+        assertSame(loans[0], member.getLoans().get(0));
+        assertSame(loans[3], member.getLoans().get(2));
+        assertFalse(member.getLoans().contains(loans[2]));
+        assertThrows(UnsupportedOperationException.class, () -> member.getLoans().add(loans[2]));
+    }
+}
@@ -0,0 +1,85 @@
+package test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import DesingP.observer.BackpressurePolicy;
+import DesingP.observer.EventBus;
+import DesingP.observer.Observer;
+import DesingP.observer.ObserverRegistry;
+import DesingP.util.BookStateException;
+import model.Book;
+import model.Librarian;
+import model.Library;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+public class ObserverRegistryTest {
+
+    private EventBus bus;
+
+    private EventBus previous;
+
+    private Library library;
+
+    private Librarian librarian;
+
+    @BeforeEach
+    public void setUp() throws BookStateException {
+        bus = new EventBus(64, 1, 8, BackpressurePolicy.BLOCK);
+        previous = EventBus.setDefault(bus);
+        library = new Library();
+        librarian = new Librarian(library);
+        librarian.addBook("First Book", "Shared Author", 2001, 2);
+        librarian.addBook("Second Book", "Shared Author", 2002, 2);
+        librarian.addBook("Third Book", "Other Author", 2003, 2);
+        librarian.addMember("John Doe", "1");
+    }
+
+    @AfterEach
+    public void tearDown() {
+        EventBus.setDefault(previous);
+        bus.close();
+    }
+
+    @Test
+    public void testSubscribeByAuthor() throws BookStateException, InterruptedException {
+        List<String> received = new CopyOnWriteArrayList<>();
+        Observer observer = received::add;
+        ObserverRegistry.getInstance().subscribeToAuthor("Shared Author", observer);
+        library.findBookByTitle("First Book").addObserver(observer); // Notified once, although subscribed twice
+        try {
+            for (String title : List.of("First Book", "Second Book", "Third Book")) {
+                library.findBookByTitle(title).notifyObservers("Notice for " + title);
+            }
+
+            assertTrue(bus.awaitIdle(10, TimeUnit.SECONDS));
+            assertEquals(List.of("Notice for First Book", "Notice for Second Book"), received);
+        } finally {
+            ObserverRegistry.getInstance().unsubscribeFromAuthor("Shared Author", observer);
+        }
+    }
+
+    @Test
+    public void testBooksCarryNoObserversByDefault() {
+        for (Book book : library.getBooks()) {
+            assertTrue(book.getObservers().isEmpty());
+        }
+    }
+
+    @Test
+    public void testRemovingABookDropsItsSubscriptions() throws BookStateException {
+        Book book = library.findBookByTitle("Third Book");
+        Observer observer = message -> { };
+        book.addObserver(observer);
+        librarian.rateBook("Third Book", 5.0); // The rated book is the same subject
+        assertEquals(List.of(observer), library.findBookByTitle("Third Book").getObservers());
+
+        librarian.removeBook("Third Book");
+        assertTrue(book.getObservers().isEmpty());
+    }
+}
@@ -0,0 +1,86 @@
+package test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import model.PersistentList;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+public class PersistentListTest {
+
+    @Test
+    public void testChangesMatchAnArrayList() {
+        Random random = new Random(42);
+        PersistentList<Integer> list = PersistentList.empty();
+        List<Integer> expected = new ArrayList<>();
+        for (int i = 0; i < 20_000; i++) {
+            int choice = random.nextInt(10);
+            if (choice < 5 || expected.isEmpty()) {
+                int index = random.nextInt(expected.size() + 1);
+                list = list.plus(index, i);
+                expected.add(index, i);
+            } else if (choice < 8) {
+                int index = random.nextInt(expected.size());
+                list = list.minus(index);
+                expected.remove(index);
+            } else {
+                int index = random.nextInt(expected.size());
+                list = list.with(index, -i);
+                expected.set(index, -i);
+            }
+        }
+        assertEquals(expected, list);
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.get(i), list.get(i));
+        }
+        while (!expected.isEmpty()) {
+            int index = random.nextInt(expected.size());
+            list = list.minus(index);
+            expected.remove(index);
+            assertEquals(expected.size(), list.size());
+        }
+        assertEquals(expected, list);
+    }
+
+    @Test
+    public void testOlderVersionsAreUnchanged() {
+        PersistentList<Integer> version = PersistentList.empty();
+        List<PersistentList<Integer>> versions = new ArrayList<>();
+        for (int i = 0; i < 1_000; i++) {
+            versions.add(version);
+            version = version.plus(i);
+        }
+        PersistentList<Integer> emptied = version;
+        for (int i = 0; i < 1_000; i++) {
+            emptied = emptied.minus(0);
+        }
+        assertTrue(emptied.isEmpty());
+        for (int i = 0; i < versions.size(); i++) {
+            assertEquals(i, versions.get(i).size());
+            if (i > 0) {
+                assertEquals(Integer.valueOf(i - 1), versions.get(i).get(i - 1));
+            }
+        }
+        assertEquals(Integer.valueOf(999), version.get(999));
+    }
+
+    @Test
+    public void testPlusAllAppendsInOrder() {
+        List<Integer> batch = new ArrayList<>();
+        for (int i = 0; i < 10_000; i++) {
+            batch.add(i);
+        }
+        PersistentList<Integer> list = PersistentList.<Integer>empty().plus(-1).plusAll(batch).plusAll(List.of(10_000));
+        List<Integer> expected = new ArrayList<>(Collections.singletonList(-1));
+        expected.addAll(batch);
+        expected.add(10_000);
+        assertEquals(expected, list);
+        assertEquals(Integer.valueOf(5_000), list.minus(0).get(5_000));
+        assertThrows(IndexOutOfBoundsException.class, () -> list.get(list.size()));
+        assertThrows(UnsupportedOperationException.class, () -> list.add(0));
+    }
+}
@@ -0,0 +1,107 @@
+package test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import analytics.PopularityTracker;
+import analytics.TopEntry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class PopularityTrackerTest {
+
+    private static final Duration MINUTE = Duration.ofMinutes(1);
+
+    @Test
+    public void testRanksByCountThenKey() {
+        AtomicLong now = new AtomicLong();
+        PopularityTracker tracker = new PopularityTracker(MINUTE, 60, 0.001, 0.01, 16, now::get);
+        record(tracker, "Dune", 5);
+        record(tracker, "Emma", 3);
+        record(tracker, "Beloved", 3);
+        record(tracker, "Ulysses", 1);
+
+        List<TopEntry> top = tracker.top(3, Duration.ofHours(1));
+        assertEquals(3, top.size());
+        assertEquals("Dune", top.get(0).getKey());
+        assertEquals(5, top.get(0).getCount());
+        assertEquals("Beloved", top.get(1).getKey()); // Ties are broken by key
+        assertEquals("Emma", top.get(2).getKey());
+        assertEquals(12, tracker.getTotal(Duration.ofHours(1)));
+    }
+
+    @Test
+    public void testOldEventsLeaveTheWindow() {
+        AtomicLong now = new AtomicLong();
+        PopularityTracker tracker = new PopularityTracker(MINUTE, 60, 0.001, 0.01, 16, now::get);
+        record(tracker, "Old", 10);
+        now.addAndGet(Duration.ofMinutes(30).toMillis());
+        record(tracker, "New", 2);
+
+        assertEquals("New", tracker.top(1, Duration.ofMinutes(10)).get(0).getKey());
+        assertEquals("Old", tracker.top(1, Duration.ofHours(1)).get(0).getKey());
+
+        now.addAndGet(Duration.ofMinutes(30).toMillis()); // The old bucket is now an hour ago
+        record(tracker, "New", 1); // Reuses the ring slot of the old bucket
+        List<TopEntry> top = tracker.top(5, Duration.ofDays(1)); // Capped at the longest window
+        assertEquals(1, top.size());
+        assertEquals("New", top.get(0).getKey());
+        assertEquals(3, top.get(0).getCount());
+    }
+
+    @Test
+    public void testEstimatesStayWithinTheErrorBound() {
+        AtomicLong now = new AtomicLong();
+        PopularityTracker tracker = new PopularityTracker(MINUTE, 10, 0.002, 0.01, 32, now::get);
+        Random random = new Random(42);
+        long[] counts = new long[5000];
+        for (int i = 0; i < 100_000; i++) {
+            int key = random.nextDouble() < 0.3 ? random.nextInt(10) : random.nextInt(counts.length); // A few hot keys
+            counts[key]++;
+            tracker.record("book " + key);
+            if (i % 10_000 == 0) {
+                now.addAndGet(MINUTE.toMillis());
+            }
+        }
+
+        Duration window = Duration.ofMinutes(10);
+        long bound = tracker.getErrorBound(window);
+        assertEquals(200, bound); // Every event falls in the window
+        List<TopEntry> top = tracker.top(10, window);
+        assertEquals(10, top.size());
+        for (TopEntry entry : top) {
+            long actual = counts[Integer.parseInt(entry.getKey().substring(5))];
+            assertTrue(entry.getCount() >= actual, entry.toString());
+            assertTrue(entry.getCount() - actual <= bound, entry.toString());
+            assertTrue(entry.getKey().compareTo("book 10") < 0 || entry.getKey().length() == 6, entry.toString()); // Only hot keys rank
+        }
+    }
+
+    @Test
+    public void testConcurrentRecordingLosesNoEvents() throws InterruptedException {
+        AtomicLong now = new AtomicLong();
+        PopularityTracker tracker = new PopularityTracker(MINUTE, 60, 0.001, 0.01, 16, now::get);
+        Thread[] threads = new Thread[4];
+        for (int t = 0; t < threads.length; t++) {
+            threads[t] = new Thread(() -> record(tracker, "Dune", 10_000));
+            threads[t].start();
+        }
+        while (threads[0].isAlive()) {
+            tracker.top(1, Duration.ofHours(1)); // Readers fold in queued events while recording goes on
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertEquals(40_000, tracker.getTotal(Duration.ofHours(1)));
+        assertEquals(40_000, tracker.top(1, Duration.ofHours(1)).get(0).getCount());
+    }
+
+    private static void record(PopularityTracker tracker, String key, int times) {
+        for (int i = 0; i < times; i++) {
+            tracker.record(key);
+        }
+    }
+}
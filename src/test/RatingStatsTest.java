@@ -0,0 +1,46 @@
+package test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import model.RatingStats;
+import org.junit.jupiter.api.Test;
+
+public class RatingStatsTest {
+
+    @Test
+    public void testRunningStatistics() {
+        RatingStats stats = new RatingStats();
+        for (double rating : new double[]{2.0, 4.0, 4.0, 4.0, 5.0, 5.0, 7.0, 9.0}) {
+            stats.add(rating);
+        }
+        assertEquals(8, stats.getCount());
+        assertEquals(5.0, stats.getMean());
+        assertEquals(2.0, stats.getStandardDeviation(), 1e-9);
+        assertEquals(2.0, stats.getMin());
+        assertEquals(9.0, stats.getMax());
+        assertArrayEquals(new long[]{0, 0, 1, 0, 3, 2, 0, 1, 0, 1, 0}, stats.getHistogram());
+    }
+
+    @Test
+    public void testPercentilesFromHistogram() {
+        RatingStats stats = new RatingStats();
+        for (int i = 0; i < 100; i++) {
+            stats.add(i / 10.0); // Ten ratings in each bucket from 0 to 9
+        }
+        stats.add(10.0);
+        assertEquals(0.0, stats.getPercentile(0));
+        assertEquals(5.0, stats.getPercentile(50), 0.1);
+        assertEquals(9.0, stats.getPercentile(90), 0.1);
+        assertEquals(10.0, stats.getPercentile(100));
+        assertThrows(IllegalArgumentException.class, () -> stats.getPercentile(101));
+    }
+
+    @Test
+    public void testEmptyStatistics() {
+        RatingStats stats = new RatingStats();
+        assertEquals(0, stats.getCount());
+        assertEquals(0.0, stats.getMean());
+        assertTrue(Double.isNaN(stats.getPercentile(50)));
+        assertThrows(IllegalArgumentException.class, () -> stats.add(-1.0));
+    }
+}
@@ -0,0 +1,196 @@
+package test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import DesingP.facade.LibraryFacade;
+import DesingP.singleton.SingletonLibrary;
+import DesingP.util.BookStateException;
+import model.Book;
+import model.Librarian;
+import model.Library;
+import model.Loan;
+import model.LoanArchive;
+import model.Member;
+import model.RatingStats;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import persistence.Snapshot;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.nio.file.StandardOpenOption;
+import java.util.stream.Stream;
+
+public class SnapshotTest {
+
+    private Path directory;
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("library");
+        SingletonLibrary.resetInstance();
+    }
+
+    @AfterEach
+    public void tearDown() throws IOException {
+        SingletonLibrary.resetInstance();
+        System.clearProperty(SingletonLibrary.DATA_PROPERTY);
+        System.clearProperty(SingletonLibrary.ARCHIVE_PROPERTY);
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path file : files.toList()) {
+                Files.delete(file);
+            }
+        }
+        Files.delete(directory);
+    }
+
+    @Test
+    public void testWriteAndLoad() throws BookStateException, IOException {
+        Library library = new Library();
+        Librarian librarian = new Librarian(library);
+        librarian.addBook("Snapshot Book", "Author", 2024, 3);
+        librarian.addBook("Other Book", "Someone Else", 1999, 2);
+        librarian.addMember("John Doe", "1");
+        librarian.addMember("Jane Doe", "2");
+        librarian.lendBook("Snapshot Book", "1");
+        librarian.lendBook("Snapshot Book", "2");
+        librarian.lendBook("Other Book", "1");
+        librarian.returnBook("Other Book", "1");
+        librarian.rateBook("Snapshot Book", 4.0);
+        librarian.rateBook("Snapshot Book", 9.5);
+        librarian.updateBookQuantity("Other Book", 5);
+        librarian.addMember("Jim Doe", "3");
+        librarian.addMember("Joan Doe", "4");
+        librarian.updateBookQuantity("Snapshot Book", 2);
+        librarian.placeHold("Snapshot Book", "4");
+        librarian.placeHold("Snapshot Book", "3");
+
+        Path file = directory.resolve("test.snap");
+        Snapshot.capture(library, 7).writeTo(file);
+        Library loaded = new Library();
+        assertEquals(7, Snapshot.load(file, loaded));
+
+        assertEquals(2, loaded.getBooks().size());
+        Book book = loaded.findBookByTitle("Snapshot Book");
+        RatingStats ratings = book.getRatings();
+        assertEquals(2, ratings.getCount());
+        assertEquals(6.75, ratings.getMean());
+        assertEquals(4.0, ratings.getMin());
+        assertEquals(1, ratings.getHistogram()[9]);
+        assertNull(loaded.findBookByTitle("Other Book").getRatings());
+        assertEquals(2, book.getQuantity());
+        assertEquals(2, book.getBorrowedQuantity());
+        assertEquals(List.of(loaded.findMemberById("4"), loaded.findMemberById("3")), loaded.getHoldQueue(book).getMembers());
+        assertEquals(2, book.getLoanHistory().size());
+        assertEquals(5, loaded.findBookByTitle("Other Book").getQuantity());
+        assertEquals(0, loaded.findBookByTitle("Other Book").getBorrowedQuantity());
+        Member member = loaded.findMemberById("1");
+        assertEquals("John Doe", member.getName());
+        assertEquals(1, member.getLoans().size());
+        assertSame(book, member.getLoans().get(0).getBook());
+        assertEquals(library.findMemberById("1").getLoans().get(0).getDueDate(), member.getLoans().get(0).getDueDate());
+        assertEquals(library.findMemberById("1").getLoans().get(0).getId(), member.getLoans().get(0).getId()); // Loan IDs survive the snapshot
+        assertEquals(2, loaded.getOverdueMonitor().getScheduledCount()); // Loaded loans are tracked again
+        assertEquals(2, loaded.getLoanedBooksCount());
+        assertEquals(3, loaded.getTotalLoansCount());
+        assertEquals(1, loaded.searchBooks("someone", 10).size()); // The search index is rebuilt on demand
+    }
+
+    @Test
+    public void testCorruptSnapshotIsRejected() throws IOException {
+        Library library = new Library();
+        new Librarian(library).addBook("Snapshot Book", "Author", 2024, 3);
+        Path file = directory.resolve("test.snap");
+        Snapshot.capture(library, 1).writeTo(file);
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.wrap(new byte[]{'X'}), 40); // Damages the first title
+        }
+        assertThrows(IOException.class, () -> Snapshot.load(file, new Library()));
+    }
+
+    @Test
+    public void testCheckpointThenRecover() throws Exception {
+        System.setProperty(SingletonLibrary.DATA_PROPERTY, directory.toString());
+        LibraryFacade libraryFacade = new LibraryFacade();
+        libraryFacade.addMember("John Doe", "1");
+        libraryFacade.lendBook("1984", "1");
+        libraryFacade.rateBook("1984", 3.5);
+        Path snapshot = libraryFacade.checkpoint().get();
+        libraryFacade.lendBook("The Great Gatsby", "1"); // Recorded in the journal after the snapshot
+
+        assertTrue(Files.exists(snapshot));
+        assertFalse(Files.exists(directory.resolve(String.format("journal-%020d.wal", 0))));
+
+        SingletonLibrary.resetInstance(); // Simulates a restart
+        LibraryFacade recovered = new LibraryFacade();
+        Library library = SingletonLibrary.getInstance();
+        assertEquals(5, library.getBooks().size());
+        assertEquals(3.5, recovered.getBookRating("1984"));
+        assertEquals(1, recovered.findBookByTitle("1984").getBorrowedQuantity());
+        assertEquals(1, recovered.findBookByTitle("The Great Gatsby").getBorrowedQuantity());
+        assertEquals(2, recovered.getUserLoans("1").size());
+        assertEquals(2, library.getTotalLoansCount());
+    }
+
+    @Test
+    public void testCheckpointBuildsOnThePreviousOne() throws Exception {
+        System.setProperty(SingletonLibrary.DATA_PROPERTY, directory.toString());
+        LibraryFacade libraryFacade = new LibraryFacade();
+        libraryFacade.addMember("John Doe", "1");
+        libraryFacade.addMember("Jane Doe", "2");
+        libraryFacade.lendBook("1984", "1");
+        libraryFacade.checkpoint().get();
+        libraryFacade.returnBook("1984", "1");
+        libraryFacade.lendBook("The Great Gatsby", "2");
+        Path snapshot = libraryFacade.checkpoint().get(); // Replays the second segment onto the first snapshot
+        libraryFacade.lendBook("1984", "2");
+
+        try (Stream<Path> files = Files.list(directory)) {
+            assertEquals(List.of(snapshot), files.filter(file -> file.toString().endsWith(".snap")).toList());
+        }
+        assertTrue(SingletonLibrary.getInstance().findMemberById("1").getLoans().isEmpty()); // The live library is untouched
+
+        SingletonLibrary.resetInstance(); // Simulates a restart
+        LibraryFacade recovered = new LibraryFacade();
+        assertTrue(recovered.getUserLoans("1").isEmpty());
+        assertEquals(2, recovered.getUserLoans("2").size());
+        assertEquals(1, recovered.findBookByTitle("1984").getBorrowedQuantity());
+        assertEquals(3, SingletonLibrary.getInstance().getTotalLoansCount());
+    }
+
+    @Test
+    public void testArchivedLoansSurviveACheckpoint() throws Exception {
+        System.setProperty(SingletonLibrary.DATA_PROPERTY, directory.toString());
+        System.setProperty(SingletonLibrary.ARCHIVE_PROPERTY, directory.toString());
+        LibraryFacade libraryFacade = new LibraryFacade();
+        libraryFacade.addMember("John Doe", "1");
+        libraryFacade.addMember("Jane Doe", "2");
+        libraryFacade.lendBook("1984", "1");
+        libraryFacade.returnBook("1984", "1");
+        libraryFacade.lendBook("Pride and Prejudice", "2");
+        libraryFacade.returnBook("Pride and Prejudice", "2");
+        libraryFacade.removeBook("Pride and Prejudice");
+        libraryFacade.removeMember("2");
+        libraryFacade.checkpoint().get(); // Drops the journal that recorded the loans
+        libraryFacade.lendBook("1984", "1");
+
+        SingletonLibrary.resetInstance(); // Simulates a restart
+        LibraryFacade recovered = new LibraryFacade();
+        Library library = SingletonLibrary.getInstance();
+        LoanArchive archive = library.getLoanArchive();
+        assertEquals(2, archive.size());
+        List<Loan> history = library.getLoanHistory(recovered.findBookByTitle("1984"));
+        assertEquals(2, history.size());
+        assertTrue(history.get(0).isReturned());
+        assertSame(library.findMemberById("1"), history.get(0).getMember());
+        assertFalse(history.get(1).isReturned());
+        assertEquals("Pride and Prejudice", archive.get(1).getBook().getTitle()); // Kept although the book and member left
+        assertEquals("2", archive.get(1).getMember().getId());
+    }
+}
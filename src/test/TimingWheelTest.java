@@ -0,0 +1,89 @@
+package test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.Test;
+import scheduling.Timeout;
+import scheduling.TimingWheel;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+public class TimingWheelTest {
+
+    private static final long MINUTE = Duration.ofMinutes(1).toMillis();
+
+    @Test
+    public void testTimeoutsExpireOnceTheirDeadlinePasses() {
+        TimingWheel<Task> wheel = new TimingWheel<>(Duration.ofMinutes(1), 0);
+        Task soon = new Task(5 * MINUTE);
+        Task later = new Task(Duration.ofDays(14).toMillis()); // Several levels up
+        wheel.schedule(soon);
+        wheel.schedule(later);
+
+        assertTrue(wheel.advance(5 * MINUTE - 1).isEmpty());
+        assertTrue(wheel.advance(5 * MINUTE).isEmpty()); // Due, but not yet past due
+        assertEquals(List.of(soon), wheel.advance(6 * MINUTE));
+        assertFalse(soon.isScheduled());
+        assertTrue(wheel.advance(Duration.ofDays(14).toMillis()).isEmpty());
+        assertEquals(List.of(later), wheel.advance(Duration.ofDays(14).toMillis() + MINUTE));
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    public void testCancelledTimeoutsNeverExpire() {
+        TimingWheel<Task> wheel = new TimingWheel<>(Duration.ofMinutes(1), 0);
+        Task kept = new Task(Duration.ofDays(2).toMillis());
+        Task cancelled = new Task(Duration.ofDays(2).toMillis());
+        wheel.schedule(kept);
+        wheel.schedule(cancelled);
+
+        assertTrue(wheel.cancel(cancelled));
+        assertFalse(wheel.cancel(cancelled));
+        assertEquals(List.of(kept), wheel.advance(Duration.ofDays(3).toMillis()));
+        assertThrows(IllegalStateException.class, () -> {
+            wheel.schedule(kept);
+            wheel.schedule(kept);
+        });
+    }
+
+    @Test
+    public void testPastDeadlinesExpireAtTheNextAdvance() {
+        TimingWheel<Task> wheel = new TimingWheel<>(Duration.ofMinutes(1), 60 * MINUTE);
+        Task late = new Task(MINUTE);
+        wheel.schedule(late);
+        assertEquals(List.of(late), wheel.advance(60 * MINUTE));
+    }
+
+    @Test
+    public void testRandomDeadlinesExpireInTheRightTick() {
+        long start = 1_700_000_000_000L;
+        TimingWheel<Task> wheel = new TimingWheel<>(Duration.ofMinutes(1), start);
+        Random random = new Random(7);
+        List<Task> tasks = new ArrayList<>();
+        for (int i = 0; i < 10_000; i++) {
+            Task task = new Task(start + (long) (random.nextDouble() * Duration.ofDays(400).toMillis()));
+            tasks.add(task);
+            wheel.schedule(task);
+        }
+
+        int expired = 0;
+        for (long now = start; now <= start + Duration.ofDays(401).toMillis(); now += 7 * MINUTE) {
+            for (Task task : wheel.advance(now)) {
+                assertTrue(task.getDeadline() < now, "Expired early");
+                assertTrue(task.getDeadline() >= now - 8 * MINUTE, "Expired late");
+                expired++;
+            }
+        }
+        assertEquals(tasks.size(), expired);
+        assertEquals(0, wheel.size());
+    }
+
+    private static final class Task extends Timeout {
+        Task(long deadline) {
+            super(deadline);
+        }
+    }
+}
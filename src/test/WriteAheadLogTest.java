@@ -0,0 +1,156 @@
+package test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import DesingP.facade.LibraryFacade;
+import DesingP.singleton.SingletonLibrary;
+import DesingP.util.BookStateException;
+import model.Librarian;
+import model.Library;
+import model.Loan;
+import model.Member;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import persistence.WriteAheadLog;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.Date;
+import java.util.stream.Stream;
+
+public class WriteAheadLogTest {
+
+    private Path directory;
+    private Path journal;
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("library");
+        journal = directory.resolve(String.format("journal-%020d.wal", 0));
+        SingletonLibrary.resetInstance();
+        System.setProperty(SingletonLibrary.DATA_PROPERTY, directory.toString());
+    }
+
+    @AfterEach
+    public void tearDown() throws IOException {
+        SingletonLibrary.resetInstance();
+        System.clearProperty(SingletonLibrary.DATA_PROPERTY);
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path file : files.toList()) {
+                Files.delete(file);
+            }
+        }
+        Files.delete(directory);
+    }
+
+    @Test
+    public void testRecoverAfterRestart() throws BookStateException {
+        LibraryFacade libraryFacade = new LibraryFacade();
+        libraryFacade.addBook("Journal Book", "Author", 2024, 3);
+        libraryFacade.addMember("John Doe", "1");
+        libraryFacade.addMember("Jane Doe", "2");
+        libraryFacade.lendBook("Journal Book", "1");
+        libraryFacade.lendBook("1984", "1");
+        libraryFacade.lendBook("1984", "2");
+        libraryFacade.returnBook("1984", "2");
+        libraryFacade.rateBook("Journal Book", 4.5);
+        libraryFacade.updateBookQuantity("The Great Gatsby", 2);
+        libraryFacade.removeBook("Pride and Prejudice");
+        libraryFacade.removeMember("2");
+
+        SingletonLibrary.resetInstance(); // Simulates a restart
+        LibraryFacade recovered = new LibraryFacade();
+        Library library = SingletonLibrary.getInstance();
+
+        assertEquals(5, library.getBooks().size()); // The sample books are not added twice
+        assertNull(library.findBookByTitle("Pride and Prejudice"));
+        assertEquals(1, recovered.findBookByTitle("Journal Book").getBorrowedQuantity());
+        assertEquals(4.5, recovered.getBookRating("Journal Book"));
+        assertEquals(2, recovered.findBookByTitle("The Great Gatsby").getQuantity());
+        assertEquals(2, recovered.getUserLoans("1").size());
+        assertNull(library.findMemberById("2"));
+        assertEquals(2, library.getLoanedBooksCount());
+        assertEquals(3, library.getTotalLoansCount());
+    }
+
+    @Test
+    public void testHoldsAndHandOversAreRecovered() throws BookStateException {
+        LibraryFacade libraryFacade = new LibraryFacade();
+        libraryFacade.addBook("Held Book", "Author", 2024, 1);
+        libraryFacade.addMember("John Doe", "1");
+        libraryFacade.addMember("Jane Doe", "2");
+        libraryFacade.addMember("Jim Doe", "3");
+        libraryFacade.addMember("Joan Doe", "4");
+        assertEquals(0, libraryFacade.reserveBook("Held Book", "1"));
+        assertEquals(1, libraryFacade.reserveBook("Held Book", "2"));
+        assertEquals(2, libraryFacade.reserveBook("Held Book", "3"));
+        assertEquals(3, libraryFacade.reserveBook("Held Book", "4"));
+        libraryFacade.cancelReservation("Held Book", "3");
+        libraryFacade.returnBook("Held Book", "1"); // Hands the copy to member 2
+        libraryFacade.updateBookQuantity("Held Book", 2); // Lends the added copy to member 4
+
+        SingletonLibrary.resetInstance(); // Simulates a restart
+        LibraryFacade recovered = new LibraryFacade();
+        Library library = SingletonLibrary.getInstance();
+
+        assertEquals(1, recovered.getUserLoans("2").size());
+        assertTrue(recovered.getUserLoans("1").isEmpty());
+        assertEquals(0, recovered.getHoldPosition("Held Book", "3"));
+        assertEquals(0, recovered.getHoldPosition("Held Book", "4"));
+        assertEquals(1, recovered.getUserLoans("4").size());
+        assertEquals(2, recovered.findBookByTitle("Held Book").getBorrowedQuantity());
+        assertEquals(3, library.getTotalLoansCount());
+    }
+
+    @Test
+    public void testLoanDatesAreRecovered() throws BookStateException {
+        LibraryFacade libraryFacade = new LibraryFacade();
+        libraryFacade.addMember("John Doe", "1");
+        long lent = System.currentTimeMillis() - Duration.ofDays(10).toMillis();
+        new Librarian().lendBook("1984", "1", lent, Duration.ofDays(7)); // Lent ten days ago for a week
+        Library library = SingletonLibrary.getInstance();
+        library.setLoanPeriod(Duration.ofDays(30));
+        libraryFacade.lendBook("The Great Gatsby", "1");
+        Loan current = library.findMemberById("1").findLoanByBook(library.findBookByTitle("The Great Gatsby"));
+
+        SingletonLibrary.resetInstance(); // Simulates a restart, with the default loan period
+        Library recovered = SingletonLibrary.getInstance();
+        Member member = recovered.findMemberById("1");
+
+        Loan overdue = member.findLoanByBook(recovered.findBookByTitle("1984"));
+        assertEquals(lent, overdue.getLoanTime());
+        assertEquals(lent + Duration.ofDays(7).toMillis(), overdue.getDeadline());
+        assertTrue(overdue.isOverdue(new Date()));
+        Loan recent = member.findLoanByBook(recovered.findBookByTitle("The Great Gatsby"));
+        assertEquals(current.getLoanTime(), recent.getLoanTime());
+        assertEquals(current.getDeadline(), recent.getDeadline()); // Due after the period in effect when it was lent
+    }
+
+    @Test
+    public void testTornTailIsDiscarded() throws BookStateException, IOException {
+        LibraryFacade libraryFacade = new LibraryFacade();
+        libraryFacade.addMember("John Doe", "1");
+        libraryFacade.lendBook("1984", "1");
+        SingletonLibrary.resetInstance();
+        long intact = Files.size(journal);
+
+        try (FileChannel channel = FileChannel.open(journal, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+            channel.write(ByteBuffer.wrap(new byte[]{0, 0, 0, 40, 1, 2, 3})); // Half of a record, as if cut off by a crash
+        }
+
+        Library rebuilt = new Library();
+        assertEquals(7, WriteAheadLog.replay(journal, new Librarian(rebuilt))); // Five sample books, a member and a loan
+        assertEquals(intact, Files.size(journal));
+        assertEquals(1, rebuilt.findBookByTitle("1984").getBorrowedQuantity());
+
+        new LibraryFacade().returnBook("1984", "1"); // Later records are appended after the last complete one
+        SingletonLibrary.resetInstance();
+        assertEquals(0, SingletonLibrary.getInstance().findBookByTitle("1984").getBorrowedQuantity());
+    }
+}